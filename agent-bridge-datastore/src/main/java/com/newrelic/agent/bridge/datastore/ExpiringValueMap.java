@@ -17,7 +17,10 @@ import java.util.logging.Level;
  *
  * @param <K> the class type of the cache key
  * @param <V> the class type of the value object
+ * @deprecated every instance schedules its own scan; use
+ * {@link com.newrelic.agent.bridge.CollectionFactory#createConcurrentAccessTimeBasedEvictionMap(String, long)} instead
  */
+@Deprecated
 public class ExpiringValueMap<K, V> extends AbstractMap<K, V>{
 
     private final ConcurrentHashMap<K, TimestampedMapValue<V>> wrappedMap;
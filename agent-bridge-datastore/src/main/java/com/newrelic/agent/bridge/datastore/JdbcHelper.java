@@ -8,6 +8,7 @@
 package com.newrelic.agent.bridge.datastore;
 
 import com.newrelic.agent.bridge.AgentBridge;
+import com.newrelic.agent.bridge.TracedMethod;
 import com.newrelic.api.agent.NewRelic;
 
 import java.sql.Connection;
@@ -41,25 +42,24 @@ public class JdbcHelper {
     };
 
     /**
-     * Any values in the urlToFactory or urlToDatabaseName Maps older than this value will
-     * be evicted from the cache when the {@link ExpiringValueMap} timer fires. This
-     * will also be used as the timer interval value.
+     * Any values in the urlToFactory or urlToDatabaseName Maps that have not been accessed for this long are evicted.
      */
-    private static final long CACHE_EXPIRATION_AGE_MILLI = Duration.ofHours(8).toMillis();
-
-    private static final ExpiringValueMap.ExpiringValueLogicFunction EXPIRE_FUNC =
-            (timeCreated, timeLastAccessed) -> timeLastAccessed < (System.currentTimeMillis() - CACHE_EXPIRATION_AGE_MILLI);
+    private static final long CACHE_EXPIRATION_AGE_SECONDS = Duration.ofHours(8).getSeconds();
 
     // This will contain every vendor type that we detected on the client system
     private static final Map<String, DatabaseVendor> typeToVendorLookup = new ConcurrentHashMap<>(10);
     private static final Map<Class<?>, DatabaseVendor> classToVendorLookup = AgentBridge.collectionFactory.createConcurrentWeakKeyedMap();
     private static final Map<Statement, String> statementToSql = AgentBridge.collectionFactory.createConcurrentWeakKeyedMap();
-    private static final Map<Connection, String> connectionToIdentifier = AgentBridge.collectionFactory.createConcurrentWeakKeyedMap();
-    private static final Map<Connection, String> connectionToURL = AgentBridge.collectionFactory.createConcurrentWeakKeyedMap();
+    // Everything we cache per connection lives in a single entry so a traced call does one weak-keyed lookup
+    private static final Map<Connection, CachedConnectionInfo> connectionToInfo = AgentBridge.collectionFactory.createConcurrentWeakKeyedMap();
     public static final String UNKNOWN = "unknown";
 
-    // Config to toggle the use of the ExpiringValueCache Map implementation or vanilla ConcurrentHashMap implementation
-    // for the urlToFactory and urlToDatabaseName maps. The default is to use the ExpiringValueCache. Set a config
+    // Attributes added to the single datastore segment recorded for a Statement.executeBatch call
+    public static final String BATCH_SIZE_ATTRIBUTE = "db.batch.size";
+    public static final String BATCH_ROW_COUNT_ATTRIBUTE = "db.batch.rowCount";
+
+    // Config to toggle the use of an access time based expiring map or vanilla ConcurrentHashMap implementation
+    // for the urlToFactory and urlToDatabaseName maps. The default is to use the expiring map. Set a config
     // property of use_jdbchelper_vanilla_map=true to revert to the ConcurrentHashMap implementation.
     private static final Map<String, ConnectionFactory> urlToFactory;
     private static final Map<String, String> urlToDatabaseName;
@@ -69,13 +69,13 @@ public class JdbcHelper {
             urlToFactory = new ConcurrentHashMap<>(10);
             urlToDatabaseName = new ConcurrentHashMap<>(10);
         } else {
-            urlToFactory =
-                    new ExpiringValueMap<>("urlToFactoryCache", CACHE_EXPIRATION_AGE_MILLI, EXPIRE_FUNC);
-            urlToDatabaseName =
-                    new ExpiringValueMap<>("urlToDatabaseNameCache", CACHE_EXPIRATION_AGE_MILLI, EXPIRE_FUNC);
+            urlToFactory = AgentBridge.collectionFactory.createConcurrentAccessTimeBasedEvictionMap(
+                    "JdbcHelper/urlToFactory", CACHE_EXPIRATION_AGE_SECONDS);
+            urlToDatabaseName = AgentBridge.collectionFactory.createConcurrentAccessTimeBasedEvictionMap(
+                    "JdbcHelper/urlToDatabaseName", CACHE_EXPIRATION_AGE_SECONDS);
         }
         NewRelic.getAgent().getLogger().log(Level.FINEST, "JdbcHelper using map implementation: {0} " +
-                "for urlToFactory and urlToDatabaseName maps", useVanillaMap ? "ConcurrentHashMap" : "ExpiringValueMap");
+                "for urlToFactory and urlToDatabaseName maps", useVanillaMap ? "ConcurrentHashMap" : "access time based expiring map");
     }
 
     public static void putVendor(Class<?> driverOrDatastoreClass, DatabaseVendor databaseVendor) {
@@ -180,6 +180,42 @@ public class JdbcHelper {
         return statementToSql.get(statement);
     }
 
+    /**
+     * Returns the sql stored for the statement and removes it from the global map. Instrumentation that keeps the sql
+     * on the statement itself (in a {@code @NewField}) should use this so the statement is only looked up once.
+     *
+     * @return the sql stored for the statement, or null
+     */
+    public static String getAndRemoveSql(Statement statement) {
+        AgentBridge.getAgent().getLogger().log(Level.FINEST, "Getting and removing sql for statement: {0}", statement);
+        return statementToSql.remove(statement);
+    }
+
+    /**
+     * Adds the batch size and total affected row count to the current traced method (the executeBatch segment).
+     *
+     * @param updateCounts the result of {@link Statement#executeBatch()}, one update count per command in the batch
+     */
+    public static void noticeBatchResults(int[] updateCounts) {
+        if (updateCounts == null) {
+            return;
+        }
+        long rowCount = 0;
+        for (int updateCount : updateCounts) {
+            // SUCCESS_NO_INFO and EXECUTE_FAILED are negative and carry no row count
+            if (updateCount > 0) {
+                rowCount += updateCount;
+            }
+        }
+        try {
+            TracedMethod tracedMethod = AgentBridge.getAgent().getTracedMethod();
+            tracedMethod.addCustomAttribute(BATCH_SIZE_ATTRIBUTE, updateCounts.length);
+            tracedMethod.addCustomAttribute(BATCH_ROW_COUNT_ATTRIBUTE, rowCount);
+        } catch (Throwable t) {
+            AgentBridge.getAgent().getLogger().log(Level.FINEST, t, "Unable to record batch results");
+        }
+    }
+
     public static Object[] growParameterArray(Object[] params, int missingIndex) {
         int length = Math.max(10, (int) (missingIndex * 1.2));
         Object[] newParams = new Object[length];
@@ -194,10 +230,11 @@ public class JdbcHelper {
     public static String getConnectionURL(Connection connection) {
         if (connection != null) {
 
-            final String cachedURL = connectionToURL.get(connection);
+            final CachedConnectionInfo cachedInfo = connectionToInfo.get(connection);
+            final String cachedURL = cachedInfo == null ? null : cachedInfo.url;
             AgentBridge.getAgent().getLogger().log(Level.FINEST, "Cached url: {0} for connection: {1}", cachedURL, connection);
 
-            // connectionToURL map does not support null values
+            // connection info does not store null urls
             // We use UNKNOWN to remember null connection URL strings
             if (UNKNOWN.equals(cachedURL)) {
                 return null;
@@ -206,7 +243,7 @@ public class JdbcHelper {
             Boolean metadataEnabled = AgentBridge.getAgent().getConfig().getValue("datastore_tracer.database_connection_metadata.enabled", true);
             if (!metadataEnabled) {
                 AgentBridge.getAgent().getLogger().log(Level.FINE, "Unable to get connection url: connection_metadata config is disabled.");
-                connectionToURL.put(connection, UNKNOWN);
+                getOrCreateConnectionInfo(connection, cachedInfo).url = UNKNOWN;
                 return null;
             }
 
@@ -222,14 +259,14 @@ public class JdbcHelper {
                     if (metaData != null) {
                         String url = metaData.getURL();
                         AgentBridge.getAgent().getLogger().log(Level.FINEST, "Getting url: {0} from connection metadata for connection: {1}", url, connection);
-                        connectionToURL.put(connection, url == null ? UNKNOWN : url);
+                        getOrCreateConnectionInfo(connection, cachedInfo).url = url == null ? UNKNOWN : url;
                         return url;
                     }
                 }
             } catch (Throwable e) {
                 // If any error occurs we'll return null
                 AgentBridge.getAgent().getLogger().log(Level.FINER, e, "Unable to get connection url for: {0}", connection);
-                connectionToURL.put(connection, UNKNOWN);
+                getOrCreateConnectionInfo(connection, cachedInfo).url = UNKNOWN;
             } finally {
                 connectionLookup.set(Boolean.FALSE);
             }
@@ -290,7 +327,7 @@ public class JdbcHelper {
         }
         String identifier = parseInMemoryIdentifier(getConnectionURL(connection));
         identifier = identifier == null ? UNKNOWN : identifier;
-        connectionToIdentifier.put(connection, identifier);
+        getOrCreateConnectionInfo(connection, null).identifier = identifier;
         return identifier;
     }
 
@@ -301,7 +338,8 @@ public class JdbcHelper {
         if (connection == null) {
             return null;
         } else {
-            String identifier = connectionToIdentifier.get(connection);
+            CachedConnectionInfo cachedInfo = connectionToInfo.get(connection);
+            String identifier = cachedInfo == null ? null : cachedInfo.identifier;
             AgentBridge.getAgent().getLogger().log(Level.FINEST, "Identifier for connection: {0} is: {1}", connection, identifier);
             return identifier;
         }
@@ -326,4 +364,21 @@ public class JdbcHelper {
             return UNKNOWN;
         }
     }
+
+    private static CachedConnectionInfo getOrCreateConnectionInfo(Connection connection, CachedConnectionInfo cachedInfo) {
+        if (cachedInfo != null) {
+            return cachedInfo;
+        }
+        CachedConnectionInfo newInfo = new CachedConnectionInfo();
+        CachedConnectionInfo existingInfo = connectionToInfo.putIfAbsent(connection, newInfo);
+        return existingInfo == null ? newInfo : existingInfo;
+    }
+
+    /**
+     * Values cached for a {@link Connection}. The url is {@link #UNKNOWN} when it could not be determined.
+     */
+    private static final class CachedConnectionInfo {
+        volatile String url;
+        volatile String identifier;
+    }
 }
@@ -7,8 +7,10 @@
 
 package com.newrelic.agent.bridge.datastore;
 
+import com.newrelic.agent.bridge.AgentBridge;
 import com.newrelic.api.agent.QueryConverter;
 
+import java.util.function.Function;
 import java.util.regex.Pattern;
 
 public class R2dbcObfuscator {
@@ -29,6 +31,9 @@ public class R2dbcObfuscator {
     private static final Pattern POSTGRES_DIALECT_PATTERN;
     private static final Pattern POSTGRES_UNMATCHED_PATTERN;
 
+    // Obfuscation runs when the segment ends, which for reactive drivers is usually on an event loop thread
+    private static final int MAX_CACHED_STATEMENTS = 1000;
+
     public static final QueryConverter<String> QUERY_CONVERTER;
     public static final QueryConverter<String> MYSQL_QUERY_CONVERTER;
     public static final QueryConverter<String> POSTGRES_QUERY_CONVERTER;
@@ -41,32 +46,15 @@ public class R2dbcObfuscator {
         POSTGRES_DIALECT_PATTERN = Pattern.compile(String.join("|", SINGLE_QUOTE, DOLLAR_QUOTE, COMMENT, MULTILINE_COMMENT, UUID, BOOLEAN, NUMBER), PATTERN_SWITCHES);
         POSTGRES_UNMATCHED_PATTERN = Pattern.compile("'|/\\*|\\*/|\\$(?!\\?)", PATTERN_SWITCHES);
 
+        QUERY_CONVERTER = cachingQueryConverter(ALL_DIALECTS_PATTERN, ALL_UNMATCHED_PATTERN);
+        MYSQL_QUERY_CONVERTER = cachingQueryConverter(MYSQL_DIALECT_PATTERN, MYSQL_UNMATCHED_PATTERN);
+        POSTGRES_QUERY_CONVERTER = cachingQueryConverter(POSTGRES_DIALECT_PATTERN, POSTGRES_UNMATCHED_PATTERN);
+    }
 
-        QUERY_CONVERTER = new QueryConverter<String>() {
-            @Override
-            public String toRawQueryString(String statement) {
-                return statement;
-            }
-
-            @Override
-            public String toObfuscatedQueryString(String statement) {
-                return obfuscateSql(statement, ALL_DIALECTS_PATTERN, ALL_UNMATCHED_PATTERN);
-            }
-        };
-
-        MYSQL_QUERY_CONVERTER = new QueryConverter<String>() {
-            @Override
-            public String toRawQueryString(String statement) {
-                return statement;
-            }
-
-            @Override
-            public String toObfuscatedQueryString(String statement) {
-                return obfuscateSql(statement, MYSQL_DIALECT_PATTERN, MYSQL_UNMATCHED_PATTERN);
-            }
-        };
-
-        POSTGRES_QUERY_CONVERTER = new QueryConverter<String>() {
+    private static QueryConverter<String> cachingQueryConverter(final Pattern dialect, final Pattern unmatched) {
+        final Function<String, String> cachedObfuscator = AgentBridge.collectionFactory.memorize(
+                statement -> obfuscateSql(statement, dialect, unmatched), MAX_CACHED_STATEMENTS);
+        return new QueryConverter<String>() {
             @Override
             public String toRawQueryString(String statement) {
                 return statement;
@@ -74,7 +62,10 @@ public class R2dbcObfuscator {
 
             @Override
             public String toObfuscatedQueryString(String statement) {
-                return obfuscateSql(statement, POSTGRES_DIALECT_PATTERN, POSTGRES_UNMATCHED_PATTERN);
+                if (statement == null || statement.length() == 0) {
+                    return statement;
+                }
+                return cachedObfuscator.apply(statement);
             }
         };
     }
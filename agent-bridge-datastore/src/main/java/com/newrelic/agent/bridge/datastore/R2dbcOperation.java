@@ -7,8 +7,11 @@
 
 package com.newrelic.agent.bridge.datastore;
 
+import com.newrelic.agent.bridge.AgentBridge;
+
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -29,7 +32,22 @@ public class R2dbcOperation {
         OPERATION_PATTERNS.put("EXEC", new Pattern[]{Pattern.compile(".*(?:exec|execute)\\s+(?!as\\s+)([^\\s(,=;]*+);?\\s*+(?:[^=]|$).*", PATTERN_SWITCHES), Pattern.compile(".*(?:exec|execute)\\s+[^\\s(,]*.*?=(?:\\s|)([^\\s]*)", PATTERN_SWITCHES)});
     }
 
+    /**
+     * Reactive drivers report from the subscribing thread, usually an event loop. Applications tend to run a small set
+     * of distinct statements, so parsed results are cached to keep the regex work off the hot path.
+     */
+    static final int MAX_CACHED_STATEMENTS = 1000;
+    private static final Function<String, OperationAndTableName> CACHED_PARSER =
+            AgentBridge.collectionFactory.memorize(R2dbcOperation::parse, MAX_CACHED_STATEMENTS);
+
     public static OperationAndTableName extractFrom(String sql) {
+        if (sql == null) {
+            return null;
+        }
+        return CACHED_PARSER.apply(sql);
+    }
+
+    private static OperationAndTableName parse(String sql) {
         try {
             String strippedSql = COMMENT_PATTERN.matcher(sql).replaceAll("");
             for (Map.Entry<String, Pattern[]> operation : OPERATION_PATTERNS.entrySet()) {
@@ -15,7 +15,7 @@ public class TimestampedMapValue<V> {
     private final V wrappedValue;
 
     private final long timeCreated;
-    private long timeLastAccessed;
+    private volatile long timeLastAccessed;
 
     /**
      * Construct a new TimestampedMapValue, wrapping the supplied value of type V.
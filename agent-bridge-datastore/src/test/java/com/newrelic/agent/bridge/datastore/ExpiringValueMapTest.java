@@ -8,6 +8,7 @@ import org.junit.Test;
 
 import java.time.Duration;
 
+@SuppressWarnings("deprecation")
 public class ExpiringValueMapTest {
 
     private static final String VALUE_PREFIX = "val";
@@ -7,6 +7,9 @@
 
 package com.newrelic.agent.bridge.datastore;
 
+import com.newrelic.agent.bridge.Agent;
+import com.newrelic.agent.bridge.AgentBridge;
+import com.newrelic.agent.bridge.TracedMethod;
 import com.newrelic.api.agent.NewRelic;
 import org.junit.Assert;
 import org.junit.Test;
@@ -16,6 +19,7 @@ import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.Driver;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
@@ -185,4 +189,53 @@ public class JdbcHelperTest {
         Assert.assertEquals(JdbcHelper.UNKNOWN, JdbcHelper.getDatabaseName(null));
         Assert.assertEquals("myCatalog", JdbcHelper.getDatabaseName(connection));
     }
+
+    @Test
+    public void parseAndCacheInMemoryIdentifier_sharesCachedUrl() throws SQLException {
+        final Connection connection = Mockito.mock(Connection.class);
+        final DatabaseMetaData metaData = Mockito.mock(DatabaseMetaData.class);
+        Mockito.when(connection.getMetaData()).thenReturn(metaData);
+        Mockito.when(metaData.getURL())
+               .thenReturn("jdbc:h2:mem:cachedIdentifier")
+               .thenThrow(new RuntimeException("bang! I should only be called once"));
+
+        Assert.assertNull(JdbcHelper.getCachedIdentifierForConnection(connection));
+        Assert.assertEquals("cachedIdentifier", JdbcHelper.parseAndCacheInMemoryIdentifier(connection));
+        Assert.assertEquals("cachedIdentifier", JdbcHelper.getCachedIdentifierForConnection(connection));
+        Assert.assertEquals("jdbc:h2:mem:cachedIdentifier", JdbcHelper.getConnectionURL(connection));
+    }
+
+    @Test
+    public void getAndRemoveSql_removesStoredSql() {
+        final Statement statement = Mockito.mock(Statement.class);
+
+        JdbcHelper.putSql(statement, "select * from test");
+        Assert.assertEquals("select * from test", JdbcHelper.getSql(statement));
+        Assert.assertEquals("select * from test", JdbcHelper.getAndRemoveSql(statement));
+        Assert.assertNull(JdbcHelper.getSql(statement));
+        Assert.assertNull(JdbcHelper.getAndRemoveSql(statement));
+    }
+
+    @Test
+    public void noticeBatchResults_handlesNullAndNegativeUpdateCounts() {
+        Agent savedAgent = AgentBridge.agent;
+        Agent agent = Mockito.mock(Agent.class);
+        TracedMethod tracedMethod = Mockito.mock(TracedMethod.class);
+        Mockito.when(agent.getTracedMethod()).thenReturn(tracedMethod);
+        AgentBridge.agent = agent;
+        try {
+            JdbcHelper.noticeBatchResults(null);
+            Mockito.verifyNoInteractions(tracedMethod);
+
+            JdbcHelper.noticeBatchResults(new int[0]);
+            Mockito.verify(tracedMethod).addCustomAttribute(JdbcHelper.BATCH_SIZE_ATTRIBUTE, 0);
+            Mockito.verify(tracedMethod).addCustomAttribute(JdbcHelper.BATCH_ROW_COUNT_ATTRIBUTE, 0L);
+
+            JdbcHelper.noticeBatchResults(new int[] { 1, Statement.SUCCESS_NO_INFO, Statement.EXECUTE_FAILED, 3 });
+            Mockito.verify(tracedMethod).addCustomAttribute(JdbcHelper.BATCH_SIZE_ATTRIBUTE, 4);
+            Mockito.verify(tracedMethod).addCustomAttribute(JdbcHelper.BATCH_ROW_COUNT_ATTRIBUTE, 4L);
+        } finally {
+            AgentBridge.agent = savedAgent;
+        }
+    }
 }
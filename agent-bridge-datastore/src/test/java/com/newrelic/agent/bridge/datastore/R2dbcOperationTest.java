@@ -16,6 +16,15 @@ public class R2dbcOperationTest {
         assertOperationAndTable("exec myProcedure()", "EXEC", "myProcedure");
     }
 
+    @Test
+    public void extractFrom_repeatedStatementsReturnCachedResult() {
+        String sql = "select * from cachedTable where id = 1";
+        OperationAndTableName first = R2dbcOperation.extractFrom(sql);
+        Assert.assertSame(first, R2dbcOperation.extractFrom(new String(sql)));
+        Assert.assertNull(R2dbcOperation.extractFrom(null));
+        Assert.assertNull(R2dbcOperation.extractFrom("not a statement"));
+    }
+
     private void assertOperationAndTable(String sql, String operation, String table) {
         OperationAndTableName result = R2dbcOperation.extractFrom(sql);
         Assert.assertEquals(operation, result.getOperation());
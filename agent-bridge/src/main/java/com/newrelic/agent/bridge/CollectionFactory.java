@@ -8,6 +8,7 @@
 package com.newrelic.agent.bridge;
 
 import java.util.Map;
+import java.util.function.Function;
 
 /**
  * Allows instrumentation and bridge API implementations to use collections from third partly libraries without
@@ -27,4 +28,27 @@ public interface CollectionFactory {
      * @return concurrent-safe, weak-keyed map
      */
     <K, V> Map<K, V> createConcurrentWeakKeyedMap();
+
+    /**
+     * Create a concurrent-safe map whose entries are evicted once they have not been read or written for the given age.
+     * Expiration is performed as part of regular map operations, so creating more of these maps does not add threads.
+     *
+     * @param name identifies the map in logs and eviction metrics
+     * @param ageInSeconds how long an entry may go unaccessed before it is evicted
+     * @param <K> Key type
+     * @param <V> Value type
+     * @return concurrent-safe, access time based expiring map
+     */
+    <K, V> Map<K, V> createConcurrentAccessTimeBasedEvictionMap(String name, long ageInSeconds);
+
+    /**
+     * Wraps the provided function into one that caches a limited number of results. Null results are not cached.
+     *
+     * @param loader function to compute values that are not cached
+     * @param maxSize maximum number of results to cache
+     * @param <K> Key type
+     * @param <V> Value type
+     * @return thread-safe caching function
+     */
+    <K, V> Function<K, V> memorize(Function<K, V> loader, int maxSize);
 }
@@ -10,6 +10,8 @@ package com.newrelic.agent.bridge;
 import java.util.Collections;
 import java.util.Map;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 public class DefaultCollectionFactory implements CollectionFactory {
 
@@ -17,4 +19,29 @@ public class DefaultCollectionFactory implements CollectionFactory {
     public <K, V> Map<K, V> createConcurrentWeakKeyedMap() {
         return Collections.synchronizedMap(new WeakHashMap<K, V>());
     }
+
+    @Override
+    public <K, V> Map<K, V> createConcurrentAccessTimeBasedEvictionMap(String name, long ageInSeconds) {
+        // Only used without the agent, in which case nothing is expiring fast enough to matter
+        return new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public <K, V> Function<K, V> memorize(final Function<K, V> loader, final int maxSize) {
+        // No eviction policy available here, once full only the existing entries are served from the cache
+        final Map<K, V> cache = new ConcurrentHashMap<>();
+        return new Function<K, V>() {
+            @Override
+            public V apply(K key) {
+                V value = cache.get(key);
+                if (value == null) {
+                    value = loader.apply(key);
+                    if (value != null && cache.size() < maxSize) {
+                        cache.put(key, value);
+                    }
+                }
+                return value;
+            }
+        };
+    }
 }
@@ -26,6 +26,24 @@ dependencies {
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:5.6.2")
 }
 
+// The load test drives the sender against the in-process trace observer from the test source set, see InfiniteTracingLoadTest.
+sourceSets {
+    create("loadTest") {
+        compileClasspath += sourceSets.main.get().output + sourceSets.test.get().output
+        runtimeClasspath += sourceSets.main.get().output + sourceSets.test.get().output
+    }
+}
+
+configurations["loadTestImplementation"].extendsFrom(configurations.testImplementation.get())
+configurations["loadTestRuntimeOnly"].extendsFrom(configurations.testRuntimeOnly.get())
+
+tasks.register<JavaExec>("loadTest") {
+    description = "Measures infinite tracing throughput against an in-process trace observer. Settings are loadtest.* system properties."
+    classpath = sourceSets["loadTest"].runtimeClasspath
+    mainClass.set("com.newrelic.InfiniteTracingLoadTest")
+    systemProperties(System.getProperties().filterKeys { it.toString().startsWith("loadtest.") }.mapKeys { it.key.toString() })
+}
+
 java {
     toolchain {
         languageVersion.set(JavaLanguageVersion.of(8))
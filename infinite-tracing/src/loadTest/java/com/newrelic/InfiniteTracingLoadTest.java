@@ -0,0 +1,135 @@
+package com.newrelic;
+
+import com.newrelic.api.agent.Logger;
+import org.mockito.Mockito;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.newrelic.InfiniteTracingStubServerTest.awaitReceived;
+import static com.newrelic.InfiniteTracingStubServerTest.buildSpanEvent;
+import static com.newrelic.InfiniteTracingStubServerTest.startInfiniteTracing;
+
+/**
+ * Drives {@link InfiniteTracing} against an {@link IngestServiceStubServer} at a steady rate so changes to the sender can
+ * be measured without a trace observer. Run it with {@code ./gradlew :infinite-tracing:loadTest}, its settings are read
+ * from system properties:
+ * <ul>
+ *     <li>{@code loadtest.rate} spans accepted per second across all producers, default 50000</li>
+ *     <li>{@code loadtest.seconds} how long to accept spans for, default 30</li>
+ *     <li>{@code loadtest.producers} threads calling {@link InfiniteTracing#accept(com.newrelic.agent.model.SpanEvent)}, default 4</li>
+ *     <li>{@code loadtest.streams} gRPC streams, default 1</li>
+ *     <li>{@code loadtest.batching} whether to send span batches, default true</li>
+ *     <li>{@code loadtest.queueSize} span queue capacity across all streams, default 100000</li>
+ *     <li>{@code loadtest.serverMicrosPerMessage} time the stub server spends on each message, default 0</li>
+ * </ul>
+ */
+public class InfiniteTracingLoadTest {
+
+    private static final String SENDER_THREAD_PREFIX = "New Relic Infinite Tracing";
+
+    public static void main(String[] args) throws Exception {
+        final int rate = Integer.getInteger("loadtest.rate", 50_000);
+        final int seconds = Integer.getInteger("loadtest.seconds", 30);
+        final int producers = Integer.getInteger("loadtest.producers", 4);
+        int streams = Integer.getInteger("loadtest.streams", 1);
+        boolean batching = Boolean.parseBoolean(System.getProperty("loadtest.batching", "true"));
+        int queueSize = Integer.getInteger("loadtest.queueSize", 100_000);
+        long serverMicrosPerMessage = Long.getLong("loadtest.serverMicrosPerMessage", 0);
+
+        IngestServiceStubServer server = new IngestServiceStubServer(TimeUnit.MICROSECONDS.toNanos(serverMicrosPerMessage)).start();
+        CountingMetricAggregator aggregator = new CountingMetricAggregator();
+        final InfiniteTracing infiniteTracing = startInfiniteTracing(InfiniteTracingConfig.builder()
+                .logger(Mockito.mock(Logger.class))
+                .maxQueueSize(queueSize)
+                .useBatching(batching)
+                .streams(streams)
+                .build(), aggregator, server);
+        try {
+            ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            long senderCpuStart = senderCpuNanos(threadMXBean);
+            long processCpuStart = processCpuNanos();
+            long start = System.nanoTime();
+
+            ExecutorService producerExecutor = Executors.newFixedThreadPool(producers);
+            final CountDownLatch producersDone = new CountDownLatch(producers);
+            for (int p = 0; p < producers; p++) {
+                producerExecutor.submit(() -> {
+                    try {
+                        produce(infiniteTracing, rate / producers, TimeUnit.SECONDS.toNanos(seconds));
+                    } finally {
+                        producersDone.countDown();
+                    }
+                });
+            }
+            producersDone.await();
+            producerExecutor.shutdown();
+            long accepted = aggregator.get("Supportability/InfiniteTracing/Span/Seen");
+
+            // Give the senders time to drain what is still queued
+            awaitReceived(server, accepted, TimeUnit.SECONDS.toNanos(10));
+            long elapsedNanos = System.nanoTime() - start;
+            long received = server.getSpansReceived();
+            long senderCpuNanos = senderCpuNanos(threadMXBean) - senderCpuStart;
+            long processCpuNanos = processCpuNanos() - processCpuStart;
+
+            System.out.println(String.format("rate=%d/s seconds=%d producers=%d streams=%d batching=%s queueSize=%d serverMicrosPerMessage=%d",
+                    rate, seconds, producers, streams, batching, queueSize, serverMicrosPerMessage));
+            System.out.println(String.format("accepted=%d received=%d dropped=%d messages=%d throughput=%.0f spans/s",
+                    accepted, received, accepted - received, server.getMessagesReceived(), received / (elapsedNanos / 1e9)));
+            System.out.println(String.format("latency p50=%.2fms p99=%.2fms max=%.2fms",
+                    server.getLatencyNanos(50) / 1e6, server.getLatencyNanos(99) / 1e6, server.getLatencyNanos(100) / 1e6));
+            System.out.println(String.format("cpu per span: senders=%.0fns process=%.0fns backpressure=%dms notReady=%d",
+                    (double) senderCpuNanos / Math.max(1, received), (double) processCpuNanos / Math.max(1, accepted),
+                    aggregator.get("Supportability/InfiniteTracing/Backpressure/Blocked"),
+                    aggregator.get("Supportability/InfiniteTracing/NotReady")));
+        } finally {
+            infiniteTracing.stop();
+            server.stop();
+        }
+    }
+
+    /**
+     * Accept spans at a steady rate, catching up every millisecond.
+     */
+    private static void produce(InfiniteTracing infiniteTracing, int spansPerSecond, long durationNanos) {
+        long start = System.nanoTime();
+        long produced = 0;
+        while (true) {
+            long elapsed = System.nanoTime() - start;
+            if (elapsed >= durationNanos) {
+                return;
+            }
+            long due = (long) (elapsed / 1e9 * spansPerSecond);
+            for (; produced < due; produced++) {
+                infiniteTracing.accept(buildSpanEvent());
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    private static long senderCpuNanos(ThreadMXBean threadMXBean) {
+        long cpuNanos = 0;
+        for (ThreadInfo threadInfo : threadMXBean.getThreadInfo(threadMXBean.getAllThreadIds())) {
+            if (threadInfo != null && threadInfo.getThreadName().startsWith(SENDER_THREAD_PREFIX)) {
+                cpuNanos += Math.max(0, threadMXBean.getThreadCpuTime(threadInfo.getThreadId()));
+            }
+        }
+        return cpuNanos;
+    }
+
+    private static long processCpuNanos() {
+        java.lang.management.OperatingSystemMXBean osMXBean = ManagementFactory.getOperatingSystemMXBean();
+        if (osMXBean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) osMXBean).getProcessCpuTime();
+        }
+        return 0;
+    }
+
+}
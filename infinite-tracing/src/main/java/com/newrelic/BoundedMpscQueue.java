@@ -0,0 +1,244 @@
+package com.newrelic;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, lock-free queue for many producer threads and a single consumer thread.
+ *
+ * Spans are offered by every application thread that finishes a span, while only one {@link SpanEventSender} takes them
+ * off each queue. A {@link java.util.concurrent.LinkedBlockingDeque} makes all of those threads contend on one lock, and
+ * signals the consumer on every offer. Here producers only race on a CAS to reserve capacity and on the tail of a
+ * {@link ConcurrentLinkedQueue}, and never block. A consumer waiting in {@link #take()} or {@link #poll(long, TimeUnit)}
+ * parks until an offer unparks it, so an idle consumer does not wake up. Producers waiting for capacity in
+ * {@link #put(Object)} or {@link #offer(Object, long, TimeUnit)} are not signalled and re-check every {@link #PARK_NANOS}.
+ *
+ * {@link #size()} is the number of reserved slots, it can briefly include an element that is still being added.
+ * Elements can also be removed through {@link #remove(Object)}, the iterator and the bulk operations built on them.
+ *
+ * @param <E> the element type
+ */
+class BoundedMpscQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ConcurrentLinkedQueue<E> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicReference<Thread> waitingConsumer = new AtomicReference<>();
+    private final int capacity;
+
+    BoundedMpscQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Add the element if the queue is not at capacity.
+     *
+     * @return true if the element was added, false if the queue was full
+     */
+    @Override
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        while (true) {
+            int current = size.get();
+            if (current >= capacity) {
+                return false;
+            }
+            if (size.compareAndSet(current, current + 1)) {
+                queue.offer(element);
+                Thread consumer = waitingConsumer.get();
+                if (consumer != null) {
+                    LockSupport.unpark(consumer);
+                }
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean offer(E element, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!offer(element)) {
+            if (!parkUntil(deadline)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void put(E element) throws InterruptedException {
+        while (!offer(element)) {
+            park();
+        }
+    }
+
+    @Override
+    public E poll() {
+        E element = queue.poll();
+        if (element != null) {
+            size.decrementAndGet();
+        }
+        return element;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return awaitElement(System.nanoTime() + unit.toNanos(timeout), true);
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        return awaitElement(0, false);
+    }
+
+    @Override
+    public E peek() {
+        return queue.peek();
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, capacity - size.get());
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> collection) {
+        return drainTo(collection, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> collection, int maxElements) {
+        if (collection == this) {
+            throw new IllegalArgumentException();
+        }
+        int drained = 0;
+        E element;
+        while (drained < maxElements && (element = poll()) != null) {
+            collection.add(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    @Override
+    public boolean remove(Object element) {
+        if (element != null && queue.remove(element)) {
+            size.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removing through the iterator removes an element equal to the last one returned, so the reserved size stays in
+     * sync with the queue when the consumer polls the same element concurrently.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        final Iterator<E> iterator = queue.iterator();
+        return new Iterator<E>() {
+            private E lastReturned;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public E next() {
+                lastReturned = iterator.next();
+                return lastReturned;
+            }
+
+            @Override
+            public void remove() {
+                if (lastReturned == null) {
+                    throw new IllegalStateException();
+                }
+                BoundedMpscQueue.this.remove(lastReturned);
+                lastReturned = null;
+            }
+        };
+    }
+
+    /**
+     * Wait for an element, parking until an offer unparks this thread. The consumer registers itself before checking
+     * the queue again, so an element offered in between is never missed. If another thread is already waiting the
+     * queue is being used with more than one consumer, and this thread falls back to re-checking every
+     * {@link #PARK_NANOS}.
+     *
+     * @return the element, or null if the deadline passed
+     */
+    private E awaitElement(long deadline, boolean timed) throws InterruptedException {
+        E element = poll();
+        if (element != null) {
+            return element;
+        }
+        Thread current = Thread.currentThread();
+        boolean registered = waitingConsumer.compareAndSet(null, current);
+        try {
+            while ((element = poll()) == null) {
+                if (timed) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return null;
+                    }
+                    LockSupport.parkNanos(this, registered ? remaining : Math.min(remaining, PARK_NANOS));
+                } else if (registered) {
+                    LockSupport.park(this);
+                } else {
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            return element;
+        } finally {
+            if (registered) {
+                waitingConsumer.set(null);
+            }
+        }
+    }
+
+    private static void park() throws InterruptedException {
+        LockSupport.parkNanos(PARK_NANOS);
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    /**
+     * @return false if the deadline has passed
+     */
+    private static boolean parkUntil(long deadline) throws InterruptedException {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            return false;
+        }
+        LockSupport.parkNanos(Math.min(remaining, PARK_NANOS));
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        return true;
+    }
+
+}
@@ -11,6 +11,7 @@ import io.grpc.okhttp.OkHttpChannelBuilder;
 import io.grpc.stub.ClientCallStreamObserver;
 
 import javax.annotation.concurrent.GuardedBy;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
@@ -23,13 +24,14 @@ class ChannelManager {
     private final InfiniteTracingConfig config;
     private final MetricAggregator aggregator;
     private final BackoffPolicy backoffManager;
+    private final int streams;
 
     private final Object lock = new Object();
     @GuardedBy("lock") private boolean isShutdownForever;
     @GuardedBy("lock") private CountDownLatch backoffLatch;
     @GuardedBy("lock") private ManagedChannel managedChannel;
-    @GuardedBy("lock") private boolean recreateSpanObserver = true;
-    @GuardedBy("lock") private Observer observer;
+    @GuardedBy("lock") private final boolean[] recreateSpanObservers;
+    @GuardedBy("lock") private final Observer[] observers;
     @GuardedBy("lock") private String agentRunToken;
     @GuardedBy("lock") private Map<String, String> requestMetadata;
 
@@ -40,6 +42,17 @@ class ChannelManager {
         this.agentRunToken = agentRunToken;
         this.requestMetadata = requestMetadata;
         this.backoffManager = new BackoffPolicy();
+        this.streams = Math.max(1, config.getStreams());
+        this.recreateSpanObservers = new boolean[streams];
+        Arrays.fill(recreateSpanObservers, true);
+        this.observers = new Observer[streams];
+    }
+
+    /**
+     * @return the number of span observers, each sent to on its own gRPC stream over the shared channel
+     */
+    int getStreams() {
+        return streams;
     }
 
     /**
@@ -56,13 +69,14 @@ class ChannelManager {
     }
 
     /**
-     * Obtain a span observer. Creates a channel if one is not open. Creates a span observer if one
-     * does not exist. If the channel has been shutdown and is backing off via
+     * Obtain the span observer for a stream. Creates a channel if one is not open. Creates a span observer
+     * for the stream if one does not exist. If the channel has been shutdown and is backing off via
      * {@link #shutdownChannelAndBackoff(int)}, awaits the backoff period before recreating the channel.
      *
+     * @param stream the stream, from 0 to {@link #getStreams()} - 1
      * @return a span observer
      */
-    Observer getObserver() {
+    Observer getObserver(int stream) {
         // Obtain the lock, and await the backoff if in progress
         CountDownLatch latch;
         synchronized (lock) {
@@ -80,40 +94,63 @@ class ChannelManager {
 
         // Obtain the lock, and possibly recreate the channel or the span observer
         synchronized (lock) {
-            if (isShutdownForever) {
-                throw new RuntimeException("No longer accepting connections to gRPC.");
+            return getOrCreateObserver(stream);
+        }
+    }
+
+    /**
+     * Obtain the span observer for a stream without waiting for a backoff. Checking the backoff and getting the observer
+     * happen under the same lock, so a backoff that starts in between can't block the caller.
+     *
+     * @param stream the stream, from 0 to {@link #getStreams()} - 1
+     * @return a span observer, or null while {@link #shutdownChannelAndBackoff(int)} is backing off
+     */
+    Observer tryGetObserver(int stream) {
+        synchronized (lock) {
+            if (backoffLatch != null) {
+                return null;
             }
-            if (managedChannel == null) {
-                logger.log(Level.FINE, "Creating gRPC channel.");
-                managedChannel = buildChannel();
+            return getOrCreateObserver(stream);
+        }
+    }
+
+    @GuardedBy("lock")
+    private Observer getOrCreateObserver(int stream) {
+        if (isShutdownForever) {
+            throw new RuntimeException("No longer accepting connections to gRPC.");
+        }
+        if (managedChannel == null) {
+            logger.log(Level.FINE, "Creating gRPC channel.");
+            managedChannel = buildChannel();
+        }
+        if (recreateSpanObservers[stream]) {
+            if (observers[stream] != null) {
+                logger.log(Level.FINE, "Cancelling and recreating gRPC span observer.");
+                observers[stream].cancel("CLOSING_CONNECTION", new ChannelClosingException());
             }
-            if (recreateSpanObserver) {
-                if (observer != null) {
-                    logger.log(Level.FINE, "Cancelling and recreating gRPC span observer.");
-                    observer.cancel("CLOSING_CONNECTION", new ChannelClosingException());
-                }
-                IngestServiceStub ingestServiceStub = buildStub(managedChannel);
-                ResponseObserver responseObserver = buildResponseObserver();
-                if (config.getUseBatching()) {
-                    observer = buildSpanBatchObserver((ClientCallStreamObserver<V1.SpanBatch>) ingestServiceStub.recordSpanBatch(responseObserver));
-                } else {
-                    observer = buildSpanObserver((ClientCallStreamObserver<V1.Span>) ingestServiceStub.recordSpan(responseObserver));
-                }
-                aggregator.incrementCounter("Supportability/InfiniteTracing/Connect");
-                recreateSpanObserver = false;
+            IngestServiceStub ingestServiceStub = buildStub(managedChannel);
+            ResponseObserver responseObserver = buildResponseObserver(stream);
+            if (config.getUseBatching()) {
+                observers[stream] = buildSpanBatchObserver((ClientCallStreamObserver<V1.SpanBatch>) ingestServiceStub.recordSpanBatch(responseObserver),
+                        responseObserver.getReadySignal());
+            } else {
+                observers[stream] = buildSpanObserver((ClientCallStreamObserver<V1.Span>) ingestServiceStub.recordSpan(responseObserver),
+                        responseObserver.getReadySignal());
             }
-            return observer;
+            aggregator.incrementCounter("Supportability/InfiniteTracing/Connect");
+            recreateSpanObservers[stream] = false;
         }
+        return observers[stream];
     }
 
     @VisibleForTesting
-    Observer buildSpanObserver(ClientCallStreamObserver<V1.Span> observer) {
-        return new SpanObserver(observer);
+    Observer buildSpanObserver(ClientCallStreamObserver<V1.Span> observer, ReadySignal readySignal) {
+        return new SpanObserver(observer, readySignal);
     }
 
     @VisibleForTesting
-    Observer buildSpanBatchObserver(ClientCallStreamObserver<V1.SpanBatch> observer) {
-        return new SpanBatchObserver(observer);
+    Observer buildSpanBatchObserver(ClientCallStreamObserver<V1.SpanBatch> observer, ReadySignal readySignal) {
+        return new SpanBatchObserver(observer, readySignal);
     }
 
     @VisibleForTesting
@@ -126,21 +163,33 @@ class ChannelManager {
     }
 
     @VisibleForTesting
-    ResponseObserver buildResponseObserver() {
-        return new ResponseObserver(logger, this, aggregator, backoffManager);
+    ResponseObserver buildResponseObserver(int stream) {
+        return new ResponseObserver(logger, this, aggregator, backoffManager, stream);
+    }
+
+    /**
+     * Mark that the span observer of a stream should be canceled and recreated the next time
+     * {@link #getObserver(int)} is called for the stream.
+     *
+     * @param stream the stream
+     */
+    void recreateSpanObserver(int stream) {
+        synchronized (lock) {
+            recreateSpanObservers[stream] = true;
+        }
     }
 
     /**
-     * Mark that the span observer should be canceled and recreated the next time {@link #getObserver()} is called.
+     * Mark that the span observers of all streams should be canceled and recreated.
      */
-    void recreateSpanObserver() {
+    void recreateSpanObservers() {
         synchronized (lock) {
-            recreateSpanObserver = true;
+            Arrays.fill(recreateSpanObservers, true);
         }
     }
 
     /**
-     * Shutdown the channel, cancel the span observer, and backoff. The next time {@link #getObserver()}
+     * Shutdown the channel, cancel the span observers, and backoff. The next time {@link #getObserver(int)}
      * is called, it will await the backoff and the channel will be recreated.
      *
      * @param backoffSeconds the number of seconds to await before the channel can be recreated
@@ -160,7 +209,7 @@ class ChannelManager {
                 managedChannel.shutdown();
                 managedChannel = null;
             }
-            recreateSpanObserver();
+            recreateSpanObservers();
         }
 
         try {
@@ -178,7 +227,7 @@ class ChannelManager {
     }
 
     /**
-     * Shutdown the channel and do not recreate it. The next time {@link #getObserver()} is called
+     * Shutdown the channel and do not recreate it. The next time {@link #getObserver(int)} is called
      * an exception will be thrown.
      */
     void shutdownChannelForever() {
@@ -6,12 +6,15 @@ import com.newrelic.api.agent.Logger;
 import com.newrelic.api.agent.MetricAggregator;
 
 import javax.annotation.concurrent.GuardedBy;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
@@ -23,20 +26,20 @@ public class InfiniteTracing implements Consumer<SpanEvent> {
     private final InfiniteTracingConfig config;
     private final MetricAggregator aggregator;
     private final ExecutorService executorService;
-    private final BlockingQueue<SpanEvent> queue;
+    // One queue per stream, spans are assigned to a queue by trace id
+    private final List<BlockingQueue<SpanEvent>> queues;
 
     private final Object lock = new Object();
-    @GuardedBy("lock") private Future<?> spanEventSenderFuture;
-    @GuardedBy("lock") private SpanEventSender spanEventSender;
+    @GuardedBy("lock") private List<Future<?>> spanEventSenderFutures;
     @GuardedBy("lock") private ChannelManager channelManager;
 
     @VisibleForTesting
-    InfiniteTracing(InfiniteTracingConfig config, MetricAggregator aggregator, ExecutorService executorService, BlockingQueue<SpanEvent> queue) {
+    InfiniteTracing(InfiniteTracingConfig config, MetricAggregator aggregator, ExecutorService executorService, List<BlockingQueue<SpanEvent>> queues) {
         this.logger = config.getLogger();
         this.config = config;
         this.aggregator = aggregator;
         this.executorService = executorService;
-        this.queue = queue;
+        this.queues = queues;
     }
 
     /**
@@ -52,15 +55,17 @@ public class InfiniteTracing implements Consumer<SpanEvent> {
             aggregator.incrementCounter("Supportability/InfiniteTracing/gRPC/Compression/" + (config.getUseCompression() ? "enabled" : "disabled"));
             aggregator.incrementCounter("Supportability/InfiniteTracing/gRPC/Batching/" + (config.getUseBatching() ? "enabled" : "disabled"));
 
-            if (spanEventSenderFuture != null) {
+            if (spanEventSenderFutures != null) {
                 channelManager.updateMetadata(agentRunToken, requestMetadata);
                 channelManager.shutdownChannelAndBackoff(0);
                 return;
             }
-            logger.log(Level.INFO, "Starting Infinite Tracing.");
+            logger.log(Level.INFO, "Starting Infinite Tracing with {0} stream(s).", queues.size());
             channelManager = buildChannelManager(agentRunToken, requestMetadata);
-            spanEventSender = buildSpanEventSender();
-            spanEventSenderFuture = executorService.submit(spanEventSender);
+            spanEventSenderFutures = new ArrayList<>(queues.size());
+            for (int stream = 0; stream < queues.size(); stream++) {
+                spanEventSenderFutures.add(executorService.submit(buildSpanEventSender(stream)));
+            }
         }
     }
 
@@ -70,8 +75,26 @@ public class InfiniteTracing implements Consumer<SpanEvent> {
     }
 
     @VisibleForTesting
-    SpanEventSender buildSpanEventSender() {
-        return new SpanEventSender(config, queue, aggregator, channelManager);
+    SpanEventSender buildSpanEventSender(int stream) {
+        return new SpanEventSender(config, queues.get(stream), aggregator, channelManager, stream, buildSpool());
+    }
+
+    /**
+     * @return a spool for one stream's share of the configured spool size, or null if spooling is disabled or the
+     * spool file can not be created
+     */
+    @VisibleForTesting
+    SpanEventSpool buildSpool() {
+        if (config.getSpoolMaxBytes() <= 0) {
+            return null;
+        }
+        File directory = new File(config.getSpoolDirectory() != null ? config.getSpoolDirectory() : System.getProperty("java.io.tmpdir"));
+        try {
+            return new SpanEventSpool(directory, Math.max(1, config.getSpoolMaxBytes() / queues.size()), config.getSpoolMaxAgeMs());
+        } catch (IOException e) {
+            logger.log(Level.WARNING, e, "Unable to create Infinite Tracing spool in {0}. Spans will not be spooled during backoff.", directory);
+            return null;
+        }
     }
 
     /**
@@ -80,32 +103,44 @@ public class InfiniteTracing implements Consumer<SpanEvent> {
      */
     public void stop() {
         synchronized (lock) {
-            if (spanEventSenderFuture == null) {
+            if (spanEventSenderFutures == null) {
                 return;
             }
             logger.log(Level.INFO, "Stopping Infinite Tracing.");
-            spanEventSenderFuture.cancel(true);
+            for (Future<?> spanEventSenderFuture : spanEventSenderFutures) {
+                spanEventSenderFuture.cancel(true);
+            }
             channelManager.shutdownChannelForever();
-            spanEventSenderFuture = null;
-            spanEventSender = null;
+            spanEventSenderFutures = null;
             channelManager = null;
         }
     }
 
     /**
-     * Offer the span event to the queue to be written to the Infinite Trace Observer. If the queue
-     * is at capacity, the span event is ignored.
+     * Offer the span event to the queue of its stream to be written to the Infinite Trace Observer. If the
+     * queue is at capacity, the span event is ignored.
      *
      * @param spanEvent the span event
      */
     @Override
     public void accept(SpanEvent spanEvent) {
         aggregator.incrementCounter("Supportability/InfiniteTracing/Span/Seen");
-        if (!queue.offer(spanEvent)) {
+        if (!queueFor(spanEvent).offer(spanEvent)) {
             logger.log(Level.FINEST, "Span event not accepted. The queue was full.");
         }
     }
 
+    /**
+     * Spans of the same trace always go to the same stream, so they are sent in the order they were accepted.
+     */
+    private BlockingQueue<SpanEvent> queueFor(SpanEvent spanEvent) {
+        if (queues.size() == 1) {
+            return queues.get(0);
+        }
+        String traceId = spanEvent.getTraceId();
+        return queues.get(traceId == null ? 0 : Math.floorMod(traceId.hashCode(), queues.size()));
+    }
+
     /**
      * Initialize Infinite Tracing. Note, for spans to start being sent {@link #start(String, Map)} must
      * be called.
@@ -115,8 +150,23 @@ public class InfiniteTracing implements Consumer<SpanEvent> {
      * @return the instance
      */
     public static InfiniteTracing initialize(InfiniteTracingConfig config, MetricAggregator aggregator) {
-        ExecutorService executorService = Executors.newSingleThreadExecutor(new DaemonThreadFactory("Infinite Tracing"));
-        return new InfiniteTracing(config, aggregator, executorService, new LinkedBlockingDeque<SpanEvent>(config.getMaxQueueSize()));
+        List<BlockingQueue<SpanEvent>> queues = buildQueues(config);
+        ExecutorService executorService = Executors.newFixedThreadPool(queues.size(), new DaemonThreadFactory("Infinite Tracing"));
+        return new InfiniteTracing(config, aggregator, executorService, queues);
+    }
+
+    /**
+     * @return one queue per stream, the configured queue size is the capacity across all streams
+     */
+    @VisibleForTesting
+    static List<BlockingQueue<SpanEvent>> buildQueues(InfiniteTracingConfig config) {
+        int streams = Math.max(1, config.getStreams());
+        int queueSize = Math.max(1, (config.getMaxQueueSize() + streams - 1) / streams);
+        List<BlockingQueue<SpanEvent>> queues = new ArrayList<>(streams);
+        for (int stream = 0; stream < streams; stream++) {
+            queues.add(new BoundedMpscQueue<SpanEvent>(queueSize));
+        }
+        return queues;
     }
 
     static class DaemonThreadFactory implements ThreadFactory {
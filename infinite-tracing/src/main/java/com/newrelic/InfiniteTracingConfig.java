@@ -5,6 +5,14 @@ import com.newrelic.api.agent.Logger;
 
 public class InfiniteTracingConfig {
 
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    // gRPC's default maximum message size is 4 MiB
+    public static final int DEFAULT_MAX_BATCH_BYTES = 4 * 1024 * 1024;
+    public static final long DEFAULT_LINGER_MS = 5000;
+    public static final int DEFAULT_STREAMS = 1;
+    // Spans spooled during a backoff are not replayed once they are older than the longest backoff
+    public static final long DEFAULT_SPOOL_MAX_AGE_MS = 300_000;
+
     private final String licenseKey;
     private final int maxQueueSize;
     private final String host;
@@ -15,6 +23,13 @@ public class InfiniteTracingConfig {
     private final boolean usePlaintext;
     private final boolean useCompression;
     private final boolean useBatching;
+    private final int batchSize;
+    private final int maxBatchBytes;
+    private final long lingerMs;
+    private final int streams;
+    private final String spoolDirectory;
+    private final int spoolMaxBytes;
+    private final long spoolMaxAgeMs;
 
     public InfiniteTracingConfig(Builder builder) {
         this.licenseKey = builder.licenseKey;
@@ -27,6 +42,13 @@ public class InfiniteTracingConfig {
         this.usePlaintext = builder.usePlaintext;
         this.useCompression = builder.useCompression;
         this.useBatching = builder.useBatching;
+        this.batchSize = builder.batchSize;
+        this.maxBatchBytes = builder.maxBatchBytes;
+        this.lingerMs = builder.lingerMs;
+        this.streams = builder.streams;
+        this.spoolDirectory = builder.spoolDirectory;
+        this.spoolMaxBytes = builder.spoolMaxBytes;
+        this.spoolMaxAgeMs = builder.spoolMaxAgeMs;
     }
 
     public static Builder builder() {
@@ -73,6 +95,34 @@ public class InfiniteTracingConfig {
         return useBatching;
     }
 
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    public long getLingerMs() {
+        return lingerMs;
+    }
+
+    public int getStreams() {
+        return streams;
+    }
+
+    public String getSpoolDirectory() {
+        return spoolDirectory;
+    }
+
+    public int getSpoolMaxBytes() {
+        return spoolMaxBytes;
+    }
+
+    public long getSpoolMaxAgeMs() {
+        return spoolMaxAgeMs;
+    }
+
     public static class Builder {
         public int maxQueueSize;
         public Logger logger;
@@ -84,6 +134,13 @@ public class InfiniteTracingConfig {
         private boolean usePlaintext;
         private boolean useCompression;
         private boolean useBatching;
+        private int batchSize = DEFAULT_BATCH_SIZE;
+        private int maxBatchBytes = DEFAULT_MAX_BATCH_BYTES;
+        private long lingerMs = DEFAULT_LINGER_MS;
+        private int streams = DEFAULT_STREAMS;
+        private String spoolDirectory;
+        private int spoolMaxBytes;
+        private long spoolMaxAgeMs = DEFAULT_SPOOL_MAX_AGE_MS;
 
         /**
          * The New Relic APM license key configured for the application.
@@ -178,6 +235,81 @@ public class InfiniteTracingConfig {
             return this;
         }
 
+        /**
+         * The maximum number of spans sent in a single batch when {@link #useBatching(boolean)} is enabled.
+         *
+         * @param batchSize the maximum number of spans per batch
+         */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * The maximum serialized size of a single batch. A drained batch that would exceed this size is split and sent
+         * as several smaller batches.
+         *
+         * @param maxBatchBytes the maximum number of bytes per batch
+         */
+        public Builder maxBatchBytes(int maxBatchBytes) {
+            this.maxBatchBytes = maxBatchBytes;
+            return this;
+        }
+
+        /**
+         * How long to wait for a batch to fill up before sending a partial batch.
+         *
+         * @param lingerMs the linger time in milliseconds, 0 to send whatever is queued immediately
+         */
+        public Builder lingerMs(long lingerMs) {
+            this.lingerMs = lingerMs;
+            return this;
+        }
+
+        /**
+         * The number of gRPC streams, each with its own sender thread and queue, used to send spans to the Trace
+         * Observer. The streams share a single channel. Spans are assigned to a stream by trace id, so all spans of a
+         * trace are sent on the same stream.
+         *
+         * @param streams the number of parallel streams
+         */
+        public Builder streams(int streams) {
+            this.streams = streams;
+            return this;
+        }
+
+        /**
+         * The directory of the spool files that hold spans while the channel is backing off.
+         *
+         * @param spoolDirectory the spool directory, or null to use the temporary directory
+         */
+        public Builder spoolDirectory(String spoolDirectory) {
+            this.spoolDirectory = spoolDirectory;
+            return this;
+        }
+
+        /**
+         * The maximum size of the spool files across all streams. Spans that arrive while the channel is backing off
+         * are written to the spool instead of being dropped once the queue is full, and are sent once the channel
+         * reconnects.
+         *
+         * @param spoolMaxBytes the maximum number of bytes to spool, 0 to disable spooling
+         */
+        public Builder spoolMaxBytes(int spoolMaxBytes) {
+            this.spoolMaxBytes = spoolMaxBytes;
+            return this;
+        }
+
+        /**
+         * How long a spooled span may wait to be sent. Older spans are dropped when the spool is replayed.
+         *
+         * @param spoolMaxAgeMs the maximum age in milliseconds
+         */
+        public Builder spoolMaxAgeMs(long spoolMaxAgeMs) {
+            this.spoolMaxAgeMs = spoolMaxAgeMs;
+            return this;
+        }
+
         public InfiniteTracingConfig build() {
             return new InfiniteTracingConfig(this);
         }
@@ -3,6 +3,7 @@ package com.newrelic;
 import com.newrelic.trace.v1.V1;
 
 import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Shared interface between batching and non-batching trace observer implementations
@@ -24,6 +25,14 @@ public interface Observer {
      */
     boolean isReady();
 
+    /**
+     * Wait for the observer to be ready to accept spans, which is when the transport has room for more. The wait ends
+     * as soon as gRPC signals that the stream became ready.
+     *
+     * @return true if the observer is ready, false if the timeout elapsed first
+     */
+    boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException;
+
     /**
      * Cancel the connection to the observer
      */
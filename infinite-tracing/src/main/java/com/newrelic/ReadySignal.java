@@ -0,0 +1,46 @@
+package com.newrelic;
+
+import io.grpc.stub.ClientCallStreamObserver;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The on ready handler of a span stream. gRPC runs it whenever the stream's {@link ClientCallStreamObserver#isReady()}
+ * turns true, which lets the sender wait for the transport to drain instead of polling it or buffering spans inside
+ * gRPC.
+ */
+class ReadySignal implements Runnable {
+
+    private final Object lock = new Object();
+
+    @Override
+    public void run() {
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Wait until the stream is ready.
+     *
+     * @param observer the stream whose on ready handler is this signal
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return true if the stream is ready, false if the timeout elapsed first
+     */
+    boolean await(ClientCallStreamObserver<?> observer, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (lock) {
+            // isReady is checked while holding the lock, so a signal sent after the check is not missed
+            while (!observer.isReady()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+            }
+            return true;
+        }
+    }
+
+}
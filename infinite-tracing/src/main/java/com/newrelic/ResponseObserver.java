@@ -5,22 +5,43 @@ import com.newrelic.api.agent.Logger;
 import com.newrelic.api.agent.MetricAggregator;
 import com.newrelic.trace.v1.V1;
 import io.grpc.Status;
-import io.grpc.stub.StreamObserver;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
 
 import java.util.logging.Level;
 
-class ResponseObserver implements StreamObserver<V1.RecordStatus> {
+/**
+ * Observes the responses of a span stream. It is also the stream's {@link ClientResponseObserver}, which is the only
+ * place the on ready handler can be registered, before the call starts. The request type is either
+ * {@link V1.Span} or {@link V1.SpanBatch}, depending on whether batching is enabled.
+ */
+class ResponseObserver implements ClientResponseObserver<Object, V1.RecordStatus> {
 
     private final Logger logger;
     private final ChannelManager channelManager;
     private final MetricAggregator aggregator;
     private final BackoffPolicy backoffManager;
+    private final int stream;
+    private final ReadySignal readySignal = new ReadySignal();
 
-    ResponseObserver(Logger logger, ChannelManager channelManager, MetricAggregator aggregator, BackoffPolicy backoffPolicy) {
+    ResponseObserver(Logger logger, ChannelManager channelManager, MetricAggregator aggregator, BackoffPolicy backoffPolicy, int stream) {
         this.logger = logger;
         this.channelManager = channelManager;
         this.aggregator = aggregator;
         this.backoffManager = backoffPolicy;
+        this.stream = stream;
+    }
+
+    @Override
+    public void beforeStart(ClientCallStreamObserver<Object> requestStream) {
+        requestStream.setOnReadyHandler(readySignal);
+    }
+
+    /**
+     * @return the signal run by gRPC when the span stream becomes ready
+     */
+    ReadySignal getReadySignal() {
+        return readySignal;
     }
 
     @Override
@@ -111,7 +132,8 @@ class ResponseObserver implements StreamObserver<V1.RecordStatus> {
     public void onCompleted() {
         logger.log(Level.FINE, "Completing gRPC response observer.");
         aggregator.incrementCounter("Supportability/InfiniteTracing/Response/Completed");
-        channelManager.recreateSpanObserver();
+        // Only the completed stream is recreated, the other streams keep sending
+        channelManager.recreateSpanObserver(stream);
     }
 
 }
\ No newline at end of file
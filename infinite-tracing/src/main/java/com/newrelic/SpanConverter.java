@@ -3,13 +3,33 @@ package com.newrelic;
 import com.newrelic.agent.model.SpanEvent;
 import com.newrelic.trace.v1.V1;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 class SpanConverter {
 
+    private static final String APP_NAME = "appName";
+
+    // The values of these attributes come from a small set that repeats across nearly every span, so the converted
+    // AttributeValues are shared rather than built again for each span.
+    private static final Set<String> INTERNED_ATTRIBUTES = new HashSet<>(Arrays.asList(
+            APP_NAME, "type", "category", "span.kind", "component", "parent.type", "http.method", "db.instance", "peer.hostname"));
+    private static final int MAX_INTERNED_VALUES = 1000;
+    private static final ConcurrentMap<String, V1.AttributeValue> INTERNED_VALUES = new ConcurrentHashMap<>();
+
+    private static final V1.AttributeValue TRUE = V1.AttributeValue.newBuilder().setBoolValue(true).build();
+    private static final V1.AttributeValue FALSE = V1.AttributeValue.newBuilder().setBoolValue(false).build();
+
+    // A span in a batch is a length delimited field, so it takes a tag and a length prefix on top of its own size
+    private static final int SPAN_FIELD_OVERHEAD_BYTES = 6;
+
     private SpanConverter() {
     }
 
@@ -20,18 +40,40 @@ class SpanConverter {
      * @return the gRPC span
      */
     static V1.Span convert(SpanEvent spanEvent) {
-        Map<String, V1.AttributeValue> intrinsicAttributes = copyAttributes(spanEvent.getIntrinsics());
-        Map<String, V1.AttributeValue> userAttributes = copyAttributes(spanEvent.getUserAttributesCopy());
-        Map<String, V1.AttributeValue> agentAttributes = copyAttributes(spanEvent.getAgentAttributes());
-
-        intrinsicAttributes.put("appName", V1.AttributeValue.newBuilder().setStringValue(spanEvent.getAppName()).build());
-
-        return V1.Span.newBuilder()
-                .setTraceId(spanEvent.getTraceId())
-                .putAllIntrinsics(intrinsicAttributes)
-                .putAllAgentAttributes(agentAttributes)
-                .putAllUserAttributes(userAttributes)
-                .build();
+        // attributes are put straight into the builder rather than copied into intermediate maps first
+        V1.Span.Builder span = V1.Span.newBuilder().setTraceId(spanEvent.getTraceId());
+
+        Map<String, Object> intrinsics = spanEvent.getIntrinsics();
+        if (intrinsics != null) {
+            for (Map.Entry<String, Object> entry : intrinsics.entrySet()) {
+                V1.AttributeValue value = toAttributeValue(entry.getKey(), entry.getValue());
+                if (value != null) {
+                    span.putIntrinsics(entry.getKey(), value);
+                }
+            }
+        }
+        span.putIntrinsics(APP_NAME, toAttributeValue(APP_NAME, spanEvent.getAppName()));
+
+        Map<String, Object> agentAttributes = spanEvent.getAgentAttributes();
+        if (agentAttributes != null) {
+            for (Map.Entry<String, Object> entry : agentAttributes.entrySet()) {
+                V1.AttributeValue value = toAttributeValue(entry.getKey(), entry.getValue());
+                if (value != null) {
+                    span.putAgentAttributes(entry.getKey(), value);
+                }
+            }
+        }
+
+        Map<String, Object> userAttributes = spanEvent.getUserAttributesCopy();
+        if (userAttributes != null) {
+            for (Map.Entry<String, Object> entry : userAttributes.entrySet()) {
+                V1.AttributeValue value = toAttributeValue(null, entry.getValue());
+                if (value != null) {
+                    span.putUserAttributes(entry.getKey(), value);
+                }
+            }
+        }
+        return span.build();
     }
 
     /**
@@ -41,30 +83,87 @@ class SpanConverter {
      * @return the gRPC span batch
      */
     static V1.SpanBatch convert(Collection<SpanEvent> spanEvents) {
-        return V1.SpanBatch.newBuilder()
-                .addAllSpans(spanEvents.stream().map(SpanConverter::convert).collect(Collectors.toList()))
-                .build();
+        V1.SpanBatch.Builder batch = V1.SpanBatch.newBuilder();
+        for (SpanEvent spanEvent : spanEvents) {
+            batch.addSpans(convert(spanEvent));
+        }
+        return batch.build();
+    }
+
+    /**
+     * Convert the span events to as few gRPC span batches as possible without any batch exceeding the given size. A
+     * span that is larger than the limit on its own is still sent, in a batch by itself.
+     *
+     * @param spanEvents the span events
+     * @param maxBatchBytes the maximum serialized size of a batch
+     * @return the gRPC span batches
+     */
+    static List<V1.SpanBatch> convert(Collection<SpanEvent> spanEvents, int maxBatchBytes) {
+        List<V1.Span> spans = new ArrayList<>(spanEvents.size());
+        for (SpanEvent spanEvent : spanEvents) {
+            spans.add(convert(spanEvent));
+        }
+        return batch(spans, maxBatchBytes);
+    }
+
+    /**
+     * Group the gRPC spans into as few span batches as possible without any batch exceeding the given size.
+     *
+     * @param spans the gRPC spans
+     * @param maxBatchBytes the maximum serialized size of a batch
+     * @return the gRPC span batches
+     */
+    static List<V1.SpanBatch> batch(Collection<V1.Span> spans, int maxBatchBytes) {
+        List<V1.SpanBatch> batches = new ArrayList<>(1);
+        V1.SpanBatch.Builder batch = V1.SpanBatch.newBuilder();
+        long batchBytes = 0;
+        for (V1.Span span : spans) {
+            // the serialized size is memoized, so computing it here does not add to the cost of sending
+            int spanBytes = span.getSerializedSize() + SPAN_FIELD_OVERHEAD_BYTES;
+            if (batch.getSpansCount() > 0 && batchBytes + spanBytes > maxBatchBytes) {
+                batches.add(batch.build());
+                batch = V1.SpanBatch.newBuilder();
+                batchBytes = 0;
+            }
+            batch.addSpans(span);
+            batchBytes += spanBytes;
+        }
+        if (batch.getSpansCount() > 0) {
+            batches.add(batch.build());
+        }
+        return batches;
     }
 
-    private static Map<String, V1.AttributeValue> copyAttributes(Map<String, Object> original) {
-        Map<String, V1.AttributeValue> copy = new HashMap<>();
-        if (original == null) {
-            return copy;
+    /**
+     * @param key the attribute name, or null if the value should never be shared
+     * @return the gRPC attribute value, or null for unsupported value types
+     */
+    private static V1.AttributeValue toAttributeValue(String key, Object value) {
+        if (value instanceof String) {
+            if (key != null && INTERNED_ATTRIBUTES.contains(key)) {
+                return internedStringValue((String) value);
+            }
+            return V1.AttributeValue.newBuilder().setStringValue((String) value).build();
+        } else if (value instanceof Long || value instanceof Integer) {
+            return V1.AttributeValue.newBuilder().setIntValue(((Number) value).longValue()).build();
+        } else if (value instanceof Float || value instanceof Double) {
+            return V1.AttributeValue.newBuilder().setDoubleValue(((Number) value).doubleValue()).build();
+        } else if (value instanceof Boolean) {
+            return (Boolean) value ? TRUE : FALSE;
         }
+        return null;
+    }
 
-        for (Map.Entry<String, Object> entry : original.entrySet()) {
-            Object value = entry.getValue();
-            if (value instanceof String) {
-                copy.put(entry.getKey(), V1.AttributeValue.newBuilder().setStringValue((String) value).build());
-            } else if (value instanceof Long || value instanceof Integer) {
-                copy.put(entry.getKey(), V1.AttributeValue.newBuilder().setIntValue(((Number) value).longValue()).build());
-            } else if (value instanceof Float || value instanceof Double) {
-                copy.put(entry.getKey(), V1.AttributeValue.newBuilder().setDoubleValue(((Number) value).doubleValue()).build());
-            } else if (value instanceof Boolean) {
-                copy.put(entry.getKey(), V1.AttributeValue.newBuilder().setBoolValue((Boolean) value).build());
+    private static V1.AttributeValue internedStringValue(String value) {
+        V1.AttributeValue attributeValue = INTERNED_VALUES.get(value);
+        if (attributeValue == null) {
+            attributeValue = V1.AttributeValue.newBuilder().setStringValue(value).build();
+            // values outside of the expected small set are converted every time instead of growing the cache
+            if (INTERNED_VALUES.size() < MAX_INTERNED_VALUES) {
+                INTERNED_VALUES.putIfAbsent(value, attributeValue);
             }
         }
-        return copy;
+        return attributeValue;
     }
 
 }
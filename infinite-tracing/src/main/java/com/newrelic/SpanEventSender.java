@@ -6,8 +6,12 @@ import com.newrelic.api.agent.Logger;
 import com.newrelic.api.agent.MetricAggregator;
 import com.newrelic.trace.v1.V1;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
@@ -19,19 +23,40 @@ class SpanEventSender implements Runnable {
     private final BlockingQueue<SpanEvent> queue;
     private final MetricAggregator aggregator;
     private final ChannelManager channelManager;
+    private final int stream;
+    // Holds spans while the channel is backing off, null if spooling is disabled
+    private final SpanEventSpool spool;
+    // Per stream throughput and queue occupancy, recorded next to the totals across all streams
+    private final String streamSpanSentMetric;
+    private final String streamQueueSizeMetric;
+    private final String streamSpoolBytesMetric;
+    private long nextQueueSizeRecordNanos;
     // Destination for agent data
     private static final String INFINITE_TRACING = "InfiniteTracing";
-    // Wait for up to 5 seconds for data when batching
-    private static final long LINGER_MS = 5000;
-    // Allow a maximum batch size of up to 100 items
-    private static final int MAX_BATCH_SIZE = 100;
+    private static final long QUEUE_SIZE_RECORD_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // Maximum number of spans, and serialized bytes, per batch and how long to wait for a batch to fill
+    private final int maxBatchSize;
+    private final int maxBatchBytes;
+    private final long lingerMs;
+    // Converted batches waiting for the stream to be ready, only used by the sender thread
+    private final Deque<V1.SpanBatch> pendingBatches = new ArrayDeque<>();
 
-    SpanEventSender(InfiniteTracingConfig config, BlockingQueue<SpanEvent> queue, MetricAggregator aggregator, ChannelManager channelManager) {
+    SpanEventSender(InfiniteTracingConfig config, BlockingQueue<SpanEvent> queue, MetricAggregator aggregator, ChannelManager channelManager,
+            int stream, SpanEventSpool spool) {
         this.logger = config.getLogger();
         this.config = config;
         this.queue = queue;
         this.aggregator = aggregator;
         this.channelManager = channelManager;
+        this.stream = stream;
+        this.spool = spool;
+        this.streamSpanSentMetric = "Supportability/InfiniteTracing/Stream/" + stream + "/Span/Sent";
+        this.streamQueueSizeMetric = "Supportability/InfiniteTracing/Stream/" + stream + "/QueueSize";
+        this.streamSpoolBytesMetric = "Supportability/InfiniteTracing/Stream/" + stream + "/Spool/Bytes";
+        this.nextQueueSizeRecordNanos = System.nanoTime();
+        this.maxBatchSize = config.getBatchSize() > 0 ? config.getBatchSize() : InfiniteTracingConfig.DEFAULT_BATCH_SIZE;
+        this.maxBatchBytes = config.getMaxBatchBytes() > 0 ? config.getMaxBatchBytes() : InfiniteTracingConfig.DEFAULT_MAX_BATCH_BYTES;
+        this.lingerMs = config.getLingerMs() >= 0 ? config.getLingerMs() : InfiniteTracingConfig.DEFAULT_LINGER_MS;
     }
 
     /**
@@ -46,6 +71,9 @@ class SpanEventSender implements Runnable {
                 pollAndWrite();
             } catch (Throwable t) {
                 logger.log(Level.SEVERE, t, "A problem occurred and no further spans will be sent.");
+                if (spool != null) {
+                    spool.close();
+                }
                 return;
             }
         }
@@ -53,14 +81,38 @@ class SpanEventSender implements Runnable {
 
     @VisibleForTesting
     void pollAndWrite() {
+        recordQueueSize();
+
         // Get stream observer
-        Observer observer = channelManager.getObserver();
+        Observer observer;
+        if (spool != null) {
+            // Getting the observer would block for the rest of the backoff, spool the queue instead so it does not overflow
+            observer = channelManager.tryGetObserver(stream);
+            if (observer == null) {
+                spoolQueuedSpans();
+                return;
+            }
+        } else {
+            observer = channelManager.getObserver(stream);
+        }
 
         // Confirm the observer is ready
         if (!awaitReadyObserver(observer)) {
             return;
         }
 
+        // Batches that were waiting for the stream to be ready go first, on a recreated observer if need be
+        if (!pendingBatches.isEmpty()) {
+            sendPendingBatches(observer);
+            return;
+        }
+
+        // Spooled spans are older than anything in the queue, send them first
+        if (spool != null && !spool.isEmpty()) {
+            replaySpooledSpans(observer);
+            return;
+        }
+
         if (config.getUseBatching()) {
             drainAndSendBatchWhenReady(observer);
         } else {
@@ -68,56 +120,159 @@ class SpanEventSender implements Runnable {
         }
     }
 
+    /**
+     * Record how many spans are waiting in the queue, at most once a second.
+     */
+    @VisibleForTesting
+    void recordQueueSize() {
+        long now = System.nanoTime();
+        if (now - nextQueueSizeRecordNanos < 0) {
+            return;
+        }
+        nextQueueSizeRecordNanos = now + QUEUE_SIZE_RECORD_INTERVAL_NANOS;
+        aggregator.recordMetric(streamQueueSizeMetric, queue.size());
+        if (spool != null) {
+            aggregator.recordMetric(streamSpoolBytesMetric, spool.getUsedBytes());
+        }
+    }
+
+    /**
+     * Move the queued spans to the spool. Spans that do not fit in the spool are dropped.
+     */
+    @VisibleForTesting
+    void spoolQueuedSpans() {
+        Collection<SpanEvent> spanEvents = awaitSpanBatch();
+        if (spanEvents.isEmpty()) {
+            return;
+        }
+
+        int written = 0;
+        for (SpanEvent spanEvent : spanEvents) {
+            if (spool.append(SpanConverter.convert(spanEvent))) {
+                written++;
+            }
+        }
+        aggregator.incrementCounter("Supportability/InfiniteTracing/Spool/Written", written);
+        if (written < spanEvents.size()) {
+            logger.log(Level.FINEST, "Spool full, dropped {0} span events.", spanEvents.size() - written);
+            aggregator.incrementCounter("Supportability/InfiniteTracing/Spool/Dropped", spanEvents.size() - written);
+        }
+    }
+
+    /**
+     * Send the oldest spooled spans, up to one batch, to the observer.
+     */
+    @VisibleForTesting
+    void replaySpooledSpans(Observer observer) {
+        int replayed;
+        if (config.getUseBatching()) {
+            List<V1.Span> spans = new ArrayList<>();
+            V1.Span span;
+            while (spans.size() < maxBatchSize && (span = spool.poll()) != null) {
+                spans.add(span);
+            }
+            replayed = spans.size();
+            pendingBatches.addAll(SpanConverter.batch(spans, maxBatchBytes));
+            sendPendingBatches(observer);
+        } else {
+            V1.Span span = spool.poll();
+            replayed = span != null ? 1 : 0;
+            if (span != null) {
+                writeToObserver(observer, span);
+            }
+        }
+
+        aggregator.incrementCounter("Supportability/InfiniteTracing/Spool/Replayed", replayed);
+        int expired = spool.getAndResetExpired();
+        if (expired > 0) {
+            aggregator.incrementCounter("Supportability/InfiniteTracing/Spool/Expired", expired);
+        }
+    }
+
     @VisibleForTesting
     boolean awaitReadyObserver(Observer observer) {
         if (observer.isReady()) {
             return true;
         }
+        // Wait for gRPC's on ready signal rather than writing into its buffers, the wait is cut short to notice
+        // a backoff or a recreated observer
+        logger.log(Level.FINE, "Waiting for gRPC span observer to be ready.");
+        long startNanos = System.nanoTime();
+        boolean ready;
         try {
-            logger.log(Level.FINE, "Waiting for gRPC span observer to be ready.");
-            aggregator.incrementCounter("Supportability/InfiniteTracing/NotReady");
-            Thread.sleep(250);
+            ready = observer.awaitReady(250, TimeUnit.MILLISECONDS);
         } catch (InterruptedException exception) {
             Thread.currentThread().interrupt();
             throw new RuntimeException("Thread interrupted while awaiting ready gRPC span observer.");
         }
-        return false;
+        aggregator.recordResponseTimeMetric("Supportability/InfiniteTracing/Backpressure/Blocked",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        if (!ready) {
+            aggregator.incrementCounter("Supportability/InfiniteTracing/NotReady");
+        }
+        return ready;
     }
 
     @VisibleForTesting
     void drainAndSendBatchWhenReady(Observer observer) {
-        // If our queue is larger than our max batch size we will send the batch right away,
-        // otherwise we will pause for the linger time to wait for the batch to fill first.
-        if (queue.size() < MAX_BATCH_SIZE) {
+        Collection<SpanEvent> spanEvents = awaitSpanBatch();
+        if (spanEvents.isEmpty()) {
+            return;
+        }
+
+        // Convert and send the batch to the trace observer, split up if it is larger than the max batch bytes
+        pendingBatches.addAll(SpanConverter.convert(spanEvents, maxBatchBytes));
+        sendPendingBatches(observer);
+    }
+
+    /**
+     * Wait for a span, then give the batch up to the linger time to fill. The queue wakes this thread as soon as a span
+     * is offered, so a span is never held back by a fixed sleep.
+     *
+     * @return up to the max batch size of spans, empty if none arrived within the poll timeout
+     */
+    @VisibleForTesting
+    Collection<SpanEvent> awaitSpanBatch() {
+        SpanEvent spanEvent = pollSafely();
+        if (spanEvent == null) {
+            return Collections.emptyList();
+        }
+        Collection<SpanEvent> spanEvents = new ArrayList<>(maxBatchSize);
+        spanEvents.add(spanEvent);
+        queue.drainTo(spanEvents, maxBatchSize - 1);
+
+        long lingerDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        long remainingNanos;
+        while (spanEvents.size() < maxBatchSize && (remainingNanos = lingerDeadline - System.nanoTime()) > 0) {
             try {
-                if (queue.isEmpty()) {
-                    // Prevent a busy-wait loop when we have no data flowing through
-                    Thread.sleep(250);
-                } else {
-                    Thread.sleep(LINGER_MS);
-                }
+                spanEvent = queue.poll(remainingNanos, TimeUnit.NANOSECONDS);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 throw new RuntimeException("Thread interrupted while waiting for span batch to fill.");
             }
+            if (spanEvent == null) {
+                break;
+            }
+            spanEvents.add(spanEvent);
+            queue.drainTo(spanEvents, maxBatchSize - spanEvents.size());
         }
-
-        Collection<SpanEvent> spanEvents = drainSpanBatch();
-        if (spanEvents.isEmpty()) {
-            return;
-        }
-
-        // Convert and send the batch to the trace observer
-        V1.SpanBatch convertedSpanBatch = SpanConverter.convert(spanEvents);
-        writeToObserver(observer, convertedSpanBatch);
+        return spanEvents;
     }
 
+    /**
+     * Write the pending batches as long as the stream is ready. The rest are written by a later
+     * {@link #pollAndWrite()} once gRPC signals that the stream is ready again.
+     */
     @VisibleForTesting
-    Collection<SpanEvent> drainSpanBatch() {
-        // Drain up to the max batch size
-        Collection<SpanEvent> spanEvents = new LinkedList<>();
-        queue.drainTo(spanEvents, MAX_BATCH_SIZE);
-        return spanEvents;
+    void sendPendingBatches(Observer observer) {
+        V1.SpanBatch spanBatch;
+        while ((spanBatch = pendingBatches.peek()) != null) {
+            if (!awaitReadyObserver(observer)) {
+                return;
+            }
+            writeToObserver(observer, spanBatch);
+            pendingBatches.poll();
+        }
     }
 
     @VisibleForTesting
@@ -152,6 +307,7 @@ class SpanEventSender implements Runnable {
             throw t;
         }
         aggregator.incrementCounter("Supportability/InfiniteTracing/Span/Sent");
+        aggregator.incrementCounter(streamSpanSentMetric);
     }
 
     @VisibleForTesting
@@ -163,5 +319,6 @@ class SpanEventSender implements Runnable {
             throw t;
         }
         aggregator.incrementCounter("Supportability/InfiniteTracing/Span/Sent", spanBatch.getSpansCount());
+        aggregator.incrementCounter(streamSpanSentMetric, spanBatch.getSpansCount());
     }
 }
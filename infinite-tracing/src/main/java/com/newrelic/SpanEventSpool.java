@@ -0,0 +1,191 @@
+package com.newrelic;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.newrelic.trace.v1.V1;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A bounded spool for spans that can not be sent while the channel is backing off. Spans are stored serialized in a
+ * ring buffer over a memory-mapped temporary file, so an outage fills the page cache and the disk rather than the heap.
+ * Spans are read back oldest first, and spans older than the maximum age are skipped.
+ *
+ * The spool only lives as long as the {@link SpanEventSender} that owns it, nothing is recovered after a restart. It is
+ * not thread safe, it must only be used by the owning sender thread.
+ */
+class SpanEventSpool implements Closeable {
+
+    // Each record is the length of the serialized span, the time it was spooled, and the serialized span
+    private static final int RECORD_HEADER_BYTES = 4 + 8;
+    // Marks that the next record is at the start of the buffer
+    private static final int WRAP = -1;
+
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final long maxAgeMillis;
+
+    private int head;
+    private int tail;
+    private int count;
+    private int usedBytes;
+    private int expired;
+
+    /**
+     * Create a spool backed by a new temporary file in {@code directory}. The file is deleted when the spool is closed.
+     *
+     * @param directory the directory to create the spool file in
+     * @param capacity the maximum number of bytes the spool file may use
+     * @param maxAgeMillis the maximum age of a spooled span before it is no longer replayed
+     * @throws IOException if the spool file can not be created
+     */
+    SpanEventSpool(File directory, int capacity, long maxAgeMillis) throws IOException {
+        this.capacity = capacity;
+        this.maxAgeMillis = maxAgeMillis;
+        this.file = File.createTempFile("newrelic-infinite-tracing-", ".spool", directory);
+        this.file.deleteOnExit();
+        try {
+            this.randomAccessFile = new RandomAccessFile(file, "rw");
+            this.buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Append a span to the spool.
+     *
+     * @param span the span
+     * @return false if the spool did not have room for the span
+     */
+    boolean append(V1.Span span) {
+        byte[] serialized = span.toByteArray();
+        int recordBytes = RECORD_HEADER_BYTES + serialized.length;
+        if (count == 0) {
+            head = 0;
+            tail = 0;
+        }
+
+        int position;
+        if (count == 0 || tail > head) {
+            // Free space is from the tail to the end of the buffer, and from the start of the buffer to the head
+            if (capacity - tail >= recordBytes) {
+                position = tail;
+            } else if (head >= recordBytes) {
+                if (capacity - tail >= 4) {
+                    buffer.putInt(tail, WRAP);
+                }
+                usedBytes += capacity - tail;
+                position = 0;
+            } else {
+                return false;
+            }
+        } else if (head - tail >= recordBytes) {
+            // The tail has wrapped, free space is from the tail to the head
+            position = tail;
+        } else {
+            return false;
+        }
+
+        buffer.putInt(position, serialized.length);
+        buffer.putLong(position + 4, System.currentTimeMillis());
+        ByteBuffer target = buffer.duplicate();
+        target.position(position + RECORD_HEADER_BYTES);
+        target.put(serialized);
+
+        tail = position + recordBytes;
+        usedBytes += recordBytes;
+        count++;
+        return true;
+    }
+
+    /**
+     * Remove the oldest span from the spool. Spans older than the maximum age are discarded and counted in
+     * {@link #getAndResetExpired()}.
+     *
+     * @return the oldest span, or null if the spool is empty
+     */
+    V1.Span poll() {
+        long expiredBefore = System.currentTimeMillis() - maxAgeMillis;
+        while (count > 0) {
+            if (capacity - head < RECORD_HEADER_BYTES || buffer.getInt(head) == WRAP) {
+                usedBytes -= capacity - head;
+                head = 0;
+                continue;
+            }
+            int length = buffer.getInt(head);
+            long spooledAt = buffer.getLong(head + 4);
+            byte[] serialized = new byte[length];
+            ByteBuffer source = buffer.duplicate();
+            source.position(head + RECORD_HEADER_BYTES);
+            source.get(serialized);
+
+            head += RECORD_HEADER_BYTES + length;
+            usedBytes -= RECORD_HEADER_BYTES + length;
+            if (--count == 0) {
+                head = 0;
+                tail = 0;
+                usedBytes = 0;
+            }
+
+            if (spooledAt < expiredBefore) {
+                expired++;
+                continue;
+            }
+            try {
+                return V1.Span.parseFrom(serialized);
+            } catch (InvalidProtocolBufferException e) {
+                // Only spans this spool serialized are read back, this can not happen unless the file was modified
+                expired++;
+            }
+        }
+        return null;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * @return the number of bytes of the spool file in use
+     */
+    int getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * @return the number of spans discarded because they were too old since the last call
+     */
+    int getAndResetExpired() {
+        int result = expired;
+        expired = 0;
+        return result;
+    }
+
+    /**
+     * Close and delete the spool file. The mapping itself is released when the buffer is garbage collected.
+     */
+    @Override
+    public void close() {
+        try {
+            if (randomAccessFile != null) {
+                randomAccessFile.close();
+            }
+        } catch (IOException ignored) {
+        }
+        file.delete();
+    }
+
+}
@@ -4,13 +4,16 @@ import com.newrelic.trace.v1.V1;
 import io.grpc.stub.ClientCallStreamObserver;
 
 import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
 
 public class SpanObserver implements Observer {
 
     private final ClientCallStreamObserver<V1.Span> observer;
+    private final ReadySignal readySignal;
 
-    public SpanObserver(ClientCallStreamObserver<V1.Span> observer) {
+    public SpanObserver(ClientCallStreamObserver<V1.Span> observer, ReadySignal readySignal) {
         this.observer = observer;
+        this.readySignal = readySignal;
     }
 
     @Override
@@ -29,6 +32,11 @@ public class SpanObserver implements Observer {
         return observer.isReady();
     }
 
+    @Override
+    public boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+        return readySignal.await(observer, timeout, unit);
+    }
+
     @Override
     public void cancel(@Nullable String message, @Nullable Throwable cause) {
         observer.cancel(message, cause);
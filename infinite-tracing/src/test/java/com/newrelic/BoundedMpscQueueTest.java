@@ -0,0 +1,183 @@
+package com.newrelic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedMpscQueueTest {
+
+    @Test
+    void offer_RejectsWhenFull() {
+        BoundedMpscQueue<String> queue = new BoundedMpscQueue<>(2);
+
+        assertTrue(queue.offer("one"));
+        assertTrue(queue.offer("two"));
+        assertFalse(queue.offer("three"));
+        assertEquals(2, queue.size());
+        assertEquals(0, queue.remainingCapacity());
+
+        assertEquals("one", queue.poll());
+        assertTrue(queue.offer("three"));
+        assertEquals("two", queue.poll());
+        assertEquals("three", queue.poll());
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void drainTo_DrainsUpToMaxElementsInOrder() {
+        BoundedMpscQueue<Integer> queue = new BoundedMpscQueue<>(10);
+        for (int i = 0; i < 5; i++) {
+            queue.offer(i);
+        }
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(3, queue.drainTo(drained, 3));
+        assertEquals(2, drained.get(2).intValue());
+        assertEquals(2, queue.size());
+
+        assertEquals(2, queue.drainTo(drained));
+        assertEquals(5, drained.size());
+        assertEquals(4, drained.get(4).intValue());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    @Timeout(5)
+    void poll_WaitsForTimeout() throws InterruptedException {
+        BoundedMpscQueue<String> queue = new BoundedMpscQueue<>(1);
+
+        long start = System.nanoTime();
+        assertNull(queue.poll(100, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    @Timeout(5)
+    void poll_ReturnsElementOfferedWhileWaiting() throws Exception {
+        final BoundedMpscQueue<String> queue = new BoundedMpscQueue<>(1);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> future = executorService.submit(() -> {
+                Thread.sleep(50);
+                return queue.offer("span");
+            });
+            assertEquals("span", queue.poll(3, TimeUnit.SECONDS));
+            future.get();
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    @Timeout(5)
+    void take_ParksUntilAnElementIsOffered() throws Exception {
+        final BoundedMpscQueue<String> queue = new BoundedMpscQueue<>(1);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            final AtomicReference<Thread> consumer = new AtomicReference<>();
+            Future<String> future = executorService.submit(() -> {
+                consumer.set(Thread.currentThread());
+                return queue.take();
+            });
+
+            // an idle consumer waits without a timeout until the offer unparks it
+            while (consumer.get() == null || consumer.get().getState() != Thread.State.WAITING) {
+                Thread.sleep(10);
+            }
+            assertTrue(queue.offer("span"));
+            assertEquals("span", future.get());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void remove_KeepsSizeInSync() {
+        BoundedMpscQueue<Integer> queue = new BoundedMpscQueue<>(5);
+        for (int i = 0; i < 5; i++) {
+            queue.offer(i);
+        }
+
+        assertTrue(queue.remove(Integer.valueOf(0)));
+        assertFalse(queue.remove(Integer.valueOf(0)));
+        assertEquals(4, queue.size());
+
+        Iterator<Integer> iterator = queue.iterator();
+        assertEquals(1, iterator.next().intValue());
+        iterator.remove();
+        assertThrows(IllegalStateException.class, iterator::remove);
+        assertEquals(3, queue.size());
+
+        assertTrue(queue.removeAll(Collections.singleton(2)));
+        assertEquals(2, queue.size());
+        assertTrue(queue.retainAll(Collections.singleton(4)));
+        assertEquals(1, queue.size());
+        assertEquals(4, queue.peek().intValue());
+
+        // capacity freed by the removals can be used again
+        assertTrue(queue.offer(5));
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        assertEquals(5, queue.remainingCapacity());
+    }
+
+    @Test
+    @Timeout(30)
+    void offer_ManyProducersNeverExceedCapacity() throws Exception {
+        final int producers = 8;
+        final int perProducer = 10_000;
+        final BoundedMpscQueue<Integer> queue = new BoundedMpscQueue<>(100);
+        final CountDownLatch done = new CountDownLatch(producers);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(producers);
+        try {
+            for (int p = 0; p < producers; p++) {
+                final int producer = p;
+                executorService.submit(() -> {
+                    try {
+                        for (int i = 0; i < perProducer; i++) {
+                            queue.put(producer * perProducer + i);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+
+            Set<Integer> consumed = new HashSet<>();
+            while (consumed.size() < producers * perProducer) {
+                assertTrue(queue.size() <= 100);
+                Integer element = queue.poll(1, TimeUnit.SECONDS);
+                if (element != null) {
+                    consumed.add(element);
+                }
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertTrue(queue.isEmpty());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+}
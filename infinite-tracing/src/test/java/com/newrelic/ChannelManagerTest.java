@@ -23,11 +23,14 @@ import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -62,14 +65,18 @@ class ChannelManagerTest {
     void setup() {
         MockitoAnnotations.initMocks(this);
         when(config.getLogger()).thenReturn(logger);
+        buildTarget();
+    }
+
+    private void buildTarget() {
         target = spy(new ChannelManager(config, aggregator, "agentToken", ImmutableMap.of("key1", "value1")));
         doReturn(managedChannel).when(target).buildChannel();
         doReturn(stub).when(target).buildStub(managedChannel);
-        doReturn(responseObserver).when(target).buildResponseObserver();
+        doReturn(responseObserver).when(target).buildResponseObserver(anyInt());
         doReturn(spanStreamObserver).when(stub).recordSpan(responseObserver);
         doReturn(spanBatchStreamObserver).when(stub).recordSpanBatch(responseObserver);
-        doReturn(spanObserver).when(target).buildSpanObserver(spanStreamObserver);
-        doReturn(spanBatchObserver).when(target).buildSpanBatchObserver(spanBatchStreamObserver);
+        doReturn(spanObserver).when(target).buildSpanObserver(eq(spanStreamObserver), any());
+        doReturn(spanBatchObserver).when(target).buildSpanBatchObserver(eq(spanBatchStreamObserver), any());
     }
 
     @ParameterizedTest
@@ -82,7 +89,7 @@ class ChannelManagerTest {
         assertThrows(RuntimeException.class, new Executable() {
             @Override
             public void execute() {
-                target.getObserver();
+                target.getObserver(0);
             }
         });
     }
@@ -91,12 +98,12 @@ class ChannelManagerTest {
     @ValueSource(booleans = { false, true })
     void getSpanObserver_BuildsChannelAndSpanObserverWhenMissing(boolean batchingEnabled) {
         final Observer expectedObserver = setupBatchingAndGetExpectedObserver(batchingEnabled);
-        assertEquals(expectedObserver, target.getObserver());
-        assertEquals(expectedObserver, target.getObserver());
+        assertEquals(expectedObserver, target.getObserver(0));
+        assertEquals(expectedObserver, target.getObserver(0));
 
         verify(target).buildChannel();
         verify(target).buildStub(managedChannel);
-        verify(target).buildResponseObserver();
+        verify(target).buildResponseObserver(0);
         verifyExpectedRecordMethod(1, batchingEnabled);
         verify(aggregator).incrementCounter("Supportability/InfiniteTracing/Connect");
     }
@@ -105,19 +112,41 @@ class ChannelManagerTest {
     @ValueSource(booleans = { false, true })
     void getSpanObserver_RecreatesSpanObserver(boolean batchingEnabled) {
         final Observer expectedObserver = setupBatchingAndGetExpectedObserver(batchingEnabled);
-        assertEquals(expectedObserver, target.getObserver());
-        target.recreateSpanObserver();
-        assertEquals(expectedObserver, target.getObserver());
-        assertEquals(expectedObserver, target.getObserver());
+        assertEquals(expectedObserver, target.getObserver(0));
+        target.recreateSpanObserver(0);
+        assertEquals(expectedObserver, target.getObserver(0));
+        assertEquals(expectedObserver, target.getObserver(0));
 
         verify(target).buildChannel();
         verify(target, times(2)).buildStub(managedChannel);
         verify(expectedObserver).cancel(eq("CLOSING_CONNECTION"), any(ChannelClosingException.class));
-        verify(target, times(2)).buildResponseObserver();
+        verify(target, times(2)).buildResponseObserver(0);
         verifyExpectedRecordMethod(2, batchingEnabled);
         verify(aggregator, times(2)).incrementCounter("Supportability/InfiniteTracing/Connect");
     }
 
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void getSpanObserver_RecreatesOnlyTheCompletedStream(boolean batchingEnabled) {
+        when(config.getStreams()).thenReturn(2);
+        buildTarget();
+        final Observer expectedObserver = setupBatchingAndGetExpectedObserver(batchingEnabled);
+
+        assertEquals(2, target.getStreams());
+        assertEquals(expectedObserver, target.getObserver(0));
+        assertEquals(expectedObserver, target.getObserver(1));
+        target.recreateSpanObserver(1);
+        assertEquals(expectedObserver, target.getObserver(0));
+        assertEquals(expectedObserver, target.getObserver(1));
+
+        // Both streams share the channel, and only stream 1 is recreated
+        verify(target).buildChannel();
+        verify(target).buildResponseObserver(0);
+        verify(target, times(2)).buildResponseObserver(1);
+        verifyExpectedRecordMethod(3, batchingEnabled);
+        verify(aggregator, times(3)).incrementCounter("Supportability/InfiniteTracing/Connect");
+    }
+
     @ParameterizedTest
     @Timeout(15)
     @ValueSource(booleans = { false, true })
@@ -147,7 +176,7 @@ class ChannelManagerTest {
                     throw new RuntimeException("Thread interrupted while sleeping.");
                 }
 
-                Observer response = target.getObserver();
+                Observer response = target.getObserver(0);
                 getSpanObserverCompletedAt.set(System.currentTimeMillis());
                 return response;
             }
@@ -160,20 +189,45 @@ class ChannelManagerTest {
         assertTrue(getSpanObserverCompletedAt.get() >= backoffCompletedAt.get());
     }
 
+    @ParameterizedTest
+    @Timeout(15)
+    @ValueSource(booleans = { false, true })
+    void tryGetObserver_ReturnsNullWhileBackingOff(boolean batchingEnabled) throws ExecutionException, InterruptedException {
+        final Observer expectedObserver = setupBatchingAndGetExpectedObserver(batchingEnabled);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+        // Submit a task to initiate a backoff
+        Future<?> backoffFuture = executorService.submit(new Runnable() {
+            @Override
+            public void run() {
+                target.shutdownChannelAndBackoff(2);
+            }
+        });
+
+        // Wait for the backoff task to have initiated backoff
+        Thread.sleep(500);
+        assertNull(target.tryGetObserver(0));
+        verify(target, never()).buildChannel();
+
+        backoffFuture.get();
+        assertEquals(expectedObserver, target.tryGetObserver(0));
+        executorService.shutdown();
+    }
+
     @ParameterizedTest
     @ValueSource(booleans = { false, true })
     void shutdownChannelAndBackoff_ShutsDownChannelCancelsSpanObserver(boolean batchingEnabled) {
         final Observer expectedObserver = setupBatchingAndGetExpectedObserver(batchingEnabled);
 
-        assertEquals(expectedObserver, target.getObserver());
+        assertEquals(expectedObserver, target.getObserver(0));
         target.shutdownChannelAndBackoff(0);
-        assertEquals(expectedObserver, target.getObserver());
+        assertEquals(expectedObserver, target.getObserver(0));
 
-        verify(target).recreateSpanObserver();
+        verify(target).recreateSpanObservers();
         // Channel and span observer is built twice
         verify(target, times(2)).buildChannel();
         verify(target, times(2)).buildStub(managedChannel);
-        verify(target, times(2)).buildResponseObserver();
+        verify(target, times(2)).buildResponseObserver(0);
         verifyExpectedRecordMethod(2, batchingEnabled);
         verify(aggregator, times(2)).incrementCounter("Supportability/InfiniteTracing/Connect");
     }
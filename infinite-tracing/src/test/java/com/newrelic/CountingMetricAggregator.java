@@ -0,0 +1,54 @@
+package com.newrelic;
+
+import com.newrelic.api.agent.MetricAggregator;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sums the counters and response times recorded under each metric name.
+ */
+class CountingMetricAggregator implements MetricAggregator {
+
+    private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+    long get(String name) {
+        LongAdder count = counts.get(name);
+        return count == null ? 0 : count.sum();
+    }
+
+    private void add(String name, long value) {
+        LongAdder count = counts.get(name);
+        if (count == null) {
+            counts.putIfAbsent(name, new LongAdder());
+            count = counts.get(name);
+        }
+        count.add(value);
+    }
+
+    @Override
+    public void recordResponseTimeMetric(String name, long totalTime, long exclusiveTime, TimeUnit timeUnit) {
+        add(name, timeUnit.toMillis(totalTime));
+    }
+
+    @Override
+    public void recordMetric(String name, float value) {
+    }
+
+    @Override
+    public void recordResponseTimeMetric(String name, long millis) {
+        add(name, millis);
+    }
+
+    @Override
+    public void incrementCounter(String name) {
+        add(name, 1);
+    }
+
+    @Override
+    public void incrementCounter(String name, int count) {
+        add(name, count);
+    }
+}
@@ -56,6 +56,39 @@ class InfiniteTracingConfigTest {
         assertTrue(config.getUseBatching());
     }
 
+    @Test
+    void testBatchingDefaults() {
+        InfiniteTracingConfig config = InfiniteTracingConfig.builder().build();
+        assertEquals(100, config.getBatchSize());
+        assertEquals(4 * 1024 * 1024, config.getMaxBatchBytes());
+        assertEquals(5000, config.getLingerMs());
+    }
+
+    @Test
+    void testBatchingLimits() {
+        InfiniteTracingConfig config = InfiniteTracingConfig.builder()
+                .batchSize(1000)
+                .maxBatchBytes(65536)
+                .lingerMs(0)
+                .build();
+        assertEquals(1000, config.getBatchSize());
+        assertEquals(65536, config.getMaxBatchBytes());
+        assertEquals(0, config.getLingerMs());
+    }
+
+    @Test
+    void testStreams() {
+        assertEquals(1, InfiniteTracingConfig.builder().build().getStreams());
+        assertEquals(4, InfiniteTracingConfig.builder().streams(4).build().getStreams());
+    }
+
+    @Test
+    void testSpoolDisabledByDefault() {
+        InfiniteTracingConfig config = InfiniteTracingConfig.builder().build();
+        assertEquals(0, config.getSpoolMaxBytes());
+        assertEquals(300_000, config.getSpoolMaxAgeMs());
+    }
+
     @Test
     public void builder_withAllAttributes_successfullyConstructsObj() {
         InfiniteTracingConfig config = InfiniteTracingConfig.builder().useCompression(true)
@@ -0,0 +1,121 @@
+package com.newrelic;
+
+import com.newrelic.agent.model.SpanEvent;
+import com.newrelic.api.agent.Logger;
+import io.grpc.ManagedChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Drives {@link InfiniteTracing} against an {@link IngestServiceStubServer}. The load test in the loadTest source set
+ * uses the same setup.
+ */
+class InfiniteTracingStubServerTest {
+
+    private IngestServiceStubServer server;
+    private CountingMetricAggregator aggregator;
+    private InfiniteTracing infiniteTracing;
+
+    @BeforeEach
+    void setup() {
+        aggregator = new CountingMetricAggregator();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (infiniteTracing != null) {
+            infiniteTracing.stop();
+        }
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @ParameterizedTest
+    @Timeout(30)
+    @ValueSource(booleans = { false, true })
+    void accept_SpansAreReceivedByTraceObserver(boolean batching) throws Exception {
+        server = new IngestServiceStubServer(0).start();
+        infiniteTracing = startInfiniteTracing(InfiniteTracingConfig.builder()
+                .logger(Mockito.mock(Logger.class))
+                .maxQueueSize(10_000)
+                .useBatching(batching)
+                .lingerMs(0)
+                .streams(2)
+                .build(), aggregator, server);
+
+        for (int i = 0; i < 1000; i++) {
+            infiniteTracing.accept(buildSpanEvent());
+        }
+
+        awaitReceived(server, 1000, TimeUnit.SECONDS.toNanos(20));
+        assertEquals(1000, aggregator.get("Supportability/InfiniteTracing/Span/Seen"));
+        assertEquals(1000, server.getSpansReceived());
+    }
+
+    /**
+     * Start infinite tracing with the same per-stream queues as {@link InfiniteTracing#initialize}, sending to the stub server.
+     */
+    static InfiniteTracing startInfiniteTracing(final InfiniteTracingConfig config, final CountingMetricAggregator aggregator,
+            final IngestServiceStubServer server) {
+        List<BlockingQueue<SpanEvent>> queues = InfiniteTracing.buildQueues(config);
+        ExecutorService executorService = Executors.newFixedThreadPool(queues.size(), new InfiniteTracing.DaemonThreadFactory("Infinite Tracing"));
+
+        InfiniteTracing infiniteTracing = new InfiniteTracing(config, aggregator, executorService, queues) {
+            @Override
+            ChannelManager buildChannelManager(String agentRunToken, Map<String, String> requestMetadata) {
+                return new ChannelManager(config, aggregator, agentRunToken, requestMetadata) {
+                    @Override
+                    ManagedChannel buildChannel() {
+                        return server.buildChannel();
+                    }
+                };
+            }
+        };
+        infiniteTracing.start("agentRunToken", Collections.<String, String>emptyMap());
+        return infiniteTracing;
+    }
+
+    static void awaitReceived(IngestServiceStubServer server, long spans, long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (server.getSpansReceived() < spans && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    static SpanEvent buildSpanEvent() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return SpanEvent.builder()
+                .appName("Load Test")
+                .priority(random.nextFloat())
+                .putIntrinsic("traceId", Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong()))
+                .putIntrinsic("guid", Long.toHexString(random.nextLong()))
+                .putIntrinsic("parentId", Long.toHexString(random.nextLong()))
+                .putIntrinsic("transactionId", Long.toHexString(random.nextLong()))
+                .putIntrinsic("name", "Java/com.example.Service/handle")
+                .putIntrinsic("category", "generic")
+                .putIntrinsic("type", "Span")
+                .putIntrinsic("timestamp", System.currentTimeMillis())
+                .putIntrinsic("duration", random.nextFloat())
+                .putIntrinsic("sampled", true)
+                .putIntrinsic(IngestServiceStubServer.ACCEPTED_NANOS, System.nanoTime())
+                .putAgentAttribute("http.url", "https://example.com/api/items")
+                .build();
+    }
+
+}
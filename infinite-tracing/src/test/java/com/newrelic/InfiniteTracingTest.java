@@ -7,10 +7,15 @@ import com.newrelic.api.agent.MetricAggregator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingDeque;
@@ -18,12 +23,16 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -51,9 +60,9 @@ class InfiniteTracingTest {
         MockitoAnnotations.initMocks(this);
         when(config.getLogger()).thenReturn(logger);
         queue = new LinkedBlockingDeque<>(1);
-        target = spy(new InfiniteTracing(config, aggregator, executorService, queue));
+        target = spy(new InfiniteTracing(config, aggregator, executorService, Collections.<BlockingQueue<SpanEvent>>singletonList(queue)));
         doReturn(channelManager).when(target).buildChannelManager(anyString(), ArgumentMatchers.<String, String>anyMap());
-        doReturn(spanEventSender).when(target).buildSpanEventSender();
+        doReturn(spanEventSender).when(target).buildSpanEventSender(anyInt());
 
     }
 
@@ -66,7 +75,7 @@ class InfiniteTracingTest {
         target.start("token2", ImmutableMap.of("key2", "value2"));
 
         verify(target).buildChannelManager("token1", ImmutableMap.of("key1", "value1"));
-        verify(target).buildSpanEventSender();
+        verify(target).buildSpanEventSender(0);
         verify(executorService).submit(spanEventSender);
         verify(channelManager).updateMetadata("token2", ImmutableMap.of("key2", "value2"));
         verify(channelManager).shutdownChannelAndBackoff(0);
@@ -89,16 +98,79 @@ class InfiniteTracingTest {
         assertEquals(spanEvent, queue.poll());
     }
 
+    @Test
+    void startStartsSenderPerStream() {
+        Future future = mock(Future.class);
+        when(executorService.submit(ArgumentMatchers.<Runnable>any())).thenReturn(future);
+        target = spy(new InfiniteTracing(config, aggregator, executorService, Arrays.<BlockingQueue<SpanEvent>>asList(
+                new LinkedBlockingDeque<SpanEvent>(), new LinkedBlockingDeque<SpanEvent>(), new LinkedBlockingDeque<SpanEvent>())));
+        doReturn(channelManager).when(target).buildChannelManager(anyString(), ArgumentMatchers.<String, String>anyMap());
+        doReturn(spanEventSender).when(target).buildSpanEventSender(anyInt());
+
+        target.start("token1", ImmutableMap.of("key1", "value1"));
+        target.stop();
+
+        verify(target).buildChannelManager("token1", ImmutableMap.of("key1", "value1"));
+        verify(target).buildSpanEventSender(0);
+        verify(target).buildSpanEventSender(1);
+        verify(target).buildSpanEventSender(2);
+        verify(executorService, times(3)).submit(spanEventSender);
+        verify(future, times(3)).cancel(true);
+        verify(channelManager).shutdownChannelForever();
+    }
+
+    @Test
+    void accept_PartitionsSpansByTraceId() {
+        LinkedBlockingDeque<SpanEvent> first = new LinkedBlockingDeque<>();
+        LinkedBlockingDeque<SpanEvent> second = new LinkedBlockingDeque<>();
+        target = new InfiniteTracing(config, aggregator, executorService, Arrays.<BlockingQueue<SpanEvent>>asList(first, second));
+
+        for (int trace = 0; trace < 20; trace++) {
+            for (int span = 0; span < 5; span++) {
+                target.accept(SpanEvent.builder().putIntrinsic("traceId", "trace" + trace).build());
+            }
+        }
+
+        assertEquals(100, first.size() + second.size());
+        assertTrue(first.size() > 0);
+        assertTrue(second.size() > 0);
+        // every trace is sent on a single stream
+        for (SpanEvent spanEvent : first) {
+            for (SpanEvent other : second) {
+                assertNotEquals(spanEvent.getTraceId(), other.getTraceId());
+            }
+        }
+    }
+
     @Test
     public void buildChannelManager_returnsChannelManager() {
-        target = new InfiniteTracing(config, aggregator, executorService, queue);
+        target = new InfiniteTracing(config, aggregator, executorService, Collections.<BlockingQueue<SpanEvent>>singletonList(queue));
         assertNotNull(target.buildChannelManager("1234", ImmutableMap.of("key1", "value1")));
     }
 
     @Test
     public void buildSpanEventSender_returnsSpanEventSender() {
-        target = new InfiniteTracing(config, aggregator, executorService, queue);
-        assertNotNull(target.buildSpanEventSender());
+        target = new InfiniteTracing(config, aggregator, executorService, Collections.<BlockingQueue<SpanEvent>>singletonList(queue));
+        assertNotNull(target.buildSpanEventSender(0));
+    }
+
+    @Test
+    void buildSpool_NullWhenDisabled() {
+        assertNull(target.buildSpool());
+    }
+
+    @Test
+    void buildSpool_SplitsSpoolSizeBetweenStreams(@TempDir File directory) {
+        when(config.getSpoolMaxBytes()).thenReturn(2048);
+        when(config.getSpoolDirectory()).thenReturn(directory.getAbsolutePath());
+        target = new InfiniteTracing(config, aggregator, executorService, Arrays.<BlockingQueue<SpanEvent>>asList(
+                new LinkedBlockingDeque<SpanEvent>(), new LinkedBlockingDeque<SpanEvent>()));
+
+        SpanEventSpool spool = target.buildSpool();
+
+        assertNotNull(spool);
+        assertEquals(1024, directory.listFiles()[0].length());
+        spool.close();
     }
 
     @Test
@@ -0,0 +1,147 @@
+package com.newrelic;
+
+import com.newrelic.trace.v1.IngestServiceGrpc;
+import com.newrelic.trace.v1.V1;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An in-process stand-in for the trace observer's {@code IngestService}. It counts the spans it receives and, for spans
+ * that carry an {@link #ACCEPTED_NANOS} intrinsic, records how long they took from being accepted to being received.
+ *
+ * The in-process transport skips the network and TLS, so throughput measured against it is the sender side only:
+ * queueing, conversion, batching and flow control.
+ */
+class IngestServiceStubServer extends IngestServiceGrpc.IngestServiceImplBase {
+
+    /**
+     * Intrinsic holding the {@link System#nanoTime()} at which a span was accepted.
+     */
+    static final String ACCEPTED_NANOS = "loadtest.acceptedNanos";
+
+    private static final int MAX_LATENCY_SAMPLES = 1_000_000;
+
+    private final String name = InProcessServerBuilder.generateName();
+    private final long processingNanosPerMessage;
+    private final AtomicLong spansReceived = new AtomicLong();
+    private final AtomicLong messagesReceived = new AtomicLong();
+    private final long[] latencyNanos = new long[MAX_LATENCY_SAMPLES];
+    private final AtomicInteger latencySamples = new AtomicInteger();
+    private Server server;
+
+    /**
+     * @param processingNanosPerMessage how long the server spends on each message, to simulate a slow trace observer
+     */
+    IngestServiceStubServer(long processingNanosPerMessage) {
+        this.processingNanosPerMessage = processingNanosPerMessage;
+    }
+
+    IngestServiceStubServer start() throws IOException {
+        server = InProcessServerBuilder.forName(name).addService(this).build().start();
+        return this;
+    }
+
+    void stop() throws InterruptedException {
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    ManagedChannel buildChannel() {
+        return InProcessChannelBuilder.forName(name).build();
+    }
+
+    long getSpansReceived() {
+        return spansReceived.get();
+    }
+
+    long getMessagesReceived() {
+        return messagesReceived.get();
+    }
+
+    /**
+     * @param percentile from 0 to 100
+     * @return the latency of received spans at the percentile in nanoseconds, or 0 if none were measured
+     */
+    long getLatencyNanos(double percentile) {
+        int samples = Math.min(latencySamples.get(), MAX_LATENCY_SAMPLES);
+        if (samples == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(latencyNanos, samples);
+        Arrays.sort(sorted);
+        return sorted[(int) Math.min(samples - 1, Math.round(percentile / 100 * (samples - 1)))];
+    }
+
+    @Override
+    public StreamObserver<V1.Span> recordSpan(final StreamObserver<V1.RecordStatus> responseObserver) {
+        return new RecordingObserver<V1.Span>(responseObserver) {
+            @Override
+            public void onNext(V1.Span span) {
+                received(span, System.nanoTime());
+                acknowledge();
+            }
+        };
+    }
+
+    @Override
+    public StreamObserver<V1.SpanBatch> recordSpanBatch(final StreamObserver<V1.RecordStatus> responseObserver) {
+        return new RecordingObserver<V1.SpanBatch>(responseObserver) {
+            @Override
+            public void onNext(V1.SpanBatch spanBatch) {
+                long now = System.nanoTime();
+                for (V1.Span span : spanBatch.getSpansList()) {
+                    received(span, now);
+                }
+                acknowledge();
+            }
+        };
+    }
+
+    private void received(V1.Span span, long now) {
+        spansReceived.incrementAndGet();
+        V1.AttributeValue acceptedNanos = span.getIntrinsicsMap().get(ACCEPTED_NANOS);
+        if (acceptedNanos != null) {
+            int sample = latencySamples.getAndIncrement();
+            if (sample < MAX_LATENCY_SAMPLES) {
+                latencyNanos[sample] = now - acceptedNanos.getIntValue();
+            }
+        }
+    }
+
+    private abstract class RecordingObserver<T> implements StreamObserver<T> {
+
+        private final StreamObserver<V1.RecordStatus> responseObserver;
+
+        RecordingObserver(StreamObserver<V1.RecordStatus> responseObserver) {
+            this.responseObserver = responseObserver;
+        }
+
+        void acknowledge() {
+            messagesReceived.incrementAndGet();
+            if (processingNanosPerMessage > 0) {
+                // Holding up the server thread is what pushes back on the client's stream
+                LockSupport.parkNanos(processingNanosPerMessage);
+            }
+            responseObserver.onNext(V1.RecordStatus.newBuilder().build());
+        }
+
+        @Override
+        public void onError(Throwable t) {
+        }
+
+        @Override
+        public void onCompleted() {
+            responseObserver.onCompleted();
+        }
+    }
+
+}
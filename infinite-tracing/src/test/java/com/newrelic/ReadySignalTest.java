@@ -0,0 +1,70 @@
+package com.newrelic;
+
+import io.grpc.stub.ClientCallStreamObserver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+class ReadySignalTest {
+
+    @Mock
+    private ClientCallStreamObserver<Object> observer;
+
+    private ReadySignal target;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.initMocks(this);
+        target = new ReadySignal();
+    }
+
+    @Test
+    void await_ReturnsImmediatelyWhenReady() throws InterruptedException {
+        when(observer.isReady()).thenReturn(true);
+
+        assertTrue(target.await(observer, 0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void await_TimesOutWhenNotReady() throws InterruptedException {
+        when(observer.isReady()).thenReturn(false);
+
+        long start = System.nanoTime();
+        assertFalse(target.await(observer, 100, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    @Timeout(5)
+    void await_WakesUpWhenSignalled() throws Exception {
+        final AtomicBoolean ready = new AtomicBoolean();
+        when(observer.isReady()).then(invocation -> ready.get());
+
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            executorService.submit(() -> {
+                Thread.sleep(100);
+                ready.set(true);
+                target.run();
+                return null;
+            });
+
+            // The signal ends the wait long before the timeout
+            assertTrue(target.await(observer, 1, TimeUnit.MINUTES));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+}
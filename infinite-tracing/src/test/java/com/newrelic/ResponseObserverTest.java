@@ -5,6 +5,7 @@ import com.newrelic.api.agent.MetricAggregator;
 import com.newrelic.trace.v1.V1;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ClientCallStreamObserver;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
@@ -32,7 +33,17 @@ class ResponseObserverTest {
     @BeforeEach
     void setup() {
         MockitoAnnotations.initMocks(this);
-        target = spy(new ResponseObserver(logger, channelManager, aggregator, backoffPolicy));
+        target = spy(new ResponseObserver(logger, channelManager, aggregator, backoffPolicy, 1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void beforeStart_RegistersReadySignal() {
+        ClientCallStreamObserver<Object> requestStream = mock(ClientCallStreamObserver.class);
+
+        target.beforeStart(requestStream);
+
+        verify(requestStream).setOnReadyHandler(target.getReadySignal());
     }
 
     @Test
@@ -121,7 +132,7 @@ class ResponseObserverTest {
         target.onCompleted();
 
         verify(aggregator).incrementCounter("Supportability/InfiniteTracing/Response/Completed");
-        verify(channelManager).recreateSpanObserver();
+        verify(channelManager).recreateSpanObserver(1);
     }
 
 }
\ No newline at end of file
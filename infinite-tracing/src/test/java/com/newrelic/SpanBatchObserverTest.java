@@ -9,22 +9,28 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class SpanBatchObserverTest {
 
     @Mock
     private ClientCallStreamObserver<V1.SpanBatch> observer;
+    @Mock
+    private ReadySignal readySignal;
 
     private SpanBatchObserver target;
 
     @BeforeEach
     void setup() {
         MockitoAnnotations.initMocks(this);
-        target = spy(new SpanBatchObserver(observer));
+        target = spy(new SpanBatchObserver(observer, readySignal));
     }
 
     @Test
@@ -37,6 +43,14 @@ class SpanBatchObserverTest {
         verify(observer).cancel(message, cause);
     }
 
+    @Test
+    void awaitReady_awaitsReadySignal() throws InterruptedException {
+        when(readySignal.await(observer, 250, TimeUnit.MILLISECONDS)).thenReturn(true);
+
+        assertTrue(target.awaitReady(250, TimeUnit.MILLISECONDS));
+        verify(readySignal).await(observer, 250, TimeUnit.MILLISECONDS);
+    }
+
     @Test
     void isReady_invokesObserver() {
         target.isReady();
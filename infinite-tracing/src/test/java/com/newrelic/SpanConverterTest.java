@@ -7,11 +7,14 @@ import org.junit.jupiter.api.Test;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class SpanConverterTest {
@@ -58,6 +61,42 @@ class SpanConverterTest {
         }
     }
 
+    @Test
+    void convert_SplitsBatchesLargerThanMaxBytes() {
+        Collection<SpanEvent> spanEvents = IntStream.range(0, 10).mapToObj(i -> buildSpanEvent()).collect(Collectors.toList());
+        int spanBytes = SpanConverter.convert(buildSpanEvent()).getSerializedSize();
+
+        List<V1.SpanBatch> unsplit = SpanConverter.convert(spanEvents, Integer.MAX_VALUE);
+        assertEquals(1, unsplit.size());
+        assertEquals(SpanConverter.convert(spanEvents), unsplit.get(0));
+
+        // room for a little over three spans per batch
+        List<V1.SpanBatch> split = SpanConverter.convert(spanEvents, spanBytes * 3 + 30);
+        assertEquals(4, split.size());
+        assertEquals(3, split.get(0).getSpansCount());
+        assertEquals(1, split.get(3).getSpansCount());
+        assertTrue(split.get(0).getSerializedSize() <= spanBytes * 3 + 30);
+    }
+
+    @Test
+    void convert_OversizedSpanIsSentAlone() {
+        Collection<SpanEvent> spanEvents = IntStream.range(0, 2).mapToObj(i -> buildSpanEvent()).collect(Collectors.toList());
+
+        List<V1.SpanBatch> batches = SpanConverter.convert(spanEvents, 1);
+        assertEquals(2, batches.size());
+        assertEquals(1, batches.get(0).getSpansCount());
+    }
+
+    @Test
+    void convert_SharesAttributeValuesForRepeatedStrings() {
+        V1.Span first = SpanConverter.convert(buildSpanEvent());
+        V1.Span second = SpanConverter.convert(buildSpanEvent());
+
+        assertSame(first.getIntrinsicsOrThrow("appName"), second.getIntrinsicsOrThrow("appName"));
+        assertSame(first.getIntrinsicsOrThrow("intrBool"), second.getIntrinsicsOrThrow("intrBool"));
+        assertNotSame(first.getIntrinsicsOrThrow("intrStr"), second.getIntrinsicsOrThrow("intrStr"));
+    }
+
     static SpanEvent buildSpanEvent() {
         return SpanEvent.builder()
                 .appName("my app")
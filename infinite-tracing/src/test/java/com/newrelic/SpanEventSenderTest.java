@@ -24,12 +24,15 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyFloat;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -57,8 +60,9 @@ class SpanEventSenderTest {
     void setup() {
         MockitoAnnotations.initMocks(this);
         when(config.getLogger()).thenReturn(logger);
-        when(channelManager.getObserver()).thenReturn(observer);
-        target = spy(new SpanEventSender(config, queue, aggregator, channelManager));
+        when(channelManager.getObserver(0)).thenReturn(observer);
+        when(channelManager.tryGetObserver(0)).thenReturn(observer);
+        target = spy(new SpanEventSender(config, queue, aggregator, channelManager, 0, null));
     }
 
     @Test
@@ -98,7 +102,6 @@ class SpanEventSenderTest {
     @Test
     void pollAndWrite_EmptyQueueDoesNotWriteBatch() {
         doReturn(true).when(config).getUseBatching();
-        doReturn(true).when(queue).isEmpty();
         doReturn(true).when(target).awaitReadyObserver(observer);
 
         target.pollAndWrite();
@@ -123,7 +126,7 @@ class SpanEventSenderTest {
         Collection<SpanEvent> spanEvents = IntStream.range(0, 5).mapToObj(i -> buildSpanEvent()).collect(Collectors.toList());
         doReturn(true).when(config).getUseBatching();
         doReturn(true).when(target).awaitReadyObserver(observer);
-        doReturn(spanEvents).when(target).drainSpanBatch();
+        doReturn(spanEvents).when(target).awaitSpanBatch();
 
         target.pollAndWrite();
 
@@ -131,20 +134,112 @@ class SpanEventSenderTest {
     }
 
     @Test
-    void awaitReadyObserver_NotReadySleepsIncrementsCounter() {
-        long startTime = System.currentTimeMillis();
+    void drainAndSendBatchWhenReady_SplitsBatchesOverMaxBytes() {
+        Collection<SpanEvent> spanEvents = IntStream.range(0, 5).mapToObj(i -> buildSpanEvent()).collect(Collectors.toList());
+        when(config.getMaxBatchBytes()).thenReturn(1);
+        when(observer.isReady()).thenReturn(true);
+        SpanEventSender sender = spy(new SpanEventSender(config, queue, aggregator, channelManager, 0, null));
+        doReturn(spanEvents).when(sender).awaitSpanBatch();
+
+        sender.drainAndSendBatchWhenReady(observer);
+
+        verify(sender, times(5)).writeToObserver(eq(observer), ArgumentMatchers.<V1.SpanBatch>any());
+        verify(aggregator, times(5)).incrementCounter("Supportability/InfiniteTracing/Span/Sent", 1);
+    }
+
+    @Test
+    void drainAndSendBatchWhenReady_WaitsForReadyBetweenBatches() {
+        Collection<SpanEvent> spanEvents = IntStream.range(0, 3).mapToObj(i -> buildSpanEvent()).collect(Collectors.toList());
+        when(config.getMaxBatchBytes()).thenReturn(1);
+        doReturn(true).when(config).getUseBatching();
+        SpanEventSender sender = spy(new SpanEventSender(config, queue, aggregator, channelManager, 0, null));
+        doReturn(spanEvents).when(sender).awaitSpanBatch();
+        // the stream stops being ready after the first batch is written
+        doReturn(true, false).when(sender).awaitReadyObserver(observer);
+
+        sender.drainAndSendBatchWhenReady(observer);
+        verify(sender, times(1)).writeToObserver(eq(observer), ArgumentMatchers.<V1.SpanBatch>any());
+
+        // the rest are sent once the stream is ready, before anything else is taken from the queue
+        doReturn(true).when(sender).awaitReadyObserver(observer);
+        sender.pollAndWrite();
+        verify(sender, times(3)).writeToObserver(eq(observer), ArgumentMatchers.<V1.SpanBatch>any());
+        verify(sender, times(1)).awaitSpanBatch();
+    }
+
+    @Test
+    void awaitSpanBatch_DrainsUpToConfiguredBatchSize() throws InterruptedException {
+        when(config.getBatchSize()).thenReturn(1000);
+        when(config.getLingerMs()).thenReturn(0L);
+        when(queue.poll(anyLong(), ArgumentMatchers.<TimeUnit>any())).thenReturn(buildSpanEvent());
+        SpanEventSender sender = new SpanEventSender(config, queue, aggregator, channelManager, 0, null);
+
+        assertEquals(1, sender.awaitSpanBatch().size());
+
+        verify(queue).drainTo(any(), eq(999));
+    }
+
+    @Test
+    @Timeout(5)
+    void awaitSpanBatch_WakesUpWhenSpansAreOffered() throws InterruptedException {
+        final BlockingQueue<SpanEvent> spanQueue = new BoundedMpscQueue<>(100);
+        when(config.getBatchSize()).thenReturn(2);
+        when(config.getLingerMs()).thenReturn(TimeUnit.SECONDS.toMillis(10));
+        SpanEventSender sender = new SpanEventSender(config, spanQueue, aggregator, channelManager, 0, null);
+
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < 2; i++) {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                spanQueue.offer(buildSpanEvent());
+            }
+        });
+        producer.start();
+
+        // returns as soon as the batch is full rather than after the poll timeout or the linger time
+        assertEquals(2, sender.awaitSpanBatch().size());
+        producer.join();
+    }
+
+    @Test
+    void awaitSpanBatch_NoSpanReturnsEmpty() throws InterruptedException {
+        when(queue.poll(anyLong(), ArgumentMatchers.<TimeUnit>any())).thenReturn(null);
+
+        assertTrue(target.awaitSpanBatch().isEmpty());
+        verify(queue, never()).drainTo(any(), anyInt());
+    }
+
+    @Test
+    void awaitReadyObserver_NotReadyAwaitsSignalIncrementsCounter() throws InterruptedException {
         when(observer.isReady()).thenReturn(false);
+        when(observer.awaitReady(250, TimeUnit.MILLISECONDS)).thenReturn(false);
 
         assertFalse(target.awaitReadyObserver(observer));
-        assertTrue(System.currentTimeMillis() - startTime >= 250);
+        verify(observer).awaitReady(250, TimeUnit.MILLISECONDS);
+        verify(aggregator).recordResponseTimeMetric(eq("Supportability/InfiniteTracing/Backpressure/Blocked"), anyLong());
         verify(aggregator).incrementCounter("Supportability/InfiniteTracing/NotReady");
     }
 
     @Test
-    void awaitReadyObserver_IsReadyReturnsTrue() {
+    void awaitReadyObserver_BecomesReadyRecordsBlockedTime() throws InterruptedException {
+        when(observer.isReady()).thenReturn(false);
+        when(observer.awaitReady(250, TimeUnit.MILLISECONDS)).thenReturn(true);
+
+        assertTrue(target.awaitReadyObserver(observer));
+        verify(aggregator).recordResponseTimeMetric(eq("Supportability/InfiniteTracing/Backpressure/Blocked"), anyLong());
+        verify(aggregator, never()).incrementCounter("Supportability/InfiniteTracing/NotReady");
+    }
+
+    @Test
+    void awaitReadyObserver_IsReadyReturnsTrue() throws InterruptedException {
         when(observer.isReady()).thenReturn(true);
 
         assertTrue(target.awaitReadyObserver(observer));
+        verify(observer, never()).awaitReady(anyLong(), any());
+        verify(aggregator, never()).recordResponseTimeMetric(anyString(), anyLong());
     }
 
     @Test
@@ -168,16 +263,6 @@ class SpanEventSenderTest {
         assertEquals(spanEvent, target.pollSafely());
     }
 
-    @Test
-    void drainSpanBatch_DrainsUpToMaxBatchSize() {
-        int maxBatchSize = 100;
-        doReturn(true).when(config).getUseBatching();
-
-        target.drainSpanBatch();
-
-        verify(queue).drainTo(any(), eq(maxBatchSize));
-    }
-
     @Test
     void writeToObserver_RethrowsException() {
         doThrow(new RuntimeException("Error!")).when(observer).onNext(ArgumentMatchers.<V1.Span>any());
@@ -209,6 +294,7 @@ class SpanEventSenderTest {
         target.writeToObserver(observer, V1.Span.newBuilder().build());
 
         verify(aggregator).incrementCounter("Supportability/InfiniteTracing/Span/Sent");
+        verify(aggregator).incrementCounter("Supportability/InfiniteTracing/Stream/0/Span/Sent");
     }
 
     @Test
@@ -220,5 +306,79 @@ class SpanEventSenderTest {
                 .build());
 
         verify(aggregator).incrementCounter("Supportability/InfiniteTracing/Span/Sent", 3);
+        verify(aggregator).incrementCounter("Supportability/InfiniteTracing/Stream/0/Span/Sent", 3);
+    }
+
+    @Test
+    void pollAndWrite_UsesObserverOfOwnStream() {
+        Observer streamObserver = mock(Observer.class);
+        when(channelManager.getObserver(2)).thenReturn(streamObserver);
+        SpanEventSender sender = spy(new SpanEventSender(config, queue, aggregator, channelManager, 2, null));
+        doReturn(false).when(sender).awaitReadyObserver(streamObserver);
+
+        sender.pollAndWrite();
+
+        verify(sender).awaitReadyObserver(streamObserver);
+        verify(channelManager, never()).getObserver(0);
+    }
+
+    @Test
+    void recordQueueSize_RecordsAtMostOncePerSecond() throws InterruptedException {
+        SpanEventSender sender = new SpanEventSender(config, queue, aggregator, channelManager, 1, null);
+        when(queue.size()).thenReturn(42);
+
+        sender.recordQueueSize();
+        verify(aggregator, never()).recordMetric(anyString(), anyFloat());
+
+        Thread.sleep(1100);
+        sender.recordQueueSize();
+        sender.recordQueueSize();
+        verify(aggregator, times(1)).recordMetric("Supportability/InfiniteTracing/Stream/1/QueueSize", 42f);
+    }
+
+    @Test
+    void pollAndWrite_SpoolsQueuedSpansWhileBackingOff() {
+        SpanEventSpool spool = mock(SpanEventSpool.class);
+        SpanEventSender sender = spy(new SpanEventSender(config, queue, aggregator, channelManager, 0, spool));
+        when(channelManager.tryGetObserver(0)).thenReturn(null);
+        doReturn(IntStream.range(0, 3).mapToObj(i -> buildSpanEvent()).collect(Collectors.toList())).when(sender).awaitSpanBatch();
+        when(spool.append(any())).thenReturn(true, true, false);
+
+        sender.pollAndWrite();
+
+        verify(channelManager, never()).getObserver(anyInt());
+        verify(spool, times(3)).append(any());
+        verify(aggregator).incrementCounter("Supportability/InfiniteTracing/Spool/Written", 2);
+        verify(aggregator).incrementCounter("Supportability/InfiniteTracing/Spool/Dropped", 1);
+    }
+
+    @Test
+    void pollAndWrite_ReplaysSpooledSpansBeforeQueue() {
+        SpanEventSpool spool = mock(SpanEventSpool.class);
+        SpanEventSender sender = spy(new SpanEventSender(config, queue, aggregator, channelManager, 0, spool));
+        doReturn(true).when(config).getUseBatching();
+        doReturn(true).when(sender).awaitReadyObserver(observer);
+        V1.Span span = SpanConverter.convert(buildSpanEvent());
+        when(spool.isEmpty()).thenReturn(false);
+        when(spool.poll()).thenReturn(span, span, null);
+        when(spool.getAndResetExpired()).thenReturn(4);
+
+        sender.pollAndWrite();
+
+        verify(sender).writeToObserver(observer, V1.SpanBatch.newBuilder().addSpans(span).addSpans(span).build());
+        verify(sender, never()).awaitSpanBatch();
+        verify(aggregator).incrementCounter("Supportability/InfiniteTracing/Spool/Replayed", 2);
+        verify(aggregator).incrementCounter("Supportability/InfiniteTracing/Spool/Expired", 4);
+    }
+
+    @Test
+    void run_ClosesSpoolWhenStopped() {
+        SpanEventSpool spool = mock(SpanEventSpool.class);
+        SpanEventSender sender = spy(new SpanEventSender(config, queue, aggregator, channelManager, 0, spool));
+        doThrow(new RuntimeException("Stopped")).when(sender).pollAndWrite();
+
+        sender.run();
+
+        verify(spool).close();
     }
 }
@@ -0,0 +1,87 @@
+package com.newrelic;
+
+import com.newrelic.trace.v1.V1;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpanEventSpoolTest {
+
+    @TempDir
+    File directory;
+
+    @Test
+    void poll_ReturnsSpansOldestFirst() throws IOException {
+        SpanEventSpool spool = new SpanEventSpool(directory, 4096, 60_000);
+
+        assertTrue(spool.isEmpty());
+        assertTrue(spool.append(span("one")));
+        assertTrue(spool.append(span("two")));
+        assertEquals(2, spool.size());
+        assertTrue(spool.getUsedBytes() > 0);
+
+        assertEquals("one", spool.poll().getTraceId());
+        assertEquals("two", spool.poll().getTraceId());
+        assertNull(spool.poll());
+        assertTrue(spool.isEmpty());
+        assertEquals(0, spool.getUsedBytes());
+        spool.close();
+    }
+
+    @Test
+    void append_RejectsWhenFullAndWrapsAround() throws IOException {
+        int recordBytes = 12 + span("trace-00").getSerializedSize();
+        SpanEventSpool spool = new SpanEventSpool(directory, recordBytes * 3 + recordBytes / 2, 60_000);
+
+        assertTrue(spool.append(span("trace-01")));
+        assertTrue(spool.append(span("trace-02")));
+        assertTrue(spool.append(span("trace-03")));
+        assertFalse(spool.append(span("trace-04")));
+
+        // Freeing the first record lets the next one wrap to the start of the file
+        assertEquals("trace-01", spool.poll().getTraceId());
+        assertTrue(spool.append(span("trace-05")));
+        assertFalse(spool.append(span("trace-06")));
+
+        assertEquals("trace-02", spool.poll().getTraceId());
+        assertEquals("trace-03", spool.poll().getTraceId());
+        assertEquals("trace-05", spool.poll().getTraceId());
+        assertNull(spool.poll());
+        spool.close();
+    }
+
+    @Test
+    void poll_SkipsSpansOlderThanMaxAge() throws Exception {
+        SpanEventSpool spool = new SpanEventSpool(directory, 4096, 50);
+
+        spool.append(span("old"));
+        Thread.sleep(100);
+        spool.append(span("new"));
+
+        assertEquals("new", spool.poll().getTraceId());
+        assertEquals(1, spool.getAndResetExpired());
+        assertEquals(0, spool.getAndResetExpired());
+        spool.close();
+    }
+
+    @Test
+    void close_DeletesSpoolFile() throws IOException {
+        SpanEventSpool spool = new SpanEventSpool(directory, 4096, 60_000);
+        assertEquals(1, directory.listFiles().length);
+
+        spool.close();
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    private static V1.Span span(String traceId) {
+        return V1.Span.newBuilder().setTraceId(traceId).build();
+    }
+
+}
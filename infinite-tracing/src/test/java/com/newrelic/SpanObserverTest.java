@@ -9,22 +9,28 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class SpanObserverTest {
 
     @Mock
     private ClientCallStreamObserver<V1.Span> observer;
+    @Mock
+    private ReadySignal readySignal;
 
     private SpanObserver target;
 
     @BeforeEach
     void setup() {
         MockitoAnnotations.initMocks(this);
-        target = spy(new SpanObserver(observer));
+        target = spy(new SpanObserver(observer, readySignal));
     }
 
     @Test
@@ -37,6 +43,14 @@ class SpanObserverTest {
         verify(observer).cancel(message, cause);
     }
 
+    @Test
+    void awaitReady_awaitsReadySignal() throws InterruptedException {
+        when(readySignal.await(observer, 250, TimeUnit.MILLISECONDS)).thenReturn(true);
+
+        assertTrue(target.awaitReady(250, TimeUnit.MILLISECONDS));
+        verify(readySignal).await(observer, 250, TimeUnit.MILLISECONDS);
+    }
+
     @Test
     void isReady_invokesObserver() {
         target.isReady();
@@ -0,0 +1,67 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.nr.instrumentation.builder;
+
+import com.newrelic.weave.weavepackage.WeavePackageIndex;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * Gather the manifest attributes of the instrumentation jars into a {@link WeavePackageIndex}.
+ *
+ * The jars' manifests already hold the attributes written by {@link CacheWeaveAttributesInManifest}. Putting them in
+ * one file lets the agent register its weave packages at startup without opening every instrumentation jar.
+ *
+ * This class is invoked by a JVM that is forked from gradle. It therefore does not have access to the gradle project
+ * or configuration.
+ */
+public class WriteWeavePackageIndex {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            help();
+            System.exit(1);
+        }
+
+        WeavePackageIndex index = new WeavePackageIndex();
+        for (int i = 1; i < args.length; i++) {
+            addJar(index, new File(args[i]));
+        }
+
+        File outputDirectory = new File(args[0]).getParentFile();
+        if (!outputDirectory.exists() && !outputDirectory.mkdirs()) {
+            throw new Exception("Unable to create " + outputDirectory);
+        }
+
+        try (OutputStream stream = new FileOutputStream(args[0])) {
+            index.write(stream);
+        }
+    }
+
+    static void addJar(WeavePackageIndex index, File jar) throws IOException {
+        try (JarFile jarFile = new JarFile(jar)) {
+            Manifest manifest = jarFile.getManifest();
+            // the agent reads jars without a manifest itself and reports why they couldn't be loaded
+            if (manifest != null) {
+                index.add(jar.getName(), manifest.getMainAttributes());
+            }
+        }
+    }
+
+    private static void help() {
+        System.err.println("Write the weave package index of the instrumentation jars embedded in the agent.");
+        System.err.println("Usage: WriteWeavePackageIndex <output file> [instrumentation jar...]");
+        System.err.println("Only execute this through the `writeWeavePackageIndex` task in newrelic-agent/build.gradle.");
+    }
+
+}
@@ -25,13 +25,18 @@ public abstract class PreparedStatement_Weaved {
     @NewField
     private Object[] params;
 
+    /**
+     * Set by {@link Connection_Weaved} when the statement is prepared. Statements prepared through vendor specific
+     * methods are tracked by {@link JdbcHelper#putSql} instead and moved here on first execution. Batches are named
+     * after this sql by {@link Statement_Weaved#executeBatch()}.
+     */
     @NewField
     String preparedSql;
 
     @Trace(leaf = true)
     public ResultSet executeQuery() throws SQLException {
         if (preparedSql == null) {
-            preparedSql = JdbcHelper.getSql((Statement) this);
+            preparedSql = JdbcHelper.getAndRemoveSql((Statement) this);
         }
         DatastoreMetrics.noticeSql(getConnection(), preparedSql, params);
         return Weaver.callOriginal();
@@ -40,7 +45,7 @@ public abstract class PreparedStatement_Weaved {
     @Trace(leaf = true)
     public int executeUpdate() throws SQLException {
         if (preparedSql == null) {
-            preparedSql = JdbcHelper.getSql((Statement) this);
+            preparedSql = JdbcHelper.getAndRemoveSql((Statement) this);
         }
         DatastoreMetrics.noticeSql(getConnection(), preparedSql, params);
         return Weaver.callOriginal();
@@ -49,7 +54,7 @@ public abstract class PreparedStatement_Weaved {
     @Trace(leaf = true)
     public boolean execute() throws SQLException {
         if (preparedSql == null) {
-            preparedSql = JdbcHelper.getSql((Statement) this);
+            preparedSql = JdbcHelper.getAndRemoveSql((Statement) this);
         }
         DatastoreMetrics.noticeSql(getConnection(), preparedSql, params);
         return Weaver.callOriginal();
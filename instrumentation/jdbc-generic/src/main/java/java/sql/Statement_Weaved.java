@@ -8,14 +8,23 @@
 package java.sql;
 
 import com.newrelic.agent.bridge.datastore.DatastoreMetrics;
+import com.newrelic.agent.bridge.datastore.JdbcHelper;
 import com.newrelic.api.agent.Trace;
 import com.newrelic.api.agent.weaver.MatchType;
+import com.newrelic.api.agent.weaver.NewField;
 import com.newrelic.api.agent.weaver.Weave;
 import com.newrelic.api.agent.weaver.Weaver;
 
 @Weave(originalName = "java.sql.Statement", type = MatchType.Interface)
 public abstract class Statement_Weaved {
 
+    /**
+     * The first sql added to the current batch. The whole batch is reported as a single segment named after it so the
+     * number of tracers and metrics does not grow with the batch size.
+     */
+    @NewField
+    private String batchSql;
+
     @Trace(leaf = true)
     public ResultSet executeQuery(String sql) throws SQLException {
         DatastoreMetrics.noticeSql(getConnection(), sql, null);
@@ -70,6 +79,43 @@ public abstract class Statement_Weaved {
         return Weaver.callOriginal();
     }
 
+    public void addBatch(String sql) throws SQLException {
+        if (batchSql == null) {
+            batchSql = sql;
+        }
+        Weaver.callOriginal();
+    }
+
+    public void clearBatch() throws SQLException {
+        batchSql = null;
+        Weaver.callOriginal();
+    }
+
+    @Trace(leaf = true)
+    public int[] executeBatch() throws SQLException {
+        String sql = batchSql;
+        batchSql = null;
+        if (sql == null && this instanceof PreparedStatement) {
+            // PreparedStatement batches are named after the prepared sql, which is kept on the statement
+            PreparedStatement_Weaved preparedStatement = (PreparedStatement_Weaved) (Object) this;
+            if (preparedStatement.preparedSql == null) {
+                preparedStatement.preparedSql = JdbcHelper.getAndRemoveSql((Statement) this);
+            }
+            sql = preparedStatement.preparedSql;
+        }
+        DatastoreMetrics.noticeSql(getConnection(), sql, null);
+        int[] updateCounts;
+        try {
+            updateCounts = Weaver.callOriginal();
+        } catch (BatchUpdateException e) {
+            // the update counts of the commands that ran before the failure
+            JdbcHelper.noticeBatchResults(e.getUpdateCounts());
+            throw e;
+        }
+        JdbcHelper.noticeBatchResults(updateCounts);
+        return updateCounts;
+    }
+
     public abstract Connection getConnection() throws SQLException;
 
 }
@@ -0,0 +1,131 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.nr.agent.instrumentation.jdbc.generic;
+
+import com.newrelic.agent.bridge.datastore.JdbcHelper;
+import com.newrelic.agent.introspec.InstrumentationTestConfig;
+import com.newrelic.agent.introspec.InstrumentationTestRunner;
+import com.newrelic.agent.introspec.Introspector;
+import com.newrelic.agent.introspec.SpanEvent;
+import com.newrelic.api.agent.Trace;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RunWith(InstrumentationTestRunner.class)
+@InstrumentationTestConfig(includePrefixes = "org.h2", configName = "distributed_tracing.yml")
+public class StatementBatchTest {
+
+    private static final int TIMEOUT = 10000;
+
+    private static Connection connection;
+
+    @BeforeClass
+    public static void setUpDb() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:batch;DB_CLOSE_DELAY=-1", "", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS batch_test(id int primary key, value varchar(255))");
+        }
+    }
+
+    @AfterClass
+    public static void tearDownDb() throws SQLException {
+        connection.close();
+    }
+
+    @Before
+    public void before() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE TABLE batch_test");
+        }
+        InstrumentationTestRunner.getIntrospector().clear();
+    }
+
+    @Test
+    public void preparedStatementBatch() throws SQLException {
+        preparedStatementBatchTx();
+
+        Introspector introspector = InstrumentationTestRunner.getIntrospector();
+        Assert.assertEquals(1, introspector.getFinishedTransactionCount(TIMEOUT));
+
+        // the statement is reused for a second batch, each executeBatch is a single segment
+        List<SpanEvent> datastoreSpans = getDatastoreSpans(introspector);
+        Assert.assertEquals(2, datastoreSpans.size());
+        for (SpanEvent span : datastoreSpans) {
+            Assert.assertTrue(span.getName(), span.getName().endsWith("/batch_test/insert"));
+        }
+        assertBatchAttributes(datastoreSpans, 3, 3L);
+        assertBatchAttributes(datastoreSpans, 2, 2L);
+    }
+
+    @Test
+    public void statementBatch() throws SQLException {
+        statementBatchTx();
+
+        Introspector introspector = InstrumentationTestRunner.getIntrospector();
+        Assert.assertEquals(1, introspector.getFinishedTransactionCount(TIMEOUT));
+
+        List<SpanEvent> datastoreSpans = getDatastoreSpans(introspector);
+        Assert.assertEquals(1, datastoreSpans.size());
+        Assert.assertTrue(datastoreSpans.get(0).getName(), datastoreSpans.get(0).getName().endsWith("/batch_test/insert"));
+        assertBatchAttributes(datastoreSpans, 3, 3L);
+    }
+
+    @Trace(dispatcher = true)
+    public void preparedStatementBatchTx() throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO batch_test (id, value) VALUES (?, ?)")) {
+            for (int id = 1; id <= 3; id++) {
+                statement.setInt(1, id);
+                statement.setString(2, "value" + id);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+
+            for (int id = 4; id <= 5; id++) {
+                statement.setInt(1, id);
+                statement.setString(2, "value" + id);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    @Trace(dispatcher = true)
+    public void statementBatchTx() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.addBatch("INSERT INTO batch_test (id, value) VALUES (1, 'value1')");
+            statement.addBatch("INSERT INTO batch_test (id, value) VALUES (2, 'value2')");
+            statement.addBatch("INSERT INTO batch_test (id, value) VALUES (3, 'value3')");
+            statement.executeBatch();
+        }
+    }
+
+    private static List<SpanEvent> getDatastoreSpans(Introspector introspector) {
+        return introspector.getSpanEvents().stream()
+                .filter(span -> span.getName().startsWith("Datastore/"))
+                .collect(Collectors.toList());
+    }
+
+    private static void assertBatchAttributes(List<SpanEvent> datastoreSpans, int batchSize, long rowCount) {
+        Assert.assertTrue(datastoreSpans.stream().anyMatch(span ->
+                Integer.valueOf(batchSize).equals(span.getUserAttributes().get(JdbcHelper.BATCH_SIZE_ATTRIBUTE)) &&
+                        Long.valueOf(rowCount).equals(span.getUserAttributes().get(JdbcHelper.BATCH_ROW_COUNT_ATTRIBUTE))));
+    }
+
+}
@@ -22,6 +22,7 @@ import com.newrelic.agent.logging.IAgentLogger;
 import com.newrelic.agent.service.ServiceFactory;
 import com.newrelic.agent.service.ServiceManager;
 import com.newrelic.agent.service.ServiceManagerImpl;
+import com.newrelic.agent.service.ServiceTiming;
 import com.newrelic.agent.stats.StatsService;
 import com.newrelic.agent.stats.StatsWorks;
 import com.newrelic.agent.util.UnwindableInstrumentation;
@@ -126,9 +127,15 @@ public final class Agent {
 
     /**
      * Called by the "real" premain() in the BootstrapAgent.
+     *
+     * @param bootstrapLoadTimeInNanos how long adding the embedded jars to the bootstrap classpath took, see
+     *                                 {@link BootstrapLoader#getLoadTimeInNanos()}
+     * @param embeddedJarTimings how the embedded jars were found or extracted, see
+     *                           {@link com.newrelic.bootstrap.EmbeddedJarFiles#getJarFileTimings()}
      */
     @SuppressWarnings("unused")
-    public static void continuePremain(String agentArgs, Instrumentation inst, long startTime) {
+    public static void continuePremain(String agentArgs, Instrumentation inst, long startTime, long bootstrapLoadTimeInNanos,
+            Map<String, String> embeddedJarTimings) {
         inst = maybeWrapInstrumentation(inst);
         final LifecycleObserver lifecycleObserver = LifecycleObserver.createLifecycleObserver(agentArgs);
         if (!lifecycleObserver.isAgentSafe()) {
@@ -159,6 +166,7 @@ public final class Agent {
             LOG.warning(msg);
         }
 
+        ServiceTiming.addStartupPhase(ServiceTiming.PHASE_BOOTSTRAP_CLASSPATH, bootstrapLoadTimeInNanos);
         if (!tryToInitializeServiceManager(inst)) {
             return;
         }
@@ -180,11 +188,15 @@ public final class Agent {
                 LOG.info("The \"newrelic.bootstrap_classpath\" property is no longer used. Please remove it from your configuration.");
             }
             LOG.info("Agent class loader: " + AgentBridge.getAgent().getClass().getClassLoader());
+            LOG.log(Level.FINE, "Embedded agent jars: {0}", embeddedJarTimings);
 
             logAnyFilesFoundInEndorsedDirs();
 
             if (serviceManager.getConfigService().getDefaultAgentConfig().isStartupTimingEnabled()) {
                 recordPremainTime(serviceManager.getStatsService(), startTime);
+                ServiceTiming.reportStartupTimings(LOG, serviceManager.getStatsService(), agentPremainTime);
+            } else {
+                ServiceTiming.clearStartupTimings();
             }
 
             recordAgentVersion(serviceManager.getStatsService());
@@ -284,7 +296,9 @@ public final class Agent {
     private static boolean tryToInitializeServiceManager(Instrumentation inst) {
         try {
             CoreService coreService = new CoreServiceImpl(inst);
+            long configStartTime = System.nanoTime();
             ConfigService configService = ConfigServiceFactory.createConfigService(Agent.LOG, System.getProperty("newrelic.checkconfig") != null);
+            ServiceTiming.addStartupPhase(ServiceTiming.PHASE_CONFIG, System.nanoTime() - configStartTime);
             ServiceManager serviceManager = new ServiceManagerImpl(coreService, configService);
             ServiceFactory.setServiceManager(serviceManager);
 
@@ -12,6 +12,7 @@ import com.newrelic.api.agent.Headers;
 import com.newrelic.agent.config.DistributedTracingConfig;
 import com.newrelic.agent.tracers.DefaultTracer;
 import com.newrelic.agent.tracing.DistributedTracePayloadImpl;
+import com.newrelic.agent.tracing.OutboundDistributedTraceHeaders;
 import com.newrelic.agent.tracing.SpanProxy;
 import com.newrelic.agent.tracing.W3CTraceParentHeader;
 import com.newrelic.agent.tracing.W3CTracePayload;
@@ -268,10 +269,8 @@ public class HeadersUtil {
      * @return true if the headers were successfully added, false otherwise
      */
     public static boolean createAndSetDistributedTraceHeaders(Transaction tx, com.newrelic.api.agent.TracedMethod tracedMethod, OutboundHeaders headers) {
-        final String spanId = getSpanId(tx, tracedMethod);
-
-        DistributedTracePayloadImpl payload = tx.createDistributedTracePayload(spanId);
-        if (payload == null) {
+        OutboundDistributedTraceHeaders traceHeaders = getOrCreateDistributedTraceHeaders(tx, tracedMethod);
+        if (traceHeaders == null) {
             return false;
         }
 
@@ -279,15 +278,19 @@ public class HeadersUtil {
         DistributedTracingConfig distributedTracingConfig = tx.getAgentConfig().getDistributedTracingConfig();
         boolean includeNewRelicHeader = distributedTracingConfig.isIncludeNewRelicHeader();
         if (includeNewRelicHeader) {
-            HeadersUtil.setNewRelicTraceHeader(headers, payload.httpSafe());
+            HeadersUtil.setNewRelicTraceHeader(headers, traceHeaders.getNewRelicHeader());
         }
 
         try {
-            SpanProxy spanProxy = tx.getSpanProxy();
-            HeadersUtil.setTraceParentHeader(headers, W3CTraceParentHeader.create(spanProxy, payload.traceId, payload.guid, payload.sampled.booleanValue()));
-            W3CTraceStateHeader traceStateHeader = new W3CTraceStateHeader(spanEventsEnabled(tx), transactionEventsEnabled(tx));
-            String traceStateHeaderValue = traceStateHeader.create(spanProxy);
-            HeadersUtil.setTraceStateHeader(headers, traceStateHeaderValue);
+            if (traceHeaders.getTraceParentHeader() == null) {
+                SpanProxy spanProxy = tx.getSpanProxy();
+                DistributedTracePayloadImpl payload = traceHeaders.getPayload();
+                String traceParentHeaderValue = W3CTraceParentHeader.create(spanProxy, payload.traceId, payload.guid, payload.sampled.booleanValue());
+                W3CTraceStateHeader traceStateHeader = new W3CTraceStateHeader(spanEventsEnabled(tx), transactionEventsEnabled(tx));
+                traceHeaders.setW3CHeaders(traceParentHeaderValue, traceStateHeader.create(spanProxy));
+            }
+            HeadersUtil.setTraceParentHeader(headers, traceHeaders.getTraceParentHeader());
+            HeadersUtil.setTraceStateHeader(headers, traceHeaders.getTraceStateHeader());
             tx.getMetricAggregator().incrementCounter(MetricNames.SUPPORTABILITY_TRACE_CONTEXT_CREATE_SUCCESS);
         } catch (Exception e) {
             tx.getMetricAggregator().incrementCounter(MetricNames.SUPPORTABILITY_TRACE_CONTEXT_CREATE_EXCEPTION);
@@ -295,6 +298,32 @@ public class HeadersUtil {
         return true;
     }
 
+    /**
+     * Headers are cached on the tracer that made the outbound call, so a request that is sent again (retries, redirects,
+     * instrumentation that adds headers at more than one layer) reuses them as long as the sampling decision has not changed.
+     */
+    private static OutboundDistributedTraceHeaders getOrCreateDistributedTraceHeaders(Transaction tx, com.newrelic.api.agent.TracedMethod tracedMethod) {
+        DefaultTracer tracer = tracedMethod instanceof DefaultTracer ? (DefaultTracer) tracedMethod : null;
+        if (tracer != null) {
+            OutboundDistributedTraceHeaders cached = tracer.getOutboundDistributedTraceHeaders();
+            if (cached != null && cached.isSampled() == tx.sampled()) {
+                tx.getMetricAggregator().incrementCounter(MetricNames.SUPPORTABILITY_CREATE_PAYLOAD_REUSED);
+                return cached;
+            }
+        }
+
+        DistributedTracePayloadImpl payload = tx.createDistributedTracePayload(getSpanId(tx, tracedMethod));
+        if (payload == null) {
+            return null;
+        }
+
+        OutboundDistributedTraceHeaders traceHeaders = new OutboundDistributedTraceHeaders(payload);
+        if (tracer != null) {
+            tracer.setOutboundDistributedTraceHeaders(traceHeaders);
+        }
+        return traceHeaders;
+    }
+
     private static String getSpanId(Transaction tx, com.newrelic.api.agent.TracedMethod tracedMethod) {
         if (tracedMethod instanceof DefaultTracer
                 && spanEventsEnabled(tx)) {
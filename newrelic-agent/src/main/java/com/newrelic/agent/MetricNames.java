@@ -301,6 +301,8 @@ public class MetricNames {
     public static final String SUPPORTABILITY_WEAVE_SKIPPED = "Supportability/WeaveInstrumentation/Skipped/{0}/{1}";
     public static final String SUPPORTABILITY_WEAVE_CUSTOM_SKIPPED = "Supportability/WeaveInstrumentation/Skipped/Custom/{0}/{1}";
     public static final String SUPPORTABILITY_WEAVE_CLASS = "Supportability/WeaveInstrumentation/WeaveClass/{0}/{1}";
+    public static final String SUPPORTABILITY_WEAVE_CLASS_INFORMATION_CACHE_HITS = "Supportability/WeaveInstrumentation/ClassInformationCache/Hits";
+    public static final String SUPPORTABILITY_WEAVE_CLASS_INFORMATION_CACHE_MISSES = "Supportability/WeaveInstrumentation/ClassInformationCache/Misses";
 
     public static final String SUPPORTABILITY_LOADED_CLASSES_SOURCE_VERSION = "Supportability/LoadedClasses/{0}/{1}/count";
     public static final String SUPPORTABILITY_SOURCE_LANGUAGE_VERSION = "Supportability/SourceLanguage/{0}/{1}";
@@ -310,6 +312,8 @@ public class MetricNames {
 
     public static final String SUPPORTABILITY_TIMING = "Supportability/Timing/";
     public static final String SUPPORTABILITY_TIMING_PREMAIN = SUPPORTABILITY_TIMING + "Premain";
+    public static final String SUPPORTABILITY_TIMING_STARTUP_PHASE = SUPPORTABILITY_TIMING + "Startup/";
+    public static final String SUPPORTABILITY_TIMING_SERVICE_START = SUPPORTABILITY_TIMING + "ServiceStart/";
 
     public static final String SUPPORTABILITY_LITE_MODE = "Supportability/litemode"; // feature is enabled
 
@@ -383,6 +387,9 @@ public class MetricNames {
 
     //This times the transform method in InstrumentationContextmanager to indicate classloading overhead
     public static final String SUPPORTABILITY_CLASSLOADER_TRANSFORM_TIME = "Supportability/Classloader/TransformTime";
+    //Classes checked by the class matcher prefilter, and the class matchers it skipped over those classes
+    public static final String SUPPORTABILITY_CLASSLOADER_PREFILTER_CLASSES = "Supportability/Classloader/Prefilter/Classes";
+    public static final String SUPPORTABILITY_CLASSLOADER_PREFILTER_MATCHERS_SKIPPED = "Supportability/Classloader/Prefilter/MatchersSkipped";
 
     //HTTP supportability metrics broken down by response
     public static final String SUPPORTABILITY_HTTP_CODE = "Supportability/Collector/HttpCode/{0}";
@@ -429,6 +436,7 @@ public class MetricNames {
     public static final String SUPPORTABILITY_ACCEPT_PAYLOAD_IGNORED_PARSE_EXCEPTION = "Supportability/DistributedTrace/AcceptPayload/ParseException";
     public static final String SUPPORTABILITY_CREATE_PAYLOAD_SUCCESS = "Supportability/DistributedTrace/CreatePayload/Success";
     public static final String SUPPORTABILITY_CREATE_PAYLOAD_EXCEPTION = "Supportability/DistributedTrace/CreatePayload/Exception";
+    public static final String SUPPORTABILITY_CREATE_PAYLOAD_REUSED = "Supportability/DistributedTrace/CreatePayload/Reused";
 
     // W3C trace context generic
     public static final String SUPPORTABILITY_TRACE_CONTEXT_ACCEPT_SUCCESS = "Supportability/TraceContext/Accept/Success";
@@ -488,6 +496,9 @@ public class MetricNames {
     public static final String SUPPORTABILITY_JFR_SERVICE_STOPPED_SUCCESS = "Supportability/JfrService/Stopped/Success";
     public static final String SUPPORTABILITY_JFR_SERVICE_STARTED_FAIL = "Supportability/JfrService/Started/Fail";
 
+    // {0} = name of a cache created through the agent's CollectionFactory
+    public static final String SUPPORTABILITY_CACHE_EVICTIONS = "Supportability/Java/Cache/{0}/Evictions";
+
     // Error Grouping
     public static final String SUPPORTABILITY_ERROR_GROUPING_CALLBACK_ENABLED = "Supportability/ErrorGrouping/Callback/enabled";
     public static final String SUPPORTABILITY_ERROR_GROUPING_CALLBACK_EXECUTION_TIME = "Supportability/ErrorGrouping/Callback/ExecutionTime";
@@ -84,6 +84,27 @@ public interface ClassTransformerConfig extends Config {
      */
     boolean preMatchWeaveMethods();
 
+    /**
+     * Returns true when classes should be checked against the strings that class matchers require, like method names
+     * and annotation descriptors, by reading their constant pool before the matchers visit them. Matchers that can't
+     * match are skipped, and classes are read without their method code when no remaining matcher needs it.
+     *
+     * By default this is enabled but it can be disabled if unforeseen problems arise.
+     *
+     * @return true when class matchers should be prefiltered, false otherwise.
+     */
+    boolean prefilterClassMatchers();
+
+    /**
+     * Returns true when tracing and the final transformation of a class should be applied in a single pass that reads
+     * the class and computes its stack map frames once, rather than one pass per transformation.
+     *
+     * By default this is enabled but it can be disabled if unforeseen problems arise.
+     *
+     * @return true when the final transformations should share a single pass, false otherwise.
+     */
+    boolean singlePassTransform();
+
     /**
      * True means the agent should instrument {@link ClassLoader#checkPackageAccess} to bypass the call to
      * {@link SecurityManager#checkPackageAccess} for weaved classes.
@@ -106,4 +127,70 @@ public interface ClassTransformerConfig extends Config {
     boolean isWeavePackageEnabled(WeavePackageConfig weavePackageConfig);
 
     boolean isDefaultMethodTracingEnabled();
+
+    /**
+     * Returns true when classes found not to need instrumentation are remembered in a file so that later JVMs started
+     * with the same agent, configuration and extensions load them without matching.
+     *
+     * @return true if the persistent transform cache is enabled
+     */
+    boolean isTransformCacheEnabled();
+
+    /**
+     * @return the directory of the transform cache file, or null for the system temp directory
+     */
+    String getTransformCacheDirectory();
+
+    /**
+     * @return the number of classes the transform cache can hold
+     */
+    int getTransformCacheMaxEntries();
+
+    /**
+     * The number of classes per class loader whose hierarchy is kept for all weaving transformations, so that the class
+     * resources don't have to be read for every transformation. 0 disables the cache.
+     *
+     * @return the number of classes kept per class loader
+     */
+    int getClassInformationCacheSize();
+
+    /**
+     * Returns true when weave packages that fail to validate against a class loader are remembered in a file, kept in
+     * the transform cache directory, so that later JVMs started with the same agent and configuration skip validating
+     * them against the same classes.
+     *
+     * @return true if the persistent validation cache is enabled
+     */
+    boolean isValidationCacheEnabled();
+
+    /**
+     * The number of already loaded classes retransformed in one call when instrumentation is added after they were
+     * loaded, with the application given time to run between calls. 0 or less retransforms them all at once.
+     *
+     * @return the number of classes retransformed at a time
+     */
+    int getRetransformChunkSize();
+
+    /**
+     * Returns true when the weave packages picked by {@link #isWeavePackageDeferred(WeavePackageConfig)} are registered
+     * in the background once the agent has started, rather than woven into classes as they are first loaded.
+     *
+     * @return true if deferred weaving is enabled
+     */
+    boolean isDeferredWeavingEnabled();
+
+    /**
+     * @return the number of seconds after the class transformer starts that deferred weave packages are registered
+     */
+    long getDeferredWeavingDelayInSeconds();
+
+    /**
+     * Indicates whether a weave package is only registered once the agent has started, after which the classes it
+     * matches are retransformed. A module's own {@code deferred} setting overrides the
+     * {@code deferred_weave_packages} patterns.
+     *
+     * @param weavePackageConfig Weave package configuration (from module's MANIFEST)
+     * @return whether the registration of the weave package is deferred
+     */
+    boolean isWeavePackageDeferred(WeavePackageConfig weavePackageConfig);
 }
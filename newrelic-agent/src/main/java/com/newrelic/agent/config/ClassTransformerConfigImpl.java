@@ -13,6 +13,7 @@ import com.newrelic.agent.instrumentation.annotationmatchers.AnnotationNames;
 import com.newrelic.agent.instrumentation.annotationmatchers.ClassNameAnnotationMatcher;
 import com.newrelic.agent.instrumentation.annotationmatchers.NoMatchAnnotationMatcher;
 import com.newrelic.agent.instrumentation.annotationmatchers.OrAnnotationMatcher;
+import com.newrelic.weave.utils.SharedClassInformationCache;
 import com.newrelic.weave.weavepackage.WeavePackageConfig;
 import org.objectweb.asm.Type;
 
@@ -26,6 +27,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 final class ClassTransformerConfigImpl extends BaseConfig implements ClassTransformerConfig {
 
@@ -40,11 +43,23 @@ final class ClassTransformerConfigImpl extends BaseConfig implements ClassTransf
     public static final String MAX_PREVALIDATED_CLASSLOADERS = "max_prevalidated_classloaders";
     public static final String PREVALIDATE_WEAVE_PACKAGES = "prevalidate_weave_packages";
     public static final String PREMATCH_WEAVE_METHODS = "prematch_weave_methods";
+    public static final String PREFILTER_CLASS_MATCHERS = "prefilter_class_matchers";
+    public static final String SINGLE_PASS_TRANSFORM = "single_pass_transform";
     public static final String DEFAULT_INSTRUMENTATION = "instrumentation_default";
     public static final String BUILTIN_EXTENSIONS = "builtin_extensions";
     public static final String COMPUTE_FRAMES = "compute_frames";
     public static final String SHUTDOWN_DELAY = "shutdown_delay";
     public static final String GRANT_PACKAGE_ACCESS = "grant_package_access";
+    public static final String TRANSFORM_CACHE_ENABLED = "transform_cache_enabled";
+    public static final String TRANSFORM_CACHE_DIRECTORY = "transform_cache_directory";
+    public static final String TRANSFORM_CACHE_MAX_ENTRIES = "transform_cache_max_entries";
+    public static final String CLASS_INFORMATION_CACHE_SIZE = "class_information_cache_size";
+    public static final String VALIDATION_CACHE_ENABLED = "validation_cache_enabled";
+    public static final String RETRANSFORM_CHUNK_SIZE = "retransform_chunk_size";
+    public static final String DEFERRED_WEAVING_ENABLED = "deferred_weaving_enabled";
+    public static final String DEFERRED_WEAVING_DELAY = "deferred_weaving_delay";
+    public static final String DEFERRED_WEAVE_PACKAGES = "deferred_weave_packages";
+    public static final String DEFERRED = "deferred";
     public static final boolean DEFAULT_COMPUTE_FRAMES = true;
     public static final boolean DEFAULT_ENABLED = true;
     public static final boolean DEFAULT_DISABLED = false;
@@ -53,6 +68,15 @@ final class ClassTransformerConfigImpl extends BaseConfig implements ClassTransf
     public static final int DEFAULT_MAX_PREVALIDATED_CLASSLOADERS = 10;
     public static final boolean DEFAULT_PREVALIDATE_WEAVE_PACKAGES = true;
     public static final boolean DEFAULT_PREMATCH_WEAVE_METHODS = true;
+    public static final boolean DEFAULT_PREFILTER_CLASS_MATCHERS = true;
+    public static final boolean DEFAULT_SINGLE_PASS_TRANSFORM = true;
+    public static final boolean DEFAULT_TRANSFORM_CACHE_ENABLED = false;
+    public static final int DEFAULT_TRANSFORM_CACHE_MAX_ENTRIES = 1 << 18;
+    public static final int DEFAULT_CLASS_INFORMATION_CACHE_SIZE = SharedClassInformationCache.DEFAULT_MAX_ENTRIES_PER_CLASS_LOADER;
+    public static final boolean DEFAULT_VALIDATION_CACHE_ENABLED = false;
+    public static final int DEFAULT_RETRANSFORM_CHUNK_SIZE = 256;
+    public static final boolean DEFAULT_DEFERRED_WEAVING_ENABLED = false;
+    public static final int DEFAULT_DEFERRED_WEAVING_DELAY = 60;
 
     private static final String SYSTEM_PROPERTY_ROOT = "newrelic.config.class_transformer.";
 
@@ -62,6 +86,8 @@ final class ClassTransformerConfigImpl extends BaseConfig implements ClassTransf
     // as of JAVA-4824 the yml config file is not required, but still need to match old behavior
     private static final Set<String> DEFAULT_DISABLED_WEAVE_PACKAGES = new HashSet<>();
     private static final Set<String> DEFAULT_CLASSLOADER_EXCLUDES = new HashSet<>();
+    // modules that only report JMX or client metrics, a gap in those right after startup goes unnoticed
+    private static final Set<String> DEFAULT_DEFERRED_WEAVE_PACKAGES = new HashSet<>();
 
     static {
         DEFAULT_DISABLED_WEAVE_PACKAGES.add("com.newrelic.instrumentation.servlet-user");
@@ -74,6 +100,9 @@ final class ClassTransformerConfigImpl extends BaseConfig implements ClassTransf
         DEFAULT_CLASSLOADER_EXCLUDES.add("org.springframework.data.convert.ClassGeneratingEntityInstantiator$ObjectInstantiatorClassGenerator");
         DEFAULT_CLASSLOADER_EXCLUDES.add("org.mvel2.optimizers.impl.asm.ASMAccessorOptimizer$ContextClassLoader");
         DEFAULT_CLASSLOADER_EXCLUDES.add("gw.internal.gosu.compiler.SingleServingGosuClassLoader");
+
+        DEFAULT_DEFERRED_WEAVE_PACKAGES.add("com\\.newrelic\\.instrumentation\\..*-jmx(-.*)?");
+        DEFAULT_DEFERRED_WEAVE_PACKAGES.add("com\\.newrelic\\.instrumentation\\.kafka-.*metrics-.*");
     }
 
     private final boolean isEnabled;
@@ -90,6 +119,8 @@ final class ClassTransformerConfigImpl extends BaseConfig implements ClassTransf
     private final int maxPreValidatedClassLoaders;
     private final boolean preValidateWeavePackages;
     private final boolean preMatchWeaveMethods;
+    private final boolean prefilterClassMatchers;
+    private final boolean singlePassTransform;
 
     private final AnnotationMatcher ignoreTransactionAnnotationMatcher;
     private final AnnotationMatcher ignoreApdexAnnotationMatcher;
@@ -98,6 +129,15 @@ final class ClassTransformerConfigImpl extends BaseConfig implements ClassTransf
     private final boolean isBuiltinExtensionEnabled;
     private final boolean litemode;
     private final long autoAsyncLinkRateLimit;
+    private final boolean transformCacheEnabled;
+    private final String transformCacheDirectory;
+    private final int transformCacheMaxEntries;
+    private final int classInformationCacheSize;
+    private final boolean validationCacheEnabled;
+    private final int retransformChunkSize;
+    private final boolean deferredWeavingEnabled;
+    private final long deferredWeavingDelayInSeconds;
+    private final List<Pattern> deferredWeavePackages;
 
     public ClassTransformerConfigImpl(Map<String, Object> props, boolean customTracingEnabled, boolean litemode) {
         super(props, SYSTEM_PROPERTY_ROOT);
@@ -117,8 +157,19 @@ final class ClassTransformerConfigImpl extends BaseConfig implements ClassTransf
         maxPreValidatedClassLoaders = getProperty(MAX_PREVALIDATED_CLASSLOADERS, DEFAULT_MAX_PREVALIDATED_CLASSLOADERS);
         preValidateWeavePackages = getProperty(PREVALIDATE_WEAVE_PACKAGES, DEFAULT_PREVALIDATE_WEAVE_PACKAGES);
         preMatchWeaveMethods = getProperty(PREMATCH_WEAVE_METHODS, DEFAULT_PREMATCH_WEAVE_METHODS);
+        prefilterClassMatchers = getProperty(PREFILTER_CLASS_MATCHERS, DEFAULT_PREFILTER_CLASS_MATCHERS);
+        singlePassTransform = getProperty(SINGLE_PASS_TRANSFORM, DEFAULT_SINGLE_PASS_TRANSFORM);
         defaultMethodTracingEnabled = getProperty("default_method_tracing_enabled", true);
         autoAsyncLinkRateLimit = getProperty("auto_async_link_rate_limit", TimeUnit.SECONDS.toMillis(1));
+        transformCacheMaxEntries = getIntProperty(TRANSFORM_CACHE_MAX_ENTRIES, DEFAULT_TRANSFORM_CACHE_MAX_ENTRIES);
+        transformCacheEnabled = transformCacheMaxEntries > 0 && getProperty(TRANSFORM_CACHE_ENABLED, DEFAULT_TRANSFORM_CACHE_ENABLED);
+        transformCacheDirectory = getProperty(TRANSFORM_CACHE_DIRECTORY);
+        classInformationCacheSize = Math.max(0, getIntProperty(CLASS_INFORMATION_CACHE_SIZE, DEFAULT_CLASS_INFORMATION_CACHE_SIZE));
+        validationCacheEnabled = getProperty(VALIDATION_CACHE_ENABLED, DEFAULT_VALIDATION_CACHE_ENABLED);
+        retransformChunkSize = getIntProperty(RETRANSFORM_CHUNK_SIZE, DEFAULT_RETRANSFORM_CHUNK_SIZE);
+        deferredWeavingEnabled = getProperty(DEFERRED_WEAVING_ENABLED, DEFAULT_DEFERRED_WEAVING_ENABLED);
+        deferredWeavingDelayInSeconds = Math.max(0, getIntProperty(DEFERRED_WEAVING_DELAY, DEFAULT_DEFERRED_WEAVING_DELAY));
+        deferredWeavePackages = initializeDeferredWeavePackages();
 
         this.traceAnnotationMatcher = customTracingEnabled ? initializeTraceAnnotationMatcher(props) : new NoMatchAnnotationMatcher();
         this.ignoreTransactionAnnotationMatcher = new ClassNameAnnotationMatcher(AnnotationNames.NEW_RELIC_IGNORE_TRANSACTION, false);
@@ -178,6 +229,22 @@ final class ClassTransformerConfigImpl extends BaseConfig implements ClassTransf
         return Collections.unmodifiableSet(classloadersToInclude);
     }
 
+    private List<Pattern> initializeDeferredWeavePackages() {
+        Collection<String> patterns = getUniqueStrings(DEFERRED_WEAVE_PACKAGES);
+        if (patterns.isEmpty()) {
+            patterns = DEFAULT_DEFERRED_WEAVE_PACKAGES;
+        }
+        List<Pattern> deferred = new ArrayList<>(patterns.size());
+        for (String pattern : patterns) {
+            try {
+                deferred.add(Pattern.compile(pattern));
+            } catch (PatternSyntaxException e) {
+                Agent.LOG.log(Level.WARNING, "Ignoring invalid {0} pattern {1}: {2}", DEFERRED_WEAVE_PACKAGES, pattern, e.getDescription());
+            }
+        }
+        return Collections.unmodifiableList(deferred);
+    }
+
     private AnnotationMatcher initializeTraceAnnotationMatcher(Map<?, ?> props) {
         List<AnnotationMatcher> matchers = new ArrayList<>();
         matchers.add(new ClassNameAnnotationMatcher(Type.getType(DEPRECATED_NEW_RELIC_TRACE_TYPE_DESC).getDescriptor()));
@@ -192,7 +259,9 @@ final class ClassTransformerConfigImpl extends BaseConfig implements ClassTransf
                 Agent.LOG.fine("Adding " + name + " as a Trace annotation");
                 internalizedNames.add(internalizeName(name));
             }
-            matchers.add(internalizedNames::contains);
+            for (String internalizedName : internalizedNames) {
+                matchers.add(new ClassNameAnnotationMatcher(internalizedName));
+            }
         }
         return OrAnnotationMatcher.getOrMatcher(matchers.toArray(new AnnotationMatcher[0]));
     }
@@ -299,6 +368,16 @@ final class ClassTransformerConfigImpl extends BaseConfig implements ClassTransf
         return preMatchWeaveMethods;
     }
 
+    @Override
+    public boolean prefilterClassMatchers() {
+        return prefilterClassMatchers;
+    }
+
+    @Override
+    public boolean singlePassTransform() {
+        return singlePassTransform;
+    }
+
     @Override
     public long getAutoAsyncLinkRateLimit() {
         return autoAsyncLinkRateLimit;
@@ -379,4 +458,62 @@ final class ClassTransformerConfigImpl extends BaseConfig implements ClassTransf
     public boolean isDefaultMethodTracingEnabled() {
         return defaultMethodTracingEnabled;
     }
+
+    @Override
+    public boolean isTransformCacheEnabled() {
+        return transformCacheEnabled;
+    }
+
+    @Override
+    public String getTransformCacheDirectory() {
+        return transformCacheDirectory;
+    }
+
+    @Override
+    public int getTransformCacheMaxEntries() {
+        return transformCacheMaxEntries;
+    }
+
+    @Override
+    public int getClassInformationCacheSize() {
+        return classInformationCacheSize;
+    }
+
+    @Override
+    public boolean isValidationCacheEnabled() {
+        return validationCacheEnabled;
+    }
+
+    @Override
+    public int getRetransformChunkSize() {
+        return retransformChunkSize;
+    }
+
+    @Override
+    public boolean isDeferredWeavingEnabled() {
+        return deferredWeavingEnabled;
+    }
+
+    @Override
+    public long getDeferredWeavingDelayInSeconds() {
+        return deferredWeavingDelayInSeconds;
+    }
+
+    @Override
+    public boolean isWeavePackageDeferred(WeavePackageConfig weavePackageConfig) {
+        if (!deferredWeavingEnabled) {
+            return false;
+        }
+        String moduleName = weavePackageConfig.getName();
+        Boolean moduleDeferred = getInstrumentationConfig(moduleName).getProperty(DEFERRED);
+        if (moduleDeferred != null) {
+            return moduleDeferred;
+        }
+        for (Pattern pattern : deferredWeavePackages) {
+            if (pattern.matcher(moduleName).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
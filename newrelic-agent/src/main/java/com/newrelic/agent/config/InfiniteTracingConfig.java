@@ -24,6 +24,22 @@ public interface InfiniteTracingConfig {
 
     boolean getUseBatching();
 
+    int getBatchSize();
+
+    int getBatchMaxBytes();
+
+    int getBatchLingerMs();
+
+    int getStreams();
+
+    boolean getSpoolEnabled();
+
+    String getSpoolDirectory();
+
+    int getSpoolMaxBytes();
+
+    int getSpoolMaxAgeSeconds();
+
     boolean isEnabled();
 
 }
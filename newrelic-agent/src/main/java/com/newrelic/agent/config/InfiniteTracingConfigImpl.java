@@ -26,6 +26,21 @@ public class InfiniteTracingConfigImpl extends BaseConfig implements InfiniteTra
     public static final boolean DEFAULT_USE_COMPRESSION = true;
     public static final String USE_BATCHING = "batching";
     public static final boolean DEFAULT_USE_BATCHING = true;
+    public static final String BATCH_SIZE = "batch_size";
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final String BATCH_MAX_BYTES = "batch_max_bytes";
+    public static final int DEFAULT_BATCH_MAX_BYTES = 4 * 1024 * 1024;
+    public static final String BATCH_LINGER_MS = "batch_linger_ms";
+    public static final int DEFAULT_BATCH_LINGER_MS = 5000;
+    public static final String STREAMS = "streams";
+    public static final int DEFAULT_STREAMS = 1;
+    public static final String SPOOL_ENABLED = "spool_enabled";
+    public static final boolean DEFAULT_SPOOL_ENABLED = false;
+    public static final String SPOOL_DIRECTORY = "spool_directory";
+    public static final String SPOOL_MAX_BYTES = "spool_max_bytes";
+    public static final int DEFAULT_SPOOL_MAX_BYTES = 64 * 1024 * 1024;
+    public static final String SPOOL_MAX_AGE_SECONDS = "spool_max_age_seconds";
+    public static final int DEFAULT_SPOOL_MAX_AGE_SECONDS = 300;
 
     static final String SYSTEM_PROPERTY_ROOT = AgentConfigImpl.SYSTEM_PROPERTY_ROOT + ROOT + ".";
 
@@ -97,6 +112,46 @@ public class InfiniteTracingConfigImpl extends BaseConfig implements InfiniteTra
         return getProperty(USE_BATCHING, DEFAULT_USE_BATCHING);
     }
 
+    @Override
+    public int getBatchSize() {
+        return getIntProperty(BATCH_SIZE, DEFAULT_BATCH_SIZE);
+    }
+
+    @Override
+    public int getBatchMaxBytes() {
+        return getIntProperty(BATCH_MAX_BYTES, DEFAULT_BATCH_MAX_BYTES);
+    }
+
+    @Override
+    public int getBatchLingerMs() {
+        return getIntProperty(BATCH_LINGER_MS, DEFAULT_BATCH_LINGER_MS);
+    }
+
+    @Override
+    public int getStreams() {
+        return getIntProperty(STREAMS, DEFAULT_STREAMS);
+    }
+
+    @Override
+    public boolean getSpoolEnabled() {
+        return getProperty(SPOOL_ENABLED, DEFAULT_SPOOL_ENABLED);
+    }
+
+    @Override
+    public String getSpoolDirectory() {
+        return getProperty(SPOOL_DIRECTORY);
+    }
+
+    @Override
+    public int getSpoolMaxBytes() {
+        return getIntProperty(SPOOL_MAX_BYTES, DEFAULT_SPOOL_MAX_BYTES);
+    }
+
+    @Override
+    public int getSpoolMaxAgeSeconds() {
+        return getIntProperty(SPOOL_MAX_AGE_SECONDS, DEFAULT_SPOOL_MAX_AGE_SECONDS);
+    }
+
     @Override
     public boolean isEnabled() {
         if (!getTraceObserverHost().isEmpty() && autoAppNamingEnabled) {
@@ -7,6 +7,7 @@
 
 package com.newrelic.agent.config;
 
+import java.util.Collections;
 import java.util.Map;
 
 public class SpanEventsConfig extends BaseConfig {
@@ -14,6 +15,7 @@ public class SpanEventsConfig extends BaseConfig {
     public static final int DEFAULT_MAX_SPAN_EVENTS_PER_HARVEST = 2000;
     public static final int DEFAULT_TARGET_SAMPLES_STORED = 10;
     public static final boolean DEFAULT_CROSS_PROCESS_ONLY = false;
+    public static final boolean DEFAULT_KEEP_WHOLE_TRANSACTIONS = false;
 
     public static final String COLLECT_SPAN_EVENTS = "collect_span_events";
     public static final String ENABLED = "enabled";
@@ -25,6 +27,7 @@ public class SpanEventsConfig extends BaseConfig {
     public static final String SYSTEM_PROPERTY_ROOT = ROOT + SPAN_EVENTS;
     private static final String TARGET_SAMPLES_STORED = "target_samples_stored";
     private static final String CROSS_PROCESS_ONLY = "cross_process_only";
+    public static final String KEEP_WHOLE_TRANSACTIONS = "keep_whole_transactions";
     private static final boolean DEFAULT_COLLECT_SPANS = false;
 
     private final boolean dtEnabled;
@@ -32,6 +35,8 @@ public class SpanEventsConfig extends BaseConfig {
     private final boolean enabled;
     private final int targetSamplesStored;
     private final boolean crossProcessOnly;
+    private final boolean keepWholeTransactions;
+    private final SpanEventsTailSamplingConfig tailSamplingConfig;
 
     public SpanEventsConfig(Map<String, Object> props, boolean dtEnabled) {
         super(props, SYSTEM_PROPERTY_ROOT);
@@ -40,6 +45,13 @@ public class SpanEventsConfig extends BaseConfig {
         this.enabled = initEnabled(maxSamplesStored);
         this.targetSamplesStored = getProperty(TARGET_SAMPLES_STORED, DEFAULT_TARGET_SAMPLES_STORED);
         this.crossProcessOnly = getProperty(CROSS_PROCESS_ONLY, DEFAULT_CROSS_PROCESS_ONLY);
+        this.keepWholeTransactions = getProperty(KEEP_WHOLE_TRANSACTIONS, DEFAULT_KEEP_WHOLE_TRANSACTIONS);
+        this.tailSamplingConfig = createTailSamplingConfig();
+    }
+
+    private SpanEventsTailSamplingConfig createTailSamplingConfig() {
+        Map<String, Object> tailSamplingProps = getProperty(SpanEventsTailSamplingConfig.ROOT, Collections.<String, Object>emptyMap());
+        return new SpanEventsTailSamplingConfig(tailSamplingProps, SYSTEM_PROPERTY_ROOT);
     }
 
     private boolean initEnabled(int maxSamplesStored) {
@@ -68,4 +80,15 @@ public class SpanEventsConfig extends BaseConfig {
         return crossProcessOnly;
     }
 
+    /**
+     * @return true if the span event reservoir evicts whole transactions instead of individual span events
+     */
+    public boolean isKeepWholeTransactions() {
+        return keepWholeTransactions;
+    }
+
+    public SpanEventsTailSamplingConfig getTailSamplingConfig() {
+        return tailSamplingConfig;
+    }
+
 }
@@ -0,0 +1,45 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.config;
+
+import java.util.Map;
+
+/**
+ * Settings for {@code span_events.tail_sampling}, which holds finished transactions until harvest so the span budget
+ * is spent on whole traces chosen by how interesting they are rather than on head-based priority alone.
+ */
+public class SpanEventsTailSamplingConfig extends BaseConfig {
+
+    public static final String ROOT = "tail_sampling";
+    public static final String ENABLED = "enabled";
+    public static final String MAX_BUFFERED_SPANS = "max_buffered_spans";
+
+    public static final boolean DEFAULT_ENABLED = false;
+    public static final int DEFAULT_MAX_BUFFERED_SPANS = SpanEventsConfig.DEFAULT_MAX_SPAN_EVENTS_PER_HARVEST;
+
+    private final boolean enabled;
+    private final int maxBufferedSpans;
+
+    public SpanEventsTailSamplingConfig(Map<String, Object> props, String parentRoot) {
+        super(props, parentRoot + ROOT + ".");
+        this.maxBufferedSpans = getIntProperty(MAX_BUFFERED_SPANS, DEFAULT_MAX_BUFFERED_SPANS);
+        this.enabled = maxBufferedSpans > 0 && getProperty(ENABLED, DEFAULT_ENABLED);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the most spans buffered for each application between harvests
+     */
+    public int getMaxBufferedSpans() {
+        return maxBufferedSpans;
+    }
+
+}
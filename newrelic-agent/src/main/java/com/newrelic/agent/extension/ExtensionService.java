@@ -296,6 +296,7 @@ public class ExtensionService extends AbstractService implements HarvestListener
 
             InstrumentationContextManager contextManager = ServiceFactory.getClassTransformerService().getContextManager();
             if (contextManager != null) {
+                contextManager.invalidateTransformCache();
                 contextManager.getClassWeaverService().reloadExternalWeavePackages(newWeaveFiles, removedWeaveFiles).run();
             }
 
@@ -24,13 +24,16 @@ import com.newrelic.agent.instrumentation.methodmatchers.MethodMatcher;
 import com.newrelic.agent.instrumentation.tracing.TraceDetails;
 import com.newrelic.agent.instrumentation.tracing.TraceDetailsBuilder;
 import com.newrelic.agent.instrumentation.weaver.ClassLoaderClassTransformer;
+import com.newrelic.agent.instrumentation.weaver.ClassWeaverService;
 import com.newrelic.agent.security.deps.org.apache.commons.lang3.StringUtils;
 import com.newrelic.agent.service.AbstractService;
 import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.service.ServiceTiming;
 import com.newrelic.agent.util.DefaultThreadFactory;
 import com.newrelic.agent.util.asm.Utils;
 import com.newrelic.api.agent.NewRelic;
 import com.newrelic.api.agent.security.schema.SecurityMetaData;
+import com.newrelic.weave.utils.SharedClassInformationCache;
 import org.objectweb.asm.commons.Method;
 
 import java.lang.instrument.ClassFileTransformer;
@@ -70,6 +73,7 @@ public class ClassTransformerServiceImpl extends AbstractService implements Clas
         ClassTransformerConfig classTransformerConfig = ServiceFactory.getConfigService().getDefaultAgentConfig()
                 .getClassTransformerConfig();
         isEnabled = classTransformerConfig.isEnabled();
+        SharedClassInformationCache.configure(classTransformerConfig.getClassInformationCacheSize());
 
         if (isEnabled) {
             this.classLoaderClassTransformer = new ClassLoaderClassTransformer(instrumentationProxy,
@@ -115,10 +119,43 @@ public class ClassTransformerServiceImpl extends AbstractService implements Clas
             getLogger().severe("Unable to initialize the class transformer because there is no instrumentation hook");
         } else {
             classTransformer = startClassTransformer(instrProxy);
+            queueDeferredWeaving();
         }
         queueRetransform();
     }
 
+    /**
+     * Weave the deferred instrumentation packages in the background once the application has had time to start, so
+     * that they don't slow down the loading of the classes needed to serve the first requests.
+     */
+    private void queueDeferredWeaving() {
+        ClassTransformerConfig classTransformerConfig = ServiceFactory.getConfigService().getDefaultAgentConfig()
+                .getClassTransformerConfig();
+        if (!classTransformerConfig.isDeferredWeavingEnabled()) {
+            return;
+        }
+        executor.schedule(() -> registerDeferredInstrumentation(), classTransformerConfig.getDeferredWeavingDelayInSeconds(),
+                TimeUnit.SECONDS);
+    }
+
+    private void registerDeferredInstrumentation() {
+        try {
+            ClassWeaverService classWeaverService = contextManager.getClassWeaverService();
+            if (!classWeaverService.hasDeferredInstrumentation()) {
+                return;
+            }
+            // classes left alone before the deferred packages were registered may match them now, including the ones
+            // loaded while they're registered
+            contextManager.invalidateTransformCache();
+            Runnable retransformRunnable = classWeaverService.registerDeferredInstrumentation();
+            if (retransformRunnable != null) {
+                retransformRunnable.run();
+            }
+        } catch (Throwable t) {
+            Agent.LOG.log(Level.FINE, t, "Unable to weave the deferred instrumentation packages");
+        }
+    }
+
     private void queueRetransform() {
         executor.schedule(() -> retransformMatchingClasses(), getRetransformPeriodInSeconds(), TimeUnit.SECONDS);
     }
@@ -150,8 +187,10 @@ public class ClassTransformerServiceImpl extends AbstractService implements Clas
         boolean retransformSupported = isRetransformationSupported(instrProxy);
 
         PointCutClassTransformer classTransformer = new PointCutClassTransformer(instrProxy, retransformSupported);
+        long contextManagerStartTime = System.nanoTime();
         contextManager = InstrumentationContextManager.create(classLoaderClassTransformer, instrProxy,
                 AgentBridge.class.getClassLoader() == null);
+        ServiceTiming.addStartupPhase(ServiceTiming.PHASE_INSTRUMENTATION_CONTEXT, System.nanoTime() - contextManagerStartTime);
 
         // Preload NR Transaction and related object to avoid ClassCircularity Error in Security instrumentation Module java-io-stream.
         NewRelic.getAgent().getTransaction();
@@ -189,6 +228,9 @@ public class ClassTransformerServiceImpl extends AbstractService implements Clas
             transformer.start(instrProxy, retransformSupported);
             classTransformers.add(transformer);
         }
+
+        // all of the instrumentation known at startup is in place, so classes left alone from here on can be cached
+        contextManager.openTransformCache(ServiceFactory.getConfigService().getDefaultAgentConfig().getClassTransformerConfig());
         return classTransformer;
     }
 
@@ -232,7 +274,8 @@ public class ClassTransformerServiceImpl extends AbstractService implements Clas
         Set<Class<?>> classesToRetransform = ClassesMatcher.getMatchingClasses(matchers, matcherHelper, loadedClasses);
         if (!classesToRetransform.isEmpty()) {
             try {
-                instrumentation.retransformClasses(classesToRetransform.toArray(new Class[0]));
+                ChunkedRetransformer.retransformClasses(instrumentation, classesToRetransform,
+                        ServiceFactory.getConfigService().getDefaultAgentConfig().getClassTransformerConfig().getRetransformChunkSize());
             } catch (UnmodifiableClassException e) {
                 logger.log(Level.FINER, "Error retransforming classes: " + classesToRetransform, e);
             }
@@ -243,6 +286,9 @@ public class ClassTransformerServiceImpl extends AbstractService implements Clas
     protected void doStop() throws Exception {
 
         executor.shutdown();
+        if (contextManager != null) {
+            contextManager.getClassWeaverService().closeValidationResultCache();
+        }
 
         InstrumentationProxy instrProxy = ServiceFactory.getCoreService().getInstrumentation();
         if (instrProxy == null) {
@@ -33,4 +33,15 @@ public class ClassNameAnnotationMatcher implements AnnotationMatcher {
         }
     }
 
+    /**
+     * @return the annotation descriptor, or its ending if this isn't a full match
+     */
+    public String getClassName() {
+        return simpleClassName;
+    }
+
+    public boolean isFullMatch() {
+        return fullMatch;
+    }
+
 }
@@ -34,4 +34,8 @@ public class OrAnnotationMatcher implements AnnotationMatcher {
             return new OrAnnotationMatcher(Arrays.asList(matchers));
         }
     }
+
+    public Collection<AnnotationMatcher> getMatchers() {
+        return matchers;
+    }
 }
@@ -14,6 +14,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.SetMultimap;
+import com.newrelic.agent.instrumentation.context.ClassMatchPrefilter;
 import com.newrelic.agent.instrumentation.context.ClassMatchVisitorFactory;
 import com.newrelic.agent.instrumentation.context.InstrumentationContext;
 import com.newrelic.agent.instrumentation.methodmatchers.AllMethodsMatcher;
@@ -40,7 +41,7 @@ import java.util.Set;
 /**
  * {@link OptimizedClassMatcher}s are threadsafe.
  */
-public final class OptimizedClassMatcher implements ClassMatchVisitorFactory {
+public final class OptimizedClassMatcher implements ClassMatchVisitorFactory, ClassMatchPrefilter {
 
     public static final Set<Method> METHODS_WE_NEVER_INSTRUMENT = ImmutableSet.of(new Method("equals",
             "(Ljava/lang/Object;)Z"), new Method("toString", "()Ljava/lang/String;"), new Method("finalize", "()V"),
@@ -67,6 +68,11 @@ public final class OptimizedClassMatcher implements ClassMatchVisitorFactory {
 
     Set<String> exactClassNames;
 
+    /**
+     * The names of the exact methods to match, null if there are looser method matchers.
+     */
+    private final Set<String> methodNames;
+
     public static final Method DEFAULT_CONSTRUCTOR = new Method("<init>", "()V");
 
     @SuppressWarnings("unchecked")
@@ -74,6 +80,7 @@ public final class OptimizedClassMatcher implements ClassMatchVisitorFactory {
         this.methodAnnotationsToMatch = ImmutableSet.of();
         this.methodMatchers = new Entry[0];
         this.methods = ImmutableMap.of();
+        this.methodNames = ImmutableSet.of();
     }
 
     @SuppressWarnings("unchecked")
@@ -84,6 +91,29 @@ public final class OptimizedClassMatcher implements ClassMatchVisitorFactory {
 
         this.methods = ImmutableMap.copyOf(methods.asMap());
         this.exactClassNames = exactClassNames == null ? null : ImmutableSet.copyOf(exactClassNames);
+
+        if (this.methodMatchers.length == 0) {
+            Set<String> names = new HashSet<>();
+            for (Method method : this.methods.keySet()) {
+                names.add(method.getName());
+            }
+            this.methodNames = ImmutableSet.copyOf(names);
+        } else {
+            this.methodNames = null;
+        }
+    }
+
+    /**
+     * Only classes that declare one of the exact methods can match, and method names are in the constant pool.
+     */
+    @Override
+    public Collection<String> getRequiredConstants() {
+        return methodNames;
+    }
+
+    @Override
+    public Collection<String> getRequiredConstantSuffixes() {
+        return Collections.emptySet();
     }
 
     @Override
@@ -1,6 +1,7 @@
 package com.newrelic.agent.instrumentation.classmatchers;
 
 
+import com.newrelic.agent.instrumentation.context.ClassMatchPrefilter;
 import com.newrelic.agent.instrumentation.context.ClassMatchVisitorFactory;
 import com.newrelic.agent.instrumentation.context.InstrumentationContext;
 import com.newrelic.weave.utils.WeaveUtils;
@@ -13,6 +14,8 @@ import org.objectweb.asm.commons.Method;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -45,7 +48,7 @@ import java.util.List;
  * }
  * ```
  */
-public class ScalaTraitMatcher implements ClassMatchVisitorFactory {
+public class ScalaTraitMatcher implements ClassMatchVisitorFactory, ClassMatchPrefilter {
 
   @Override
   public ClassVisitor newClassMatchVisitor(ClassLoader loader, Class<?> classBeingRedefined, ClassReader reader, ClassVisitor cv, InstrumentationContext context) {
@@ -96,4 +99,22 @@ public class ScalaTraitMatcher implements ClassMatchVisitorFactory {
       }
     };
   }
+
+  @Override
+  public boolean isMethodCodeVisitor() {
+    return true;
+  }
+
+  /**
+   * Only classes compiled from Scala sources can match, the source file name is in the constant pool.
+   */
+  @Override
+  public Collection<String> getRequiredConstants() {
+    return Collections.emptySet();
+  }
+
+  @Override
+  public Collection<String> getRequiredConstantSuffixes() {
+    return Collections.singleton(".scala");
+  }
 }
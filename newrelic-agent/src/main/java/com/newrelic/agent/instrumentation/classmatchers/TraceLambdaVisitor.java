@@ -10,6 +10,7 @@ package com.newrelic.agent.instrumentation.classmatchers;
 import com.newrelic.agent.MetricNames;
 import com.newrelic.agent.bridge.TransactionNamePriority;
 import com.newrelic.agent.instrumentation.InstrumentationType;
+import com.newrelic.agent.instrumentation.context.ClassMatchPrefilter;
 import com.newrelic.agent.instrumentation.context.ClassMatchVisitorFactory;
 import com.newrelic.agent.instrumentation.context.InstrumentationContext;
 import com.newrelic.agent.instrumentation.tracing.TraceDetailsBuilder;
@@ -23,6 +24,8 @@ import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.Method;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -30,7 +33,7 @@ import java.util.regex.Pattern;
  * The class visitor returned by this factory matches TraceLambda annotations and matches the marked classes method names
  * against the TraceLambda annotations pattern, if matched marking them to be traced, recording this in the {@link InstrumentationContext}.
  */
-public class TraceLambdaVisitor implements ClassMatchVisitorFactory {
+public class TraceLambdaVisitor implements ClassMatchVisitorFactory, ClassMatchPrefilter {
 
     /**
      * The annotation which the class visitor matches
@@ -109,4 +112,14 @@ public class TraceLambdaVisitor implements ClassMatchVisitorFactory {
             }
         };
     }
+
+    @Override
+    public Collection<String> getRequiredConstants() {
+        return Collections.singleton(TRACE_LAMBDA_DESC);
+    }
+
+    @Override
+    public Collection<String> getRequiredConstantSuffixes() {
+        return Collections.emptySet();
+    }
 }
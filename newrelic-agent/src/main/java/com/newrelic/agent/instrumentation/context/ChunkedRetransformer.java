@@ -0,0 +1,110 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.instrumentation.context;
+
+import com.google.common.collect.Iterables;
+import com.newrelic.agent.Agent;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.instrument.UnmodifiableClassException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Retransforms classes a chunk at a time rather than all in one call.
+ *
+ * The JVM suspends class loading and redefinition while it retransforms, so retransforming thousands of classes at
+ * once after a late attach or an extension reload stalls the application for as long as it takes. Between chunks the
+ * application gets to run for as long as the last chunk took, up to {@link #MAX_PAUSE_MILLIS}.
+ *
+ * A chunk that fails is retransformed one class at a time, so a single class that can't be modified doesn't keep the
+ * rest of its chunk from being instrumented.
+ */
+public class ChunkedRetransformer {
+
+    static final long MAX_PAUSE_MILLIS = 100;
+
+    private ChunkedRetransformer() {
+    }
+
+    /**
+     * Retransform the classes.
+     *
+     * @param chunkSize the number of classes retransformed in one call, or 0 or less to retransform all of them at once
+     * @throws UnmodifiableClassException the first error retransforming a class, once all the other classes have been
+     * retransformed
+     */
+    public static void retransformClasses(Instrumentation instrumentation, Collection<Class<?>> classes, int chunkSize)
+            throws UnmodifiableClassException {
+        if (classes.isEmpty()) {
+            return;
+        }
+        if (chunkSize <= 0 || classes.size() <= chunkSize) {
+            retransformChunk(instrumentation, classes);
+            return;
+        }
+
+        UnmodifiableClassException firstError = null;
+        boolean pause = true;
+        for (List<Class<?>> chunk : Iterables.partition(classes, chunkSize)) {
+            long start = System.nanoTime();
+            try {
+                retransformChunk(instrumentation, chunk);
+            } catch (UnmodifiableClassException e) {
+                if (firstError == null) {
+                    firstError = e;
+                }
+            }
+
+            long pauseMillis = Math.min(MAX_PAUSE_MILLIS, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            if (pause && pauseMillis > 0) {
+                try {
+                    Thread.sleep(pauseMillis);
+                } catch (InterruptedException e) {
+                    // finish without pausing, the retransforms still have to happen
+                    Thread.currentThread().interrupt();
+                    pause = false;
+                }
+            }
+        }
+        if (firstError != null) {
+            throw firstError;
+        }
+    }
+
+    private static void retransformChunk(Instrumentation instrumentation, Collection<Class<?>> chunk)
+            throws UnmodifiableClassException {
+        try {
+            instrumentation.retransformClasses(chunk.toArray(new Class[0]));
+        } catch (UnmodifiableClassException | RuntimeException chunkError) {
+            if (chunk.size() == 1) {
+                throw chunkError;
+            }
+            Agent.LOG.log(Level.FINEST, "Unable to retransform a chunk of {0} classes, retransforming them one at a time: {1}",
+                    chunk.size(), chunkError.toString());
+            UnmodifiableClassException firstError = null;
+            for (Class<?> clazz : chunk) {
+                try {
+                    instrumentation.retransformClasses(clazz);
+                } catch (UnmodifiableClassException e) {
+                    if (firstError == null) {
+                        firstError = e;
+                    }
+                } catch (RuntimeException e) {
+                    Agent.LOG.log(Level.FINER, e, "Unable to retransform {0}", clazz.getName());
+                }
+            }
+            if (firstError != null) {
+                throw firstError;
+            }
+        }
+    }
+
+}
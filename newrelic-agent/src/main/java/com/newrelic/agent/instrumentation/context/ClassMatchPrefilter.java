@@ -0,0 +1,32 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.instrumentation.context;
+
+import java.util.Collection;
+
+/**
+ * Implemented by {@link ClassMatchVisitorFactory}s that can only match classes whose constant pool holds one of a few
+ * known strings, like the names of the methods they instrument or the descriptors of the annotations they look for.
+ * Their visitors are only created for classes that have one of those strings.
+ *
+ * @see ConstantPoolPrefilter
+ */
+public interface ClassMatchPrefilter {
+
+    /**
+     * @return the strings of which a class must have at least one in its constant pool to be matched, or null if any
+     * class may be matched
+     */
+    Collection<String> getRequiredConstants();
+
+    /**
+     * @return endings of constant pool strings that also let a class be matched, like the simple names of annotations
+     */
+    Collection<String> getRequiredConstantSuffixes();
+
+}
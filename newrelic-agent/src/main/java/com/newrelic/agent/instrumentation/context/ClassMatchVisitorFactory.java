@@ -19,6 +19,14 @@ public interface ClassMatchVisitorFactory {
     ClassVisitor newClassMatchVisitor(ClassLoader loader, Class<?> classBeingRedefined, ClassReader reader,
             ClassVisitor cv, InstrumentationContext context);
 
+    /**
+     * Returns true if the visitors of this factory look at method instructions. Classes are matched without reading
+     * their method code when none of the factories matching them need it.
+     */
+    default boolean isMethodCodeVisitor() {
+        return false;
+    }
+
     ClassMatchVisitorFactory NO_OP_FACTORY = (loader, classBeingRedefined, reader, cv, context) -> null;
 
 }
@@ -16,6 +16,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 public class ClassesMatcher {
@@ -23,15 +24,18 @@ public class ClassesMatcher {
     public static final int MAX_NUMBER_OF_THREADS = 8;
 
     /**
-     * This parallelizes matching of a large number of classes by firing up threads to handle
-     * a partition of the classes.  It uses an interesting and difficult algorithm to decide
-     * how many threads to start, with a max of 8.
-     *
-     * We think that there is room to improve/fix/optimize this to better match available
-     * cores on the underlying hardware.
+     * The number of classes a thread claims at a time.
+     */
+    static final int BATCH_SIZE = 64;
+
+    /**
+     * This parallelizes matching of a large number of classes by firing up threads that claim batches of the classes
+     * until none are left, so that a thread that gets classes that are slow to match doesn't hold up the others. It
+     * starts at most one thread per available processor, with a max of 8, and no more threads than there are batches.
+     * A single batch is matched on the calling thread.
      *
-     * If 10 classes are passed in, it will create 5 threads.
-     * If 100 classes are passed in, it will create 8 threads.
+     * Matchers that look up class hierarchies share the class caches of each class loader while classes are matched,
+     * see ClassWeaverService#getClassCache.
      */
     public static Set<Class<?>> getMatchingClasses(final Collection<ClassMatchVisitorFactory> matchers,
                                                    final InstrumentationContextClassMatcherHelper matchHelper,
@@ -41,27 +45,39 @@ public class ClassesMatcher {
             return matchingClasses;
         }
 
-        double partitions = Math.min(classes.length, MAX_NUMBER_OF_THREADS);
-        int estimatedPerPartition = (int) Math.ceil(classes.length / partitions);
-        List<List<Class<?>>> partitionsClasses = Lists.partition(Arrays.asList(classes), estimatedPerPartition);
+        final List<List<Class<?>>> batches = Lists.partition(Arrays.asList(classes), BATCH_SIZE);
+        final AtomicInteger nextBatch = new AtomicInteger();
+        final Runnable matchingRunnable = new Runnable() {
+            @Override
+            public void run() {
+                for (int batch = nextBatch.getAndIncrement(); batch < batches.size(); batch = nextBatch.getAndIncrement()) {
+                    for (Class<?> clazz : batches.get(batch)) {
+                        if (matchHelper.isMatch(matchers, clazz)) {
+                            matchingClasses.add(clazz);
+                        }
+                    }
+                }
+            }
+        };
 
-        final CountDownLatch countDownLatch = new CountDownLatch(partitionsClasses.size());
-        for (final List<Class<?>> partitionClasses : partitionsClasses) {
-            Runnable matchingRunnable = new Runnable() {
+        int threads = Math.min(batches.size(), Math.min(MAX_NUMBER_OF_THREADS, Runtime.getRuntime().availableProcessors()));
+        if (threads <= 1) {
+            matchingRunnable.run();
+            return matchingClasses;
+        }
+
+        final CountDownLatch countDownLatch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(new Runnable() {
                 @Override
                 public void run() {
                     try {
-                        for (Class<?> clazz : partitionClasses) {
-                            if (matchHelper.isMatch(matchers, clazz)) {
-                                matchingClasses.add(clazz);
-                            }
-                        }
+                        matchingRunnable.run();
                     } finally {
                         countDownLatch.countDown();
                     }
                 }
-            };
-            new Thread(matchingRunnable).start();
+            }).start();
         }
 
         try {
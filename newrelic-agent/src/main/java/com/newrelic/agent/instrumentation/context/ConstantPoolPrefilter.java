@@ -0,0 +1,292 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.instrumentation.context;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Picks the {@link ClassMatchVisitorFactory}s that may match a class by reading the strings in its constant pool, which
+ * is much cheaper than visiting the class. Factories that are a {@link ClassMatchPrefilter} are only picked when the
+ * class has one of their required constants, all other factories always are.
+ *
+ * The required constants are kept in a map, in front of which sits a bloom filter over the raw bytes of the strings so
+ * that most constant pool strings are rejected without being decoded.
+ */
+public class ConstantPoolPrefilter {
+
+    private static final int CLASS_FILE_MAGIC = 0xCAFEBABE;
+
+    private final List<ClassMatchVisitorFactory> unfilteredFactories = new ArrayList<>();
+    private final List<ClassMatchVisitorFactory> filteredFactories = new ArrayList<>();
+    private final Map<String, BitSet> requiredConstants = new HashMap<>();
+    private final List<byte[]> requiredSuffixes = new ArrayList<>();
+    private final List<Integer> requiredSuffixOwners = new ArrayList<>();
+    private final long[] bloomFilter;
+    private final int bloomMask;
+
+    public ConstantPoolPrefilter(Collection<ClassMatchVisitorFactory> factories) {
+        for (ClassMatchVisitorFactory factory : factories) {
+            Collection<String> constants = factory instanceof ClassMatchPrefilter
+                    ? ((ClassMatchPrefilter) factory).getRequiredConstants() : null;
+            if (constants == null) {
+                unfilteredFactories.add(factory);
+                continue;
+            }
+            int index = filteredFactories.size();
+            filteredFactories.add(factory);
+            for (String constant : constants) {
+                BitSet owners = requiredConstants.get(constant);
+                if (owners == null) {
+                    owners = new BitSet();
+                    requiredConstants.put(constant, owners);
+                }
+                owners.set(index);
+            }
+            for (String suffix : ((ClassMatchPrefilter) factory).getRequiredConstantSuffixes()) {
+                requiredSuffixes.add(encode(suffix));
+                requiredSuffixOwners.add(index);
+            }
+        }
+
+        // about 16 bits per constant keeps false positives of the two probes under one percent
+        int bits = Integer.highestOneBit(Math.max(64, requiredConstants.size() * 16) - 1) << 1;
+        bloomFilter = new long[bits / 64];
+        bloomMask = bits - 1;
+        for (String constant : requiredConstants.keySet()) {
+            byte[] bytes = encode(constant);
+            int hash = hash(bytes, 0, bytes.length);
+            setBit(hash);
+            setBit(secondHash(hash));
+        }
+    }
+
+    /**
+     * @return the factories that may match the class, all of them if the constant pool can't be read
+     */
+    public List<ClassMatchVisitorFactory> filter(byte[] classBytes) {
+        if (filteredFactories.isEmpty()) {
+            return unfilteredFactories;
+        }
+        BitSet matched = scan(classBytes);
+        if (matched == null) {
+            List<ClassMatchVisitorFactory> all = new ArrayList<>(unfilteredFactories);
+            all.addAll(filteredFactories);
+            return all;
+        }
+        if (matched.isEmpty()) {
+            return unfilteredFactories;
+        }
+        List<ClassMatchVisitorFactory> factories = new ArrayList<>(unfilteredFactories.size() + matched.cardinality());
+        factories.addAll(unfilteredFactories);
+        for (int index = matched.nextSetBit(0); index >= 0; index = matched.nextSetBit(index + 1)) {
+            factories.add(filteredFactories.get(index));
+        }
+        return factories;
+    }
+
+    /**
+     * @return the number of factories that are only picked for the classes that have their required constants
+     */
+    public int getFilteredCount() {
+        return filteredFactories.size();
+    }
+
+    /**
+     * @return the number of factories that are always picked
+     */
+    public int getUnfilteredCount() {
+        return unfilteredFactories.size();
+    }
+
+    /**
+     * @return the indexes of the filtered factories whose required constants are in the class, or null if the class
+     * can't be read
+     */
+    BitSet scan(byte[] bytes) {
+        if (bytes.length < 10 || readInt(bytes, 0) != CLASS_FILE_MAGIC) {
+            return null;
+        }
+        BitSet matched = new BitSet();
+        int count = readUnsignedShort(bytes, 8);
+        int offset = 10;
+        for (int i = 1; i < count; i++) {
+            if (offset >= bytes.length) {
+                return null;
+            }
+            switch (bytes[offset]) {
+                case 1: // Utf8
+                    if (offset + 3 > bytes.length) {
+                        return null;
+                    }
+                    int length = readUnsignedShort(bytes, offset + 1);
+                    int start = offset + 3;
+                    offset = start + length;
+                    if (offset > bytes.length) {
+                        return null;
+                    }
+                    matchUtf8(bytes, start, length, matched);
+                    break;
+                case 7: // Class
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    offset += 3;
+                    break;
+                case 15: // MethodHandle
+                    offset += 4;
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    offset += 5;
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    offset += 9;
+                    i++;
+                    break;
+                default:
+                    return null;
+            }
+        }
+        return matched;
+    }
+
+    private void matchUtf8(byte[] bytes, int start, int length, BitSet matched) {
+        for (int i = 0; i < requiredSuffixes.size(); i++) {
+            if (endsWith(bytes, start, length, requiredSuffixes.get(i))) {
+                matched.set(requiredSuffixOwners.get(i));
+            }
+        }
+        if (requiredConstants.isEmpty()) {
+            return;
+        }
+        int hash = hash(bytes, start, length);
+        if (isBitSet(hash) && isBitSet(secondHash(hash))) {
+            BitSet owners = requiredConstants.get(decode(bytes, start, length));
+            if (owners != null) {
+                matched.or(owners);
+            }
+        }
+    }
+
+    private static boolean endsWith(byte[] bytes, int start, int length, byte[] suffix) {
+        if (suffix.length > length) {
+            return false;
+        }
+        int offset = start + length - suffix.length;
+        for (int i = 0; i < suffix.length; i++) {
+            if (bytes[offset + i] != suffix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void setBit(int hash) {
+        int bit = hash & bloomMask;
+        bloomFilter[bit >>> 6] |= 1L << bit;
+    }
+
+    private boolean isBitSet(int hash) {
+        int bit = hash & bloomMask;
+        return (bloomFilter[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * FNV-1a over the modified UTF-8 bytes of a string.
+     */
+    private static int hash(byte[] bytes, int start, int length) {
+        int hash = 0x811c9dc5;
+        for (int i = start; i < start + length; i++) {
+            hash ^= bytes[i] & 0xff;
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+
+    private static int secondHash(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        return hash ^ (hash >>> 13);
+    }
+
+    /**
+     * Encode a string the way the class file format does, as modified UTF-8.
+     */
+    static byte[] encode(String value) {
+        byte[] bytes = new byte[value.length() * 3];
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x01 && c <= 0x7f) {
+                bytes[length++] = (byte) c;
+            } else if (c <= 0x7ff) {
+                bytes[length++] = (byte) (0xc0 | (c >> 6));
+                bytes[length++] = (byte) (0x80 | (c & 0x3f));
+            } else {
+                bytes[length++] = (byte) (0xe0 | (c >> 12));
+                bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                bytes[length++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        byte[] result = new byte[length];
+        System.arraycopy(bytes, 0, result, 0, length);
+        return result;
+    }
+
+    static String decode(byte[] bytes, int start, int length) {
+        boolean ascii = true;
+        for (int i = start; i < start + length && ascii; i++) {
+            ascii = bytes[i] > 0;
+        }
+        if (ascii) {
+            return new String(bytes, start, length, StandardCharsets.US_ASCII);
+        }
+        char[] chars = new char[length];
+        int count = 0;
+        int offset = start;
+        int end = start + length;
+        while (offset < end) {
+            int b = bytes[offset++];
+            if ((b & 0x80) == 0) {
+                chars[count++] = (char) (b & 0x7f);
+            } else if (offset + ((b & 0xe0) == 0xc0 ? 1 : 2) > end) {
+                // malformed, the class won't load anyway
+                break;
+            } else if ((b & 0xe0) == 0xc0) {
+                chars[count++] = (char) (((b & 0x1f) << 6) + (bytes[offset++] & 0x3f));
+            } else {
+                chars[count++] = (char) (((b & 0xf) << 12) + ((bytes[offset++] & 0x3f) << 6) + (bytes[offset++] & 0x3f));
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    private static int readUnsignedShort(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xff) << 8) | (bytes[offset + 1] & 0xff);
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xff) << 24) | ((bytes[offset + 1] & 0xff) << 16) | ((bytes[offset + 2] & 0xff) << 8)
+                | (bytes[offset + 3] & 0xff);
+    }
+
+}
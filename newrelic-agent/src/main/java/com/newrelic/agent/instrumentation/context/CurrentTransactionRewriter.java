@@ -18,6 +18,7 @@ import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.commons.GeneratorAdapter;
 import org.objectweb.asm.commons.Method;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -27,8 +28,18 @@ public class CurrentTransactionRewriter {
      * Rewrite the static field references to {@literal Transaction.CURRENT} to instead call {@link Instrumentation#getTransaction()}.
      */
     public static ClassVisitor rewriteCurrentTransactionReferences(ClassVisitor cv, final ClassReader reader) {
+        return rewriteCurrentTransactionReferences(cv, reader, Collections.<Method>emptySet());
+    }
+
+    /**
+     * Rewrite the static field references to {@literal Transaction.CURRENT} in the methods of the class that refer to
+     * it and in the given methods, which visitors earlier in the chain may add references to.
+     */
+    public static ClassVisitor rewriteCurrentTransactionReferences(ClassVisitor cv, final ClassReader reader,
+            Set<Method> additionalMethods) {
 
         final Set<Method> localTransactionMethods = getLocalTransactionMethods(reader);
+        localTransactionMethods.addAll(additionalMethods);
         if (localTransactionMethods.isEmpty()) {
             return cv;
         }
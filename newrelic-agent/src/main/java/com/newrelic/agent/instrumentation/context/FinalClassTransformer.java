@@ -42,6 +42,8 @@ import java.security.ProtectionDomain;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.logging.Level;
@@ -74,7 +76,27 @@ public class FinalClassTransformer implements ContextClassTransformer {
             if (!PointCutClassTransformer.isValidClassName(className)) {
                 return null;
             }
-            return getFinalTransformation(loader, className, classBeingRedefined, classfileBuffer, context);
+            return getFinalTransformation(loader, className, classBeingRedefined, classfileBuffer, context,
+                    Collections.<PipelinedClassTransformer>emptyList());
+        } catch (Throwable ex) {
+            Agent.LOG.log(Level.FINE, "Unable to transform " + className, ex);
+        }
+        return null;
+    }
+
+    /**
+     * Apply the transformers of a pipeline followed by the final transformation in a single pass over the class.
+     * Transformers earlier in the pipeline see the class first.
+     *
+     * @return the transformed class, or null if it couldn't be transformed
+     */
+    public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+            byte[] classfileBuffer, InstrumentationContext context, List<PipelinedClassTransformer> pipeline) {
+        try {
+            if (!PointCutClassTransformer.isValidClassName(className)) {
+                return null;
+            }
+            return getFinalTransformation(loader, className, classBeingRedefined, classfileBuffer, context, pipeline);
         } catch (Throwable ex) {
             Agent.LOG.log(Level.FINE, "Unable to transform " + className, ex);
         }
@@ -82,7 +104,7 @@ public class FinalClassTransformer implements ContextClassTransformer {
     }
 
     private byte[] getFinalTransformation(ClassLoader loader, String className, Class<?> classBeingRedefined,
-            byte[] classfileBuffer, InstrumentationContext context) {
+            byte[] classfileBuffer, InstrumentationContext context, List<PipelinedClassTransformer> pipeline) {
 
         ClassReader reader = new ClassReader(classfileBuffer);
         ClassWriter writer = new PatchedClassWriter(ClassWriter.COMPUTE_FRAMES, context.getClassResolver(loader));
@@ -124,7 +146,12 @@ public class FinalClassTransformer implements ContextClassTransformer {
 
         cv = skipExistingAnnotations(cv);
 
-        cv = CurrentTransactionRewriter.rewriteCurrentTransactionReferences(cv, reader);
+        cv = CurrentTransactionRewriter.rewriteCurrentTransactionReferences(cv, reader,
+                pipeline.isEmpty() ? Collections.<Method>emptySet() : getTracedMethods(context));
+
+        for (int i = pipeline.size() - 1; i >= 0; i--) {
+            cv = pipeline.get(i).newClassVisitor(loader, className, reader, cv, context);
+        }
 
         reader.accept(cv, ClassReader.SKIP_FRAMES);
 
@@ -144,6 +171,18 @@ public class FinalClassTransformer implements ContextClassTransformer {
         return classBytes;
     }
 
+    /**
+     * Tracing adds references to {@literal Transaction.CURRENT} which aren't in the class read by a single pass yet.
+     */
+    private static Set<Method> getTracedMethods(InstrumentationContext context) {
+        if (!context.isTracerMatch()) {
+            return Collections.emptySet();
+        }
+        Set<Method> methods = new HashSet<>(context.getTraceInformation().getTraceAnnotations().keySet());
+        methods.addAll(context.getTraceInformation().getIgnoreTransactionMethods());
+        return methods;
+    }
+
     private void writeClassFiles(String className, InstrumentationContext context, byte[] classBytes) {
         try {
             File old = File.createTempFile(className.replace('/', '_'), ".old", BootstrapLoader.getTempDir());
@@ -23,6 +23,8 @@ import java.lang.instrument.ClassFileTransformer;
 import java.lang.instrument.IllegalClassFormatException;
 import java.security.ProtectionDomain;
 import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -46,13 +48,27 @@ public class InstrumentationClassTransformer implements ClassFileTransformer {
     private final FinalClassTransformer finalClassTransformer = new FinalClassTransformer();
     private final ScalaTraitFinalFieldTransformer scalaTraitFinalFieldTransformer =
       new ScalaTraitFinalFieldTransformer();
+    private final boolean singlePassTransform;
+    /**
+     * The transformers applied along with the final transformation when the class is transformed in a single pass.
+     */
+    private final List<PipelinedClassTransformer> pipeline;
 
     public InstrumentationClassTransformer(InstrumentationContextManager manager,
             TraceClassTransformer traceTransformer, boolean bootstrapClassloaderEnabled, boolean defaultMethodTracingEnabled) {
+        this(manager, traceTransformer, bootstrapClassloaderEnabled, defaultMethodTracingEnabled,
+                true);
+    }
+
+    public InstrumentationClassTransformer(InstrumentationContextManager manager,
+            TraceClassTransformer traceTransformer, boolean bootstrapClassloaderEnabled, boolean defaultMethodTracingEnabled,
+            boolean singlePassTransform) {
         this.manager = manager;
         this.traceTransformer = traceTransformer;
         this.bootstrapClassloaderEnabled = bootstrapClassloaderEnabled;
         this.defaultMethodTracingEnabled = defaultMethodTracingEnabled;
+        this.singlePassTransform = singlePassTransform;
+        this.pipeline = Arrays.<PipelinedClassTransformer>asList(traceTransformer, scalaTraitFinalFieldTransformer);
     }
 
     public void setInitialized(boolean isInitialized) {
@@ -99,7 +115,19 @@ public class InstrumentationClassTransformer implements ClassFileTransformer {
             }
 
             InstrumentationContext context = new InstrumentationContext(classfileBuffer, classBeingRedefined, protectionDomain);
-            context.match(loader, classBeingRedefined, reader, manager.getMatchVisitors().keySet());
+
+            // Classes that were left alone by an earlier run with the same instrumentation don't need to be matched
+            TransformCache transformCache = classBeingRedefined == null ? manager.getTransformCache() : null;
+            long transformCacheKey = 0;
+            if (transformCache != null) {
+                transformCacheKey = transformCache.key(loader, className, classfileBuffer);
+                if (transformCache.isUnmatched(transformCacheKey)) {
+                    context.observe(loader, null, reader, manager.getObserverVisitors());
+                    return null;
+                }
+            }
+
+            context.match(loader, classBeingRedefined, reader, manager.getMatchVisitors(classfileBuffer));
 
             // Additional proxy detection tests
             if (context.isGenerated()) {
@@ -108,11 +136,13 @@ public class InstrumentationClassTransformer implements ClassFileTransformer {
                 } else {
                     Agent.LOG.finest(MessageFormat.format("Instrumentation skipped by ''no source'' rule: {0}", className));
                 }
+                recordUnmatched(transformCache, transformCacheKey);
                 return null;
             }
 
             if (!context.getMatches().isEmpty() && skipInterfaceMarkers(reader)) {
                 Agent.LOG.finest(MessageFormat.format("Instrumentation skipped by ''class name'' rule: {0}", className));
+                recordUnmatched(transformCache, transformCacheKey);
                 return null;
             }
 
@@ -131,6 +161,19 @@ public class InstrumentationClassTransformer implements ClassFileTransformer {
                 }
             }
 
+            // Tracing, the Scala final field fix and the final transformation only need one read and write of the class
+            if (singlePassTransform && (context.isModified() || context.isTracerMatch())) {
+                InstrumentationContext.TransformState transformState = context.saveTransformState();
+                byte[] transformation = finalClassTransformer.transform(loader, className, classBeingRedefined,
+                        classfileBuffer, context, pipeline);
+                if (transformation != null) {
+                    recordTransformTime(transformStartTimeInNs);
+                    return transformation;
+                }
+                // fall back to a pass per transformer, without what tracing recorded before the pass failed
+                context.restoreTransformState(transformState);
+            }
+
             if (context.isTracerMatch()) {
                 byte[] bytes = traceTransformer.transform(loader, className, classBeingRedefined,
                         protectionDomain, classfileBuffer, context, null);
@@ -151,11 +194,12 @@ public class InstrumentationClassTransformer implements ClassFileTransformer {
             if (context.isModified()) {
                 byte[] transformation = finalClassTransformer.transform(loader, className,
                         classBeingRedefined, protectionDomain, classfileBuffer, context, null);
-                ServiceFactory.getStatsService().doStatsWork(
-                        StatsWorks.getRecordMetricWork(MetricNames.SUPPORTABILITY_CLASSLOADER_TRANSFORM_TIME,
-                                System.nanoTime() - transformStartTimeInNs), MetricNames.SUPPORTABILITY_CLASSLOADER_TRANSFORM_TIME);
+                recordTransformTime(transformStartTimeInNs);
                 return transformation;
             }
+            if (!context.isWeaveMatched()) {
+                recordUnmatched(transformCache, transformCacheKey);
+            }
         } catch (Throwable t) {
             Agent.LOG.log(Level.FINE, t, "Unexpected exception thrown in class transformer: {0}--{1}", loader, className);
         }
@@ -163,6 +207,18 @@ public class InstrumentationClassTransformer implements ClassFileTransformer {
         return null; // for transformers this is the same as throwing an exception
     }
 
+    private static void recordTransformTime(long transformStartTimeInNs) {
+        ServiceFactory.getStatsService().doStatsWork(
+                StatsWorks.getRecordMetricWork(MetricNames.SUPPORTABILITY_CLASSLOADER_TRANSFORM_TIME,
+                        System.nanoTime() - transformStartTimeInNs), MetricNames.SUPPORTABILITY_CLASSLOADER_TRANSFORM_TIME);
+    }
+
+    private static void recordUnmatched(TransformCache transformCache, long transformCacheKey) {
+        if (transformCache != null) {
+            transformCache.recordUnmatched(transformCacheKey);
+        }
+    }
+
     /**
      * Don't instrument classes that implement any of the interfaces specified in {@link #MARKER_INTERFACES_TO_SKIP}.
      */
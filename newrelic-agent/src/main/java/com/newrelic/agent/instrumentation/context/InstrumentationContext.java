@@ -62,6 +62,7 @@ public class InstrumentationContext implements TraceDetailsList {
     private List<ClassResolver> classResolvers;
     private boolean generated;
     private boolean hasSource;
+    private boolean weaveMatched;
 
     public InstrumentationContext(byte[] bytes, Class<?> classBeingRedefined, ProtectionDomain protectionDomain) {
         this.bytes = bytes;
@@ -275,14 +276,18 @@ public class InstrumentationContext implements TraceDetailsList {
             Collection<ClassMatchVisitorFactory> classVisitorFactories) {
 
         ClassVisitor visitor = null;
+        int parsingOptions = ClassReader.SKIP_FRAMES | ClassReader.SKIP_CODE;
         for (ClassMatchVisitorFactory factory : classVisitorFactories) {
             ClassVisitor nextVisitor = factory.newClassMatchVisitor(loader, classBeingRedefined, reader, visitor, this);
             if (nextVisitor != null) {
                 visitor = nextVisitor;
+                if (factory.isMethodCodeVisitor()) {
+                    parsingOptions = ClassReader.SKIP_FRAMES;
+                }
             }
         }
         if (visitor != null) {
-            reader.accept(visitor, ClassReader.SKIP_FRAMES);
+            reader.accept(visitor, parsingOptions);
             if (bridgeMethods != null) {
                 // resolve bridge methods
                 resolveBridgeMethods(reader);
@@ -293,6 +298,23 @@ public class InstrumentationContext implements TraceDetailsList {
         }
     }
 
+    /**
+     * Run visitors that only look at the class header, like the ones that record the jars and languages in use.
+     */
+    public void observe(ClassLoader loader, Class<?> classBeingRedefined, ClassReader reader,
+            Collection<ClassMatchVisitorFactory> classVisitorFactories) {
+        ClassVisitor visitor = null;
+        for (ClassMatchVisitorFactory factory : classVisitorFactories) {
+            ClassVisitor nextVisitor = factory.newClassMatchVisitor(loader, classBeingRedefined, reader, visitor, this);
+            if (nextVisitor != null) {
+                visitor = nextVisitor;
+            }
+        }
+        if (visitor != null) {
+            reader.accept(visitor, ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+        }
+    }
+
     /**
      * {@link ClassMatchVisitorFactory} implementations add bridge methods that they've matched to the
      * {@link #bridgeMethods} map. In that initial pass they just add the method but don't resolve the actual
@@ -417,10 +439,49 @@ public class InstrumentationContext implements TraceDetailsList {
         return hasSource;
     }
 
+    public void markAsWeaveMatched() {
+        this.weaveMatched = true;
+    }
+
+    /**
+     * Return true if a weave package matched this class, whether or not it was valid for the class loader. Whether
+     * such a class is weaved can change with the jars its class loader sees.
+     */
+    public boolean isWeaveMatched() {
+        return weaveMatched;
+    }
+
     public URL getCodeSourceLocation(){
         if((protectionDomain == null) || (protectionDomain.getCodeSource() == null)) {
             return null;
         }
         return protectionDomain.getCodeSource().getLocation();
     }
+
+    /**
+     * Take a copy of what transformers record while they transform the class, so that it can be restored when a pass
+     * over the class fails part way through and the class is transformed again.
+     */
+    TransformState saveTransformState() {
+        return new TransformState(modified, timedMethods == null ? null : new HashSet<>(timedMethods),
+                classResolvers == null ? null : new ArrayList<>(classResolvers));
+    }
+
+    void restoreTransformState(TransformState state) {
+        modified = state.modified;
+        timedMethods = state.timedMethods;
+        classResolvers = state.classResolvers;
+    }
+
+    static final class TransformState {
+        private final boolean modified;
+        private final Set<Method> timedMethods;
+        private final List<ClassResolver> classResolvers;
+
+        private TransformState(boolean modified, Set<Method> timedMethods, List<ClassResolver> classResolvers) {
+            this.modified = modified;
+            this.timedMethods = timedMethods;
+            this.classResolvers = classResolvers;
+        }
+    }
 }
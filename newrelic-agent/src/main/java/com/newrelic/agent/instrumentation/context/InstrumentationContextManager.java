@@ -7,11 +7,16 @@
 
 package com.newrelic.agent.instrumentation.context;
 
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.newrelic.agent.Agent;
 import com.newrelic.agent.InstrumentationProxy;
+import com.newrelic.agent.MetricNames;
 import com.newrelic.agent.config.AgentConfig;
 import com.newrelic.agent.config.ClassTransformerConfig;
 import com.newrelic.agent.config.Config;
+import com.newrelic.agent.extension.Extension;
+import com.newrelic.agent.extension.ExtensionService;
 import com.newrelic.agent.instrumentation.ClassNameFilter;
 import com.newrelic.agent.instrumentation.api.ApiImplementationUpdate;
 import com.newrelic.agent.instrumentation.classmatchers.ScalaTraitMatcher;
@@ -24,28 +29,58 @@ import com.newrelic.agent.instrumentation.weaver.ClassWeaverService;
 import com.newrelic.agent.instrumentation.webservices.JakartaWebServiceVisitor;
 import com.newrelic.agent.instrumentation.webservices.WebServiceVisitor;
 import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.service.ServiceTiming;
 import com.newrelic.agent.servlet.ServletAnnotationVisitor;
+import com.newrelic.agent.stats.StatsService;
+import com.newrelic.agent.stats.StatsWorks;
 import com.newrelic.weave.utils.WeaveUtils;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.instrument.ClassFileTransformer;
 import java.lang.instrument.Instrumentation;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 public class InstrumentationContextManager {
 
     private static final String LOG4J_DEPENDENCY = "com/newrelic/agent/deps/org/apache/logging/log4j/";
+    private static final int PREFILTER_METRICS_BATCH_SIZE = 1000;
 
     static final NoOpClassTransformer NO_OP_TRANSFORMER = new NoOpClassTransformer();
 
     private final Map<ClassMatchVisitorFactory, ContextClassTransformer> matchVisitors = new ConcurrentHashMap<>();
     private final Map<ClassMatchVisitorFactory, ContextClassTransformer> interfaceMatchVisitors = new ConcurrentHashMap<>();
 
+    /**
+     * Match visitors that only record what they see. They still visit classes found in the {@link TransformCache}.
+     */
+    private final List<ClassMatchVisitorFactory> observerVisitors = new ArrayList<>();
+
+    /**
+     * Incremented whenever {@link #matchVisitors} changes, so that the prefilter built from them is rebuilt.
+     */
+    private final AtomicInteger matchVisitorsVersion = new AtomicInteger();
+    private final boolean prefilterClassMatchers;
+    private volatile VersionedPrefilter constantPoolPrefilter;
+    private final AtomicInteger prefilterClasses = new AtomicInteger();
+    private final AtomicInteger prefilterMatchersSkipped = new AtomicInteger();
+
+    /**
+     * Set once the instrumentation is in place, null until then, if the cache is disabled or if it failed to open.
+     */
+    private volatile TransformCache transformCache;
+
     /**
      * A list of classloader class name prefixes. Any classloader class matching any of these prefixes will not have
      * its classes instrumented.
@@ -147,8 +182,12 @@ public class InstrumentationContextManager {
         }
 
         classloaderExclusions = agentConfig.getClassTransformerConfig().getClassloaderExclusions();
-        matchVisitors.put(ServiceFactory.getJarCollectorService().getSourceVisitor(), NO_OP_TRANSFORMER);
-        matchVisitors.put(ServiceFactory.getSourceLanguageService().getSourceVisitor(), NO_OP_TRANSFORMER);
+        prefilterClassMatchers = classTransformerConfig.prefilterClassMatchers();
+        observerVisitors.add(ServiceFactory.getJarCollectorService().getSourceVisitor());
+        observerVisitors.add(ServiceFactory.getSourceLanguageService().getSourceVisitor());
+        for (ClassMatchVisitorFactory observerVisitor : observerVisitors) {
+            matchVisitors.put(observerVisitor, NO_OP_TRANSFORMER);
+        }
 
         try {
             ApiImplementationUpdate.setup(this);
@@ -170,15 +209,18 @@ public class InstrumentationContextManager {
         final InstrumentationContextManager manager = new InstrumentationContextManager(instrumentation);
 
         final TraceClassTransformer traceTransformer = new TraceClassTransformer();
+        long weavePackageLoadStartTime = System.nanoTime();
         manager.classWeaverService.registerInstrumentation();
         AgentConfig agentConfig = ServiceFactory.getConfigService().getDefaultAgentConfig();
         manager.classWeaverService.registerSecurityInstrumentation();
+        ServiceTiming.addStartupPhase(ServiceTiming.PHASE_WEAVE_PACKAGE_LOAD, System.nanoTime() - weavePackageLoadStartTime);
         manager.addContextClassTransformer(manager.classWeaverService, manager.classWeaverService);
         final boolean defaultMethodTracingEnabled = agentConfig.getClassTransformerConfig()
                 .isDefaultMethodTracingEnabled();
+        final boolean singlePassTransform = agentConfig.getClassTransformerConfig().singlePassTransform();
 
         InstrumentationClassTransformer transformer = new InstrumentationClassTransformer(manager, traceTransformer,
-                bootstrapClassloaderEnabled, defaultMethodTracingEnabled);
+                bootstrapClassloaderEnabled, defaultMethodTracingEnabled, singlePassTransform);
         instrumentation.addTransformer(transformer, true);
         manager.jvmTransformer = transformer;
 
@@ -190,7 +232,9 @@ public class InstrumentationContextManager {
         // Remove the temporary transformer we applied during startup
         instrumentation.removeTransformer(classLoaderClassTransformer);
 
+        long retransformStartTime = System.nanoTime();
         manager.classWeaverService.createRetransformRunnable(instrumentation.getAllLoadedClasses()).run();
+        ServiceTiming.addStartupPhase(ServiceTiming.PHASE_INITIAL_RETRANSFORM, System.nanoTime() - retransformStartTime);
         transformer.setInitialized(true);
 
         return manager;
@@ -265,6 +309,8 @@ public class InstrumentationContextManager {
             transformer = NO_OP_TRANSFORMER;
         }
         this.matchVisitors.put(matchVisitor, transformer);
+        matchVisitorsVersion.incrementAndGet();
+        invalidateTransformCache();
     }
 
     /**
@@ -274,6 +320,128 @@ public class InstrumentationContextManager {
      */
     public void removeMatchVisitor(ClassMatchVisitorFactory visitor) {
         this.matchVisitors.remove(visitor);
+        matchVisitorsVersion.incrementAndGet();
+        invalidateTransformCache();
+    }
+
+    /**
+     * @return the match visitors that may match the class, picked by the {@link ConstantPoolPrefilter}
+     */
+    public Collection<ClassMatchVisitorFactory> getMatchVisitors(byte[] classBytes) {
+        if (!prefilterClassMatchers) {
+            return matchVisitors.keySet();
+        }
+        VersionedPrefilter prefilter = constantPoolPrefilter;
+        int version = matchVisitorsVersion.get();
+        if (prefilter == null || prefilter.version != version) {
+            prefilter = new VersionedPrefilter(version, new ConstantPoolPrefilter(matchVisitors.keySet()));
+            constantPoolPrefilter = prefilter;
+        }
+        List<ClassMatchVisitorFactory> factories = prefilter.prefilter.filter(classBytes);
+        int picked = factories.size() - prefilter.prefilter.getUnfilteredCount();
+        recordPrefilterResult(prefilter.prefilter.getFilteredCount() - picked);
+        return factories;
+    }
+
+    /**
+     * Counts are reported in batches to keep stats work off the path of every class load. The matchers that aren't a
+     * {@link ClassMatchPrefilter}, like the weaver's, are never skipped, so a class whose prefilterable matchers were
+     * all skipped is still matched.
+     */
+    private void recordPrefilterResult(int matchersSkipped) {
+        if (matchersSkipped > 0) {
+            prefilterMatchersSkipped.addAndGet(matchersSkipped);
+        }
+        if (prefilterClasses.incrementAndGet() >= PREFILTER_METRICS_BATCH_SIZE) {
+            int classes = prefilterClasses.getAndSet(0);
+            int skipped = prefilterMatchersSkipped.getAndSet(0);
+            if (classes > 0) {
+                StatsService statsService = ServiceFactory.getStatsService();
+                statsService.doStatsWork(StatsWorks.getIncrementCounterWork(
+                        MetricNames.SUPPORTABILITY_CLASSLOADER_PREFILTER_CLASSES, classes), MetricNames.SUPPORTABILITY_CLASSLOADER_PREFILTER_CLASSES);
+                statsService.doStatsWork(StatsWorks.getIncrementCounterWork(
+                        MetricNames.SUPPORTABILITY_CLASSLOADER_PREFILTER_MATCHERS_SKIPPED, skipped), MetricNames.SUPPORTABILITY_CLASSLOADER_PREFILTER_MATCHERS_SKIPPED);
+            }
+        }
+    }
+
+    /**
+     * Open the {@link TransformCache} if it is enabled. This is called once the instrumentation known at startup has
+     * been added, any changes after this invalidate the cache for the rest of the run.
+     */
+    public void openTransformCache(ClassTransformerConfig classTransformerConfig) {
+        if (!classTransformerConfig.isTransformCacheEnabled() || transformCache != null) {
+            return;
+        }
+        String directoryName = classTransformerConfig.getTransformCacheDirectory();
+        File directory = new File(directoryName == null ? System.getProperty("java.io.tmpdir") : directoryName);
+        try {
+            transformCache = TransformCache.open(directory, getInstrumentationFingerprint(),
+                    classTransformerConfig.getTransformCacheMaxEntries());
+            Agent.LOG.log(Level.FINE, "Using class transform cache {0} with {1} entries", transformCache.getFile(),
+                    transformCache.size());
+        } catch (IOException | RuntimeException e) {
+            Agent.LOG.log(Level.WARNING, "Unable to open the class transform cache in {0}: {1}", directory, e.toString());
+        }
+    }
+
+    /**
+     * Stop using the {@link TransformCache} because what gets instrumented has changed.
+     */
+    public void invalidateTransformCache() {
+        TransformCache cache = transformCache;
+        if (cache != null && cache.isEnabled()) {
+            Agent.LOG.log(Level.FINE, "Instrumentation changed, the class transform cache will not be used");
+            cache.disable();
+        }
+    }
+
+    /**
+     * @return the transform cache, or null if it isn't in use
+     */
+    public TransformCache getTransformCache() {
+        TransformCache cache = transformCache;
+        return cache != null && cache.isEnabled() ? cache : null;
+    }
+
+    Collection<ClassMatchVisitorFactory> getObserverVisitors() {
+        return observerVisitors;
+    }
+
+    /**
+     * A hash of everything that decides which classes are instrumented: the agent version, the configuration, the
+     * match visitors, the extensions and the jars on the application class path.
+     */
+    private long getInstrumentationFingerprint() {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        hasher.putUnencodedChars(Agent.getVersion());
+        hasher.putUnencodedChars(String.valueOf(ServiceFactory.getConfigService().getSanitizedLocalSettings()));
+
+        Set<String> visitorNames = new TreeSet<>();
+        for (ClassMatchVisitorFactory matchVisitor : matchVisitors.keySet()) {
+            visitorNames.add(matchVisitor.getClass().getName());
+        }
+        hasher.putUnencodedChars(visitorNames.toString());
+
+        ExtensionService extensionService = ServiceFactory.getExtensionService();
+        Set<String> extensions = new TreeSet<>();
+        for (Extension extension : extensionService.getExtensions()) {
+            extensions.add(extension.getName() + ':' + extension.getVersion());
+        }
+        for (File weaveExtension : extensionService.getWeaveExtensions()) {
+            extensions.add(weaveExtension.getAbsolutePath() + ':' + weaveExtension.length() + ':' + weaveExtension.lastModified());
+        }
+        hasher.putUnencodedChars(extensions.toString());
+
+        // the application class loader can't be told apart by its urls on Java 9+, so identify its jars here
+        String classPath = System.getProperty("java.class.path", "");
+        for (String entry : classPath.split(File.pathSeparator)) {
+            File classPathEntry = new File(entry);
+            hasher.putUnencodedChars(entry);
+            hasher.putLong(classPathEntry.length());
+            hasher.putLong(classPathEntry.lastModified());
+        }
+        return hasher.hash().asLong();
     }
 
     public Instrumentation getInstrumentation() {
@@ -287,4 +455,14 @@ public class InstrumentationContextManager {
         return this.jvmTransformer;
     }
 
+    private static class VersionedPrefilter {
+        private final int version;
+        private final ConstantPoolPrefilter prefilter;
+
+        VersionedPrefilter(int version, ConstantPoolPrefilter prefilter) {
+            this.version = version;
+            this.prefilter = prefilter;
+        }
+    }
+
 }
@@ -0,0 +1,31 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.instrumentation.context;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+
+/**
+ * A {@link ContextClassTransformer} that can also apply its transformation as a {@link ClassVisitor} in the pass over the
+ * class made by the {@link FinalClassTransformer}, so that the class is read, written and has its frames computed once
+ * rather than once per transformer.
+ */
+public interface PipelinedClassTransformer extends ContextClassTransformer {
+
+    /**
+     * Add this transformation to a pass over the class.
+     *
+     * @param reader the class as it was before the pass. Visitors added to the pass see the output of the ones added
+     * before them.
+     * @param cv the visitor to delegate to
+     * @return the visitor that applies the transformation, or cv if there's nothing to do for this class
+     */
+    ClassVisitor newClassVisitor(ClassLoader loader, String className, ClassReader reader, ClassVisitor cv,
+            InstrumentationContext context);
+
+}
@@ -19,7 +19,7 @@ import org.objectweb.asm.commons.Method;
 
 import java.util.*;
 
-public class TraceByReturnTypeMatchVisitor implements ClassMatchVisitorFactory {
+public class TraceByReturnTypeMatchVisitor implements ClassMatchVisitorFactory, ClassMatchPrefilter {
 
   private static final String TRACE_BY_RETURN_TYPE_DESC = Type.getDescriptor(TraceByReturnType.class);
   private static final String TRACE_RETURN_TYPES_NAME = "traceReturnTypes";
@@ -86,4 +86,14 @@ public class TraceByReturnTypeMatchVisitor implements ClassMatchVisitorFactory {
       }
     };
   }
+
+  @Override
+  public Collection<String> getRequiredConstants() {
+    return Collections.singleton(TRACE_BY_RETURN_TYPE_DESC);
+  }
+
+  @Override
+  public Collection<String> getRequiredConstantSuffixes() {
+    return Collections.emptySet();
+  }
 }
@@ -11,6 +11,9 @@ import com.newrelic.agent.config.ClassTransformerConfig;
 import com.newrelic.agent.config.ConfigService;
 import com.newrelic.agent.instrumentation.InstrumentationType;
 import com.newrelic.agent.instrumentation.annotationmatchers.AnnotationMatcher;
+import com.newrelic.agent.instrumentation.annotationmatchers.ClassNameAnnotationMatcher;
+import com.newrelic.agent.instrumentation.annotationmatchers.NoMatchAnnotationMatcher;
+import com.newrelic.agent.instrumentation.annotationmatchers.OrAnnotationMatcher;
 import com.newrelic.agent.instrumentation.tracing.Annotation;
 import com.newrelic.agent.instrumentation.tracing.TraceDetailsBuilder;
 import com.newrelic.agent.service.ServiceFactory;
@@ -24,6 +27,10 @@ import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.Method;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * The class visitor returned by this factory matches trace annotations and ignore apdex/transaction trace annotations
  * and records this in the {@link InstrumentationContext}.
@@ -32,7 +39,7 @@ import org.objectweb.asm.commons.Method;
  * @see ClassTransformerConfig#getIgnoreApdexAnnotationMatcher()
  * @see ClassTransformerConfig#getIgnoreTransactionAnnotationMatcher()
  */
-class TraceMatchVisitor implements ClassMatchVisitorFactory {
+class TraceMatchVisitor implements ClassMatchVisitorFactory, ClassMatchPrefilter {
 
     private static final String WEAVE_UTILITY_CLASS_PACKAGE_NAME = "weavePackageName";
     private static final String WEAVE_UTILITY_CLASS_DESC = Type.getDescriptor(UtilityClass.class);
@@ -40,6 +47,9 @@ class TraceMatchVisitor implements ClassMatchVisitorFactory {
     private final AnnotationMatcher traceAnnotationMatcher;
     private final AnnotationMatcher ignoreTransactionAnnotationMatcher;
     private final AnnotationMatcher ignoreApdexAnnotationMatcher;
+    private final Set<String> requiredConstants = new HashSet<>();
+    private final Set<String> requiredConstantSuffixes = new HashSet<>();
+    private final boolean prefilterable;
 
     public TraceMatchVisitor() {
         ConfigService configService = ServiceFactory.getConfigService();
@@ -48,6 +58,49 @@ class TraceMatchVisitor implements ClassMatchVisitorFactory {
         traceAnnotationMatcher = classTransformerConfig.getTraceAnnotationMatcher();
         ignoreTransactionAnnotationMatcher = classTransformerConfig.getIgnoreTransactionAnnotationMatcher();
         ignoreApdexAnnotationMatcher = classTransformerConfig.getIgnoreApdexAnnotationMatcher();
+
+        requiredConstants.add(WEAVE_UTILITY_CLASS_DESC);
+        prefilterable = addRequiredConstants(traceAnnotationMatcher) && addRequiredConstants(ignoreTransactionAnnotationMatcher)
+                && addRequiredConstants(ignoreApdexAnnotationMatcher);
+    }
+
+    /**
+     * Annotation descriptors are in the constant pool of the classes using them.
+     *
+     * @return false if the annotations matched can't be told
+     */
+    private boolean addRequiredConstants(AnnotationMatcher matcher) {
+        if (matcher instanceof NoMatchAnnotationMatcher) {
+            return true;
+        }
+        if (matcher instanceof ClassNameAnnotationMatcher) {
+            ClassNameAnnotationMatcher classNameMatcher = (ClassNameAnnotationMatcher) matcher;
+            if (classNameMatcher.isFullMatch()) {
+                requiredConstants.add(classNameMatcher.getClassName());
+            } else {
+                requiredConstantSuffixes.add(classNameMatcher.getClassName());
+            }
+            return true;
+        }
+        if (matcher instanceof OrAnnotationMatcher) {
+            for (AnnotationMatcher orMatcher : ((OrAnnotationMatcher) matcher).getMatchers()) {
+                if (!addRequiredConstants(orMatcher)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Collection<String> getRequiredConstants() {
+        return prefilterable ? requiredConstants : null;
+    }
+
+    @Override
+    public Collection<String> getRequiredConstantSuffixes() {
+        return requiredConstantSuffixes;
     }
 
     @Override
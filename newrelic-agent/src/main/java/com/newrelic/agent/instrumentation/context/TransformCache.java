@@ -0,0 +1,225 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.instrumentation.context;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers, across JVM restarts, the classes that {@link InstrumentationClassTransformer} found nothing to do for.
+ *
+ * Each class is identified by a 64 bit hash of its bytes, its name and its class loader. The hashes are kept in an open
+ * addressing table in a memory mapped file whose name carries a fingerprint of everything that decides what gets
+ * instrumented, so a different agent version, configuration, class path or set of extensions starts a new file. Files
+ * are only deleted once nothing has opened them for {@link #STALE_FILE_AGE_MILLIS}, because other applications, or
+ * other versions of this one during a rolling deploy, can share the directory.
+ *
+ * Only negative results are stored. Instrumented bytecode refers to state created while transforming, like the ids of
+ * traced method signatures and the woven utility classes, which a later JVM would not have. Classes that a weave
+ * package matches are not stored either, because whether the package is valid depends on the jars the class loader
+ * sees, which the key doesn't cover.
+ *
+ * Lookups don't lock. Entries written by another JVM sharing the file may be lost but are never wrong.
+ */
+public class TransformCache implements Closeable {
+
+    static final String FILE_PREFIX = "newrelic-transform-cache-";
+    static final String FILE_SUFFIX = ".idx";
+
+    private static final int MAGIC = 0x4e525443;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int COUNT_OFFSET = 12;
+    private static final int MAX_PROBES = 32;
+
+    static final long STALE_FILE_AGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final int maxEntries;
+    private final Map<ClassLoader, String> classLoaderIdentities = Collections.synchronizedMap(new WeakHashMap<ClassLoader, String>());
+    private volatile boolean enabled = true;
+
+    private TransformCache(File file, int maxEntries) throws IOException {
+        this.file = file;
+        this.maxEntries = maxEntries;
+        // keep the table at most three quarters full so that probe sequences stay short
+        this.capacity = Integer.highestOneBit(Math.max(16, maxEntries + maxEntries / 3) - 1) << 1;
+        this.randomAccessFile = new RandomAccessFile(file, "rw");
+        long length = HEADER_BYTES + (long) capacity * 8;
+        boolean valid = randomAccessFile.length() == length;
+        randomAccessFile.setLength(length);
+        this.buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+        if (!valid || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION || buffer.getInt(8) != capacity) {
+            for (long offset = 0; offset < length; offset += 8) {
+                buffer.putLong((int) offset, 0);
+            }
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, FORMAT_VERSION);
+            buffer.putInt(8, capacity);
+        }
+    }
+
+    /**
+     * Open the cache file for a fingerprint, deleting the files in the directory that haven't been opened recently.
+     *
+     * @param directory where the cache file is kept
+     * @param fingerprint identifies everything that decides which classes are instrumented
+     * @param maxEntries the number of classes the cache can hold
+     */
+    public static TransformCache open(File directory, long fingerprint, int maxEntries) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create transform cache directory " + directory);
+        }
+        long now = System.currentTimeMillis();
+        String fileName = FILE_PREFIX + Long.toHexString(fingerprint) + FILE_SUFFIX;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File stale : files) {
+                String name = stale.getName();
+                if (name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX) && !name.equals(fileName)
+                        && now - stale.lastModified() > STALE_FILE_AGE_MILLIS) {
+                    stale.delete();
+                }
+            }
+        }
+        TransformCache cache = new TransformCache(new File(directory, fileName), maxEntries);
+        // writes through the mapping don't reliably update the modification time, so mark the file as in use here
+        cache.file.setLastModified(now);
+        return cache;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return false once the instrumentation has changed since the cache was opened
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Stop using the cache for the rest of this JVM, because what is instrumented has changed and entries recorded
+     * from now on would not hold for the next JVM.
+     */
+    public void disable() {
+        enabled = false;
+    }
+
+    /**
+     * @return the key of a class, never 0
+     */
+    public long key(ClassLoader loader, String className, byte[] classBytes) {
+        Hasher hasher = Hashing.murmur3_128().newHasher()
+                .putBytes(classBytes)
+                .putUnencodedChars(className)
+                .putUnencodedChars(getClassLoaderIdentity(loader));
+        long key = hasher.hash().asLong();
+        return key == 0 ? 1 : key;
+    }
+
+    /**
+     * Class loader instances differ between JVMs, so a class loader is identified by its type and, for url class
+     * loaders, its urls, which tells apart the class loaders of different web applications. The application class
+     * loader of Java 9+ is not a url class loader, its class path is part of the fingerprint instead.
+     */
+    private String getClassLoaderIdentity(ClassLoader loader) {
+        if (loader == null) {
+            return "bootstrap";
+        }
+        String identity = classLoaderIdentities.get(loader);
+        if (identity == null) {
+            identity = loader.getClass().getName();
+            if (loader instanceof URLClassLoader) {
+                URL[] urls = ((URLClassLoader) loader).getURLs();
+                identity += Arrays.toString(urls);
+            }
+            classLoaderIdentities.put(loader, identity);
+        }
+        return identity;
+    }
+
+    /**
+     * @return true if the class was recorded as needing no instrumentation
+     */
+    public boolean isUnmatched(long key) {
+        int slot = slot(key);
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            long value = buffer.getLong(offset(slot));
+            if (value == key) {
+                return true;
+            }
+            if (value == 0) {
+                return false;
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+        return false;
+    }
+
+    /**
+     * Record that a class needs no instrumentation. Once the cache is full nothing more is recorded.
+     */
+    public synchronized void recordUnmatched(long key) {
+        if (!enabled || buffer.getInt(COUNT_OFFSET) >= maxEntries) {
+            return;
+        }
+        int slot = slot(key);
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            long value = buffer.getLong(offset(slot));
+            if (value == key) {
+                return;
+            }
+            if (value == 0) {
+                buffer.putLong(offset(slot), key);
+                buffer.putInt(COUNT_OFFSET, buffer.getInt(COUNT_OFFSET) + 1);
+                return;
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+    }
+
+    public int size() {
+        return buffer.getInt(COUNT_OFFSET);
+    }
+
+    private int slot(long key) {
+        // the key is already a good hash, fold the high bits in for small tables
+        return (int) (key ^ (key >>> 32)) & (capacity - 1);
+    }
+
+    private static int offset(int slot) {
+        return HEADER_BYTES + slot * 8;
+    }
+
+    @Override
+    public void close() throws IOException {
+        enabled = false;
+        buffer.force();
+        randomAccessFile.close();
+    }
+
+}
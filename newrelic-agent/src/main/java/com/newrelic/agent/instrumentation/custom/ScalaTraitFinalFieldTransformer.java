@@ -1,8 +1,8 @@
 package com.newrelic.agent.instrumentation.custom;
 
 import com.newrelic.agent.instrumentation.classmatchers.OptimizedClassMatcher;
-import com.newrelic.agent.instrumentation.context.ContextClassTransformer;
 import com.newrelic.agent.instrumentation.context.InstrumentationContext;
+import com.newrelic.agent.instrumentation.context.PipelinedClassTransformer;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
@@ -13,7 +13,7 @@ import java.util.logging.Level;
 
 import static com.newrelic.agent.Agent.LOG;
 
-public class ScalaTraitFinalFieldTransformer implements ContextClassTransformer {
+public class ScalaTraitFinalFieldTransformer implements PipelinedClassTransformer {
   @Override
   public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined, ProtectionDomain protectionDomain, byte[] classfileBuffer, InstrumentationContext context, OptimizedClassMatcher.Match match) throws IllegalClassFormatException {
     try {
@@ -41,4 +41,13 @@ public class ScalaTraitFinalFieldTransformer implements ContextClassTransformer
 
     return writer.toByteArray();
   }
+
+  @Override
+  public ClassVisitor newClassVisitor(ClassLoader loader, String className, ClassReader reader, ClassVisitor cv,
+                                      InstrumentationContext context) {
+    if (context.getScalaFinalFields().isEmpty()) {
+      return cv;
+    }
+    return new ScalaTraitFinalFieldVisitor(cv, context.getScalaFinalFields());
+  }
 }
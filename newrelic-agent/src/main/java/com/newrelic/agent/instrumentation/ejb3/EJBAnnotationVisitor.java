@@ -10,6 +10,7 @@ package com.newrelic.agent.instrumentation.ejb3;
 import com.google.common.collect.ImmutableSet;
 import com.newrelic.agent.Agent;
 import com.newrelic.agent.instrumentation.InstrumentationType;
+import com.newrelic.agent.instrumentation.context.ClassMatchPrefilter;
 import com.newrelic.agent.instrumentation.context.ClassMatchVisitorFactory;
 import com.newrelic.agent.instrumentation.context.InstrumentationContext;
 import com.newrelic.agent.instrumentation.tracing.TraceDetailsBuilder;
@@ -26,6 +27,8 @@ import org.objectweb.asm.commons.Method;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -34,7 +37,7 @@ import java.util.Set;
  * Detect @Stateless and @Stateful EJBs. Also detect those that implement javax.ejb.SessionBean. Find all methods
  * declared by their corresponding @Remote or @Local interface and trace those methods.
  */
-public class EJBAnnotationVisitor implements ClassMatchVisitorFactory {
+public class EJBAnnotationVisitor implements ClassMatchVisitorFactory, ClassMatchPrefilter {
     private static final Set<String> EJB_DESCRIPTORS = ImmutableSet.of(
             Type.getObjectType("javax/ejb/Stateless").getDescriptor(),
             Type.getObjectType("javax/ejb/Stateful").getDescriptor());
@@ -42,6 +45,10 @@ public class EJBAnnotationVisitor implements ClassMatchVisitorFactory {
     private static final String EJB_LOCAL_INTERFCE_DESCRIPTOR = Type.getObjectType("javax/ejb/Local").getDescriptor();
 
     private static final Object EJB_INTERFACE = Type.getObjectType("javax/ejb/SessionBean");
+    private static final Set<String> REQUIRED_CONSTANTS = ImmutableSet.<String>builder()
+            .addAll(EJB_DESCRIPTORS)
+            .add("javax/ejb/SessionBean")
+            .build();
 
     @Override
     public ClassVisitor newClassMatchVisitor(final ClassLoader loader, Class<?> classBeingRedefined,
@@ -124,4 +131,14 @@ public class EJBAnnotationVisitor implements ClassMatchVisitorFactory {
 
     }
 
+    @Override
+    public Collection<String> getRequiredConstants() {
+        return REQUIRED_CONSTANTS;
+    }
+
+    @Override
+    public Collection<String> getRequiredConstantSuffixes() {
+        return Collections.emptySet();
+    }
+
 }
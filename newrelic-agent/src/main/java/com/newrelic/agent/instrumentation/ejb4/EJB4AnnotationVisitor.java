@@ -10,6 +10,7 @@ package com.newrelic.agent.instrumentation.ejb4;
 import com.google.common.collect.ImmutableSet;
 import com.newrelic.agent.Agent;
 import com.newrelic.agent.instrumentation.InstrumentationType;
+import com.newrelic.agent.instrumentation.context.ClassMatchPrefilter;
 import com.newrelic.agent.instrumentation.context.ClassMatchVisitorFactory;
 import com.newrelic.agent.instrumentation.context.InstrumentationContext;
 import com.newrelic.agent.instrumentation.tracing.TraceDetailsBuilder;
@@ -22,6 +23,8 @@ import org.objectweb.asm.commons.Method;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -30,7 +33,7 @@ import java.util.Set;
  * Detect @Stateless and @Stateful EJBs. Also detect those that implement jakarta.ejb.SessionBean. Find all methods
  * declared by their corresponding @Remote or @Local interface and trace those methods.
  */
-public class EJB4AnnotationVisitor implements ClassMatchVisitorFactory {
+public class EJB4AnnotationVisitor implements ClassMatchVisitorFactory, ClassMatchPrefilter {
     private static final Set<String> EJB_DESCRIPTORS = ImmutableSet.of(
             Type.getObjectType("jakarta/ejb/Stateless").getDescriptor(),
             Type.getObjectType("jakarta/ejb/Stateful").getDescriptor());
@@ -38,6 +41,10 @@ public class EJB4AnnotationVisitor implements ClassMatchVisitorFactory {
     private static final String EJB_LOCAL_INTERFCE_DESCRIPTOR = Type.getObjectType("jakarta/ejb/Local").getDescriptor();
 
     private static final Object EJB_INTERFACE = Type.getObjectType("jakarta/ejb/SessionBean");
+    private static final Set<String> REQUIRED_CONSTANTS = ImmutableSet.<String>builder()
+            .addAll(EJB_DESCRIPTORS)
+            .add("jakarta/ejb/SessionBean")
+            .build();
 
     @Override
     public ClassVisitor newClassMatchVisitor(final ClassLoader loader, Class<?> classBeingRedefined,
@@ -120,4 +127,14 @@ public class EJB4AnnotationVisitor implements ClassMatchVisitorFactory {
 
     }
 
+    @Override
+    public Collection<String> getRequiredConstants() {
+        return REQUIRED_CONSTANTS;
+    }
+
+    @Override
+    public Collection<String> getRequiredConstantSuffixes() {
+        return Collections.emptySet();
+    }
+
 }
@@ -19,11 +19,11 @@ import org.objectweb.asm.ClassWriter;
 
 import com.newrelic.agent.instrumentation.PointCutClassTransformer;
 import com.newrelic.agent.instrumentation.classmatchers.OptimizedClassMatcher.Match;
-import com.newrelic.agent.instrumentation.context.ContextClassTransformer;
 import com.newrelic.agent.instrumentation.context.InstrumentationContext;
+import com.newrelic.agent.instrumentation.context.PipelinedClassTransformer;
 import com.newrelic.weave.utils.WeaveUtils;
 
-public class TraceClassTransformer implements ContextClassTransformer {
+public class TraceClassTransformer implements PipelinedClassTransformer {
 
     public TraceClassTransformer() {
     }
@@ -54,17 +54,30 @@ public class TraceClassTransformer implements ContextClassTransformer {
         LOG.debug("Instrumenting class " + className);
         ClassReader reader = new ClassReader(classfileBuffer);
         ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
-        ClassVisitor cv = writer;
-
-        // Find and store all methods in the class that have the noticeSql() call
-        NoticeSqlVisitor noticeSqlVisitor = new NoticeSqlVisitor(WeaveUtils.ASM_API_LEVEL);
-        reader.accept(noticeSqlVisitor, ClassReader.SKIP_FRAMES);
-
-        cv = new TraceClassVisitor(cv, className, context, noticeSqlVisitor.getNoticeSqlMethods());
+        ClassVisitor cv = newTraceClassVisitor(className, reader, writer, context);
         reader.accept(cv, ClassReader.EXPAND_FRAMES);
 
         //Utils.print(writer.toByteArray());
 
         return writer.toByteArray();
     }
+
+    @Override
+    public ClassVisitor newClassVisitor(ClassLoader loader, String className, ClassReader reader, ClassVisitor cv,
+            InstrumentationContext context) {
+        if (!context.isTracerMatch() || !PointCutClassTransformer.isValidClassName(className)) {
+            return cv;
+        }
+        LOG.debug("Instrumenting class " + className);
+        return newTraceClassVisitor(className, reader, cv, context);
+    }
+
+    private ClassVisitor newTraceClassVisitor(String className, ClassReader reader, ClassVisitor cv,
+            InstrumentationContext context) {
+        // Find and store all methods in the class that have the noticeSql() call
+        NoticeSqlVisitor noticeSqlVisitor = new NoticeSqlVisitor(WeaveUtils.ASM_API_LEVEL);
+        reader.accept(noticeSqlVisitor, ClassReader.SKIP_FRAMES);
+
+        return new TraceClassVisitor(cv, className, context, noticeSqlVisitor.getNoticeSqlMethods());
+    }
 }
@@ -65,8 +65,23 @@ public class TraceClassVisitor extends ClassVisitor {
         }
     }
 
+    /**
+     * @return true if {@link #visitMethod} adds a tracer to the method
+     */
+    private boolean isTimed(int access, Method method) {
+        return (access & Opcodes.ACC_BRIDGE) == 0 && !traceInfo.getIgnoreTransactionMethods().contains(method)
+                && traceInfo.getTraceAnnotations().containsKey(method)
+                && instrumentationContext.getOldStylePointCut(method) == null;
+    }
+
     @Override
     public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+        Method method = new Method(name, desc);
+        if (isTimed(access, method)) {
+            // recorded before the method is passed on so that visitors later in the chain see it as modified
+            instrumentationContext.addTimedMethods(method);
+        }
+
         MethodVisitor mv = super.visitMethod(access, name, desc, signature, exceptions);
 
         // skip bridge methods. Tracing will occur on impl method.
@@ -79,8 +94,6 @@ public class TraceClassVisitor extends ClassVisitor {
             return mv;
         }
 
-        Method method = new Method(name, desc);
-
         if (traceInfo.getIgnoreTransactionMethods().contains(method)) {
             instrumentationContext.markAsModified();
             return new AdviceAdapter(WeaveUtils.ASM_API_LEVEL, mv, access, name, desc) {
@@ -257,8 +270,6 @@ public class TraceClassVisitor extends ClassVisitor {
                             };
                         }
                     }
-
-                    instrumentationContext.addTimedMethods(method);
                 } else {
                     Agent.LOG.warning(className + '.' + method
                             + " is matched to trace, but it was already instrumented by " + pointCut.toString());
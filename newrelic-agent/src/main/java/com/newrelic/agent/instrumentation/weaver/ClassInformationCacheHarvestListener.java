@@ -0,0 +1,47 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.instrumentation.weaver;
+
+import com.newrelic.agent.HarvestListener;
+import com.newrelic.agent.MetricNames;
+import com.newrelic.agent.stats.StatsEngine;
+import com.newrelic.weave.utils.SharedClassInformationCache;
+
+/**
+ * Reports how many class resource reads the {@link SharedClassInformationCache} saved. The cache is shared by the whole
+ * JVM so its counts are only reported for the default application.
+ */
+public class ClassInformationCacheHarvestListener implements HarvestListener {
+    private final String defaultAppName;
+
+    public ClassInformationCacheHarvestListener(String defaultAppName) {
+        this.defaultAppName = defaultAppName;
+    }
+
+    @Override
+    public void beforeHarvest(String appName, StatsEngine statsEngine) {
+        SharedClassInformationCache cache = SharedClassInformationCache.get();
+        if (!appName.equals(defaultAppName) || !cache.isEnabled()) {
+            return;
+        }
+        long hits = cache.getAndResetHits();
+        long misses = cache.getAndResetMisses();
+        if (hits > 0) {
+            statsEngine.getStats(MetricNames.SUPPORTABILITY_WEAVE_CLASS_INFORMATION_CACHE_HITS)
+                    .incrementCallCount((int) Math.min(hits, Integer.MAX_VALUE));
+        }
+        if (misses > 0) {
+            statsEngine.getStats(MetricNames.SUPPORTABILITY_WEAVE_CLASS_INFORMATION_CACHE_MISSES)
+                    .incrementCallCount((int) Math.min(misses, Integer.MAX_VALUE));
+        }
+    }
+
+    @Override
+    public void afterHarvest(String appName) {
+    }
+}
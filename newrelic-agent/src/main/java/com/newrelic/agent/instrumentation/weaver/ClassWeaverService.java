@@ -8,6 +8,7 @@
 package com.newrelic.agent.instrumentation.weaver;
 
 import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
 import com.newrelic.agent.Agent;
 import com.newrelic.agent.MetricNames;
 import com.newrelic.agent.bridge.AgentBridge;
@@ -42,9 +43,12 @@ import com.newrelic.weave.weavepackage.CachedWeavePackage;
 import com.newrelic.weave.weavepackage.ClassWeavedListener;
 import com.newrelic.weave.weavepackage.ExtensionClassTemplate;
 import com.newrelic.weave.weavepackage.NewClassAppender;
+import com.newrelic.weave.weavepackage.PackageValidationResult;
 import com.newrelic.weave.weavepackage.PackageWeaveResult;
+import com.newrelic.weave.weavepackage.ValidationResultCache;
 import com.newrelic.weave.weavepackage.WeavePackage;
 import com.newrelic.weave.weavepackage.WeavePackageConfig;
+import com.newrelic.weave.weavepackage.WeavePackageIndex;
 import com.newrelic.weave.weavepackage.WeavePackageManager;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
@@ -70,10 +74,13 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.jar.Attributes;
 import java.util.jar.JarInputStream;
 import java.util.logging.Level;
 import java.util.regex.Pattern;
@@ -116,7 +123,13 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
      * Weave Packages loaded dynamically from the extensions folder.
      */
     private final Map<String, String> externalWeavePackages = new ConcurrentHashMap<>();
+    /**
+     * Internal Weave Packages that are registered once the agent has started. See
+     * {@link ClassTransformerConfig#isWeavePackageDeferred(WeavePackageConfig)}.
+     */
+    private final Queue<WeavePackage> deferredWeavePackages = new ConcurrentLinkedQueue<>();
     private final Instrumentation instrumentation;
+    private volatile ValidationResultCache validationResultCache;
 
     public ClassWeaverService(Instrumentation instrumentation) {
         this.instrumentation = instrumentation;
@@ -134,10 +147,55 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
      * present in the extension directory.
      */
     public void registerInstrumentation() {
+        openValidationResultCache();
         loadInternalWeavePackages();
         loadExternalWeavePackages(ServiceFactory.getExtensionService().getWeaveExtensions());
     }
 
+    /**
+     * Persist failed weave package validations if enabled, so that later JVMs with the same agent version and
+     * configuration don't validate them again against the same classes.
+     */
+    private void openValidationResultCache() {
+        ClassTransformerConfig config = ServiceFactory.getConfigService().getDefaultAgentConfig().getClassTransformerConfig();
+        if (!config.isValidationCacheEnabled()) {
+            return;
+        }
+        String directoryName = config.getTransformCacheDirectory();
+        File directory = new File(directoryName == null ? System.getProperty("java.io.tmpdir") : directoryName);
+        try {
+            long fingerprint = Hashing.murmur3_128().newHasher()
+                    .putUnencodedChars(Agent.getVersion())
+                    .putUnencodedChars(String.valueOf(ServiceFactory.getConfigService().getSanitizedLocalSettings()))
+                    .hash().asLong();
+            ValidationResultCache validationResultCache = ValidationResultCache.open(directory, fingerprint,
+                    ValidationResultCache.DEFAULT_MAX_ENTRIES);
+            weavePackageManager.setValidationResultCache(validationResultCache);
+            this.validationResultCache = validationResultCache;
+            LOG.log(Level.FINE, "Using weave package validation cache {0} with {1} entries",
+                    validationResultCache.getFile(), validationResultCache.size());
+        } catch (IOException | RuntimeException e) {
+            LOG.log(Level.WARNING, "Unable to open the weave package validation cache in {0}: {1}", directory, e.toString());
+        }
+    }
+
+    /**
+     * Stop persisting weave package validations and close the cache file.
+     */
+    public void closeValidationResultCache() {
+        ValidationResultCache cache = validationResultCache;
+        if (cache == null) {
+            return;
+        }
+        validationResultCache = null;
+        weavePackageManager.setValidationResultCache(null);
+        try {
+            cache.close();
+        } catch (IOException e) {
+            LOG.log(Level.FINEST, "Unable to close the weave package validation cache: {0}", e.toString());
+        }
+    }
+
     /**
      * Registers the security weave instrumentation jars that are packaged into the Security agent jar's instrumentation directory.
      */
@@ -148,7 +206,36 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
     }
 
     public Runnable createRetransformRunnable(Class<?>[] loadedClasses) {
-        return new RetransformRunnable(loadedClasses);
+        return new RetransformRunnable(loadedClasses, ClassWeaverService.this);
+    }
+
+    /**
+     * @return true if there are weave packages whose registration was deferred until after startup
+     */
+    public boolean hasDeferredInstrumentation() {
+        return !deferredWeavePackages.isEmpty();
+    }
+
+    /**
+     * Registers the weave packages whose registration was deferred until after startup.
+     *
+     * @return A runnable to retransform the classes loaded once they're registered that they match, or null if no
+     * weave package was deferred
+     */
+    public Runnable registerDeferredInstrumentation() {
+        Set<WeavePackage> registered = new HashSet<>();
+        WeavePackage deferredWeavePackage;
+        while ((deferredWeavePackage = deferredWeavePackages.poll()) != null) {
+            LOG.log(Level.FINER, "adding deferred weave package: {0}", deferredWeavePackage.getName());
+            weavePackageManager.register(deferredWeavePackage);
+            registered.add(deferredWeavePackage);
+        }
+        if (registered.isEmpty()) {
+            return null;
+        }
+        LOG.log(Level.FINE, "Registered {0} deferred instrumentation packages", registered.size());
+        // classes loaded before this were transformed without the deferred packages
+        return new RetransformRunnable(instrumentation.getAllLoadedClasses(), new WeavePackageMatcher(registered));
     }
 
     /**
@@ -162,6 +249,33 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
         AgentConfig agentConfig = ServiceFactory.getConfigService().getDefaultAgentConfig();
         WeavePackageConfig weavePackageConfig = createWeavePackageConfig(jarStream, source,
                 instrumentation, WeavePackageType.INTERNAL, agentConfig);
+        if (!isInternalWeavePackageEnabled(weavePackageConfig, agentConfig)) {
+            return null;
+        }
+
+        WeavePackage weavePackage = CachedWeavePackage.createWeavePackage(new URL(source), jarStream, weavePackageConfig);
+        return weavePackage;
+    }
+
+    /**
+     * Create a weave package from the attributes of a jar in the {@link WeavePackageIndex}, without reading the jar.
+     *
+     * @param indexedAttributes The manifest attributes of the jar.
+     * @param source            URL of the jar.
+     */
+    private WeavePackage createWeavePackage(Attributes indexedAttributes, URL source) throws Exception {
+        AgentConfig agentConfig = ServiceFactory.getConfigService().getDefaultAgentConfig();
+        WeavePackageConfig weavePackageConfig = createWeavePackageConfig(
+                WeavePackageConfig.builder().manifestAttributes(indexedAttributes), source.toExternalForm(),
+                instrumentation, WeavePackageType.INTERNAL, agentConfig);
+        if (!isInternalWeavePackageEnabled(weavePackageConfig, agentConfig)) {
+            return null;
+        }
+
+        return CachedWeavePackage.createWeavePackage(source, indexedAttributes, weavePackageConfig);
+    }
+
+    private boolean isInternalWeavePackageEnabled(WeavePackageConfig weavePackageConfig, AgentConfig agentConfig) {
         ClassTransformerConfig classTransformerConfig = agentConfig.getClassTransformerConfig();
 
         String weavePackageName = weavePackageConfig.getName();
@@ -170,7 +284,7 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
                 // Only log this if the module has been explicitly disabled (not if it is disabled by default)
                 LOG.log(Level.INFO, "Instrumentation {0} is disabled. Skipping.", weavePackageName);
             }
-            return null;
+            return false;
         }
 
         // JAVA-1499 Why o' why do we do this (see JAVA-1445)? The reasons have been lost to the sands of time,
@@ -183,22 +297,25 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
             if (jcacheDatastoreEnabled) {
                 LOG.log(Level.INFO, " Instrumentation {0} is disabled since {1} is enabled. Skipping.",
                         weavePackageName, "com.newrelic.instrumentation.jcache-datastore-1.0.0");
-                return null;
+                return false;
             }
         }
-
-        WeavePackage weavePackage = CachedWeavePackage.createWeavePackage(new URL(source), jarStream, weavePackageConfig);
-        return weavePackage;
+        return true;
     }
 
     private WeavePackageConfig createWeavePackageConfig(JarInputStream jarStream, String source,
             Instrumentation instrumentation, WeavePackageType type, AgentConfig agentConfig) throws Exception {
+        return createWeavePackageConfig(WeavePackageConfig.builder().jarInputStream(jarStream), source,
+                instrumentation, type, agentConfig);
+    }
+
+    private WeavePackageConfig createWeavePackageConfig(WeavePackageConfig.Builder builder, String source,
+            Instrumentation instrumentation, WeavePackageType type, AgentConfig agentConfig) {
         AgentPreprocessors preprocessors = new AgentPreprocessors(agentConfig, tracedWeaveInstrumentationDetails);
         AgentPostprocessors postprocessors = new AgentPostprocessors();
 
-        WeavePackageConfig result = WeavePackageConfig.builder()
+        WeavePackageConfig result = builder
                 .source(source)
-                .jarInputStream(jarStream)
                 .weavePreprocessor(preprocessors)
                 .weavePostprocessor(postprocessors)
                 .errorHandleClassNode(LogAndReturnOriginal.ERROR_HANDLER_NODE)
@@ -288,6 +405,7 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
             LOG.log(Level.FINE, "Loading {0} instrumentation packages", jarFileNames.size());
         }
 
+        final WeavePackageIndex weavePackageIndex = readWeavePackageIndex();
         int partitions = Math.min(jarFileNames.size(), PARTITIONS);
         // Note: An ExecutorService would be better suited for this work but we are
         // specifically not using it here to prevent the ConcurrentCallablePointCut
@@ -304,7 +422,9 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
                         if (instrumentationUrl == null) {
                             Agent.LOG.error("Unable to find instrumentation jar: " + name);
                         } else {
-                            registerInstrumentation(instrumentationUrl);
+                            Attributes indexedAttributes = weavePackageIndex == null ? null
+                                    : weavePackageIndex.getAttributes(name.substring(name.lastIndexOf('/') + 1));
+                            registerInstrumentation(instrumentationUrl, indexedAttributes);
                         }
                     }
                 } catch (Throwable t) {
@@ -325,9 +445,46 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
         }
     }
 
+    /**
+     * Read the index of the weave packages embedded in the agent jar.
+     *
+     * @return the index, or null if the agent jar doesn't have one and the instrumentation jars have to be read
+     */
+    private WeavePackageIndex readWeavePackageIndex() {
+        URL indexUrl = BootstrapAgent.class.getResource("/instrumentation/" + WeavePackageIndex.INDEX_FILE_NAME);
+        if (indexUrl == null) {
+            LOG.log(Level.FINE, "No weave package index was found in the agent.");
+            return null;
+        }
+        try (InputStream inputStream = indexUrl.openStream()) {
+            WeavePackageIndex index = WeavePackageIndex.read(inputStream);
+            LOG.log(Level.FINE, "Read the weave package index of {0} instrumentation packages",
+                    index.getJarFileNames().size());
+            return index;
+        } catch (Throwable t) {
+            LOG.log(Level.FINE, t, "Unable to read the weave package index {0}", indexUrl);
+            return null;
+        }
+    }
+
     private void registerInstrumentation(URL instrumentationUrl) {
-        try (InputStream inputStream = instrumentationUrl.openStream()) {
-            WeavePackage internalWeavePackage = createWeavePackage(inputStream, instrumentationUrl.toExternalForm());
+        registerInstrumentation(instrumentationUrl, null);
+    }
+
+    /**
+     * @param indexedAttributes the attributes of the jar in the {@link WeavePackageIndex}, or null to read them from
+     *                          the jar
+     */
+    private void registerInstrumentation(URL instrumentationUrl, Attributes indexedAttributes) {
+        try {
+            WeavePackage internalWeavePackage;
+            if (indexedAttributes == null) {
+                try (InputStream inputStream = instrumentationUrl.openStream()) {
+                    internalWeavePackage = createWeavePackage(inputStream, instrumentationUrl.toExternalForm());
+                }
+            } else {
+                internalWeavePackage = createWeavePackage(indexedAttributes, instrumentationUrl);
+            }
             if (null == internalWeavePackage) {
                 LOG.log(Level.FINEST, "internal weave package: {0} was null", instrumentationUrl.toExternalForm());
             } else if (internalWeavePackage.getPackageViolations().size() > 0) {
@@ -335,6 +492,11 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
                 for (WeaveViolation violation : internalWeavePackage.getPackageViolations()) {
                     LOG.log(Level.FINER, "\t violation: {0}", violation);
                 }
+            } else if (ServiceFactory.getConfigService().getDefaultAgentConfig().getClassTransformerConfig()
+                    .isWeavePackageDeferred(internalWeavePackage.getConfig())) {
+                LOG.log(Level.FINER, "deferring weave package: {0}", internalWeavePackage.getName());
+                internalWeavePackages.add(internalWeavePackage.getName());
+                deferredWeavePackages.add(internalWeavePackage);
             } else {
                 LOG.log(Level.FINER, "adding weave package: {0}", internalWeavePackage.getName());
                 internalWeavePackages.add(internalWeavePackage.getName());
@@ -461,9 +623,11 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
     private class RetransformRunnable implements Runnable {
 
         private final Class[] loadedClasses;
+        private final ClassMatchVisitorFactory matcher;
 
-        public RetransformRunnable(Class[] loadedClasses) {
+        public RetransformRunnable(Class[] loadedClasses, ClassMatchVisitorFactory matcher) {
             this.loadedClasses = loadedClasses;
+            this.matcher = matcher;
         }
 
         @Override
@@ -471,7 +635,7 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
             try {
                 isRetransforming = true;
                 ServiceFactory.getClassTransformerService().retransformMatchingClassesImmediately(loadedClasses,
-                        Sets.<ClassMatchVisitorFactory>newHashSet(ClassWeaverService.this));
+                        Sets.newHashSet(matcher));
             } finally {
                 isRetransforming = false;
                 retransformCaches.clear();
@@ -479,6 +643,35 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
         }
     }
 
+    /**
+     * Matches the classes that some of the registered weave packages weave. The classes are woven by this service when
+     * they're retransformed, along with any other packages that match them.
+     */
+    private class WeavePackageMatcher implements ClassMatchVisitorFactory {
+
+        private final Set<WeavePackage> weavePackages;
+
+        WeavePackageMatcher(Set<WeavePackage> weavePackages) {
+            this.weavePackages = weavePackages;
+        }
+
+        @Override
+        public ClassVisitor newClassMatchVisitor(ClassLoader loader, Class<?> classBeingRedefined, ClassReader reader,
+                ClassVisitor cv, InstrumentationContext context) {
+            try {
+                for (PackageValidationResult result : weavePackageManager.match(loader, reader.getClassName(),
+                        getClassCache(loader))) {
+                    if (weavePackages.contains(result.getWeavePackage())) {
+                        context.putMatch(this, null);
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+            }
+            return null;
+        }
+    }
+
     private ClassCache getClassCache(ClassLoader loader) {
         if (null == loader) {
             loader = BootstrapLoader.PLACEHOLDER;
@@ -487,20 +680,20 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
         if (isRetransforming) {
             if (!retransformCaches.containsKey(loader)) {
                 if (loader == BootstrapLoader.PLACEHOLDER) {
-                    retransformCaches.putIfAbsent(loader, new ClassCache(BootstrapLoader.get()));
+                    retransformCaches.putIfAbsent(loader, new ClassCache(BootstrapLoader.get(), true));
                 } else {
-                    retransformCaches.putIfAbsent(loader, new ClassCache(new ClassLoaderFinder(loader)));
+                    retransformCaches.putIfAbsent(loader, new ClassCache(new ClassLoaderFinder(loader), true));
                 }
             }
             cache = retransformCaches.get(loader);
             if (null == cache) {
-                cache = new ClassCache(new ClassLoaderFinder(loader));
+                cache = new ClassCache(new ClassLoaderFinder(loader), true);
             }
         } else {
             if (loader == BootstrapLoader.PLACEHOLDER) {
-                cache = new ClassCache(BootstrapLoader.get());
+                cache = new ClassCache(BootstrapLoader.get(), true);
             } else {
-                cache = new ClassCache(new ClassLoaderFinder(loader));
+                cache = new ClassCache(new ClassLoaderFinder(loader), true);
             }
         }
         return cache;
@@ -598,6 +791,11 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
                             weaveResult.getClassName());
                 }
             }
+
+            @Override
+            public void classMatched(String className, ClassLoader classloader) {
+                context.markAsWeaveMatched();
+            }
         };
         try {
             return weavePackageManager.weave(loader, getClassCache(loader), className, classfileBuffer,
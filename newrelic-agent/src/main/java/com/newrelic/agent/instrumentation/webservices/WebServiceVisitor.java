@@ -11,6 +11,7 @@ import com.newrelic.agent.Agent;
 import com.newrelic.agent.MetricNames;
 import com.newrelic.agent.bridge.TransactionNamePriority;
 import com.newrelic.agent.instrumentation.InstrumentationType;
+import com.newrelic.agent.instrumentation.context.ClassMatchPrefilter;
 import com.newrelic.agent.instrumentation.context.ClassMatchVisitorFactory;
 import com.newrelic.agent.instrumentation.context.InstrumentationContext;
 import com.newrelic.agent.instrumentation.tracing.TraceDetailsBuilder;
@@ -26,6 +27,8 @@ import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.Method;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Level;
@@ -34,7 +37,7 @@ import java.util.logging.Level;
  * Instrument implementations of {@literal WebService} so that we time the web methods and name the transaction using the
  * method name.
  */
-public class WebServiceVisitor implements ClassMatchVisitorFactory {
+public class WebServiceVisitor implements ClassMatchVisitorFactory, ClassMatchPrefilter {
     private static final String WEB_SERVICE_ANNOTATION_DESCRIPTOR = getDescriptor("javax.jws.WebService");
 
     private static String getDescriptor(String className) {
@@ -150,4 +153,14 @@ public class WebServiceVisitor implements ClassMatchVisitorFactory {
 
         };
     }
+
+    @Override
+    public Collection<String> getRequiredConstants() {
+        return Collections.singleton(WEB_SERVICE_ANNOTATION_DESCRIPTOR);
+    }
+
+    @Override
+    public Collection<String> getRequiredConstantSuffixes() {
+        return Collections.emptySet();
+    }
 }
@@ -14,6 +14,7 @@ import com.newrelic.agent.extension.beans.MethodParameters;
 import com.newrelic.agent.extension.util.ExtensionConversionUtility;
 import com.newrelic.agent.extension.util.MethodMapper;
 import com.newrelic.agent.extension.util.MethodMatcherUtility;
+import com.newrelic.agent.instrumentation.context.ChunkedRetransformer;
 import com.newrelic.agent.instrumentation.custom.ExtensionClassAndMethodMatcher;
 import com.newrelic.agent.instrumentation.methodmatchers.MethodMatcher;
 import com.newrelic.agent.service.ServiceFactory;
@@ -69,7 +70,8 @@ public class ReinstrumentUtils {
     public static void retransform(ReinstrumentResult result, Set<Class<?>> classesToRetransform) {
         try {
             if (!classesToRetransform.isEmpty()) {
-                ServiceFactory.getCoreService().getInstrumentation().retransformClasses(classesToRetransform.toArray(new Class[classesToRetransform.size()]));
+                ChunkedRetransformer.retransformClasses(ServiceFactory.getCoreService().getInstrumentation(), classesToRetransform,
+                        ServiceFactory.getConfigService().getDefaultAgentConfig().getClassTransformerConfig().getRetransformChunkSize());
                 result.setRetranformedInitializedClasses(getClassNames(classesToRetransform));
             }
         } catch (Exception e) {
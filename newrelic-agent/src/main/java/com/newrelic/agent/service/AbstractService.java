@@ -60,7 +60,9 @@ public abstract class AbstractService implements Service {
         if (state.beginStart()) {
             getLogger().fine(MessageFormat.format("Starting service {0}", name));
             ServiceTiming.addServiceStart(name);
+            long startTime = System.nanoTime();
             doStart();
+            ServiceTiming.addServiceStartDuration(name, System.nanoTime() - startTime);
             state.endStart();
         }
     }
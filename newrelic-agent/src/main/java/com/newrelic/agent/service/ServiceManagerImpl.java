@@ -38,6 +38,7 @@ import com.newrelic.agent.environment.EnvironmentServiceImpl;
 import com.newrelic.agent.extension.ExtensionService;
 import com.newrelic.agent.instrumentation.ClassTransformerService;
 import com.newrelic.agent.instrumentation.ClassTransformerServiceImpl;
+import com.newrelic.agent.instrumentation.weaver.ClassInformationCacheHarvestListener;
 import com.newrelic.agent.jfr.JfrService;
 import com.newrelic.agent.jmx.JmxService;
 import com.newrelic.agent.language.SourceLanguageService;
@@ -95,6 +96,7 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import java.util.logging.Level;
@@ -276,6 +278,7 @@ public class ServiceManagerImpl extends AbstractService implements ServiceManage
         // Register harvest listeners that started before harvest service was created.
         harvestService.addHarvestListener(extensionService);
         harvestService.addHarvestListener(jarCollectorHarvestListener);
+        harvestService.addHarvestListener(new ClassInformationCacheHarvestListener(defaultAppName));
 
         asyncTxService.start();
         threadService.start();
@@ -334,6 +337,13 @@ public class ServiceManagerImpl extends AbstractService implements ServiceManage
                 .usePlaintext(config.getUsePlaintext())
                 .useCompression(config.getUseCompression())
                 .useBatching(config.getUseBatching())
+                .batchSize(config.getBatchSize())
+                .maxBatchBytes(config.getBatchMaxBytes())
+                .lingerMs(config.getBatchLingerMs())
+                .streams(config.getStreams())
+                .spoolDirectory(config.getSpoolDirectory())
+                .spoolMaxBytes(config.getSpoolEnabled() ? config.getSpoolMaxBytes() : 0)
+                .spoolMaxAgeMs(TimeUnit.SECONDS.toMillis(config.getSpoolMaxAgeSeconds()))
                 .build();
 
         return InfiniteTracing.initialize(infiniteTracingConfig, NewRelic.getAgent().getMetricAggregator());
@@ -7,27 +7,45 @@
 
 package com.newrelic.agent.service;
 
+import com.newrelic.agent.MetricNames;
 import com.newrelic.agent.logging.IAgentLogger;
+import com.newrelic.agent.stats.StatsService;
+import com.newrelic.agent.stats.StatsWorks;
+import org.json.simple.JSONValue;
 
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 /**
  * A utility class for keeping track of Service initialization and
  * start times for debugging & performance optimization usage.
+ *
+ * It also keeps the duration of the startup phases outside of the services and of each service's doStart, which are
+ * reported once as supportability metrics and as a JSON line in the agent log when premain completes.
  */
 public class ServiceTiming {
 
+    public static final String PHASE_BOOTSTRAP_CLASSPATH = "BootstrapClasspath";
+    public static final String PHASE_CONFIG = "Config";
+    public static final String PHASE_WEAVE_PACKAGE_LOAD = "WeavePackageLoad";
+    public static final String PHASE_INITIAL_RETRANSFORM = "InitialRetransform";
+    // includes the weave package load and the initial retransform
+    public static final String PHASE_INSTRUMENTATION_CONTEXT = "InstrumentationContext";
+
     private static final Comparator<ServiceNameAndTime> serviceNameComparator = Comparator.comparing(ServiceNameAndTime::getServiceName);
 
     private static final Map<ServiceNameAndType, Long> serviceTimings = new LinkedHashMap<>();
     private static final Set<ServiceNameAndTime> serviceInitializationTimings = new TreeSet<>(serviceNameComparator);
     private static final Set<ServiceNameAndTime> serviceStartTimings = new TreeSet<>(serviceNameComparator);
     private static volatile long endTimeInNanos = 0;
+    private static final Map<String, Long> startupPhaseTimings = Collections.synchronizedMap(new LinkedHashMap<String, Long>());
+    private static final Map<String, Long> serviceStartDurations = Collections.synchronizedMap(new LinkedHashMap<String, Long>());
 
     public static void addServiceInitialization(String serviceName) {
         if (serviceName == null) {
@@ -43,6 +61,29 @@ public class ServiceTiming {
         serviceTimings.put(new ServiceNameAndType(serviceName, Type.start), System.nanoTime());
     }
 
+    /**
+     * Record how long a startup phase outside of the services took. A phase recorded more than once is summed.
+     */
+    public static void addStartupPhase(String phase, long durationInNanos) {
+        if (phase == null || durationInNanos <= 0) {
+            return;
+        }
+        synchronized (startupPhaseTimings) {
+            Long previous = startupPhaseTimings.get(phase);
+            startupPhaseTimings.put(phase, previous == null ? durationInNanos : previous + durationInNanos);
+        }
+    }
+
+    /**
+     * Record how long a service's doStart took.
+     */
+    public static void addServiceStartDuration(String serviceName, long durationInNanos) {
+        if (serviceName == null) {
+            return;
+        }
+        serviceStartDurations.put(serviceName, durationInNanos);
+    }
+
     public static void setEndTime() {
         endTimeInNanos = System.nanoTime();
     }
@@ -51,6 +92,10 @@ public class ServiceTiming {
         boolean startupTimingEnabled = ServiceFactory.getConfigService().getDefaultAgentConfig().isStartupTimingEnabled();
         if (!startupTimingEnabled || logger == null || endTimeInNanos == 0) {
             serviceTimings.clear();
+            if (!startupTimingEnabled) {
+                // the startup report won't be written either
+                clearStartupTimings();
+            }
             return;
         }
 
@@ -97,6 +142,60 @@ public class ServiceTiming {
         serviceTimings.clear();
     }
 
+    /**
+     * Record the startup phases and service starts as supportability metrics and log them as a single JSON object.
+     * This is done once, when premain completes.
+     */
+    public static void reportStartupTimings(IAgentLogger logger, StatsService statsService, long premainTimeInMillis) {
+        Map<String, Object> report = getStartupReport(premainTimeInMillis);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Long> phases = (Map<String, Long>) report.get("phases");
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            String metricName = MetricNames.SUPPORTABILITY_TIMING_STARTUP_PHASE + phase.getKey();
+            statsService.doStatsWork(StatsWorks.getRecordResponseTimeWork(metricName, phase.getValue()), metricName);
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Long> services = (Map<String, Long>) report.get("services");
+        for (Map.Entry<String, Long> service : services.entrySet()) {
+            String metricName = MetricNames.SUPPORTABILITY_TIMING_SERVICE_START + service.getKey();
+            statsService.doStatsWork(StatsWorks.getRecordResponseTimeWork(metricName, service.getValue()), metricName);
+        }
+        logger.log(Level.INFO, "Startup timing report: {0}", JSONValue.toJSONString(report));
+
+        // No need to hold on to these values anymore
+        clearStartupTimings();
+    }
+
+    /**
+     * Drop the startup phases and service starts without reporting them, for when startup timing is disabled.
+     */
+    public static void clearStartupTimings() {
+        startupPhaseTimings.clear();
+        serviceStartDurations.clear();
+    }
+
+    /**
+     * @return the premain time, the startup phases and the service starts in milliseconds, in the order they completed
+     */
+    static Map<String, Object> getStartupReport(long premainTimeInMillis) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("premainMillis", premainTimeInMillis);
+        report.put("phases", toMillis(startupPhaseTimings));
+        report.put("services", toMillis(serviceStartDurations));
+        return report;
+    }
+
+    private static Map<String, Long> toMillis(Map<String, Long> timingsInNanos) {
+        Map<String, Long> timingsInMillis = new LinkedHashMap<>();
+        synchronized (timingsInNanos) {
+            for (Map.Entry<String, Long> entry : timingsInNanos.entrySet()) {
+                timingsInMillis.put(entry.getKey(), TimeUnit.NANOSECONDS.toMillis(entry.getValue()));
+            }
+        }
+        return timingsInMillis;
+    }
+
     // For testing
     public static Set<ServiceNameAndTime> getServiceInitializationTimings() {
         return serviceInitializationTimings;
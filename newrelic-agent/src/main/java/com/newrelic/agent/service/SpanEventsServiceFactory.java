@@ -78,6 +78,7 @@ public class SpanEventsServiceFactory {
                 .reservoirManager(reservoirManager)
                 .collectorSender(collectorSpanEventSender)
                 .eventBackendStorage(eventStorageBackend)
+                .infiniteTracingEnabled(infiniteTracingEnabledCheck.isEnabled())
                 .spanEventCreationDecider(spanEventCreationDecider)
                 .tracerToSpanEvent(tracerToSpanEvent)
                 .build();
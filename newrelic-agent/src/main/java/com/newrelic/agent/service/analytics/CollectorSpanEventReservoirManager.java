@@ -47,6 +47,9 @@ public class CollectorSpanEventReservoirManager implements ReservoirManager<Span
     private SamplingPriorityQueue<SpanEvent> createDistributedSamplingReservoir(String appName, int decidedLast) {
         SpanEventsConfig spanEventsConfig = configService.getDefaultAgentConfig().getSpanEventsConfig();
         int target = spanEventsConfig.getTargetSamplesStored();
+        if (spanEventsConfig.isKeepWholeTransactions()) {
+            return new TransactionSpanEventReservoir(appName, "Span Event Service", maxSamplesStored, decidedLast, target);
+        }
         return new DistributedSamplingPriorityQueue<>(appName, "Span Event Service", maxSamplesStored, decidedLast, target, SPAN_EVENT_COMPARATOR);
     }
 
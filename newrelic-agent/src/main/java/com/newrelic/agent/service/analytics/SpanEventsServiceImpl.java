@@ -15,6 +15,7 @@ import com.newrelic.agent.TransactionListener;
 import com.newrelic.agent.config.AgentConfig;
 import com.newrelic.agent.config.AgentConfigListener;
 import com.newrelic.agent.config.SpanEventsConfig;
+import com.newrelic.agent.config.SpanEventsTailSamplingConfig;
 import com.newrelic.agent.interfaces.ReservoirManager;
 import com.newrelic.agent.interfaces.SamplingPriorityQueue;
 import com.newrelic.agent.model.SpanEvent;
@@ -31,6 +32,8 @@ import com.newrelic.api.agent.HttpParameters;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.logging.Level;
@@ -42,15 +45,23 @@ import java.util.logging.Level;
  * configurable limit, events are replaced using a "reservoir" priority sampling algorithm.
  * <p>
  * This service can be configured using {@code span_events} with {@code enabled} or {@code max_samples_stored}.
+ * <p>
+ * With {@code span_events.tail_sampling.enabled} the span events of each finished transaction are scored and held in a
+ * {@link TailSamplingBuffer} until harvest, then stored whole, so the span budget goes to complete traces of the
+ * transactions with errors, long durations or many external and datastore calls. Tail sampling is not applied when the
+ * span events are sent to infinite tracing, which streams them to the trace observer as each transaction finishes.
  */
 public class SpanEventsServiceImpl extends AbstractService implements AgentConfigListener, SpanEventsService, TransactionListener {
 
     private final ReservoirManager<SpanEvent> reservoirManager;
     private final ReservoirManager.EventSender<SpanEvent> collectorSender;
     private final Consumer<SpanEvent> eventBackendStorage;
+    private final boolean infiniteTracingEnabled;
     private final SpanEventCreationDecider spanEventCreationDecider;
     private final List<Harvestable> harvestables = new ArrayList<>();
     private final TracerToSpanEvent tracerToSpanEvent;
+    private final TailSamplingScorer tailSamplingScorer = new TailSamplingScorer();
+    private final ConcurrentMap<String, TailSamplingBuffer> tailSamplingBuffers = new ConcurrentHashMap<>();
 
     private volatile SpanEventsConfig spanEventsConfig;
 
@@ -59,6 +70,7 @@ public class SpanEventsServiceImpl extends AbstractService implements AgentConfi
         this.reservoirManager = builder.reservoirManager;
         this.collectorSender = builder.collectorSender;
         this.eventBackendStorage = builder.eventBackendStorage;
+        this.infiniteTracingEnabled = builder.infiniteTracingEnabled;
         this.spanEventCreationDecider = builder.spanEventCreationDecider;
         this.tracerToSpanEvent = builder.tracerToSpanEvent;
         this.spanEventsConfig = builder.spanEventsConfig;
@@ -68,38 +80,46 @@ public class SpanEventsServiceImpl extends AbstractService implements AgentConfi
     public void dispatcherTransactionFinished(TransactionData transactionData, TransactionStats transactionStats) {
         // If this transaction is sampled and span events are enabled we should generate all of the transaction segment events
         if (isSpanEventsEnabled() && spanEventCreationDecider.shouldCreateSpans(transactionData)) {
+            if (isTailSamplingEnabled()) {
+                bufferTransaction(transactionData, transactionStats);
+                return;
+            }
+
+            // Checked once for the transaction so that it is offered to the reservoir either whole or not at all
+            SamplingPriorityQueue<SpanEvent> reservoir = getOrCreateDistributedSamplingReservoir(transactionData.getApplicationName());
+            boolean wouldBeRejected = reservoir.isFull() && reservoir.getMinPriority() >= transactionData.getPriority();
+
             // This is where all Transaction Segment Spans gets created. To only send specific types of Span Events, handle that here.
             Tracer rootTracer = transactionData.getRootTracer();
-            storeSafely(transactionData, rootTracer, true, transactionStats);
+            storeSafely(transactionData, rootTracer, true, transactionStats, reservoir, wouldBeRejected);
 
             Collection<Tracer> tracers = transactionData.getTracers();
             for (Tracer tracer : tracers) {
                 if (tracer.isTransactionSegment()) {
-                    storeSafely(transactionData, tracer, false, transactionStats);
+                    storeSafely(transactionData, tracer, false, transactionStats, reservoir, wouldBeRejected);
                 }
             }
         }
     }
 
-    private void storeSafely(TransactionData transactionData, Tracer rootTracer, boolean isRoot, TransactionStats transactionStats) {
+    private void storeSafely(TransactionData transactionData, Tracer rootTracer, boolean isRoot, TransactionStats transactionStats,
+            SamplingPriorityQueue<SpanEvent> reservoir, boolean wouldBeRejected) {
         try {
-            createAndStoreSpanEvent(rootTracer, transactionData, isRoot, transactionStats);
+            createAndStoreSpanEvent(rootTracer, transactionData, isRoot, transactionStats, reservoir, wouldBeRejected);
         } catch (Throwable t) {
             Agent.LOG.log(Level.FINER, t, "An error occurred creating span event for tracer: {0} in tx: {1}", rootTracer, transactionData);
         }
     }
 
     private void createAndStoreSpanEvent(Tracer tracer, TransactionData transactionData, boolean isRoot,
-            TransactionStats transactionStats) {
+            TransactionStats transactionStats, SamplingPriorityQueue<SpanEvent> reservoir, boolean wouldBeRejected) {
         boolean crossProcessOnly = spanEventsConfig.isCrossProcessOnly();
         if (crossProcessOnly && !isCrossProcessTracer(tracer)) {
             // We are in "cross_process_only" mode and we have a non datastore/external tracer. Return before we create anything.
             return;
         }
 
-        String appName = transactionData.getApplicationName();
-        SamplingPriorityQueue<SpanEvent> reservoir = getOrCreateDistributedSamplingReservoir(appName);
-        if (reservoir.isFull() && reservoir.getMinPriority() >= transactionData.getPriority()) {
+        if (wouldBeRejected) {
             // The reservoir is full and this event wouldn't make it in, so lets prevent some object allocations
             reservoir.incrementNumberOfTries();
             return;
@@ -109,6 +129,86 @@ public class SpanEventsServiceImpl extends AbstractService implements AgentConfi
         storeEvent(spanEvent);
     }
 
+    private void bufferTransaction(TransactionData transactionData, TransactionStats transactionStats) {
+        boolean crossProcessOnly = spanEventsConfig.isCrossProcessOnly();
+        Tracer rootTracer = transactionData.getRootTracer();
+        List<Tracer> spanTracers = new ArrayList<>();
+        if (!crossProcessOnly || isCrossProcessTracer(rootTracer)) {
+            spanTracers.add(rootTracer);
+        }
+        int crossProcessCalls = 0;
+        for (Tracer tracer : transactionData.getTracers()) {
+            if (tracer.isTransactionSegment()) {
+                boolean crossProcess = isCrossProcessTracer(tracer);
+                if (crossProcess) {
+                    crossProcessCalls++;
+                }
+                if (!crossProcessOnly || crossProcess) {
+                    spanTracers.add(tracer);
+                }
+            }
+        }
+
+        String appName = transactionData.getApplicationName();
+        SamplingPriorityQueue<SpanEvent> reservoir = getOrCreateDistributedSamplingReservoir(appName);
+        TailSamplingBuffer buffer = getOrCreateTailSamplingBuffer(appName);
+        float score = tailSamplingScorer.score(transactionData.getPriority(), transactionData.hasReportableErrorThatIsNotIgnored(),
+                transactionData.getLegacyDuration(), crossProcessCalls);
+        if (!buffer.wouldAccept(score, spanTracers.size())) {
+            // None of this transaction's spans would be kept, so don't create them
+            incrementNumberOfTries(reservoir, spanTracers.size());
+            return;
+        }
+
+        List<SpanEvent> spanEvents = new ArrayList<>(spanTracers.size());
+        for (Tracer tracer : spanTracers) {
+            try {
+                spanEvents.add(tracerToSpanEvent.createSpanEvent(tracer, transactionData, transactionStats, tracer == rootTracer, crossProcessOnly));
+            } catch (Throwable t) {
+                Agent.LOG.log(Level.FINER, t, "An error occurred creating span event for tracer: {0} in tx: {1}", tracer, transactionData);
+            }
+        }
+        incrementNumberOfTries(reservoir, buffer.add(score, spanEvents));
+    }
+
+    private void incrementNumberOfTries(SamplingPriorityQueue<SpanEvent> reservoir, int tries) {
+        for (int i = 0; i < tries; i++) {
+            reservoir.incrementNumberOfTries();
+        }
+    }
+
+    /**
+     * The buffer holds no more spans than the reservoir, so everything it stores at harvest fits without the reservoir
+     * splitting transactions. A buffer whose limit is out of date is replaced and its transactions stored.
+     */
+    private TailSamplingBuffer getOrCreateTailSamplingBuffer(String appName) {
+        SpanEventsTailSamplingConfig tailSamplingConfig = spanEventsConfig.getTailSamplingConfig();
+        int maxSpans = Math.min(tailSamplingConfig.getMaxBufferedSpans(), reservoirManager.getMaxSamplesStored());
+        TailSamplingBuffer buffer = tailSamplingBuffers.get(appName);
+        if (buffer == null) {
+            buffer = new TailSamplingBuffer(maxSpans);
+            TailSamplingBuffer existing = tailSamplingBuffers.putIfAbsent(appName, buffer);
+            return existing == null ? buffer : existing;
+        }
+        if (buffer.getMaxSpans() != maxSpans) {
+            TailSamplingBuffer replacement = new TailSamplingBuffer(maxSpans);
+            if (tailSamplingBuffers.replace(appName, buffer, replacement)) {
+                storeBufferedTransactions(buffer);
+                return replacement;
+            }
+            return getOrCreateTailSamplingBuffer(appName);
+        }
+        return buffer;
+    }
+
+    private void storeBufferedTransactions(TailSamplingBuffer buffer) {
+        for (List<SpanEvent> spanEvents : buffer.drain()) {
+            for (SpanEvent spanEvent : spanEvents) {
+                storeEvent(spanEvent);
+            }
+        }
+    }
+
     private boolean isCrossProcessTracer(Tracer tracer) {
         return tracer.getExternalParameters() instanceof HttpParameters || tracer.getExternalParameters() instanceof DatastoreParameters;
     }
@@ -119,6 +219,10 @@ public class SpanEventsServiceImpl extends AbstractService implements AgentConfi
             clearReservoir();
             return;
         }
+        TailSamplingBuffer tailSamplingBuffer = tailSamplingBuffers.get(appName);
+        if (tailSamplingBuffer != null) {
+            storeBufferedTransactions(tailSamplingBuffer);
+        }
         long startTimeInNanos = System.nanoTime();
         final ReservoirManager.HarvestResult result = reservoirManager.attemptToSendReservoir(appName, collectorSender, logger);
         if (result != null) {
@@ -173,8 +277,19 @@ public class SpanEventsServiceImpl extends AbstractService implements AgentConfi
         return spanEventsConfig.isEnabled() && reservoirManager.getMaxSamplesStored() > 0;
     }
 
+    /**
+     * Buffering spans until harvest would delay the spans streamed to the trace observer by a harvest cycle and drop
+     * all but a reservoir's worth of them, so tail sampling is off when the backend is infinite tracing.
+     */
+    private boolean isTailSamplingEnabled() {
+        return !infiniteTracingEnabled && spanEventsConfig.getTailSamplingConfig().isEnabled();
+    }
+
     @Override
     protected void doStart() throws Exception {
+        if (infiniteTracingEnabled && spanEventsConfig.getTailSamplingConfig().isEnabled()) {
+            logger.log(Level.WARNING, "span_events.tail_sampling is ignored because infinite tracing is enabled.");
+        }
         if (isEnabled()) {
             // track feature for angler
             StatsService statsService = ServiceFactory.getServiceManager().getStatsService();
@@ -215,6 +330,7 @@ public class SpanEventsServiceImpl extends AbstractService implements AgentConfi
 
     @Override
     public void clearReservoir() {
+        tailSamplingBuffers.clear();
         reservoirManager.clearReservoir();
     }
 
@@ -251,6 +367,7 @@ public class SpanEventsServiceImpl extends AbstractService implements AgentConfi
         private ReservoirManager<SpanEvent> reservoirManager;
         private ReservoirManager.EventSender<SpanEvent> collectorSender;
         private Consumer<SpanEvent> eventBackendStorage;
+        private boolean infiniteTracingEnabled;
         private SpanEventCreationDecider spanEventCreationDecider;
         private SpanEventsConfig spanEventsConfig;
         private TracerToSpanEvent tracerToSpanEvent;
@@ -275,6 +392,14 @@ public class SpanEventsServiceImpl extends AbstractService implements AgentConfi
             return this;
         }
 
+        /**
+         * @param infiniteTracingEnabled true if the event backend storage sends the span events to infinite tracing
+         */
+        public Builder infiniteTracingEnabled(boolean infiniteTracingEnabled) {
+            this.infiniteTracingEnabled = infiniteTracingEnabled;
+            return this;
+        }
+
         public Builder spanEventCreationDecider(SpanEventCreationDecider decider) {
             this.spanEventCreationDecider = decider;
             return this;
@@ -0,0 +1,120 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.service.analytics;
+
+import com.newrelic.agent.model.SpanEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Holds the span events of finished transactions until harvest. Transactions are kept or dropped whole: when adding
+ * one would go over the span limit, the lowest scoring transactions are evicted to make room, and if that isn't
+ * enough the new transaction is the one that is dropped.
+ */
+public class TailSamplingBuffer {
+
+    private static final Comparator<Entry> LOWEST_SCORE_FIRST = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry left, Entry right) {
+            return Float.compare(left.score, right.score);
+        }
+    };
+
+    private final int maxSpans;
+    private PriorityQueue<Entry> entries = new PriorityQueue<>(16, LOWEST_SCORE_FIRST);
+    private int spans;
+
+    public TailSamplingBuffer(int maxSpans) {
+        this.maxSpans = maxSpans;
+    }
+
+    /**
+     * @return true if a transaction with this score and number of spans could be added, so its span events are worth
+     * creating
+     */
+    public synchronized boolean wouldAccept(float score, int spanCount) {
+        if (spanCount > maxSpans) {
+            return false;
+        }
+        int free = maxSpans - spans;
+        for (Entry entry : entries) {
+            if (free >= spanCount) {
+                return true;
+            }
+            if (entry.score < score) {
+                free += entry.spanEvents.size();
+            }
+        }
+        return free >= spanCount;
+    }
+
+    /**
+     * Add the span events of a transaction, evicting lower scoring transactions if there is no room.
+     *
+     * @return the number of span events dropped, either evicted or the ones passed in
+     */
+    public synchronized int add(float score, List<SpanEvent> spanEvents) {
+        int spanCount = spanEvents.size();
+        if (!wouldAccept(score, spanCount)) {
+            return spanCount;
+        }
+        int dropped = 0;
+        while (spans + spanCount > maxSpans) {
+            Entry evicted = entries.poll();
+            spans -= evicted.spanEvents.size();
+            dropped += evicted.spanEvents.size();
+        }
+        entries.add(new Entry(score, spanEvents));
+        spans += spanCount;
+        return dropped;
+    }
+
+    /**
+     * Remove everything in the buffer.
+     *
+     * @return the span events of each buffered transaction, highest scoring first
+     */
+    public List<List<SpanEvent>> drain() {
+        PriorityQueue<Entry> drained;
+        synchronized (this) {
+            drained = entries;
+            entries = new PriorityQueue<>(16, LOWEST_SCORE_FIRST);
+            spans = 0;
+        }
+        List<Entry> sorted = new ArrayList<>(drained);
+        Collections.sort(sorted, Collections.reverseOrder(LOWEST_SCORE_FIRST));
+        List<List<SpanEvent>> result = new ArrayList<>(sorted.size());
+        for (Entry entry : sorted) {
+            result.add(entry.spanEvents);
+        }
+        return result;
+    }
+
+    public int getMaxSpans() {
+        return maxSpans;
+    }
+
+    public synchronized int size() {
+        return spans;
+    }
+
+    private static class Entry {
+        private final float score;
+        private final List<SpanEvent> spanEvents;
+
+        Entry(float score, List<SpanEvent> spanEvents) {
+            this.score = score;
+            this.spanEvents = spanEvents;
+        }
+    }
+
+}
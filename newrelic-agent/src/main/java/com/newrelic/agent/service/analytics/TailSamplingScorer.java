@@ -0,0 +1,105 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.service.analytics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Scores finished transactions for tail sampling. The score starts from the transaction's head-based priority, which
+ * keeps some randomness between otherwise equal transactions, and adds:
+ * <ul>
+ *     <li>{@value #ERROR_WEIGHT} if the transaction has a reportable error</li>
+ *     <li>up to {@value #DURATION_WEIGHT} for where the duration falls among recently scored transactions</li>
+ *     <li>up to {@value #CROSS_PROCESS_WEIGHT} for the number of external and datastore calls</li>
+ * </ul>
+ *
+ * Durations are kept in a log-linear histogram, four buckets for every power of two nanoseconds, whose counts are
+ * halved every {@value #DECAY_AFTER} transactions so the percentiles follow the application as its load changes.
+ */
+public class TailSamplingScorer {
+
+    static final float ERROR_WEIGHT = 2f;
+    static final float DURATION_WEIGHT = 1f;
+    static final float CROSS_PROCESS_WEIGHT = 1f;
+    static final int CROSS_PROCESS_CALLS_FOR_FULL_WEIGHT = 10;
+    static final int DECAY_AFTER = 10_000;
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int BUCKETS = 64 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray durationCounts = new AtomicLongArray(BUCKETS);
+    private final Object decayLock = new Object();
+    private long recorded;
+
+    /**
+     * Score a transaction and add its duration to the histogram.
+     *
+     * @param priority the head-based priority of the transaction
+     * @param hasError true if the transaction has a reportable error that is not ignored
+     * @param durationInNanos the duration of the transaction
+     * @param crossProcessCalls the number of external and datastore segments in the transaction
+     * @return the score, higher is more interesting
+     */
+    public float score(float priority, boolean hasError, long durationInNanos, int crossProcessCalls) {
+        float score = priority;
+        if (hasError) {
+            score += ERROR_WEIGHT;
+        }
+        score += DURATION_WEIGHT * recordDuration(durationInNanos);
+        score += CROSS_PROCESS_WEIGHT * Math.min(1f, crossProcessCalls / (float) CROSS_PROCESS_CALLS_FOR_FULL_WEIGHT);
+        return score;
+    }
+
+    /**
+     * @return the fraction of recorded durations below this one, counting equal durations as half below
+     */
+    float recordDuration(long durationInNanos) {
+        int bucket = bucket(durationInNanos);
+        long below = 0;
+        long same = 0;
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = durationCounts.get(i);
+            if (i < bucket) {
+                below += count;
+            } else if (i == bucket) {
+                same = count;
+            }
+            total += count;
+        }
+        durationCounts.incrementAndGet(bucket);
+        decayIfNeeded();
+        return total == 0 ? 0.5f : (below + same / 2f) / total;
+    }
+
+    private void decayIfNeeded() {
+        synchronized (decayLock) {
+            if (++recorded < DECAY_AFTER) {
+                return;
+            }
+            recorded = 0;
+        }
+        // Counts recorded while this runs may be halved early, which is fine for an estimate
+        for (int i = 0; i < BUCKETS; i++) {
+            long count;
+            do {
+                count = durationCounts.get(i);
+            } while (!durationCounts.compareAndSet(i, count, count / 2));
+        }
+    }
+
+    static int bucket(long durationInNanos) {
+        if (durationInNanos < (1 << SUB_BUCKET_BITS)) {
+            return (int) Math.max(0, durationInNanos);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(durationInNanos);
+        int mantissa = (int) (durationInNanos >>> (exponent - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+        return (exponent << SUB_BUCKET_BITS) | mantissa;
+    }
+
+}
@@ -0,0 +1,277 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.service.analytics;
+
+import com.newrelic.agent.interfaces.SamplingPriorityQueue;
+import com.newrelic.agent.model.SpanEvent;
+import com.newrelic.agent.tracing.DistributedTraceUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A span event reservoir that keeps whole transactions. Span events are grouped by their {@code transactionId} and
+ * every span of a transaction shares the transaction's priority, so only groups are ordered: adding a span to a
+ * transaction already in the reservoir is a map lookup, and making room evicts the lowest priority transactions in
+ * full. A transaction that can't be kept whole is dropped, including any of its later span events.
+ *
+ * Span events without a {@code transactionId} are kept as groups of one.
+ */
+public class TransactionSpanEventReservoir implements SamplingPriorityQueue<SpanEvent> {
+
+    // Enough to remember the transactions dropped while their span events are still being stored
+    private static final int MAX_DROPPED_TRANSACTIONS = 1000;
+
+    private static final Comparator<Group> LOWEST_PRIORITY_FIRST = new Comparator<Group>() {
+        @Override
+        public int compare(Group left, Group right) {
+            int result = Float.compare(left.priority, right.priority);
+            // Among equal priorities the newest transaction is evicted first
+            return result != 0 ? result : Long.compare(right.sequence, left.sequence);
+        }
+    };
+
+    private final String appName;
+    private final String serviceName;
+    private final int maximumSize;
+    private final int decidedLast;
+    private final int target;
+    private final AtomicInteger numberOfTries = new AtomicInteger();
+    private final AtomicInteger sampled = new AtomicInteger();
+    private final AtomicInteger decided = new AtomicInteger();
+
+    private final Object lock = new Object();
+    private final TreeSet<Group> groups = new TreeSet<>(LOWEST_PRIORITY_FIRST);
+    private final Map<String, Group> groupsByTransactionId = new HashMap<>();
+    private final Set<String> droppedTransactionIds = Collections.newSetFromMap(new LinkedHashMap<String, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_DROPPED_TRANSACTIONS;
+        }
+    });
+    private int size;
+    private long nextSequence;
+
+    public TransactionSpanEventReservoir(String appName, String serviceName, int reservoirSize, int decidedLast, int target) {
+        this.appName = appName;
+        this.serviceName = serviceName;
+        this.maximumSize = reservoirSize;
+        this.decidedLast = decidedLast;
+        this.target = target;
+    }
+
+    @Override
+    public void retryAll(SamplingPriorityQueue<SpanEvent> source) {
+        for (SpanEvent element : source.asList()) {
+            add(element);
+        }
+    }
+
+    @Override
+    public boolean isFull() {
+        synchronized (lock) {
+            return size >= maximumSize;
+        }
+    }
+
+    @Override
+    public float getMinPriority() {
+        synchronized (lock) {
+            return groups.isEmpty() ? 0.0f : groups.first().priority;
+        }
+    }
+
+    @Override
+    public int getNumberOfTries() {
+        return numberOfTries.get();
+    }
+
+    @Override
+    public void incrementNumberOfTries() {
+        numberOfTries.incrementAndGet();
+    }
+
+    @Override
+    public boolean add(SpanEvent element) {
+        incrementNumberOfTries();
+        if (maximumSize <= 0) {
+            return false;
+        }
+        String transactionId = element.getTransactionId();
+        synchronized (lock) {
+            Group group = transactionId == null ? null : groupsByTransactionId.get(transactionId);
+            if (group == null) {
+                if (transactionId != null && droppedTransactionIds.contains(transactionId)) {
+                    return false;
+                }
+                if (!makeRoom(element.getPriority(), null)) {
+                    drop(transactionId);
+                    return false;
+                }
+                group = new Group(transactionId, element.getPriority(), nextSequence++);
+                groups.add(group);
+                if (transactionId != null) {
+                    groupsByTransactionId.put(transactionId, group);
+                }
+            } else if (!makeRoom(group.priority, group)) {
+                // The transaction would lose this span, so none of it is kept
+                remove(group);
+                drop(transactionId);
+                return false;
+            }
+            group.spanEvents.add(element);
+            size++;
+        }
+        if (element.decider()) {
+            decided.incrementAndGet();
+            if (DistributedTraceUtil.isSampledPriority(element.getPriority())) {
+                sampled.incrementAndGet();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Evict lower priority transactions until there is room for one more span.
+     *
+     * @param priority the priority of the transaction the span belongs to
+     * @param own the group of that transaction, which is never evicted to make room for itself
+     * @return false if there isn't enough lower priority data to evict
+     */
+    private boolean makeRoom(float priority, Group own) {
+        while (size >= maximumSize) {
+            Group lowest = groups.first();
+            if (lowest == own || lowest.priority >= priority) {
+                return false;
+            }
+            remove(lowest);
+            drop(lowest.transactionId);
+        }
+        return true;
+    }
+
+    private void remove(Group group) {
+        groups.remove(group);
+        if (group.transactionId != null) {
+            groupsByTransactionId.remove(group.transactionId);
+        }
+        size -= group.spanEvents.size();
+    }
+
+    private void drop(String transactionId) {
+        if (transactionId != null) {
+            droppedTransactionIds.add(transactionId);
+        }
+    }
+
+    @Override
+    public SpanEvent peek() {
+        synchronized (lock) {
+            return groups.isEmpty() ? null : groups.last().spanEvents.get(0);
+        }
+    }
+
+    @Override
+    public SpanEvent poll() {
+        synchronized (lock) {
+            if (groups.isEmpty()) {
+                return null;
+            }
+            Group highest = groups.last();
+            SpanEvent spanEvent = highest.spanEvents.remove(0);
+            size--;
+            if (highest.spanEvents.isEmpty()) {
+                remove(highest);
+            }
+            return spanEvent;
+        }
+    }
+
+    /**
+     * @return the span events, highest priority transaction first
+     */
+    @Override
+    public List<SpanEvent> asList() {
+        synchronized (lock) {
+            List<SpanEvent> elements = new ArrayList<>(size);
+            for (Group group : groups.descendingSet()) {
+                elements.addAll(group.spanEvents);
+            }
+            return elements;
+        }
+    }
+
+    @Override
+    public String getAppName() {
+        return appName;
+    }
+
+    @Override
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    @Override
+    public int getSampled() {
+        return sampled.get();
+    }
+
+    @Override
+    public int getDecided() {
+        return decided.get();
+    }
+
+    @Override
+    public int getTarget() {
+        return target;
+    }
+
+    @Override
+    public int getDecidedLast() {
+        return decidedLast;
+    }
+
+    @Override
+    public int size() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (lock) {
+            groups.clear();
+            groupsByTransactionId.clear();
+            droppedTransactionIds.clear();
+            size = 0;
+        }
+    }
+
+    private static class Group {
+        private final String transactionId;
+        private final float priority;
+        private final long sequence;
+        private final List<SpanEvent> spanEvents = new ArrayList<>();
+
+        Group(String transactionId, float priority, long sequence) {
+            this.transactionId = transactionId;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+    }
+
+}
@@ -7,6 +7,8 @@
 
 package com.newrelic.agent.servlet;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Set;
 
 import org.objectweb.asm.AnnotationVisitor;
@@ -19,13 +21,14 @@ import org.objectweb.asm.commons.Method;
 import com.google.common.collect.ImmutableSet;
 import com.newrelic.agent.bridge.TransactionNamePriority;
 import com.newrelic.agent.instrumentation.InstrumentationType;
+import com.newrelic.agent.instrumentation.context.ClassMatchPrefilter;
 import com.newrelic.agent.instrumentation.context.ClassMatchVisitorFactory;
 import com.newrelic.agent.instrumentation.context.InstrumentationContext;
 import com.newrelic.agent.instrumentation.tracing.TraceDetails;
 import com.newrelic.agent.instrumentation.tracing.TraceDetailsBuilder;
 import com.newrelic.weave.utils.WeaveUtils;
 
-public class ServletAnnotationVisitor implements ClassMatchVisitorFactory {
+public class ServletAnnotationVisitor implements ClassMatchVisitorFactory, ClassMatchPrefilter {
     private static final String WEB_SERVLET_DESCRIPTOR = Type.getObjectType("javax/servlet/annotation/WebServlet").getDescriptor();
 
     // private static final String WEB_FILTER_DESCRIPTOR =
@@ -104,4 +107,14 @@ public class ServletAnnotationVisitor implements ClassMatchVisitorFactory {
         return cv;
     }
 
+    @Override
+    public Collection<String> getRequiredConstants() {
+        return Collections.singleton(WEB_SERVLET_DESCRIPTOR);
+    }
+
+    @Override
+    public Collection<String> getRequiredConstantSuffixes() {
+        return Collections.emptySet();
+    }
+
 }
@@ -0,0 +1,150 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free bounded cache that keeps the "top N" values (K,V) according to their natural ordering.
+ *
+ * Unlike {@link BoundedConcurrentCache} this cache does not keep a priority queue in sync with the map. Values are
+ * expected to aggregate themselves in place (see {@link SlowQueryInfo#aggregate(SlowQueryInfo)}), so updating an
+ * existing value never touches the cache at all. The map is allowed to grow past its capacity by a small slack; once
+ * the slack is used up a single thread trims the smallest values in one pass. Readers never observe more than
+ * <tt>maxCapacity</tt> values from {@link #size()} or {@link #asList()}.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public class ConcurrentTopNCache<K, V extends Comparable<V> & CacheValue<K>> {
+
+    private static final int MIN_EVICTION_SLACK = 16;
+
+    private final int maxCapacity;
+    private final int evictionThreshold;
+    private final ConcurrentMap<K, V> cache;
+    private final AtomicBoolean evicting = new AtomicBoolean(false);
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public ConcurrentTopNCache(int size) {
+        this.maxCapacity = size;
+        // amortize the cost of a trim across at least a quarter of the capacity worth of inserts
+        this.evictionThreshold = size + Math.max(MIN_EVICTION_SLACK, size / 4);
+        this.cache = new ConcurrentHashMap<>(Math.max(16, evictionThreshold), 0.75f);
+    }
+
+    public V get(K key) {
+        return cache.get(key);
+    }
+
+    /**
+     * Adds the value if no value is currently stored for the key.
+     *
+     * @return the existing value, which the caller should aggregate into, or null if the value was added
+     */
+    public V putIfAbsent(K key, V value) {
+        V existing = cache.putIfAbsent(key, value);
+        if (existing != null) {
+            return existing;
+        }
+        if (cache.size() > evictionThreshold) {
+            evictSmallest();
+        }
+        return null;
+    }
+
+    /**
+     * Stores the value for the key. Values that were aggregated in place do not need to be put again.
+     */
+    public void putReplace(K key, V value) {
+        if (cache.put(key, value) == null && cache.size() > evictionThreshold) {
+            evictSmallest();
+        }
+    }
+
+    public int size() {
+        return Math.min(cache.size(), maxCapacity);
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * @return the number of values evicted to keep the cache within its bounds since it was created
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * @return a snapshot of the largest <tt>maxCapacity</tt> values in the cache
+     */
+    public List<V> asList() {
+        List<V> values = new ArrayList<>(cache.values());
+        if (values.size() <= maxCapacity) {
+            return values;
+        }
+        Set<V> smallest = Collections.newSetFromMap(new IdentityHashMap<V, Boolean>());
+        smallest.addAll(findSmallest(values, values.size() - maxCapacity));
+        List<V> results = new ArrayList<>(maxCapacity);
+        for (V value : values) {
+            if (!smallest.contains(value)) {
+                results.add(value);
+            }
+        }
+        return results;
+    }
+
+    private void evictSmallest() {
+        // only one thread trims at a time, everyone else keeps going
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int excess = cache.size() - maxCapacity;
+            if (excess <= 0) {
+                return;
+            }
+            for (V value : findSmallest(cache.values(), excess)) {
+                if (cache.remove(value.getKey(), value)) {
+                    evictionCount.incrementAndGet();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * Selects the <tt>count</tt> smallest values in O(n log count). Values may be aggregated concurrently while this
+     * runs, so a heap is used rather than a sort which would reject an inconsistent ordering.
+     */
+    private List<V> findSmallest(Iterable<V> values, int count) {
+        PriorityQueue<V> largestFirst = new PriorityQueue<>(count + 1, Collections.<V>reverseOrder());
+        for (V value : values) {
+            if (largestFirst.size() < count) {
+                largestFirst.add(value);
+            } else if (value.compareTo(largestFirst.peek()) < 0) {
+                largestFirst.poll();
+                largestFirst.add(value);
+            }
+        }
+        return new ArrayList<>(largestFirst);
+    }
+
+}
@@ -30,7 +30,7 @@ public class DefaultSlowQueryListener implements SlowQueryListener {
     private static final int MAX_SQL_TRACERS = 175;
 
     private final double thresholdInMillis;
-    private volatile BoundedConcurrentCache<String, SlowQueryInfo> slowQueryInfoCache;
+    private volatile ConcurrentTopNCache<String, SlowQueryInfo> slowQueryInfoCache;
     private final SqlObfuscator sqlObfuscator;
 
     public DefaultSlowQueryListener(String appName, double thresholdInMillis) {
@@ -86,19 +86,22 @@ public class DefaultSlowQueryListener implements SlowQueryListener {
             }
 
             if (slowQueryInfoCache == null) {
-                slowQueryInfoCache = new BoundedConcurrentCache<>(MAX_SQL_TRACERS);
+                slowQueryInfoCache = new ConcurrentTopNCache<>(MAX_SQL_TRACERS);
             }
 
             SlowQueryInfo existingInfo = slowQueryInfoCache.get(obfuscatedQueryString);
             if (existingInfo != null) {
                 // Aggregate tracers by SQL.
                 existingInfo.aggregate(tracer);
-                slowQueryInfoCache.putReplace(obfuscatedQueryString, existingInfo);
             } else {
                 SlowQueryInfo sqlInfo = new SlowQueryInfo(null, tracer, rawQueryString, obfuscatedQueryString,
                         tracer.getTransactionActivity().getTransaction().getAgentConfig().getSqlTraceConfig());
                 sqlInfo.aggregate(tracer);
-                slowQueryInfoCache.putIfAbsent(obfuscatedQueryString, sqlInfo);
+                existingInfo = slowQueryInfoCache.putIfAbsent(obfuscatedQueryString, sqlInfo);
+                if (existingInfo != null) {
+                    // Lost the race to another thread adding the same query
+                    existingInfo.aggregate(tracer);
+                }
             }
         }
     }
@@ -29,8 +29,8 @@ public class SlowQueryAggregatorImpl implements SlowQueryAggregator {
      */
     static final int MAX_SLOW_QUERY_STATEMENTS = 200;
 
-    private final BoundedConcurrentCache<String, SlowQueryInfo> slowQueries =
-            new BoundedConcurrentCache<>(MAX_SLOW_QUERY_STATEMENTS);
+    private final ConcurrentTopNCache<String, SlowQueryInfo> slowQueries =
+            new ConcurrentTopNCache<>(MAX_SLOW_QUERY_STATEMENTS);
     private final Lock readLock;
     private final Lock writeLock;
 
@@ -132,12 +132,10 @@ public class SlowQueryAggregatorImpl implements SlowQueryAggregator {
             slowQuery.setTransactionData(td);
         }
 
-        SlowQueryInfo existingInfo = slowQueries.get(obfuscatedQuery);
+        // SlowQueryInfo aggregates atomically in place so there is no need to put the existing value back
+        SlowQueryInfo existingInfo = slowQueries.putIfAbsent(obfuscatedQuery, slowQuery);
         if (existingInfo != null) {
             existingInfo.aggregate(slowQuery);
-            slowQueries.putReplace(obfuscatedQuery, existingInfo);
-        } else {
-            slowQueries.putIfAbsent(obfuscatedQuery, slowQuery);
         }
     }
 
@@ -14,21 +14,53 @@ public class TransactionGuidFactory {
     private TransactionGuidFactory() {
     }
 
+    private static final char[] HEX_CHARS = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f' };
+
     public static String generate16CharGuid() {
-        // Tests with JMH showed that this implementation is 11x faster than the previous implementation:
+        // Tests with JMH showed that rendering a random long by hand is 11x faster than the previous implementation:
         // return new BigInteger(64, randomHolder.get()).toString(16)
         // and about 1.2x faster than the obvious alternative implementation:
         // return Long.toHexString(Math.abs(randomHolder.get().nextLong()))
         // In addition, this one returns 16 useful digits, while the obvious one returns slightly fewer.
-        // Note that the digits are generated in "reverse order", which is perfectly fine here.
-        final char[] hexchars = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f' };
-        long random = ThreadLocalRandom.current().nextLong();
+        return toHex(generateSpanId());
+    }
+
+    /**
+     * Span ids are kept as a long and only rendered to hex when they leave the agent, see {@link #toHex(long)}. W3C
+     * trace context treats an all zero id as invalid, so zero is never returned.
+     */
+    public static long generateSpanId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+        return id;
+    }
+
+    /**
+     * @return a random 128 bit trace id rendered as 32 lowercase hex characters
+     */
+    public static String generateTraceId() {
+        char[] result = new char[32];
+        writeHex(ThreadLocalRandom.current().nextLong(), result, 0);
+        writeHex(generateSpanId(), result, 16);
+        return new String(result);
+    }
+
+    /**
+     * @return the id as 16 lowercase hex characters, left padded with zeros
+     */
+    public static String toHex(long id) {
         char[] result = new char[16];
-        for (int i = 0; i < 16; ++i) {
-            result[i] = hexchars[(int) (random & 0xF)];
-            random >>= 4;
-        }
+        writeHex(id, result, 0);
         return new String(result);
     }
 
+    private static void writeHex(long id, char[] destination, int offset) {
+        for (int i = offset + 15; i >= offset; --i) {
+            destination[i] = HEX_CHARS[(int) (id & 0xF)];
+            id >>>= 4;
+        }
+    }
+
 }
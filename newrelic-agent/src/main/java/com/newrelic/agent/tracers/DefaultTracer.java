@@ -26,6 +26,7 @@ import com.newrelic.agent.trace.TransactionGuidFactory;
 import com.newrelic.agent.trace.TransactionSegment;
 import com.newrelic.agent.tracers.metricname.MetricNameFormat;
 import com.newrelic.agent.tracers.metricname.SimpleMetricNameFormat;
+import com.newrelic.agent.tracing.OutboundDistributedTraceHeaders;
 import com.newrelic.agent.util.ExternalsUtil;
 import com.newrelic.agent.util.Strings;
 import com.newrelic.api.agent.DatastoreParameters;
@@ -75,6 +76,8 @@ public class DefaultTracer extends AbstractTracer {
     private long duration;
     private long exclusiveDuration;
     private Tracer parentTracer;
+    private final long spanId;
+    // hex form of the spanId, only rendered if the span id leaves the agent
     private String guid;
 
     private final ClassMethodSignature classMethodSignature;
@@ -83,6 +86,8 @@ public class DefaultTracer extends AbstractTracer {
 
     private boolean isParent;
     private boolean addedOutboundRequestHeaders;
+    // distributed trace headers created by this tracer, reused when the same request is sent again
+    private OutboundDistributedTraceHeaders outboundDistributedTraceHeaders;
 
     /*
      * If the child collected the stack trace, then we still take a trace if over time, but we should not add to the
@@ -146,7 +151,7 @@ public class DefaultTracer extends AbstractTracer {
         }
 
         this.tracerFlags = (byte) tracerFlags;
-        this.guid = TransactionGuidFactory.generate16CharGuid();
+        this.spanId = TransactionGuidFactory.generateSpanId();
     }
 
     public DefaultTracer(TransactionActivity txa, ClassMethodSignature sig, Object object,
@@ -170,7 +175,21 @@ public class DefaultTracer extends AbstractTracer {
 
     @Override
     public String getGuid() {
-        return guid;
+        // a racing thread renders the same value, no need to synchronize
+        String hexGuid = guid;
+        if (hexGuid == null) {
+            hexGuid = TransactionGuidFactory.toHex(spanId);
+            guid = hexGuid;
+        }
+        return hexGuid;
+    }
+
+    public OutboundDistributedTraceHeaders getOutboundDistributedTraceHeaders() {
+        return outboundDistributedTraceHeaders;
+    }
+
+    public void setOutboundDistributedTraceHeaders(OutboundDistributedTraceHeaders outboundDistributedTraceHeaders) {
+        this.outboundDistributedTraceHeaders = outboundDistributedTraceHeaders;
     }
 
     @Override
@@ -0,0 +1,63 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.tracing;
+
+/**
+ * The distributed trace headers created for the outbound calls of a single tracer. Clients that retry or redirect a
+ * request add the headers again from the same tracer, those calls reuse the payload created for the first call
+ * instead of creating, encoding and counting a new one.
+ *
+ * Header values are only encoded the first time they are asked for, so headers that are turned off by configuration
+ * are never materialized.
+ */
+public class OutboundDistributedTraceHeaders {
+
+    private final DistributedTracePayloadImpl payload;
+    private String newRelicHeader;
+    private String traceParentHeader;
+    private String traceStateHeader;
+
+    public OutboundDistributedTraceHeaders(DistributedTracePayloadImpl payload) {
+        this.payload = payload;
+    }
+
+    public DistributedTracePayloadImpl getPayload() {
+        return payload;
+    }
+
+    /**
+     * The sampled decision is part of every header, they can only be reused while the transaction is still sampled the
+     * same way.
+     */
+    public boolean isSampled() {
+        return payload.sampled.booleanValue();
+    }
+
+    public String getNewRelicHeader() {
+        if (newRelicHeader == null) {
+            newRelicHeader = payload.httpSafe();
+        }
+        return newRelicHeader;
+    }
+
+    /**
+     * @return the traceparent header, or null if the W3C headers have not been created yet
+     */
+    public String getTraceParentHeader() {
+        return traceParentHeader;
+    }
+
+    public String getTraceStateHeader() {
+        return traceStateHeader;
+    }
+
+    public void setW3CHeaders(String traceParentHeader, String traceStateHeader) {
+        this.traceParentHeader = traceParentHeader;
+        this.traceStateHeader = traceStateHeader;
+    }
+}
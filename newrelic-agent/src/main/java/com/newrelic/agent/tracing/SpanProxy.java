@@ -32,8 +32,7 @@ public class SpanProxy {
     public String getOrCreateTraceId() {
         String id = traceId.get();
         if (id == null) {
-            String newGuid = TransactionGuidFactory.generate16CharGuid() + TransactionGuidFactory.generate16CharGuid();
-            traceId.compareAndSet(null, newGuid);
+            traceId.compareAndSet(null, TransactionGuidFactory.generateTraceId());
         }
         return traceId.get();
     }
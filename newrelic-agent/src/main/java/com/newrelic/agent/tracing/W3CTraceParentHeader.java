@@ -7,15 +7,27 @@
 
 package com.newrelic.agent.tracing;
 
-import com.google.common.base.Strings;
 import com.newrelic.agent.trace.TransactionGuidFactory;
 
-import java.util.Locale;
+import static com.newrelic.agent.tracing.W3CTraceParentValidator.PARENT_ID_LENGTH;
+import static com.newrelic.agent.tracing.W3CTraceParentValidator.TRACE_ID_LENGTH;
 
 public class W3CTraceParentHeader {
 
     static final String W3C_VERSION = "00";
     static final String W3C_TRACE_PARENT_DELIMITER = "-";
+    private static final char DELIMITER = '-';
+
+    // version-traceId-parentId-flags
+    private static final int HEADER_LENGTH = W3C_VERSION.length() + TRACE_ID_LENGTH + PARENT_ID_LENGTH + 2 + 3;
+
+    // headers are rendered into a per thread buffer so building one only allocates the resulting String
+    private static final ThreadLocal<char[]> HEADER_BUFFER = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[HEADER_LENGTH];
+        }
+    };
 
     public static String create(SpanProxy proxy, String traceId, String guid, boolean sampled) {
         W3CTraceParent existingW3cTraceParent = proxy.getInitiatingW3CTraceParent();
@@ -30,29 +42,50 @@ public class W3CTraceParentHeader {
     private static String createNewHeader(SpanProxy proxy, String traceId, String guid, boolean sampled) {
         String parentId = guid == null ? TransactionGuidFactory.generate16CharGuid() : guid;
         proxy.setInitiatingW3CTraceParent(new W3CTraceParent(W3C_VERSION, traceId, null, (sampled ? 1 : 0)));
-        String w3cTraceId = maybePad(maybeLower(traceId));
-        return createHeader(sampled, parentId, w3cTraceId);
+        return createHeader(sampled, parentId, traceId, true);
     }
 
-    private static String createHeader(boolean sampled, String parentId, String w3cTraceId) {
-        return W3C_VERSION + W3C_TRACE_PARENT_DELIMITER + w3cTraceId + W3C_TRACE_PARENT_DELIMITER + parentId + W3C_TRACE_PARENT_DELIMITER
-                + sampledToFlags(sampled);
+    private static String forwardHeader(W3CTraceParent existingW3cTraceParent, String guid, boolean sampled) {
+        String parentId = guid == null ? TransactionGuidFactory.generate16CharGuid() : guid;
+        return createHeader(sampled, parentId, existingW3cTraceParent.getTraceId(), false);
     }
 
-    private static String maybeLower(String traceId) {
-        return traceId.toLowerCase(Locale.ROOT);
-    }
+    /**
+     * @param normalizeTraceId our own trace ids are lower cased and left padded with zeros to 32 characters, inbound trace ids
+     * were validated by {@link W3CTraceParentParser} and are forwarded as is
+     */
+    private static String createHeader(boolean sampled, String parentId, String traceId, boolean normalizeTraceId) {
+        int padding = normalizeTraceId ? Math.max(0, TRACE_ID_LENGTH - traceId.length()) : 0;
+        int length = W3C_VERSION.length() + padding + traceId.length() + parentId.length() + 2 + 3;
 
-    private static String maybePad(String txnId) {
-        return Strings.padStart(txnId, 32, '0');
-    }
+        char[] buffer = HEADER_BUFFER.get();
+        if (buffer.length < length) {
+            // only reachable with non standard ids, don't hold on to the larger buffer
+            buffer = new char[length];
+        }
 
-    private static String forwardHeader(W3CTraceParent existingW3cTraceParent, String guid, boolean sampled) {
-        String parentId = guid == null ? TransactionGuidFactory.generate16CharGuid() : guid;
-        return createHeader(sampled, parentId, existingW3cTraceParent.getTraceId());
+        int position = write(buffer, 0, W3C_VERSION);
+        buffer[position++] = DELIMITER;
+        for (int i = 0; i < padding; i++) {
+            buffer[position++] = '0';
+        }
+        if (normalizeTraceId) {
+            for (int i = 0; i < traceId.length(); i++) {
+                buffer[position++] = Character.toLowerCase(traceId.charAt(i));
+            }
+        } else {
+            position = write(buffer, position, traceId);
+        }
+        buffer[position++] = DELIMITER;
+        position = write(buffer, position, parentId);
+        buffer[position++] = DELIMITER;
+        buffer[position++] = '0';
+        buffer[position++] = sampled ? '1' : '0';
+        return new String(buffer, 0, position);
     }
 
-    private static String sampledToFlags(boolean sampled) {
-        return sampled ? "01" : "00";
+    private static int write(char[] buffer, int position, String value) {
+        value.getChars(0, value.length(), buffer, position);
+        return position + value.length();
     }
 }
@@ -14,6 +14,8 @@ import java.util.List;
 
 public class W3CTraceParentParser {
 
+    private static final char DELIMITER = W3CTraceParentHeader.W3C_TRACE_PARENT_DELIMITER.charAt(0);
+
     static W3CTraceParent parseHeaders(List<String> traceParentHeaders) {
         if (traceParentHeaders.size() != 1) {
             ServiceFactory.getStatsService().getMetricAggregator().incrementCounter(MetricNames.SUPPORTABILITY_TRACE_CONTEXT_INVALID_PARENT_HEADER_COUNT);
@@ -25,32 +27,43 @@ public class W3CTraceParentParser {
     }
 
     static W3CTraceParent parseHeader(String traceParentHeader) {
-        String[] traceParentFields = traceParentHeader.split(W3CTraceParentHeader.W3C_TRACE_PARENT_DELIMITER);
-        if (traceParentFields.length < 4) {
+        // Fields are located by index rather than with String.split so that only the fields we keep are copied out of the header.
+        int versionEnd = traceParentHeader.indexOf(DELIMITER);
+        int traceIdEnd = versionEnd == -1 ? -1 : traceParentHeader.indexOf(DELIMITER, versionEnd + 1);
+        int parentIdEnd = traceIdEnd == -1 ? -1 : traceParentHeader.indexOf(DELIMITER, traceIdEnd + 1);
+        if (parentIdEnd == -1 || onlyDelimitersFrom(traceParentHeader, parentIdEnd)) {
             ServiceFactory.getStatsService().getMetricAggregator().incrementCounter(MetricNames.SUPPORTABILITY_TRACE_CONTEXT_INVALID_PARENT_FIELD_COUNT);
             // We do not support any version that has less than 4 fields
             return null;
         }
 
-        String version = traceParentFields[0];
-        String traceId = traceParentFields[1];
-        String parentId = traceParentFields[2];
-        String unparsedFlags = traceParentFields[3];
-
-        boolean valid = W3CTraceParentValidator.forHeader(traceParentHeader)
-                .version(version)
-                .traceId(traceId)
-                .parentId(parentId)
-                .flags(unparsedFlags)
-                .isValid();
+        int flagsEnd = traceParentHeader.indexOf(DELIMITER, parentIdEnd + 1);
+        if (flagsEnd == -1) {
+            flagsEnd = traceParentHeader.length();
+        }
 
-        if (!valid) {
+        if (!W3CTraceParentValidator.isValid(traceParentHeader, versionEnd, traceIdEnd, parentIdEnd, flagsEnd)) {
             ServiceFactory.getStatsService().getMetricAggregator().incrementCounter(MetricNames.SUPPORTABILITY_TRACE_CONTEXT_INVALID_PARENT_INVALID);
             // The payload was invalid and will be discarded
             return null;
         }
 
-        int flags = Integer.parseInt(unparsedFlags, 16);
+        String version = traceParentHeader.substring(0, versionEnd);
+        String traceId = traceParentHeader.substring(versionEnd + 1, traceIdEnd);
+        String parentId = traceParentHeader.substring(traceIdEnd + 1, parentIdEnd);
+        int flags = Character.digit(traceParentHeader.charAt(parentIdEnd + 1), 16) << 4 | Character.digit(traceParentHeader.charAt(parentIdEnd + 2), 16);
         return new W3CTraceParent(version, traceId, parentId, flags);
     }
+
+    /**
+     * String.split drops trailing empty fields, so a header such as "00-traceId-parentId-" only has three fields.
+     */
+    private static boolean onlyDelimitersFrom(String traceParentHeader, int index) {
+        for (int i = index; i < traceParentHeader.length(); i++) {
+            if (traceParentHeader.charAt(i) != DELIMITER) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -9,18 +9,15 @@ package com.newrelic.agent.tracing;
 
 import com.google.common.annotations.VisibleForTesting;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 import static com.newrelic.agent.tracing.W3CTraceParentHeader.W3C_VERSION;
-import static java.util.regex.Pattern.compile;
 
 public class W3CTraceParentValidator {
 
     private static final String INVALID_VERSION = "ff";
-    private static final String INVALID_TRACE_ID = "00000000000000000000000000000000"; // 32 characters
-    private static final String INVALID_PARENT_ID = "0000000000000000"; // 16 characters
-    private static final Pattern HEXADECIMAL_PATTERN = compile("\\p{XDigit}+");
+    private static final int TRACE_PARENT_HEADER_LENGTH = 55;
+    static final int TRACE_ID_LENGTH = 32;
+    static final int PARENT_ID_LENGTH = 16;
+    private static final int FLAGS_LENGTH = 2;
 
     private final String traceParentHeader;
     private final String version;
@@ -44,42 +41,84 @@ public class W3CTraceParentValidator {
      * Version can only be 2 hexadecimal characters, `ff` is not allowed and if it matches our expected version the length must be 55 characters
      */
     boolean isValidVersion() {
-        return version.length() == 2 && isHexadecimal(version.charAt(0)) && isHexadecimal(version.charAt(1)) && !version.equals(INVALID_VERSION) &&
-                !(version.equals(W3C_VERSION) && traceParentHeaderLengthIsInvalid());
-    }
-
-    private boolean traceParentHeaderLengthIsInvalid() {
-        return traceParentHeader.length() != 55;
-    }
-
-    boolean isHexadecimal(char character) {
-        return Character.digit(character, 16) != -1;
-    }
-
-    boolean isHexadecimal(String input) {
-        final Matcher matcher = HEXADECIMAL_PATTERN.matcher(input);
-        return matcher.matches();
+        return isValidVersion(version, 0, version.length(), traceParentHeader.length());
     }
 
     /**
      * TraceId must be 32 characters, not all zeros and must be hexadecimal
      */
     boolean isValidTraceId() {
-        return traceId.length() == 32 && !traceId.equals(INVALID_TRACE_ID) && isHexadecimal(traceId);
+        return isValidId(traceId, 0, traceId.length(), TRACE_ID_LENGTH);
     }
 
     /**
      * ParentId must be 16 characters, not all zeros and must be hexadecimal
      */
     boolean isValidParentId() {
-        return parentId.length() == 16 && !parentId.equals(INVALID_PARENT_ID) && isHexadecimal(parentId);
+        return isValidId(parentId, 0, parentId.length(), PARENT_ID_LENGTH);
     }
 
     /**
      * Flags must be 2 characters and must be hexadecimal
      */
     boolean isValidFlags() {
-        return flags.length() == 2 && isHexadecimal(flags);
+        return isValidFlags(flags, 0, flags.length());
+    }
+
+    /**
+     * Validates the fields of a traceparent header in place. Each field is given by the index of the delimiter that ends it,
+     * so nothing has to be copied out of the header to validate it.
+     */
+    static boolean isValid(CharSequence header, int versionEnd, int traceIdEnd, int parentIdEnd, int flagsEnd) {
+        return isValidVersion(header, 0, versionEnd, header.length())
+                && isValidId(header, versionEnd + 1, traceIdEnd, TRACE_ID_LENGTH)
+                && isValidId(header, traceIdEnd + 1, parentIdEnd, PARENT_ID_LENGTH)
+                && isValidFlags(header, parentIdEnd + 1, flagsEnd);
+    }
+
+    private static boolean isValidVersion(CharSequence input, int start, int end, int headerLength) {
+        return end - start == 2 && isHexadecimal(input.charAt(start)) && isHexadecimal(input.charAt(start + 1))
+                && !regionEquals(input, start, INVALID_VERSION)
+                && !(regionEquals(input, start, W3C_VERSION) && headerLength != TRACE_PARENT_HEADER_LENGTH);
+    }
+
+    private static boolean isValidId(CharSequence input, int start, int end, int length) {
+        if (end - start != length) {
+            return false;
+        }
+        boolean allZeros = true;
+        for (int i = start; i < end; i++) {
+            char character = input.charAt(i);
+            if (!isHexDigit(character)) {
+                return false;
+            }
+            allZeros &= character == '0';
+        }
+        return !allZeros;
+    }
+
+    private static boolean isValidFlags(CharSequence input, int start, int end) {
+        return end - start == FLAGS_LENGTH && isHexDigit(input.charAt(start)) && isHexDigit(input.charAt(start + 1));
+    }
+
+    private static boolean regionEquals(CharSequence input, int start, String expected) {
+        for (int i = 0; i < expected.length(); i++) {
+            if (input.charAt(start + i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean isHexadecimal(char character) {
+        return Character.digit(character, 16) != -1;
+    }
+
+    /**
+     * Matches the POSIX {@code \p{XDigit}} class: only ASCII hexadecimal digits.
+     */
+    static boolean isHexDigit(char character) {
+        return (character >= '0' && character <= '9') || (character >= 'a' && character <= 'f') || (character >= 'A' && character <= 'F');
     }
 
     static Builder forHeader(String traceParentHeader) {
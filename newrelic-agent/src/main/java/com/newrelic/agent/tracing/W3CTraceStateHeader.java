@@ -7,22 +7,19 @@
 
 package com.newrelic.agent.tracing;
 
-import com.google.common.base.Joiner;
 import com.newrelic.agent.trace.TransactionGuidFactory;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.regex.Pattern;
 
 public class W3CTraceStateHeader {
     private static final String NR_HEADER_VERSION = "0";
     static final String NR_TRACE_STATE_DELIMITER = "-";
-    private static final Joiner NR_TRACE_STATE_JOINER = Joiner.on(NR_TRACE_STATE_DELIMITER);
-    private static final String MULTI_TENANT_DELIMITER = "@";
-    private static final String TENANT_IDENTIFIER = "[a-z0-9][_0-9a-z\\-*/]{0,240}";
-    private static final String MULTI_TENANT_VENDOR_IDENTIFIER = "[a-z][_0-9a-z\\-*/]{0,13}";
-    static final String MULTI_TENANT_VENDOR_STATE_KEY = TENANT_IDENTIFIER + MULTI_TENANT_DELIMITER + MULTI_TENANT_VENDOR_IDENTIFIER;
+    static final String MULTI_TENANT_DELIMITER = "@";
     static final String VENDOR_STATE_KEY_VALUE_DELIMITER = "=";
     static final String NR_VENDOR = MULTI_TENANT_DELIMITER + "nr" + VENDOR_STATE_KEY_VALUE_DELIMITER;
+    private static final Pattern PRIORITY_TRAILING_ZEROS = Pattern.compile("(^.*\\.[1-9]+)0+");
 
     private final boolean spanEventsEnabled;
     private final boolean transactionEventsEnabled;
@@ -38,11 +35,10 @@ public class W3CTraceStateHeader {
         if (traceState == null) {
             return createTraceStateHeader(outboundPayload, NR_HEADER_VERSION);
         }
-        String traceStateHeader = createTraceStateHeader(outboundPayload);
-        return Joiner.on(W3CTraceStateSupport.W3C_TRACE_STATE_VENDOR_DELIMITER).join(
-                traceStateHeader,
-                W3CTraceStateSupport.concatenateVendorStates(W3CTraceStateSupport.truncateVendorStates(traceState.getVendorStates()))
-        );
+        StringBuilder traceStateHeader = createTraceStateHeader(new StringBuilder(128), outboundPayload, NR_HEADER_VERSION)
+                .append(W3CTraceStateSupport.W3C_TRACE_STATE_VENDOR_DELIMITER);
+        return W3CTraceStateSupport.appendVendorStates(traceStateHeader, W3CTraceStateSupport.truncateVendorStates(traceState.getVendorStates()))
+                .toString();
     }
 
     String createTraceStateHeader(DistributedTracePayloadImpl payload) {
@@ -50,22 +46,25 @@ public class W3CTraceStateHeader {
     }
 
     String createTraceStateHeader(DistributedTracePayloadImpl payload, String version) {
+        return createTraceStateHeader(new StringBuilder(128), payload, version).toString();
+    }
+
+    private StringBuilder createTraceStateHeader(StringBuilder header, DistributedTracePayloadImpl payload, String version) {
         String spanId = getSpanId(payload);
         String transactionId = getTransactionId(payload);
-        String priority = BigDecimal.valueOf(payload.priority)
+        String priority = PRIORITY_TRAILING_ZEROS.matcher(BigDecimal.valueOf(payload.priority)
                 .setScale(6, RoundingMode.HALF_UP)
-                .toString()
-                .replaceFirst("(^.*\\.[1-9]+)0+", "$1");
-        return NR_TRACE_STATE_JOINER.join(
-                payload.trustKey + NR_VENDOR + version,
-                ParentType.App.value,
-                payload.accountId,
-                payload.applicationId,
-                spanId,
-                transactionId,
-                payload.sampled.booleanValue() ? 1 : 0,
-                priority,
-                payload.timestamp);
+                .toString())
+                .replaceFirst("$1");
+        return header.append(payload.trustKey).append(NR_VENDOR).append(version)
+                .append(NR_TRACE_STATE_DELIMITER).append(ParentType.App.value)
+                .append(NR_TRACE_STATE_DELIMITER).append(payload.accountId)
+                .append(NR_TRACE_STATE_DELIMITER).append(payload.applicationId)
+                .append(NR_TRACE_STATE_DELIMITER).append(spanId)
+                .append(NR_TRACE_STATE_DELIMITER).append(transactionId)
+                .append(NR_TRACE_STATE_DELIMITER).append(payload.sampled.booleanValue() ? 1 : 0)
+                .append(NR_TRACE_STATE_DELIMITER).append(priority)
+                .append(NR_TRACE_STATE_DELIMITER).append(payload.timestamp);
     }
 
     private String getTransactionId(DistributedTracePayloadImpl payload) {
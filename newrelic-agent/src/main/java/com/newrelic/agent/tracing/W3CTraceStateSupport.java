@@ -7,7 +7,6 @@
 
 package com.newrelic.agent.tracing;
 
-import com.google.common.base.Joiner;
 import com.newrelic.agent.MetricNames;
 import com.newrelic.agent.service.ServiceFactory;
 import com.newrelic.api.agent.NewRelic;
@@ -19,32 +18,27 @@ import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
-import java.util.regex.Pattern;
 
-import static com.newrelic.agent.tracing.W3CTraceStateHeader.MULTI_TENANT_VENDOR_STATE_KEY;
+import static com.newrelic.agent.tracing.W3CTraceStateHeader.MULTI_TENANT_DELIMITER;
 import static com.newrelic.agent.tracing.W3CTraceStateHeader.NR_TRACE_STATE_DELIMITER;
 import static com.newrelic.agent.tracing.W3CTraceStateHeader.NR_VENDOR;
 import static com.newrelic.agent.tracing.W3CTraceStateHeader.VENDOR_STATE_KEY_VALUE_DELIMITER;
 
 public class W3CTraceStateSupport {
     // Reference: https://w3c.github.io/trace-context/#key
-    private static final String SINGLE_TENANT_VENDOR_STATE_KEY = "[a-z][_0-9a-z\\-*/]{0,255}";
-
-    private static final String VENDOR_STATE_KEY = "(" + SINGLE_TENANT_VENDOR_STATE_KEY + "|" + MULTI_TENANT_VENDOR_STATE_KEY + ")";
+    // single tenant keys are [a-z][_0-9a-z\-*/]{0,255}
+    private static final int MAX_SINGLE_TENANT_KEY_LENGTH = 256;
+    // multi tenant keys are [a-z0-9][_0-9a-z\-*/]{0,240}@[a-z][_0-9a-z\-*/]{0,13}
+    private static final int MAX_TENANT_ID_LENGTH = 241;
+    private static final int MAX_MULTI_TENANT_VENDOR_LENGTH = 14;
 
     // Reference: https://w3c.github.io/trace-context/#value
-    private static final String VENDOR_STATE_VALUE = "[\\x20-\\x2b\\x2d-\\x3c\\x3e-\\x7e]{0,255}[\\x21-\\x2b\\x2d-\\x3c\\x3e-\\x7e]";
-
-    private static final Pattern VENDOR_STATE_PATTERN = Pattern.compile(
-            "^"
-                    + VENDOR_STATE_KEY
-                    + VENDOR_STATE_KEY_VALUE_DELIMITER
-                    + VENDOR_STATE_VALUE
-                    + "$"
-    );
+    // values are [\x20-\x2b\x2d-\x3c\x3e-\x7e]{0,255}[\x21-\x2b\x2d-\x3c\x3e-\x7e]
+    private static final int MAX_VALUE_LENGTH = 256;
 
     static final int NR_HEADER_VERSION_INT = 0;
     public static final String W3C_TRACE_STATE_VENDOR_DELIMITER = ",";
+    private static final char VENDOR_DELIMITER = ',';
     private static final int MAX_VENDOR_STATE_SIZE = 31;
     private static final int LONG_VENDOR_STATE_SIZE = 128;
 
@@ -200,16 +194,22 @@ public class W3CTraceStateSupport {
     private static VendorStateResult flattenVendorStatesAndExtractNrState(List<String> traceStateHeaders, String agentTrustKey) {
         List<String> vendorStates = new LinkedList<>();
         String nrState = null;
+        String agentNrVendorKey = agentTrustKey + NR_VENDOR;
         for (String header : traceStateHeaders) {
-            String[] splitVendors = header.split(W3C_TRACE_STATE_VENDOR_DELIMITER);
-            for (String vendor : splitVendors) {
-                String trimmedVendor = vendor.trim();
-                if (trimmedVendor.isEmpty()) {
+            int vendorStart = 0;
+            while (vendorStart <= header.length()) {
+                int vendorEnd = header.indexOf(VENDOR_DELIMITER, vendorStart);
+                if (vendorEnd == -1) {
+                    vendorEnd = header.length();
+                }
+                String trimmedVendor = trimmedSubstring(header, vendorStart, vendorEnd);
+                vendorStart = vendorEnd + 1;
+                if (trimmedVendor == null) {
                     continue;
                 }
                 if (trimmedVendor.contains(NR_VENDOR)) {
                     // Pull out and remove the NR vendor state from the list of states if the trust key matches
-                    if (trimmedVendor.startsWith(agentTrustKey + NR_VENDOR)) {
+                    if (trimmedVendor.startsWith(agentNrVendorKey)) {
                         nrState = trimmedVendor;
                         continue;
                     }
@@ -226,8 +226,31 @@ public class W3CTraceStateSupport {
         return new VendorStateResult(vendorStates, nrState);
     }
 
-    static String concatenateVendorStates(List<String> vendorStates) {
-        return Joiner.on(W3C_TRACE_STATE_VENDOR_DELIMITER).join(vendorStates);
+    /**
+     * Same as String.substring(start, end).trim() but without the intermediate copy.
+     *
+     * @return the trimmed vendor state, or null if it is empty
+     */
+    private static String trimmedSubstring(String header, int start, int end) {
+        while (start < end && header.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && header.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return start == end ? null : header.substring(start, end);
+    }
+
+    static StringBuilder appendVendorStates(StringBuilder builder, List<String> vendorStates) {
+        boolean first = true;
+        for (String vendorState : vendorStates) {
+            if (!first) {
+                builder.append(W3C_TRACE_STATE_VENDOR_DELIMITER);
+            }
+            builder.append(vendorState);
+            first = false;
+        }
+        return builder;
     }
 
     public static Set<String> buildVendorKeys(W3CTraceState state) {
@@ -242,8 +265,8 @@ public class W3CTraceStateSupport {
     private static List<String> vendorStatesToVendorKeys(List<String> vendorStates) {
         List<String> vendorKeys = new LinkedList<>();
         for (String vendorState : vendorStates) {
-            String vendorKey = vendorState.split(VENDOR_STATE_KEY_VALUE_DELIMITER)[0];
-            vendorKeys.add(vendorKey);
+            int keyEnd = vendorState.indexOf(VENDOR_STATE_KEY_VALUE_DELIMITER);
+            vendorKeys.add(keyEnd == -1 ? vendorState : vendorState.substring(0, keyEnd));
         }
         return vendorKeys;
     }
@@ -255,11 +278,67 @@ public class W3CTraceStateSupport {
 
     private static boolean anyVendorStateIsInvalid(List<String> vendorStates) {
         for (String vendorState : vendorStates) {
-            if (!VENDOR_STATE_PATTERN.matcher(vendorState).matches()) {
+            if (!isValidVendorState(vendorState)) {
                 return true;
             }
         }
         return false;
     }
 
+    /**
+     * Validates a single key=value list member by hand, this runs for every vendor state on every inbound request.
+     */
+    static boolean isValidVendorState(String vendorState) {
+        int keyEnd = vendorState.indexOf(VENDOR_STATE_KEY_VALUE_DELIMITER);
+        if (keyEnd == -1) {
+            return false;
+        }
+        int tenantEnd = vendorState.lastIndexOf(MULTI_TENANT_DELIMITER, keyEnd);
+        boolean validKey = tenantEnd == -1
+                ? isValidKeyPart(vendorState, 0, keyEnd, MAX_SINGLE_TENANT_KEY_LENGTH, false)
+                : isValidKeyPart(vendorState, 0, tenantEnd, MAX_TENANT_ID_LENGTH, true)
+                && isValidKeyPart(vendorState, tenantEnd + 1, keyEnd, MAX_MULTI_TENANT_VENDOR_LENGTH, false);
+        return validKey && isValidValue(vendorState, keyEnd + 1, vendorState.length());
+    }
+
+    private static boolean isValidKeyPart(String vendorState, int start, int end, int maxLength, boolean allowLeadingDigit) {
+        int length = end - start;
+        if (length < 1 || length > maxLength) {
+            return false;
+        }
+        char first = vendorState.charAt(start);
+        if (!isLowerCaseLetter(first) && !(allowLeadingDigit && isDigit(first))) {
+            return false;
+        }
+        for (int i = start + 1; i < end; i++) {
+            char character = vendorState.charAt(i);
+            if (!isLowerCaseLetter(character) && !isDigit(character) && character != '_' && character != '-' && character != '*' && character != '/') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isValidValue(String vendorState, int start, int end) {
+        int length = end - start;
+        if (length < 1 || length > MAX_VALUE_LENGTH || vendorState.charAt(end - 1) == ' ') {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char character = vendorState.charAt(i);
+            if (character < 0x20 || character > 0x7e || character == ',' || character == '=') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLowerCaseLetter(char character) {
+        return character >= 'a' && character <= 'z';
+    }
+
+    private static boolean isDigit(char character) {
+        return character >= '0' && character <= '9';
+    }
+
 }
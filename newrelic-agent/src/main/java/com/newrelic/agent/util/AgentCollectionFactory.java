@@ -7,11 +7,20 @@
 
 package com.newrelic.agent.util;
 
+import java.text.MessageFormat;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.newrelic.agent.MetricNames;
 import com.newrelic.agent.bridge.CollectionFactory;
+import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.stats.StatsWorks;
 
 public class AgentCollectionFactory implements CollectionFactory {
 
@@ -20,4 +29,33 @@ public class AgentCollectionFactory implements CollectionFactory {
         Cache<K, V> cache = Caffeine.newBuilder().initialCapacity(32).weakKeys().executor(Runnable::run).build();
         return cache.asMap();
     }
+
+    @Override
+    public <K, V> Map<K, V> createConcurrentAccessTimeBasedEvictionMap(String name, long ageInSeconds) {
+        return createConcurrentAccessTimeBasedEvictionMap(name, ageInSeconds, Ticker.systemTicker());
+    }
+
+    <K, V> Map<K, V> createConcurrentAccessTimeBasedEvictionMap(String name, long ageInSeconds, Ticker ticker) {
+        final String evictionMetric = MessageFormat.format(MetricNames.SUPPORTABILITY_CACHE_EVICTIONS, name);
+        // Without a scheduler Caffeine amortizes expiration over reads and writes on the calling threads
+        Cache<K, V> cache = Caffeine.newBuilder()
+                .initialCapacity(16)
+                .expireAfterAccess(ageInSeconds, TimeUnit.SECONDS)
+                .ticker(ticker)
+                .executor(Runnable::run)
+                .removalListener((K key, V value, RemovalCause cause) -> {
+                    if (cause == RemovalCause.EXPIRED) {
+                        ServiceFactory.getStatsService().doStatsWork(
+                                StatsWorks.getIncrementCounterWork(evictionMetric, 1), evictionMetric);
+                    }
+                })
+                .build();
+        return cache.asMap();
+    }
+
+    @Override
+    public <K, V> Function<K, V> memorize(Function<K, V> loader, int maxSize) {
+        LoadingCache<K, V> cache = Caffeine.newBuilder().maximumSize(maxSize).executor(Runnable::run).build(loader::apply);
+        return cache::get;
+    }
 }
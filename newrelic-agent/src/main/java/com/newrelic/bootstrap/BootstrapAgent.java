@@ -29,6 +29,7 @@ import java.net.URLClassLoader;
 import java.text.MessageFormat;
 import java.util.Base64;
 import java.util.Collection;
+import java.util.Map;
 import java.util.zip.InflaterInputStream;
 
 public class BootstrapAgent {
@@ -171,14 +172,23 @@ public class BootstrapAgent {
             addReadUnnamedModuleToHttpModule(inst, agentClassLoaderParent);
 
             Class<?> agentClass = classLoader.loadClass(AGENT_CLASS_NAME);
-            Method continuePremain = agentClass.getDeclaredMethod("continuePremain", String.class, Instrumentation.class, long.class);
-            continuePremain.invoke(null, agentArgs, inst, startTime);
+            continuePremain(agentClass, agentArgs, inst, startTime);
         } catch (Throwable t) {
             System.err.println(MessageFormat.format("Error bootstrapping New Relic agent: {0}", t));
             t.printStackTrace();
         }
     }
 
+    /**
+     * The agent class loader has its own copy of the bootstrap classes, so what they recorded is passed along.
+     */
+    static void continuePremain(Class<?> agentClass, String agentArgs, Instrumentation inst, long startTime) throws Exception {
+        Method continuePremain = agentClass.getDeclaredMethod("continuePremain", String.class, Instrumentation.class,
+                long.class, long.class, Map.class);
+        continuePremain.invoke(null, agentArgs, inst, startTime, BootstrapLoader.getLoadTimeInNanos(),
+                EmbeddedJarFilesImpl.INSTANCE.getJarFileTimings());
+    }
+
     /**
      * The "getPlatformClassLoader" method only exists on Java >= 9, so we reflect in to get it. If there's no
      * platform class loader (usually because we're on Java < 9 and the concept doesn't exist), then
@@ -49,6 +49,12 @@ public class BootstrapLoader {
      */
     private static final String NEWRELIC_TEMPDIR = "newrelic.tempdir";
 
+    /**
+     * Like the tempdir, the jar cache directory can only be set as a system property. When it is set the embedded jars
+     * are kept there across restarts instead of being extracted to temp files on every start.
+     */
+    private static final String NEWRELIC_JAR_CACHE_DIR = "newrelic.jar_cache_dir";
+
     public static final String API_JAR_NAME = "newrelic-api";
 
     public static final String WEAVER_API_JAR_NAME = "newrelic-weaver-api";
@@ -81,11 +87,14 @@ public class BootstrapLoader {
         }
     }
 
+    private static volatile long loadTimeInNanos;
+
     private static final String NEWRELIC_API_INTERNAL_CLASS_NAME = "com/newrelic/api/agent/NewRelic";
     private static final String NEWRELIC_SECURITY_API_INTERNAL_CLASS_NAME = "com/newrelic/api/agent/security/NewRelicSecurity";
 
-    private static void addBridgeJarToClassPath(Instrumentation instrProxy, String jar) throws ClassNotFoundException, IOException {
-        JarFile jarFileInAgent = new JarFile(EmbeddedJarFilesImpl.INSTANCE.getJarFileInAgent(jar));
+    private static void addBridgeJarToClassPath(Instrumentation instrProxy, EmbeddedJarFiles embeddedJarFiles, String jar)
+            throws ClassNotFoundException, IOException {
+        JarFile jarFileInAgent = new JarFile(embeddedJarFiles.getJarFileInAgent(jar));
         addJarToClassPath(instrProxy, jarFileInAgent);
     }
 
@@ -149,19 +158,34 @@ public class BootstrapLoader {
      *                                             required classes will be loaded by the platform class loader instead.
      */
     static void load(Instrumentation inst, boolean isJavaSqlLoadedOnPlatformClassLoader) {
+        load(inst, isJavaSqlLoadedOnPlatformClassLoader, EmbeddedJarFilesImpl.INSTANCE);
+    }
+
+    static void load(Instrumentation inst, boolean isJavaSqlLoadedOnPlatformClassLoader, EmbeddedJarFiles embeddedJarFiles) {
+        long startTime = System.nanoTime();
         try {
             if (!isJavaSqlLoadedOnPlatformClassLoader) {
-                addBridgeJarToClassPath(inst, AGENT_BRIDGE_DATASTORE_JAR_NAME);
+                addBridgeJarToClassPath(inst, embeddedJarFiles, AGENT_BRIDGE_DATASTORE_JAR_NAME);
             }
 
-            addBridgeJarToClassPath(inst, AGENT_BRIDGE_JAR_NAME);
-            addJarToClassPath(inst, new JarFile(EmbeddedJarFilesImpl.INSTANCE.getJarFileInAgent(API_JAR_NAME)));
-            addJarToClassPath(inst, new JarFile(EmbeddedJarFilesImpl.INSTANCE.getJarFileInAgent(WEAVER_API_JAR_NAME)));
-            addJarToClassPath(inst, new JarFile(EmbeddedJarFilesImpl.INSTANCE.getJarFileInAgent(NEWRELIC_SECURITY_API)));
-            addJarToClassPath(inst, new JarFile(EmbeddedJarFilesImpl.INSTANCE.getJarFileInAgent(NEWRELIC_SECURITY_AGENT)));
+            addBridgeJarToClassPath(inst, embeddedJarFiles, AGENT_BRIDGE_JAR_NAME);
+            addJarToClassPath(inst, new JarFile(embeddedJarFiles.getJarFileInAgent(API_JAR_NAME)));
+            addJarToClassPath(inst, new JarFile(embeddedJarFiles.getJarFileInAgent(WEAVER_API_JAR_NAME)));
+            addJarToClassPath(inst, new JarFile(embeddedJarFiles.getJarFileInAgent(NEWRELIC_SECURITY_API)));
+            addJarToClassPath(inst, new JarFile(embeddedJarFiles.getJarFileInAgent(NEWRELIC_SECURITY_AGENT)));
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
+        loadTimeInNanos = System.nanoTime() - startTime;
+    }
+
+    /**
+     * Returns how long {@link #load(Instrumentation, boolean)} took to get the embedded jars and add them to the
+     * bootstrap classpath, or 0 if the agent wasn't started through premain. The agent class loader has its own copy of
+     * this class, so the agent gets this value as an argument of continuePremain rather than by calling this method.
+     */
+    public static long getLoadTimeInNanos() {
+        return loadTimeInNanos;
     }
 
     /**
@@ -213,4 +237,28 @@ public class BootstrapLoader {
         return null;
     }
 
+    /**
+     * Returns the directory the embedded jars are cached in, or null if they should be extracted to temp files. This
+     * can be set using the newrelic.jar_cache_dir system property. The jar cache won't use a directory that other users
+     * can write to.
+     */
+    public static File getJarCacheDir() {
+        String jarCacheDir = System.getProperty(NEWRELIC_JAR_CACHE_DIR);
+        if (null != jarCacheDir) {
+            File jarCacheDirFile = new File(jarCacheDir);
+            if (jarCacheDirFile.isDirectory()) {
+                return jarCacheDirFile;
+            }
+            if (jarCacheDirFile.mkdirs()) {
+                // only the owner can write to it, whatever the umask
+                jarCacheDirFile.setWritable(false, false);
+                jarCacheDirFile.setWritable(true, true);
+                return jarCacheDirFile;
+            } else {
+                System.err.println("Jar cache directory specified by newrelic.jar_cache_dir can not be created - " + jarCacheDir);
+            }
+        }
+        return null;
+    }
+
 }
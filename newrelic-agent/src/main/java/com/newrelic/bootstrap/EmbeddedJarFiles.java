@@ -9,6 +9,7 @@ package com.newrelic.bootstrap;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Map;
 
 public interface EmbeddedJarFiles {
 
@@ -25,4 +26,11 @@ public interface EmbeddedJarFiles {
      */
     File getJarFileInAgent(String jarNameWithoutExtension) throws IOException;
 
+    /**
+     * Returns how each jar returned by {@link #getJarFileInAgent(String)} was written out or found in the jar cache
+     * directory, and how long that took, keyed by jar name. The jars are needed before the logger is configured, so
+     * this is logged later.
+     */
+    Map<String, String> getJarFileTimings();
+
 }
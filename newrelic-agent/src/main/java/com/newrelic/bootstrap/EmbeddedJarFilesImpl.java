@@ -8,11 +8,26 @@
 package com.newrelic.bootstrap;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.CacheLoader;
@@ -25,42 +40,80 @@ public class EmbeddedJarFilesImpl implements EmbeddedJarFiles {
 
     public static final EmbeddedJarFiles INSTANCE = new EmbeddedJarFilesImpl();
 
+    static final long STALE_JAR_AGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    static final String VERIFIED_SUFFIX = ".verified";
+
     /**
-     * A map of jar names to the temp files containing those jars.
+     * A map of jar names to the temp files, or jar cache files, containing those jars.
      */
     private final LoadingCache<String, File> embeddedAgentJarFiles = Caffeine.newBuilder().executor(Runnable::run).build(
             new CacheLoader<String, File>() {
 
                 @Override
                 public File load(String jarNameWithoutExtension) throws IOException {
-                    InputStream jarStream = EmbeddedJarFilesImpl.class.getClassLoader().getResourceAsStream(
-                            jarNameWithoutExtension + ".jar");
-                    if (jarStream == null) {
+                    long startTime = System.nanoTime();
+                    URL jarUrl = classLoader.getResource(jarNameWithoutExtension + ".jar");
+                    if (jarUrl == null) {
                         throw new FileNotFoundException(jarNameWithoutExtension + ".jar");
                     }
 
-                    File file = File.createTempFile(jarNameWithoutExtension, ".jar", BootstrapLoader.getTempDir());
-                    file.deleteOnExit(); // Doesn't need to be kept after shutdown.
-
-                    try (OutputStream out = new FileOutputStream(file)) {
-                        BootstrapLoader.copy(jarStream, out, 8096, true);
-
-                        return file;
+                    File file = null;
+                    if (jarCacheDirectory != null) {
+                        file = getCachedJarFile(jarNameWithoutExtension, jarUrl, startTime);
                     }
-
+                    if (file == null) {
+                        file = extractToTempFile(jarNameWithoutExtension, jarUrl);
+                        recordTiming(jarNameWithoutExtension, "extracted", startTime);
+                    }
+                    return file;
                 }
 
             });
 
     private final String[] jarFileNames;
+    private final ClassLoader classLoader;
+    private final File jarCacheDirectory;
+    private final Map<String, String> jarFileTimings = Collections.synchronizedMap(new LinkedHashMap<String, String>());
 
     public EmbeddedJarFilesImpl() {
         this(INTERNAL_JAR_FILE_NAMES);
     }
 
     public EmbeddedJarFilesImpl(String[] jarFileNames) {
+        this(jarFileNames, EmbeddedJarFilesImpl.class.getClassLoader(), BootstrapLoader.getJarCacheDir());
+    }
+
+    /**
+     * @param jarCacheDirectory directory the jars are kept in across restarts, or null to extract them to temp files
+     */
+    EmbeddedJarFilesImpl(String[] jarFileNames, ClassLoader classLoader, File jarCacheDirectory) {
         super();
         this.jarFileNames = jarFileNames;
+        this.classLoader = classLoader;
+        this.jarCacheDirectory = jarCacheDirectory != null && isWritableByOthers(jarCacheDirectory) ? null : jarCacheDirectory;
+    }
+
+    /**
+     * The cached jars are added to the bootstrap class path, so a directory that other users can write to would let
+     * them replace the agent's classes.
+     */
+    private static boolean isWritableByOthers(File jarCacheDirectory) {
+        try {
+            Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(jarCacheDirectory.toPath());
+            if (permissions.contains(PosixFilePermission.GROUP_WRITE) || permissions.contains(PosixFilePermission.OTHERS_WRITE)) {
+                System.err.println("Not using the jar cache directory " + jarCacheDirectory
+                        + " because it can be written to by other users");
+                return true;
+            }
+            return false;
+        } catch (UnsupportedOperationException e) {
+            // not a POSIX file system, the directory's access control list is left to the user
+            return false;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Unable to check the permissions of the jar cache directory " + jarCacheDirectory + " - " + e);
+            return true;
+        }
     }
 
     @Override
@@ -72,4 +125,124 @@ public class EmbeddedJarFilesImpl implements EmbeddedJarFiles {
     public String[] getEmbeddedAgentJarFileNames() {
         return jarFileNames;
     }
+
+    @Override
+    public Map<String, String> getJarFileTimings() {
+        synchronized (jarFileTimings) {
+            return new LinkedHashMap<>(jarFileTimings);
+        }
+    }
+
+    private File extractToTempFile(String jarNameWithoutExtension, URL jarUrl) throws IOException {
+        File file = File.createTempFile(jarNameWithoutExtension, ".jar", BootstrapLoader.getTempDir());
+        file.deleteOnExit(); // Doesn't need to be kept after shutdown.
+
+        try (OutputStream out = new FileOutputStream(file)) {
+            BootstrapLoader.copy(jarUrl.openStream(), out, 8096, true);
+            return file;
+        }
+    }
+
+    /**
+     * The jar cache is content addressed: a cached jar is named after the CRC and size that the agent jar records for
+     * its entry, so a different agent version gets its own file. Jars are written to a temp file in the cache directory
+     * and then renamed, so a JVM never sees a partially written jar.
+     *
+     * A cached jar is only reused once its CRC has been checked. Reading the whole jar on every start would cost almost
+     * as much as extracting it, so the check is done once and an empty marker file next to the jar records it. A jar
+     * that changes on disk after it was checked isn't noticed; only the owner can write to the directory, see
+     * {@link #isWritableByOthers(File)}.
+     *
+     * @return the cached jar, or null if the jar can't be cached and has to be extracted to a temp file
+     */
+    private File getCachedJarFile(String jarNameWithoutExtension, URL jarUrl, long startTime) {
+        try {
+            URLConnection connection = jarUrl.openConnection();
+            if (!(connection instanceof JarURLConnection)) {
+                return null;
+            }
+            JarEntry jarEntry = ((JarURLConnection) connection).getJarEntry();
+            if (jarEntry == null || jarEntry.getCrc() == -1 || jarEntry.getSize() == -1) {
+                return null;
+            }
+
+            File cachedFile = new File(jarCacheDirectory, jarNameWithoutExtension + '-' + Long.toHexString(jarEntry.getCrc())
+                    + '-' + jarEntry.getSize() + ".jar");
+            File verifiedFile = getVerifiedFile(cachedFile);
+            long now = System.currentTimeMillis();
+            if (cachedFile.isFile() && cachedFile.length() == jarEntry.getSize()) {
+                if (verifiedFile.isFile()) {
+                    // marks the jar as in use, see deleteStaleJarFiles
+                    cachedFile.setLastModified(now);
+                    recordTiming(jarNameWithoutExtension, "found in the jar cache", startTime);
+                    return cachedFile;
+                }
+                if (getCrc(cachedFile) == jarEntry.getCrc()) {
+                    cachedFile.setLastModified(now);
+                    verifiedFile.createNewFile();
+                    recordTiming(jarNameWithoutExtension, "verified in the jar cache", startTime);
+                    return cachedFile;
+                }
+            }
+
+            File tempFile = File.createTempFile(jarNameWithoutExtension, ".tmp", jarCacheDirectory);
+            try {
+                try (OutputStream out = new FileOutputStream(tempFile)) {
+                    BootstrapLoader.copy(connection.getInputStream(), out, 8096, true);
+                }
+                Files.move(tempFile.toPath(), cachedFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                tempFile.delete();
+            }
+            // the jar was just written from the agent jar
+            verifiedFile.createNewFile();
+            deleteStaleJarFiles(jarNameWithoutExtension, cachedFile, now);
+            recordTiming(jarNameWithoutExtension, "added to the jar cache", startTime);
+            return cachedFile;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Unable to use the jar cache for " + jarNameWithoutExtension + " - " + e);
+            return null;
+        }
+    }
+
+    private static File getVerifiedFile(File cachedFile) {
+        return new File(cachedFile.getParentFile(), cachedFile.getName() + VERIFIED_SUFFIX);
+    }
+
+    private void recordTiming(String jarNameWithoutExtension, String source, long startTime) {
+        jarFileTimings.put(jarNameWithoutExtension, source + " in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + "ms");
+    }
+
+    private static long getCrc(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[8096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Remove the jars cached by other agent versions once no JVM has started with them for {@link #STALE_JAR_AGE_MILLIS}.
+     * Other versions may still be starting from the directory, for instance during a rolling deploy.
+     */
+    private void deleteStaleJarFiles(String jarNameWithoutExtension, File cachedFile, long now) {
+        Pattern cachedJarName = Pattern.compile(Pattern.quote(jarNameWithoutExtension) + "-[0-9a-f]+-[0-9]+\\.jar");
+        File[] files = jarCacheDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (!file.equals(cachedFile) && cachedJarName.matcher(file.getName()).matches()
+                    && now - file.lastModified() > STALE_JAR_AGE_MILLIS) {
+                file.delete();
+                getVerifiedFile(file).delete();
+            }
+        }
+    }
 }
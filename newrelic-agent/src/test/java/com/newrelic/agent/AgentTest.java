@@ -14,6 +14,8 @@ import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 
 import java.lang.instrument.Instrumentation;
+import java.util.Collections;
+
 public class AgentTest {
 
     static IAgentLogger logger;
@@ -54,7 +56,7 @@ public class AgentTest {
             Mockito.when(configService.getDefaultAgentConfig()).thenReturn(agentConfig);
             csfMock.when(() -> ConfigServiceFactory.createConfigService(Mockito.any(), Mockito.anyBoolean())).thenReturn(configService);
 
-            Agent.continuePremain("", instrumentation, System.currentTimeMillis());
+            Agent.continuePremain("", instrumentation, System.currentTimeMillis(), 0, Collections.<String, String>emptyMap());
             Mockito.verify(logger).error(Mockito.contains("license_key is empty in the config. Not starting New Relic Agent"));
         }
         ServiceFactory.setServiceManager(null); // reset
@@ -70,7 +72,7 @@ public class AgentTest {
             Mockito.when(configService.getDefaultAgentConfig()).thenReturn(agentConfig);
             csfMock.when(() -> ConfigServiceFactory.createConfigService(Mockito.any(), Mockito.anyBoolean())).thenReturn(configService);
 
-            Agent.continuePremain("", instrumentation, System.currentTimeMillis());
+            Agent.continuePremain("", instrumentation, System.currentTimeMillis(), 0, Collections.<String, String>emptyMap());
             Mockito.verify(logger).warning(Mockito.contains("agent_enabled is false in the config. Not starting New Relic Agent"));
         }
         ServiceFactory.setServiceManager(null); // reset
@@ -81,7 +83,7 @@ public class AgentTest {
         ServiceManager serviceManager = Mockito.mock(ServiceManager.class);
         ServiceFactory.setServiceManager(serviceManager);
 
-        Agent.continuePremain("", instrumentation, System.currentTimeMillis());
+        Agent.continuePremain("", instrumentation, System.currentTimeMillis(), 0, Collections.<String, String>emptyMap());
         Mockito.verify(logger).warning(Mockito.contains("New Relic Agent is already running"));
 
         ServiceFactory.setServiceManager(null); // reset
@@ -91,7 +93,7 @@ public class AgentTest {
         Instrumentation instrumentation = Mockito.mock(Instrumentation.class);
         String oldValue = System.getProperty(propertyName);
         System.setProperty(propertyName, value);
-        Agent.continuePremain("", instrumentation, System.currentTimeMillis());
+        Agent.continuePremain("", instrumentation, System.currentTimeMillis(), 0, Collections.<String, String>emptyMap());
         Mockito.verify(logger).warning(Mockito.contains(logMessage));
         if (oldValue == null) {
             System.clearProperty(propertyName);
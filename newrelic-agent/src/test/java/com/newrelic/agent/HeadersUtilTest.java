@@ -21,6 +21,7 @@ import com.newrelic.agent.tracers.Tracer;
 import com.newrelic.agent.util.MockDistributedTraceService;
 import com.newrelic.api.agent.HeaderType;
 import com.newrelic.api.agent.InboundHeaders;
+import org.junit.After;
 import org.junit.Test;
 
 import java.nio.charset.StandardCharsets;
@@ -31,28 +32,18 @@ import java.util.Map;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class HeadersUtilTest {
+    @After
+    public void tearDown() {
+        Transaction.clearTransaction();
+    }
+
     @Test
     public void createDTHeadersSetsSpanIdEvenIfTxNotSampled() {
-        ConfigService mockConfigService = new MockConfigService(AgentConfigImpl.createAgentConfig(
-                ImmutableMap.of(
-                        AgentConfigImpl.APP_NAME,
-                        "Unit Test",
-                        AgentConfigImpl.DISTRIBUTED_TRACING,
-                        Collections.singletonMap(DistributedTracingConfig.ENABLED, true),
-                        AgentConfigImpl.SPAN_EVENTS,
-                        ImmutableMap.of(
-                                SpanEventsConfig.ENABLED, true,
-                                SpanEventsConfig.COLLECT_SPAN_EVENTS, true)
-                )));
-        MockServiceManager mockServiceManager = new MockServiceManager(mockConfigService);
-        mockServiceManager.setDistributedTraceService(new MockDistributedTraceService());
-        ServiceFactory.setServiceManager(mockServiceManager);
-        Transaction tx = Transaction.getTransaction();
-        tx.setPriorityIfNotNull(0F);
-        tx.startTransactionIfBeginning(new MockDispatcherTracer(tx));
+        Transaction tx = startTransaction();
 
         Tracer mockTracer = new DefaultTracer(tx, new ClassMethodSignature(getClass().getName(), "tracerMethod", "()V"), this);
 
@@ -77,6 +68,58 @@ public class HeadersUtilTest {
         assertEquals("tracestate txId field should match tx id.", tx.getGuid(), traceState.split("-")[5]);
     }
 
+    @Test
+    public void createDTHeadersReusesHeadersForSameTracer() {
+        Transaction tx = startTransaction();
+        Tracer tracer = new DefaultTracer(tx, new ClassMethodSignature(getClass().getName(), "tracerMethod", "()V"), this);
+
+        OutboundHeadersMap first = new OutboundHeadersMap(HeaderType.HTTP);
+        OutboundHeadersMap retry = new OutboundHeadersMap(HeaderType.HTTP);
+        assertTrue(HeadersUtil.createAndSetDistributedTraceHeaders(tx, tracer, first));
+        assertTrue(HeadersUtil.createAndSetDistributedTraceHeaders(tx, tracer, retry));
+
+        assertEquals(first, retry);
+        assertSame(first.get("newrelic"), retry.get("newrelic"));
+    }
+
+    @Test
+    public void createDTHeadersRecreatesHeadersWhenSamplingChanges() {
+        Transaction tx = startTransaction();
+        Tracer tracer = new DefaultTracer(tx, new ClassMethodSignature(getClass().getName(), "tracerMethod", "()V"), this);
+
+        OutboundHeadersMap notSampled = new OutboundHeadersMap(HeaderType.HTTP);
+        assertTrue(HeadersUtil.createAndSetDistributedTraceHeaders(tx, tracer, notSampled));
+
+        tx.setPriorityIfNotNull(1.5F);
+        OutboundHeadersMap sampled = new OutboundHeadersMap(HeaderType.HTTP);
+        assertTrue(HeadersUtil.createAndSetDistributedTraceHeaders(tx, tracer, sampled));
+
+        assertTrue(notSampled.get("traceparent").endsWith("-00"));
+        assertTrue(sampled.get("traceparent").endsWith("-01"));
+    }
+
+    private Transaction startTransaction() {
+        ConfigService mockConfigService = new MockConfigService(AgentConfigImpl.createAgentConfig(
+                ImmutableMap.of(
+                        AgentConfigImpl.APP_NAME,
+                        "Unit Test",
+                        AgentConfigImpl.DISTRIBUTED_TRACING,
+                        Collections.singletonMap(DistributedTracingConfig.ENABLED, true),
+                        AgentConfigImpl.SPAN_EVENTS,
+                        ImmutableMap.of(
+                                SpanEventsConfig.ENABLED, true,
+                                SpanEventsConfig.COLLECT_SPAN_EVENTS, true)
+                )));
+        MockServiceManager mockServiceManager = new MockServiceManager(mockConfigService);
+        mockServiceManager.setDistributedTraceService(new MockDistributedTraceService());
+        ServiceFactory.setServiceManager(mockServiceManager);
+        Transaction tx = Transaction.getTransaction();
+        tx.setPriorityIfNotNull(0F);
+        tx.startTransactionIfBeginning(new MockDispatcherTracer(tx));
+
+        return tx;
+    }
+
     @Test
     public void getTraceHeader() {
         assertEquals("abc",
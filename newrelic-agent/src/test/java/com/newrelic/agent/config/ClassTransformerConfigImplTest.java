@@ -53,6 +53,119 @@ public class ClassTransformerConfigImplTest {
         Assert.assertFalse(config.isEnabled());
     }
 
+    @Test
+    public void transformCache() throws Exception {
+        Map<String, Object> classTransformerMap = new HashMap<>();
+        ClassTransformerConfig config = ClassTransformerConfigImpl.createClassTransformerConfig(classTransformerMap, true, false);
+        assertFalse(config.isTransformCacheEnabled());
+        Assert.assertNull(config.getTransformCacheDirectory());
+        Assert.assertEquals(ClassTransformerConfigImpl.DEFAULT_TRANSFORM_CACHE_MAX_ENTRIES, config.getTransformCacheMaxEntries());
+
+        classTransformerMap.put(ClassTransformerConfigImpl.TRANSFORM_CACHE_ENABLED, true);
+        classTransformerMap.put(ClassTransformerConfigImpl.TRANSFORM_CACHE_DIRECTORY, "/var/cache/newrelic");
+        classTransformerMap.put(ClassTransformerConfigImpl.TRANSFORM_CACHE_MAX_ENTRIES, 1000);
+        config = ClassTransformerConfigImpl.createClassTransformerConfig(classTransformerMap, true, false);
+        assertTrue(config.isTransformCacheEnabled());
+        Assert.assertEquals("/var/cache/newrelic", config.getTransformCacheDirectory());
+        Assert.assertEquals(1000, config.getTransformCacheMaxEntries());
+
+        classTransformerMap.put(ClassTransformerConfigImpl.TRANSFORM_CACHE_MAX_ENTRIES, 0);
+        config = ClassTransformerConfigImpl.createClassTransformerConfig(classTransformerMap, true, false);
+        assertFalse(config.isTransformCacheEnabled());
+    }
+
+    @Test
+    public void validationCache() throws Exception {
+        Map<String, Object> classTransformerMap = new HashMap<>();
+        ClassTransformerConfig config = ClassTransformerConfigImpl.createClassTransformerConfig(classTransformerMap, true, false);
+        assertFalse(config.isValidationCacheEnabled());
+
+        classTransformerMap.put(ClassTransformerConfigImpl.VALIDATION_CACHE_ENABLED, true);
+        config = ClassTransformerConfigImpl.createClassTransformerConfig(classTransformerMap, true, false);
+        assertTrue(config.isValidationCacheEnabled());
+    }
+
+    @Test
+    public void retransformChunkSize() throws Exception {
+        Map<String, Object> classTransformerMap = new HashMap<>();
+        ClassTransformerConfig config = ClassTransformerConfigImpl.createClassTransformerConfig(classTransformerMap, true, false);
+        Assert.assertEquals(ClassTransformerConfigImpl.DEFAULT_RETRANSFORM_CHUNK_SIZE, config.getRetransformChunkSize());
+
+        classTransformerMap.put(ClassTransformerConfigImpl.RETRANSFORM_CHUNK_SIZE, 0);
+        config = ClassTransformerConfigImpl.createClassTransformerConfig(classTransformerMap, true, false);
+        Assert.assertEquals(0, config.getRetransformChunkSize());
+    }
+
+    @Test
+    public void deferredWeaving() throws Exception {
+        WeavePackageConfig jmx = WeavePackageConfig.builder().name("com.newrelic.instrumentation.solr-jmx-7.0.0").build();
+        WeavePackageConfig kafkaMetrics = WeavePackageConfig.builder().name("com.newrelic.instrumentation.kafka-clients-metrics-2.0.0").build();
+        WeavePackageConfig servlet = WeavePackageConfig.builder().name("com.newrelic.instrumentation.servlet-2.4").build();
+
+        Map<String, Object> classTransformerMap = new HashMap<>();
+        ClassTransformerConfig config = ClassTransformerConfigImpl.createClassTransformerConfig(classTransformerMap, true, false);
+        assertFalse(config.isDeferredWeavingEnabled());
+        assertFalse(config.isWeavePackageDeferred(jmx));
+        Assert.assertEquals(ClassTransformerConfigImpl.DEFAULT_DEFERRED_WEAVING_DELAY, config.getDeferredWeavingDelayInSeconds());
+
+        classTransformerMap.put(ClassTransformerConfigImpl.DEFERRED_WEAVING_ENABLED, true);
+        classTransformerMap.put(ClassTransformerConfigImpl.DEFERRED_WEAVING_DELAY, 5);
+        config = ClassTransformerConfigImpl.createClassTransformerConfig(classTransformerMap, true, false);
+        assertTrue(config.isDeferredWeavingEnabled());
+        Assert.assertEquals(5, config.getDeferredWeavingDelayInSeconds());
+        assertTrue(config.isWeavePackageDeferred(jmx));
+        assertTrue(config.isWeavePackageDeferred(kafkaMetrics));
+        assertFalse(config.isWeavePackageDeferred(servlet));
+
+        classTransformerMap.put(ClassTransformerConfigImpl.DEFERRED_WEAVE_PACKAGES, "com\\.newrelic\\.instrumentation\\.servlet-.*");
+        classTransformerMap.put(jmx.getName(), ImmutableMap.of(ClassTransformerConfigImpl.DEFERRED, true));
+        config = ClassTransformerConfigImpl.createClassTransformerConfig(classTransformerMap, true, false);
+        assertTrue(config.isWeavePackageDeferred(jmx));
+        assertFalse(config.isWeavePackageDeferred(kafkaMetrics));
+        assertTrue(config.isWeavePackageDeferred(servlet));
+
+        classTransformerMap.put(servlet.getName(), ImmutableMap.of(ClassTransformerConfigImpl.DEFERRED, false));
+        config = ClassTransformerConfigImpl.createClassTransformerConfig(classTransformerMap, true, false);
+        assertFalse(config.isWeavePackageDeferred(servlet));
+    }
+
+    @Test
+    public void prefilterClassMatchers() throws Exception {
+        Map<String, Object> classTransformerMap = new HashMap<>();
+        ClassTransformerConfig config = ClassTransformerConfigImpl.createClassTransformerConfig(classTransformerMap, true, false);
+        assertTrue(config.prefilterClassMatchers());
+
+        classTransformerMap.put(ClassTransformerConfigImpl.PREFILTER_CLASS_MATCHERS, false);
+        config = ClassTransformerConfigImpl.createClassTransformerConfig(classTransformerMap, true, false);
+        assertFalse(config.prefilterClassMatchers());
+    }
+
+    @Test
+    public void singlePassTransform() throws Exception {
+        Map<String, Object> classTransformerMap = new HashMap<>();
+        ClassTransformerConfig config = ClassTransformerConfigImpl.createClassTransformerConfig(classTransformerMap, true, false);
+        assertTrue(config.singlePassTransform());
+
+        classTransformerMap.put(ClassTransformerConfigImpl.SINGLE_PASS_TRANSFORM, false);
+        config = ClassTransformerConfigImpl.createClassTransformerConfig(classTransformerMap, true, false);
+        assertFalse(config.singlePassTransform());
+    }
+
+    @Test
+    public void classInformationCacheSize() throws Exception {
+        Map<String, Object> classTransformerMap = new HashMap<>();
+        ClassTransformerConfig config = ClassTransformerConfigImpl.createClassTransformerConfig(classTransformerMap, true, false);
+        Assert.assertEquals(ClassTransformerConfigImpl.DEFAULT_CLASS_INFORMATION_CACHE_SIZE, config.getClassInformationCacheSize());
+
+        classTransformerMap.put(ClassTransformerConfigImpl.CLASS_INFORMATION_CACHE_SIZE, 100);
+        config = ClassTransformerConfigImpl.createClassTransformerConfig(classTransformerMap, true, false);
+        Assert.assertEquals(100, config.getClassInformationCacheSize());
+
+        classTransformerMap.put(ClassTransformerConfigImpl.CLASS_INFORMATION_CACHE_SIZE, -1);
+        config = ClassTransformerConfigImpl.createClassTransformerConfig(classTransformerMap, true, false);
+        Assert.assertEquals(0, config.getClassInformationCacheSize());
+    }
+
     @Test
     public void isInstrumentationDefaultEnabled() throws Exception {
         Map<String, Object> classTransformerMap = new HashMap<>();
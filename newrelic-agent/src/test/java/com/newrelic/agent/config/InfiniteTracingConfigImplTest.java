@@ -23,6 +23,7 @@ import static com.newrelic.agent.config.InfiniteTracingTraceObserverConfig.HOST;
 import static com.newrelic.agent.config.InfiniteTracingTraceObserverConfig.PORT;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class InfiniteTracingConfigImplTest {
@@ -73,6 +74,54 @@ public class InfiniteTracingConfigImplTest {
         assertTrue(config.getUseCompression());
     }
 
+    @Test
+    public void testBatchingDefaults() {
+        InfiniteTracingConfigImpl config = new InfiniteTracingConfigImpl(localProps);
+        assertEquals(100, config.getBatchSize());
+        assertEquals(4 * 1024 * 1024, config.getBatchMaxBytes());
+        assertEquals(5000, config.getBatchLingerMs());
+    }
+
+    @Test
+    public void testBatchingLimitsCanBeConfigured() {
+        localProps.put(InfiniteTracingConfigImpl.BATCH_SIZE, 500);
+        localProps.put(InfiniteTracingConfigImpl.BATCH_MAX_BYTES, 65536);
+        localProps.put(InfiniteTracingConfigImpl.BATCH_LINGER_MS, 0);
+        InfiniteTracingConfigImpl config = new InfiniteTracingConfigImpl(localProps);
+        assertEquals(500, config.getBatchSize());
+        assertEquals(65536, config.getBatchMaxBytes());
+        assertEquals(0, config.getBatchLingerMs());
+    }
+
+    @Test
+    public void testStreams() {
+        assertEquals(1, new InfiniteTracingConfigImpl(localProps).getStreams());
+        localProps.put(InfiniteTracingConfigImpl.STREAMS, 4);
+        assertEquals(4, new InfiniteTracingConfigImpl(localProps).getStreams());
+    }
+
+    @Test
+    public void testSpoolDisabledByDefault() {
+        InfiniteTracingConfigImpl config = new InfiniteTracingConfigImpl(localProps);
+        assertFalse(config.getSpoolEnabled());
+        assertNull(config.getSpoolDirectory());
+        assertEquals(64 * 1024 * 1024, config.getSpoolMaxBytes());
+        assertEquals(300, config.getSpoolMaxAgeSeconds());
+    }
+
+    @Test
+    public void testSpoolCanBeConfigured() {
+        localProps.put(InfiniteTracingConfigImpl.SPOOL_ENABLED, true);
+        localProps.put(InfiniteTracingConfigImpl.SPOOL_DIRECTORY, "/var/spool/newrelic");
+        localProps.put(InfiniteTracingConfigImpl.SPOOL_MAX_BYTES, 1024);
+        localProps.put(InfiniteTracingConfigImpl.SPOOL_MAX_AGE_SECONDS, 60);
+        InfiniteTracingConfigImpl config = new InfiniteTracingConfigImpl(localProps);
+        assertTrue(config.getSpoolEnabled());
+        assertEquals("/var/spool/newrelic", config.getSpoolDirectory());
+        assertEquals(1024, config.getSpoolMaxBytes());
+        assertEquals(60, config.getSpoolMaxAgeSeconds());
+    }
+
     @Test
     public void canConfigureViaSystemPropertiesAndEnvironmentVariables() {
         Properties properties = new Properties();
@@ -77,6 +77,50 @@ public class SpanEventsConfigTest {
                 10000, config.getMaxSamplesStored());
     }
 
+    @Test
+    public void keepWholeTransactionsIsDisabledByDefault() {
+        SpanEventsConfig config = new SpanEventsConfig(new HashMap<String, Object>(), true);
+        assertFalse(config.isKeepWholeTransactions());
+
+        Map<String, Object> localSettings = new HashMap<>();
+        localSettings.put(KEEP_WHOLE_TRANSACTIONS, true);
+        config = new SpanEventsConfig(localSettings, true);
+        assertTrue(config.isKeepWholeTransactions());
+    }
+
+    @Test
+    public void tailSamplingIsDisabledByDefault() {
+        SpanEventsConfig config = new SpanEventsConfig(new HashMap<String, Object>(), true);
+
+        assertFalse(config.getTailSamplingConfig().isEnabled());
+        assertEquals(SpanEventsTailSamplingConfig.DEFAULT_MAX_BUFFERED_SPANS, config.getTailSamplingConfig().getMaxBufferedSpans());
+    }
+
+    @Test
+    public void tailSamplingCanBeEnabled() {
+        Map<String, Object> tailSampling = new HashMap<>();
+        tailSampling.put(SpanEventsTailSamplingConfig.ENABLED, true);
+        tailSampling.put(SpanEventsTailSamplingConfig.MAX_BUFFERED_SPANS, 500);
+        Map<String, Object> localSettings = new HashMap<>();
+        localSettings.put(SpanEventsTailSamplingConfig.ROOT, tailSampling);
+
+        SpanEventsConfig config = new SpanEventsConfig(localSettings, true);
+
+        assertTrue(config.getTailSamplingConfig().isEnabled());
+        assertEquals(500, config.getTailSamplingConfig().getMaxBufferedSpans());
+    }
+
+    @Test
+    public void tailSamplingEnabledBySystemProperty() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(SYSTEM_PROPERTY_ROOT + SpanEventsTailSamplingConfig.ROOT + "." + SpanEventsTailSamplingConfig.ENABLED, "true");
+        Mocks.createSystemPropertyProvider(properties);
+
+        SpanEventsConfig config = new SpanEventsConfig(new HashMap<String, Object>(), true);
+
+        assertTrue(config.getTailSamplingConfig().isEnabled());
+    }
+
     private void setMaxSamplesViaSystemProp(int customMaxSamples) {
         Map<String, String> properties = new HashMap<>();
         String key = SYSTEM_PROPERTY_ROOT + MAX_SPAN_EVENTS_PER_HARVEST;
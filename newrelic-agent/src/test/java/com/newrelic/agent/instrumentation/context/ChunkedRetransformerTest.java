@@ -0,0 +1,79 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.instrumentation.context;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.instrument.UnmodifiableClassException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+public class ChunkedRetransformerTest {
+
+    private static final List<Class<?>> CLASSES = Arrays.<Class<?>>asList(String.class, Integer.class, Long.class,
+            Short.class, Byte.class);
+
+    @Test
+    public void retransformsInChunks() throws Exception {
+        Instrumentation instrumentation = Mockito.mock(Instrumentation.class);
+        ChunkedRetransformer.retransformClasses(instrumentation, CLASSES, 2);
+
+        verify(instrumentation).retransformClasses(String.class, Integer.class);
+        verify(instrumentation).retransformClasses(Long.class, Short.class);
+        verify(instrumentation).retransformClasses(Byte.class);
+        verifyNoMoreInteractions(instrumentation);
+    }
+
+    @Test
+    public void noChunkSizeRetransformsAllAtOnce() throws Exception {
+        Instrumentation instrumentation = Mockito.mock(Instrumentation.class);
+        ChunkedRetransformer.retransformClasses(instrumentation, CLASSES, 0);
+
+        verify(instrumentation).retransformClasses(String.class, Integer.class, Long.class, Short.class, Byte.class);
+        verifyNoMoreInteractions(instrumentation);
+    }
+
+    @Test
+    public void noClasses() throws Exception {
+        Instrumentation instrumentation = Mockito.mock(Instrumentation.class);
+        ChunkedRetransformer.retransformClasses(instrumentation, Collections.<Class<?>>emptyList(), 2);
+
+        verifyNoMoreInteractions(instrumentation);
+    }
+
+    @Test
+    public void failedChunkIsRetransformedOneClassAtATime() throws Exception {
+        Instrumentation instrumentation = Mockito.mock(Instrumentation.class);
+        UnmodifiableClassException error = new UnmodifiableClassException();
+        doThrow(error).when(instrumentation).retransformClasses(String.class, Integer.class);
+        doThrow(error).when(instrumentation).retransformClasses(Integer.class);
+
+        try {
+            ChunkedRetransformer.retransformClasses(instrumentation, CLASSES, 2);
+            Assert.fail();
+        } catch (UnmodifiableClassException e) {
+            Assert.assertSame(error, e);
+        }
+
+        verify(instrumentation).retransformClasses(String.class, Integer.class);
+        verify(instrumentation).retransformClasses(String.class);
+        verify(instrumentation).retransformClasses(Integer.class);
+        verify(instrumentation).retransformClasses(Long.class, Short.class);
+        verify(instrumentation).retransformClasses(Byte.class);
+        verifyNoMoreInteractions(instrumentation);
+    }
+
+}
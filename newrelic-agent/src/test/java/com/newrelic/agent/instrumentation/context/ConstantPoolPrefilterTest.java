@@ -0,0 +1,140 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.instrumentation.context;
+
+import com.newrelic.weave.utils.WeaveUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+public class ConstantPoolPrefilterTest {
+
+    @Test
+    public void unfilteredFactoriesAreAlwaysPicked() throws IOException {
+        ClassMatchVisitorFactory unfiltered = ClassMatchVisitorFactory.NO_OP_FACTORY;
+        ClassMatchVisitorFactory any = new PrefilteredFactory(null);
+        ConstantPoolPrefilter prefilter = new ConstantPoolPrefilter(Arrays.asList(unfiltered, any));
+
+        List<ClassMatchVisitorFactory> factories = prefilter.filter(getClassBytes(Target.class));
+        Assert.assertEquals(2, factories.size());
+        Assert.assertEquals(2, prefilter.getUnfilteredCount());
+        Assert.assertEquals(0, prefilter.getFilteredCount());
+    }
+
+    @Test
+    public void factoriesArePickedByMethodName() throws IOException {
+        ClassMatchVisitorFactory unfiltered = ClassMatchVisitorFactory.NO_OP_FACTORY;
+        ClassMatchVisitorFactory present = new PrefilteredFactory(Collections.singleton("targetMethod"));
+        ClassMatchVisitorFactory absent = new PrefilteredFactory(Collections.singleton("otherMethod"));
+        ConstantPoolPrefilter prefilter = new ConstantPoolPrefilter(Arrays.asList(unfiltered, present, absent));
+
+        List<ClassMatchVisitorFactory> factories = prefilter.filter(getClassBytes(Target.class));
+        Assert.assertEquals(Arrays.asList(unfiltered, present), factories);
+        Assert.assertEquals(1, prefilter.getUnfilteredCount());
+        Assert.assertEquals(2, prefilter.getFilteredCount());
+    }
+
+    @Test
+    public void factoriesArePickedByAnnotationDescriptor() throws IOException {
+        ClassMatchVisitorFactory deprecated = new PrefilteredFactory(Collections.singleton("Ljava/lang/Deprecated;"));
+        ConstantPoolPrefilter prefilter = new ConstantPoolPrefilter(Collections.singletonList(deprecated));
+
+        Assert.assertEquals(Collections.singletonList(deprecated), prefilter.filter(getClassBytes(Target.class)));
+        Assert.assertTrue(prefilter.filter(getClassBytes(Other.class)).isEmpty());
+    }
+
+    @Test
+    public void factoriesArePickedBySuffix() throws IOException {
+        ClassMatchVisitorFactory java = new PrefilteredFactory(Collections.<String>emptySet(), ".java");
+        ClassMatchVisitorFactory scala = new PrefilteredFactory(Collections.<String>emptySet(), ".scala");
+        ConstantPoolPrefilter prefilter = new ConstantPoolPrefilter(Arrays.asList(java, scala));
+
+        Assert.assertEquals(Collections.singletonList(java), prefilter.filter(getClassBytes(Target.class)));
+    }
+
+    @Test
+    public void manyRequiredConstants() throws IOException {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            names.add("method" + i);
+        }
+        ClassMatchVisitorFactory absent = new PrefilteredFactory(new ArrayList<>(names));
+        names.add("targetMethod");
+        ClassMatchVisitorFactory present = new PrefilteredFactory(names);
+        ConstantPoolPrefilter prefilter = new ConstantPoolPrefilter(Arrays.asList(absent, present));
+
+        Assert.assertEquals(Collections.singletonList(present), prefilter.filter(getClassBytes(Target.class)));
+    }
+
+    @Test
+    public void unreadableClassPicksAllFactories() {
+        ClassMatchVisitorFactory filtered = new PrefilteredFactory(Collections.singleton("targetMethod"));
+        ConstantPoolPrefilter prefilter = new ConstantPoolPrefilter(Collections.singletonList(filtered));
+
+        Assert.assertEquals(Collections.singletonList(filtered), prefilter.filter(new byte[] { 1, 2, 3 }));
+        Assert.assertEquals(Collections.singletonList(filtered), prefilter.filter(
+                new byte[] { (byte) 0xca, (byte) 0xfe, (byte) 0xba, (byte) 0xbe, 0, 0, 0, 52, 0, 5, 99 }));
+    }
+
+    @Test
+    public void modifiedUtf8() {
+        for (String value : Arrays.asList("plain", "caf\u00e9", "\u4e2d\u6587", "nul\u0000char", "")) {
+            byte[] bytes = ConstantPoolPrefilter.encode(value);
+            Assert.assertEquals(value, ConstantPoolPrefilter.decode(bytes, 0, bytes.length));
+        }
+        Assert.assertArrayEquals(new byte[] { (byte) 0xc0, (byte) 0x80 }, ConstantPoolPrefilter.encode("\u0000"));
+    }
+
+    private static byte[] getClassBytes(Class<?> clazz) throws IOException {
+        return WeaveUtils.getClassBytesFromClassLoaderResource(clazz.getName(), clazz.getClassLoader());
+    }
+
+    private static class PrefilteredFactory implements ClassMatchVisitorFactory, ClassMatchPrefilter {
+        private final Collection<String> constants;
+        private final Collection<String> suffixes;
+
+        PrefilteredFactory(Collection<String> constants, String... suffixes) {
+            this.constants = constants;
+            this.suffixes = Arrays.asList(suffixes);
+        }
+
+        @Override
+        public ClassVisitor newClassMatchVisitor(ClassLoader loader, Class<?> classBeingRedefined, ClassReader reader,
+                ClassVisitor cv, InstrumentationContext context) {
+            return null;
+        }
+
+        @Override
+        public Collection<String> getRequiredConstants() {
+            return constants;
+        }
+
+        @Override
+        public Collection<String> getRequiredConstantSuffixes() {
+            return suffixes;
+        }
+    }
+
+    @Deprecated
+    private static class Target {
+        public void targetMethod() {
+        }
+    }
+
+    private static class Other {
+    }
+
+}
@@ -3,6 +3,7 @@ package com.newrelic.agent.instrumentation.context;
 import com.newrelic.agent.MockServiceManager;
 import com.newrelic.agent.instrumentation.InstrumentationType;
 import com.newrelic.agent.instrumentation.PointCut;
+import com.newrelic.agent.instrumentation.classmatchers.OptimizedClassMatcher;
 import com.newrelic.agent.instrumentation.tracing.TraceDetails;
 import com.newrelic.agent.instrumentation.tracing.TraceDetailsBuilder;
 import com.newrelic.weave.utils.WeaveUtils;
@@ -10,11 +11,19 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.commons.Method;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
 
 import java.lang.instrument.IllegalClassFormatException;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 
 public class FinalClassTransformerTest {
 
@@ -49,6 +58,66 @@ public class FinalClassTransformerTest {
         test_transform(false, "test_transform_withoutInstrTypesAndName");
     }
 
+    @Test
+    public void test_transform_pipeline() throws Exception {
+        FinalClassTransformer target = new FinalClassTransformer();
+        InstrumentationContext context = Mockito.mock(InstrumentationContext.class);
+        Mockito.when(context.getTraceInformation()).thenReturn(new TraceInformation());
+
+        List<String> visited = new ArrayList<>();
+        List<PipelinedClassTransformer> pipeline = Arrays.asList(new FieldAddingTransformer("first", visited),
+                new FieldAddingTransformer("second", visited));
+
+        byte[] classBytes = WeaveUtils.getClassBytesFromClassLoaderResource(FinalClassTransformerTest.class.getName(), FinalClassTransformerTest.class.getClassLoader());
+        byte[] result = target.transform(this.getClass().getClassLoader(), this.getClass().getName(), FinalClassTransformerTest.class,
+                classBytes, context, pipeline);
+        Assert.assertNotNull(result);
+        Assert.assertEquals(Arrays.asList("first", "second"), visited);
+
+        ClassNode classNode = WeaveUtils.convertToClassNode(result);
+        List<String> fieldNames = new ArrayList<>();
+        for (FieldNode field : classNode.fields) {
+            fieldNames.add(field.name);
+        }
+        Assert.assertTrue(fieldNames.containsAll(Arrays.asList("first", "second")));
+    }
+
+    private static class FieldAddingTransformer implements PipelinedClassTransformer {
+        private final String fieldName;
+        private final List<String> visited;
+
+        FieldAddingTransformer(String fieldName, List<String> visited) {
+            this.fieldName = fieldName;
+            this.visited = visited;
+        }
+
+        @Override
+        public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+                ProtectionDomain protectionDomain, byte[] classfileBuffer, InstrumentationContext context,
+                OptimizedClassMatcher.Match match) {
+            return null;
+        }
+
+        @Override
+        public ClassVisitor newClassVisitor(ClassLoader loader, String className, ClassReader reader, ClassVisitor cv,
+                InstrumentationContext context) {
+            return new ClassVisitor(WeaveUtils.ASM_API_LEVEL, cv) {
+                @Override
+                public void visit(int version, int access, String name, String signature, String superName,
+                        String[] interfaces) {
+                    visited.add(fieldName);
+                    super.visit(version, access, name, signature, superName, interfaces);
+                }
+
+                @Override
+                public void visitEnd() {
+                    super.visitField(Opcodes.ACC_PRIVATE, fieldName, "I", null, null).visitEnd();
+                    super.visitEnd();
+                }
+            };
+        }
+    }
+
     private void test_transform(boolean setTypesAndNames, String methodName) throws Exception {
         FinalClassTransformer target = new FinalClassTransformer();
         InstrumentationContext context = Mockito.mock(InstrumentationContext.class);
@@ -0,0 +1,297 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.instrumentation.context;
+
+import com.newrelic.agent.MockServiceManager;
+import com.newrelic.agent.instrumentation.InstrumentationType;
+import com.newrelic.agent.instrumentation.custom.ScalaTraitFinalFieldTransformer;
+import com.newrelic.agent.instrumentation.tracing.BridgeUtils;
+import com.newrelic.agent.instrumentation.tracing.TraceClassTransformer;
+import com.newrelic.agent.instrumentation.tracing.TraceDetailsBuilder;
+import com.newrelic.api.agent.Trace;
+import com.newrelic.weave.utils.WeaveUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.Method;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.AnnotationNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TypeInsnNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tracing, the Scala final field fix and the final transformation applied in a single pass must produce the class that
+ * a pass per transformer does.
+ */
+public class SinglePassTransformTest {
+
+    private static final String CURRENT_TRANSACTION_CLASS_NAME = "com/newrelic/agent/instrumentation/context/CurrentTransactionUser";
+
+    @Before
+    public void setup() {
+        new MockServiceManager();
+    }
+
+    @Test
+    public void traceAnnotatedClass() throws Exception {
+        byte[] classBytes = WeaveUtils.getClassBytesFromClassLoaderResource(TracedClass.class.getName(),
+                TracedClass.class.getClassLoader());
+
+        InstrumentationContext singlePassContext = newTraceMatchedContext(classBytes);
+        InstrumentationContext multiPassContext = newTraceMatchedContext(classBytes);
+        Map<String, List<String>> singlePass = describe(transformInSinglePass(Type.getInternalName(TracedClass.class),
+                classBytes, singlePassContext));
+        Map<String, List<String>> multiPass = describe(transformInPasses(Type.getInternalName(TracedClass.class),
+                classBytes, multiPassContext));
+
+        Assert.assertEquals(multiPass, singlePass);
+        Assert.assertEquals(multiPassContext.getTimedMethods(), singlePassContext.getTimedMethods());
+        Assert.assertEquals(new HashSet<>(Arrays.asList(new Method("traced", "()V"),
+                new Method("dispatcher", "(Ljava/lang/String;)Ljava/lang/String;"))), singlePassContext.getTimedMethods());
+
+        Assert.assertTrue(singlePass.get("traced()V").contains("@" + Type.getDescriptor(InstrumentedMethod.class)
+                + " {dispatcher=false, instrumentationNames=[SinglePassTransformTest.java], instrumentationTypes=[TraceAnnotation]}"));
+        Assert.assertTrue(singlePass.get("dispatcher(Ljava/lang/String;)Ljava/lang/String;").contains("@"
+                + Type.getDescriptor(InstrumentedMethod.class)
+                + " {dispatcher=true, instrumentationNames=[SinglePassTransformTest.java], instrumentationTypes=[TraceAnnotation]}"));
+        Assert.assertFalse(hasAnnotation(singlePass.get("notTraced()V")));
+    }
+
+    @Test
+    public void currentTransactionClass() throws Exception {
+        byte[] classBytes = createCurrentTransactionClass();
+
+        Map<String, List<String>> singlePass = describe(transformInSinglePass(CURRENT_TRANSACTION_CLASS_NAME, classBytes,
+                newWebTransactionContext(classBytes)));
+        Map<String, List<String>> multiPass = describe(transformInPasses(CURRENT_TRANSACTION_CLASS_NAME, classBytes,
+                newWebTransactionContext(classBytes)));
+
+        Assert.assertEquals(multiPass, singlePass);
+
+        // the reference in the class and the one tracing adds to the web transaction method are both rewritten
+        String currentTransaction = "GETSTATIC " + BridgeUtils.TRANSACTION_TYPE.getInternalName() + '.'
+                + BridgeUtils.CURRENT_TRANSACTION_FIELD_NAME;
+        String getTransaction = "INVOKEINTERFACE " + BridgeUtils.INSTRUMENTATION_TYPE.getInternalName()
+                + ".getTransaction()" + BridgeUtils.TRANSACTION_TYPE.getDescriptor();
+        for (String method : Arrays.asList("current()Ljava/lang/Object;", "webRequest()V")) {
+            Assert.assertFalse(method, singlePass.get(method).contains(currentTransaction));
+            Assert.assertTrue(method, singlePass.get(method).contains(getTransaction));
+        }
+        Assert.assertTrue(hasAnnotation(singlePass.get("webRequest()V")));
+        Assert.assertFalse(hasAnnotation(singlePass.get("current()Ljava/lang/Object;")));
+    }
+
+    @Test
+    public void restoreTransformState() {
+        InstrumentationContext context = new InstrumentationContext(null, null, null);
+        Method before = new Method("before", "()V");
+        context.addTimedMethods(before);
+
+        InstrumentationContext.TransformState state = context.saveTransformState();
+        context.addTimedMethods(new Method("during", "()V"));
+
+        context.restoreTransformState(state);
+        Assert.assertTrue(context.isModified());
+        Assert.assertEquals(Collections.singleton(before), context.getTimedMethods());
+
+        state = new InstrumentationContext(null, null, null).saveTransformState();
+        context.restoreTransformState(state);
+        Assert.assertFalse(context.isModified());
+        Assert.assertTrue(context.getTimedMethods().isEmpty());
+    }
+
+    private static InstrumentationContext newTraceMatchedContext(byte[] classBytes) {
+        InstrumentationContext context = new InstrumentationContext(classBytes, null, null);
+        context.match(SinglePassTransformTest.class.getClassLoader(), null, new ClassReader(classBytes),
+                Collections.<ClassMatchVisitorFactory>singletonList(new TraceMatchVisitor()));
+        Assert.assertTrue(context.isTracerMatch());
+        return context;
+    }
+
+    private static InstrumentationContext newWebTransactionContext(byte[] classBytes) {
+        InstrumentationContext context = new InstrumentationContext(classBytes, null, null);
+        context.putTraceAnnotation(new Method("webRequest", "()V"), TraceDetailsBuilder.newBuilder()
+                .setDispatcher(true)
+                .setWebTransaction(true)
+                .setInstrumentationType(InstrumentationType.CustomYaml)
+                .setInstrumentationSourceName("test")
+                .build());
+        return context;
+    }
+
+    private static byte[] transformInSinglePass(String className, byte[] classBytes, InstrumentationContext context) {
+        byte[] transformed = new FinalClassTransformer().transform(SinglePassTransformTest.class.getClassLoader(),
+                className, null, classBytes, context, Arrays.<PipelinedClassTransformer>asList(
+                        new TraceClassTransformer(), new ScalaTraitFinalFieldTransformer()));
+        Assert.assertNotNull(transformed);
+        return transformed;
+    }
+
+    private static byte[] transformInPasses(String className, byte[] classBytes, InstrumentationContext context)
+            throws Exception {
+        ClassLoader loader = SinglePassTransformTest.class.getClassLoader();
+        byte[] traced = new TraceClassTransformer().transform(loader, className, null, null, classBytes, context, null);
+        Assert.assertNotNull(traced);
+        byte[] transformed = new FinalClassTransformer().transform(loader, className, null, null, traced, context, null);
+        Assert.assertNotNull(transformed);
+        return transformed;
+    }
+
+    /**
+     * The method annotations and the method, field and type instructions of each method. Constants are left out
+     * because the signature ids tracing adds differ between transformations.
+     */
+    private static Map<String, List<String>> describe(byte[] classBytes) {
+        ClassNode classNode = WeaveUtils.convertToClassNode(classBytes);
+        Map<String, List<String>> methods = new LinkedHashMap<>();
+        for (MethodNode method : classNode.methods) {
+            List<String> description = new ArrayList<>();
+            if (method.visibleAnnotations != null) {
+                for (AnnotationNode annotation : method.visibleAnnotations) {
+                    description.add(describe(annotation));
+                }
+            }
+            for (AbstractInsnNode insn : method.instructions) {
+                if (insn instanceof MethodInsnNode) {
+                    MethodInsnNode methodInsn = (MethodInsnNode) insn;
+                    description.add(opcode(insn) + ' ' + methodInsn.owner + '.' + methodInsn.name + methodInsn.desc);
+                } else if (insn instanceof FieldInsnNode) {
+                    FieldInsnNode fieldInsn = (FieldInsnNode) insn;
+                    description.add(opcode(insn) + ' ' + fieldInsn.owner + '.' + fieldInsn.name);
+                } else if (insn instanceof TypeInsnNode) {
+                    description.add(opcode(insn) + ' ' + ((TypeInsnNode) insn).desc);
+                }
+            }
+            methods.put(method.name + method.desc, description);
+        }
+        return methods;
+    }
+
+    private static String describe(AnnotationNode annotation) {
+        Map<String, String> values = new TreeMap<>();
+        if (annotation.values != null) {
+            for (int i = 0; i < annotation.values.size(); i += 2) {
+                values.put((String) annotation.values.get(i), describeValue(annotation.values.get(i + 1)));
+            }
+        }
+        return '@' + annotation.desc + ' ' + values;
+    }
+
+    private static String describeValue(Object value) {
+        if (value instanceof String[]) {
+            // an enum value is its descriptor and name
+            return ((String[]) value)[1];
+        }
+        if (value instanceof List) {
+            List<String> values = new ArrayList<>();
+            for (Object element : (List<?>) value) {
+                values.add(describeValue(element));
+            }
+            return values.toString();
+        }
+        return String.valueOf(value);
+    }
+
+    private static String opcode(AbstractInsnNode insn) {
+        switch (insn.getOpcode()) {
+            case Opcodes.GETSTATIC:
+                return "GETSTATIC";
+            case Opcodes.PUTSTATIC:
+                return "PUTSTATIC";
+            case Opcodes.GETFIELD:
+                return "GETFIELD";
+            case Opcodes.PUTFIELD:
+                return "PUTFIELD";
+            case Opcodes.INVOKEINTERFACE:
+                return "INVOKEINTERFACE";
+            case Opcodes.INVOKESTATIC:
+                return "INVOKESTATIC";
+            case Opcodes.INVOKESPECIAL:
+                return "INVOKESPECIAL";
+            case Opcodes.INVOKEVIRTUAL:
+                return "INVOKEVIRTUAL";
+            default:
+                return String.valueOf(insn.getOpcode());
+        }
+    }
+
+    private static boolean hasAnnotation(List<String> description) {
+        for (String line : description) {
+            if (line.startsWith("@" + Type.getDescriptor(InstrumentedMethod.class))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The bridge no longer has {@literal Transaction.CURRENT}, so classes referring to it are generated.
+     */
+    private static byte[] createCurrentTransactionClass() {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, CURRENT_TRANSACTION_CLASS_NAME, null,
+                "java/lang/Object", null);
+
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "current", "()Ljava/lang/Object;", null, null);
+        mv.visitCode();
+        mv.visitFieldInsn(Opcodes.GETSTATIC, BridgeUtils.TRANSACTION_TYPE.getInternalName(),
+                BridgeUtils.CURRENT_TRANSACTION_FIELD_NAME, BridgeUtils.TRANSACTION_TYPE.getDescriptor());
+        mv.visitInsn(Opcodes.ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "webRequest", "()V", null, null);
+        mv.visitCode();
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    public static class TracedClass {
+
+        @Trace
+        public void traced() {
+        }
+
+        @Trace(dispatcher = true)
+        public String dispatcher(String value) {
+            return value.trim();
+        }
+
+        public void notTraced() {
+        }
+    }
+}
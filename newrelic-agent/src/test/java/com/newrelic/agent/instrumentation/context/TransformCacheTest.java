@@ -0,0 +1,154 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.instrumentation.context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TransformCacheTest {
+
+    private static final byte[] CLASS_BYTES = new byte[] { (byte) 0xca, (byte) 0xfe, (byte) 0xba, (byte) 0xbe, 1, 2, 3 };
+
+    private File directory;
+
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("transform-cache").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void recordedClassesAreUnmatched() throws IOException {
+        try (TransformCache cache = TransformCache.open(directory, 1, 100)) {
+            long key = cache.key(null, "com/example/Foo", CLASS_BYTES);
+            assertFalse(cache.isUnmatched(key));
+
+            cache.recordUnmatched(key);
+            cache.recordUnmatched(key);
+            assertTrue(cache.isUnmatched(key));
+            assertEquals(1, cache.size());
+        }
+    }
+
+    @Test
+    public void entriesSurviveReopening() throws IOException {
+        long key;
+        try (TransformCache cache = TransformCache.open(directory, 1, 100)) {
+            key = cache.key(null, "com/example/Foo", CLASS_BYTES);
+            cache.recordUnmatched(key);
+        }
+        try (TransformCache cache = TransformCache.open(directory, 1, 100)) {
+            assertTrue(cache.isUnmatched(key));
+            assertEquals(1, cache.size());
+        }
+    }
+
+    @Test
+    public void otherFingerprintStartsEmptyAndKeepsRecentFiles() throws IOException {
+        File otherFile;
+        try (TransformCache cache = TransformCache.open(directory, 1, 100)) {
+            otherFile = cache.getFile();
+            cache.recordUnmatched(cache.key(null, "com/example/Foo", CLASS_BYTES));
+        }
+        try (TransformCache cache = TransformCache.open(directory, 2, 100)) {
+            assertEquals(0, cache.size());
+            assertFalse(cache.isUnmatched(cache.key(null, "com/example/Foo", CLASS_BYTES)));
+        }
+        // another application, or another version during a rolling deploy, may still be using it
+        assertTrue(otherFile.exists());
+    }
+
+    @Test
+    public void deletesFilesNotOpenedRecently() throws IOException {
+        File staleFile;
+        try (TransformCache cache = TransformCache.open(directory, 1, 100)) {
+            staleFile = cache.getFile();
+        }
+        assertTrue(staleFile.setLastModified(System.currentTimeMillis() - TransformCache.STALE_FILE_AGE_MILLIS - 60000));
+
+        try (TransformCache cache = TransformCache.open(directory, 2, 100)) {
+            assertTrue(cache.getFile().exists());
+        }
+        assertFalse(staleFile.exists());
+    }
+
+    @Test
+    public void differentSizeStartsEmpty() throws IOException {
+        try (TransformCache cache = TransformCache.open(directory, 1, 100)) {
+            cache.recordUnmatched(cache.key(null, "com/example/Foo", CLASS_BYTES));
+        }
+        try (TransformCache cache = TransformCache.open(directory, 1, 1000)) {
+            assertEquals(0, cache.size());
+        }
+    }
+
+    @Test
+    public void keyDependsOnBytesNameAndClassLoader() throws IOException {
+        try (TransformCache cache = TransformCache.open(directory, 1, 100)) {
+            long key = cache.key(null, "com/example/Foo", CLASS_BYTES);
+            byte[] otherBytes = CLASS_BYTES.clone();
+            otherBytes[6] = 4;
+            assertNotEquals(key, cache.key(null, "com/example/Foo", otherBytes));
+            assertNotEquals(key, cache.key(null, "com/example/Bar", CLASS_BYTES));
+
+            URLClassLoader loader = new URLClassLoader(new URL[] { new URL("file:/app/lib/foo.jar") }, null);
+            URLClassLoader sameUrls = new URLClassLoader(new URL[] { new URL("file:/app/lib/foo.jar") }, null);
+            URLClassLoader otherUrls = new URLClassLoader(new URL[] { new URL("file:/app/lib/bar.jar") }, null);
+            long loaderKey = cache.key(loader, "com/example/Foo", CLASS_BYTES);
+            assertNotEquals(key, loaderKey);
+            assertEquals(loaderKey, cache.key(sameUrls, "com/example/Foo", CLASS_BYTES));
+            assertNotEquals(loaderKey, cache.key(otherUrls, "com/example/Foo", CLASS_BYTES));
+        }
+    }
+
+    @Test
+    public void stopsRecordingWhenFull() throws IOException {
+        try (TransformCache cache = TransformCache.open(directory, 1, 10)) {
+            for (int i = 0; i < 20; i++) {
+                cache.recordUnmatched(cache.key(null, "com/example/Foo" + i, CLASS_BYTES));
+            }
+            assertEquals(10, cache.size());
+            for (int i = 0; i < 10; i++) {
+                assertTrue(cache.isUnmatched(cache.key(null, "com/example/Foo" + i, CLASS_BYTES)));
+            }
+        }
+    }
+
+    @Test
+    public void disabledCacheDoesNotRecord() throws IOException {
+        try (TransformCache cache = TransformCache.open(directory, 1, 100)) {
+            cache.disable();
+            cache.recordUnmatched(cache.key(null, "com/example/Foo", CLASS_BYTES));
+            assertFalse(cache.isEnabled());
+            assertEquals(0, cache.size());
+        }
+    }
+
+}
@@ -44,6 +44,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -210,6 +211,49 @@ public class ClassWeaverServiceTest {
         doneWithTestWork = true;
     }
 
+    @Test
+    public void test_registerDeferredInstrumentation() throws Exception {
+        Map<String, Object> classTransformerSettings = new HashMap<>();
+        classTransformerSettings.put("deferred_weaving_enabled", true);
+        classTransformerSettings.put("deferred_weave_packages", "com\\.newrelic\\.instrumentation\\.jms-1\\.1");
+        createServiceManager(null, false, classTransformerSettings);
+        try (MockedStatic<AgentJarHelper> mockedAgentJarHelper = Mockito.mockStatic(AgentJarHelper.class)) {
+            mockedAgentJarHelper.when(() ->
+                            AgentJarHelper.findAgentJarFileNames(Mockito.any()))
+                    .thenReturn(Arrays.asList(
+                            "com/newrelic/agent/extension/jms-1.1-1.0.jar"
+                    ));
+            Instrumentation instrumentation = Mockito.mock(Instrumentation.class);
+            Class<?>[] loadedClasses = new Class<?>[] { ClassWeaverServiceTest.class };
+            Mockito.when(instrumentation.getAllLoadedClasses()).thenReturn(loadedClasses);
+            ClassWeaverService target = new ClassWeaverService(instrumentation);
+            target.registerInstrumentation();
+
+            // deferred packages aren't registered at startup
+            Assert.assertTrue(target.hasDeferredInstrumentation());
+            Assert.assertNull(target.getWeavePackageManger().getWeavePackage("com.newrelic.instrumentation.jms-1.1"));
+            Assert.assertEquals(0, target.getWeavePackageManger().getRegisteredPackages().size());
+
+            Runnable retransformer = target.registerDeferredInstrumentation();
+            Assert.assertNotNull(retransformer);
+            Assert.assertFalse(target.hasDeferredInstrumentation());
+            Assert.assertNotNull(target.getWeavePackageManger().getWeavePackage("com.newrelic.instrumentation.jms-1.1"));
+            Assert.assertNull(target.registerDeferredInstrumentation());
+
+            doneWithTestWork = true;
+            retransformer.run();
+            Assert.assertSame(loadedClasses, retransformedClasses);
+            Assert.assertEquals(1, retransformMatchers.size());
+            ClassMatchVisitorFactory matcher = retransformMatchers.iterator().next();
+            // only the classes the deferred packages weave are retransformed
+            Assert.assertNotSame(target, matcher);
+            InstrumentationContext context = Mockito.mock(InstrumentationContext.class);
+            matcher.newClassMatchVisitor(getClass().getClassLoader(), null,
+                    ClassMatcherTest.getClassReader(getClass()), null, context);
+            Mockito.verify(context, Mockito.never()).putMatch(Mockito.any(ClassMatchVisitorFactory.class), Mockito.any());
+        }
+    }
+
     @Test
     public void test_addTraceInformation() throws Exception {
         createServiceManager(new HashSet<>(Arrays.asList()), true);
@@ -237,11 +281,18 @@ public class ClassWeaverServiceTest {
     }
 
     private void createServiceManager(Set<File> weaveExtensions, boolean createDelayingClassTransformerService) throws Exception {
+        createServiceManager(weaveExtensions, createDelayingClassTransformerService, Collections.<String, Object>emptyMap());
+    }
+
+    private void createServiceManager(Set<File> weaveExtensions, boolean createDelayingClassTransformerService,
+            Map<String, Object> classTransformerSettings) throws Exception {
         MockServiceManager serviceManager = new MockServiceManager();
         ServiceFactory.setServiceManager(serviceManager);
         serviceManager.start();
 
-        AgentConfig agentConfig = AgentHelper.createAgentConfig(true, new HashMap<>(), Collections.<String, Object>emptyMap());
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("class_transformer", classTransformerSettings);
+        AgentConfig agentConfig = AgentHelper.createAgentConfig(true, settings, Collections.<String, Object>emptyMap());
 
         ConfigService configService = ConfigServiceFactory.createConfigService(agentConfig, new HashMap<>());
         serviceManager.setConfigService(configService);
@@ -250,6 +301,8 @@ public class ClassWeaverServiceTest {
         serviceManager.setTransactionTraceService(transactionTraceService);
 
         doneWithTestWork = false;
+        retransformedClasses = null;
+        retransformMatchers = null;
         serviceManager.setClassTransformerService(new DelayingClassTransformerService());
 
         if (weaveExtensions != null) {
@@ -269,6 +322,8 @@ public class ClassWeaverServiceTest {
 
     private boolean startedRetransforming = false;
     private boolean doneWithTestWork = true;
+    private Class<?>[] retransformedClasses;
+    private Collection<ClassMatchVisitorFactory> retransformMatchers;
 
     private class DelayingClassTransformerService implements ClassTransformerService {
 
@@ -315,6 +370,8 @@ public class ClassWeaverServiceTest {
         @Override
         public void retransformMatchingClassesImmediately(Class<?>[] loadedClasses, Collection<ClassMatchVisitorFactory> classMatchers) {
             try {
+                retransformedClasses = loadedClasses;
+                retransformMatchers = classMatchers;
                 startedRetransforming = true;
                 long start = System.currentTimeMillis();
                 while (!doneWithTestWork && (System.currentTimeMillis()-start) < 10000) {
@@ -0,0 +1,86 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.service;
+
+import com.newrelic.agent.MetricNames;
+import com.newrelic.agent.logging.IAgentLogger;
+import com.newrelic.agent.stats.StatsService;
+import com.newrelic.agent.stats.StatsWork;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+
+public class ServiceTimingTest {
+
+    @Before
+    public void before() {
+        // drop timings recorded by services started in other tests
+        ServiceTiming.reportStartupTimings(Mockito.mock(IAgentLogger.class), Mockito.mock(StatsService.class), 0);
+    }
+
+    @Test
+    public void startupReport() {
+        ServiceTiming.addStartupPhase(ServiceTiming.PHASE_CONFIG, TimeUnit.MILLISECONDS.toNanos(5));
+        ServiceTiming.addStartupPhase(ServiceTiming.PHASE_WEAVE_PACKAGE_LOAD, TimeUnit.MILLISECONDS.toNanos(20));
+        ServiceTiming.addStartupPhase(ServiceTiming.PHASE_WEAVE_PACKAGE_LOAD, TimeUnit.MILLISECONDS.toNanos(10));
+        ServiceTiming.addStartupPhase(ServiceTiming.PHASE_BOOTSTRAP_CLASSPATH, 0);
+        ServiceTiming.addServiceStartDuration("TestService", TimeUnit.MILLISECONDS.toNanos(7));
+
+        Map<String, Object> report = ServiceTiming.getStartupReport(100);
+        Assert.assertEquals(100L, report.get("premainMillis"));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Long> phases = (Map<String, Long>) report.get("phases");
+        Assert.assertEquals(Arrays.asList(ServiceTiming.PHASE_CONFIG, ServiceTiming.PHASE_WEAVE_PACKAGE_LOAD),
+                Arrays.asList(phases.keySet().toArray()));
+        Assert.assertEquals(Long.valueOf(5), phases.get(ServiceTiming.PHASE_CONFIG));
+        Assert.assertEquals(Long.valueOf(30), phases.get(ServiceTiming.PHASE_WEAVE_PACKAGE_LOAD));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Long> services = (Map<String, Long>) report.get("services");
+        Assert.assertEquals(Long.valueOf(7), services.get("TestService"));
+
+        IAgentLogger logger = Mockito.mock(IAgentLogger.class);
+        StatsService statsService = Mockito.mock(StatsService.class);
+        ServiceTiming.reportStartupTimings(logger, statsService, 100);
+
+        verify(statsService).doStatsWork(any(StatsWork.class), eq(MetricNames.SUPPORTABILITY_TIMING_STARTUP_PHASE + ServiceTiming.PHASE_CONFIG));
+        verify(statsService).doStatsWork(any(StatsWork.class), eq(MetricNames.SUPPORTABILITY_TIMING_STARTUP_PHASE + ServiceTiming.PHASE_WEAVE_PACKAGE_LOAD));
+        verify(statsService).doStatsWork(any(StatsWork.class), eq(MetricNames.SUPPORTABILITY_TIMING_SERVICE_START + "TestService"));
+        verify(logger).log(eq(Level.INFO), anyString(), any(Object.class));
+
+        // the report is only written once
+        report = ServiceTiming.getStartupReport(0);
+        Assert.assertTrue(((Map<?, ?>) report.get("phases")).isEmpty());
+        Assert.assertTrue(((Map<?, ?>) report.get("services")).isEmpty());
+    }
+
+    @Test
+    public void clearStartupTimings() {
+        ServiceTiming.addStartupPhase(ServiceTiming.PHASE_CONFIG, TimeUnit.MILLISECONDS.toNanos(5));
+        ServiceTiming.addServiceStartDuration("TestService", TimeUnit.MILLISECONDS.toNanos(7));
+
+        ServiceTiming.clearStartupTimings();
+
+        Map<String, Object> report = ServiceTiming.getStartupReport(0);
+        Assert.assertTrue(((Map<?, ?>) report.get("phases")).isEmpty());
+        Assert.assertTrue(((Map<?, ?>) report.get("services")).isEmpty());
+    }
+
+}
@@ -147,6 +147,23 @@ public class CollectorSpanEventReservoirManagerTest {
         assertFalse(wasSent[0]);
     }
 
+    @Test
+    public void keepWholeTransactionsUsesTransactionReservoir() {
+        ConfigService mockConfigService = mock21Samples();
+        SpanEventsConfig spanEventsConfig = mockConfigService.getDefaultAgentConfig().getSpanEventsConfig();
+        when(spanEventsConfig.isKeepWholeTransactions()).thenReturn(true);
+
+        CollectorSpanEventReservoirManager target = new CollectorSpanEventReservoirManager(mockConfigService);
+        for (int i = 0; i < 25; i++) {
+            // 5 transactions of 5 spans, only the 4 with the highest priority fit
+            target.getOrCreateReservoir(APP_NAME).add(SpanEvent.builder().priority(i / 5).putIntrinsic("transactionId", "tx" + i / 5).build());
+        }
+
+        assertTrue(target.getOrCreateReservoir(APP_NAME) instanceof TransactionSpanEventReservoir);
+        assertEquals(20, target.getOrCreateReservoir(APP_NAME).size());
+        assertEquals(1.0f, target.getOrCreateReservoir(APP_NAME).getMinPriority(), 0.0f);
+    }
+
     public ConfigService mock21Samples() {
         ConfigService mockConfigService = Mockito.mock(ConfigService.class);
         AgentConfig mockConfig = Mockito.mock(AgentConfig.class);
@@ -25,8 +25,10 @@ import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
 
@@ -43,6 +45,10 @@ public class SpanEventsServiceTest {
     MockServiceManager serviceManager;
     @Mock
     public SpanEventCreationDecider spanEventCreationDecider;
+    private AgentConfig agentConfig;
+    private MockSpanEventReservoirManager reservoirManager;
+    private Consumer<SpanEvent> backendConsumer;
+    private TracerToSpanEvent tracerToSpanEvent;
 
     @Before
     public void before() throws Exception {
@@ -55,15 +61,15 @@ public class SpanEventsServiceTest {
         localSettings.put("span_events", Collections.singletonMap("collect_span_events", true));
         when(spanEventCreationDecider.shouldCreateSpans(any(TransactionData.class))).thenReturn(true);
 
-        AgentConfig agentConfig = AgentHelper.createAgentConfig(true, localSettings, new HashMap<String, Object>());
+        agentConfig = AgentHelper.createAgentConfig(true, localSettings, new HashMap<String, Object>());
         ConfigService configService = ConfigServiceFactory.createConfigService(agentConfig, localSettings);
         serviceManager.setConfigService(configService);
         ServiceFactory.setServiceManager(serviceManager);
 
         serviceManager.setTransactionService(new TransactionService());
         serviceManager.setThreadService(new ThreadService());
-        final MockSpanEventReservoirManager reservoirManager = new MockSpanEventReservoirManager(configService);
-        Consumer<SpanEvent> backendConsumer = spanEvent -> reservoirManager.getOrCreateReservoir(APP_NAME).add(spanEvent);
+        reservoirManager = new MockSpanEventReservoirManager(configService);
+        backendConsumer = spanEvent -> reservoirManager.getOrCreateReservoir(APP_NAME).add(spanEvent);
 
         SpanErrorBuilder defaultSpanErrorBuilder = new SpanErrorBuilder(
                 new ErrorAnalyzerImpl(agentConfig.getErrorCollectorConfig()),
@@ -76,7 +82,7 @@ public class SpanEventsServiceTest {
         TransactionDataToDistributedTraceIntrinsics transactionDataToDistributedTraceIntrinsics = mock(TransactionDataToDistributedTraceIntrinsics.class);
         when(transactionDataToDistributedTraceIntrinsics.buildDistributedTracingIntrinsics(any(TransactionData.class), anyBoolean()))
                 .thenReturn(Collections.<String, Object>emptyMap());
-        TracerToSpanEvent tracerToSpanEvent = new TracerToSpanEvent(map, environmentService, transactionDataToDistributedTraceIntrinsics, defaultSpanErrorBuilder);
+        tracerToSpanEvent = new TracerToSpanEvent(map, environmentService, transactionDataToDistributedTraceIntrinsics, defaultSpanErrorBuilder);
         SpanEventsServiceImpl spanEventsService = SpanEventsServiceImpl.builder()
                 .agentConfig(agentConfig)
                 .reservoirManager(reservoirManager)
@@ -203,4 +209,75 @@ public class SpanEventsServiceTest {
         //then
         assertEquals("max samples stored should be: " + maxSamples, maxSamples, spanEventsService.getMaxSamplesStored());
     }
+
+    @Test
+    public void tailSamplingStoresTransactionsAtHarvest() {
+        Map<String, Object> tailSampling = new HashMap<>();
+        tailSampling.put(SpanEventsTailSamplingConfig.ENABLED, true);
+        Map<String, Object> spanEventsSettings = new HashMap<>();
+        spanEventsSettings.put(SpanEventsConfig.COLLECT_SPAN_EVENTS, true);
+        spanEventsSettings.put(SpanEventsTailSamplingConfig.ROOT, tailSampling);
+        SpanEventsServiceImpl spanEventsService = SpanEventsServiceImpl.builder()
+                .agentConfig(agentConfig)
+                .reservoirManager(reservoirManager)
+                .collectorSender(mock(CollectorSpanEventSender.class))
+                .eventBackendStorage(backendConsumer)
+                .spanEventCreationDecider(spanEventCreationDecider)
+                .tracerToSpanEvent(tracerToSpanEvent)
+                .spanEventsConfig(new SpanEventsConfig(spanEventsSettings, true))
+                .build();
+
+        TransactionData transactionData = new TransactionDataTestBuilder(
+                APP_NAME,
+                ServiceFactory.getConfigService().getDefaultAgentConfig(),
+                new MockDispatcherTracer())
+                .setTracers(Collections.<Tracer>emptyList())
+                .build();
+        Transaction mockTransaction = transactionData.getTransaction();
+        when(mockTransaction.sampled()).thenReturn(true);
+        when(mockTransaction.getPriority()).thenReturn(1.5f);
+
+        spanEventsService.dispatcherTransactionFinished(transactionData, new TransactionStats());
+
+        SamplingPriorityQueue<SpanEvent> reservoir = spanEventsService.getOrCreateDistributedSamplingReservoir(APP_NAME);
+        assertEquals(0, reservoir.size());
+
+        spanEventsService.harvestEvents(APP_NAME);
+        assertEquals(1, reservoir.size());
+    }
+
+    @Test
+    public void tailSamplingIsNotAppliedWithInfiniteTracing() {
+        Map<String, Object> tailSampling = new HashMap<>();
+        tailSampling.put(SpanEventsTailSamplingConfig.ENABLED, true);
+        Map<String, Object> spanEventsSettings = new HashMap<>();
+        spanEventsSettings.put(SpanEventsConfig.COLLECT_SPAN_EVENTS, true);
+        spanEventsSettings.put(SpanEventsTailSamplingConfig.ROOT, tailSampling);
+        List<SpanEvent> streamedSpanEvents = new ArrayList<>();
+        SpanEventsServiceImpl spanEventsService = SpanEventsServiceImpl.builder()
+                .agentConfig(agentConfig)
+                .reservoirManager(reservoirManager)
+                .collectorSender(mock(CollectorSpanEventSender.class))
+                .eventBackendStorage(streamedSpanEvents::add)
+                .infiniteTracingEnabled(true)
+                .spanEventCreationDecider(spanEventCreationDecider)
+                .tracerToSpanEvent(tracerToSpanEvent)
+                .spanEventsConfig(new SpanEventsConfig(spanEventsSettings, true))
+                .build();
+
+        TransactionData transactionData = new TransactionDataTestBuilder(
+                APP_NAME,
+                ServiceFactory.getConfigService().getDefaultAgentConfig(),
+                new MockDispatcherTracer())
+                .setTracers(Collections.<Tracer>emptyList())
+                .build();
+        Transaction mockTransaction = transactionData.getTransaction();
+        when(mockTransaction.sampled()).thenReturn(true);
+        when(mockTransaction.getPriority()).thenReturn(1.5f);
+
+        spanEventsService.dispatcherTransactionFinished(transactionData, new TransactionStats());
+
+        // the span reaches infinite tracing when the transaction finishes, not at harvest
+        assertEquals(1, streamedSpanEvents.size());
+    }
 }
@@ -0,0 +1,85 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.service.analytics;
+
+import com.newrelic.agent.model.SpanCategory;
+import com.newrelic.agent.model.SpanEvent;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TailSamplingBufferTest {
+
+    @Test
+    public void drainReturnsTransactionsHighestScoreFirst() {
+        TailSamplingBuffer buffer = new TailSamplingBuffer(10);
+        List<SpanEvent> low = spanEvents("low", 2);
+        List<SpanEvent> high = spanEvents("high", 3);
+
+        assertEquals(0, buffer.add(1.0f, low));
+        assertEquals(0, buffer.add(3.0f, high));
+        assertEquals(5, buffer.size());
+
+        List<List<SpanEvent>> drained = buffer.drain();
+        assertEquals(2, drained.size());
+        assertEquals(high, drained.get(0));
+        assertEquals(low, drained.get(1));
+        assertEquals(0, buffer.size());
+        assertTrue(buffer.drain().isEmpty());
+    }
+
+    @Test
+    public void addEvictsWholeLowerScoringTransactions() {
+        TailSamplingBuffer buffer = new TailSamplingBuffer(6);
+        buffer.add(1.0f, spanEvents("lowest", 3));
+        buffer.add(2.0f, spanEvents("middle", 3));
+
+        // Making room for 2 spans evicts all 3 spans of the lowest scoring transaction
+        assertEquals(3, buffer.add(4.0f, spanEvents("highest", 2)));
+        assertEquals(5, buffer.size());
+
+        List<List<SpanEvent>> drained = buffer.drain();
+        assertEquals(2, drained.size());
+        assertEquals("highest", drained.get(0).get(0).getTraceId());
+        assertEquals("middle", drained.get(1).get(0).getTraceId());
+    }
+
+    @Test
+    public void addRejectsTransactionThatCannotFit() {
+        TailSamplingBuffer buffer = new TailSamplingBuffer(4);
+        buffer.add(3.0f, spanEvents("kept", 3));
+
+        assertFalse(buffer.wouldAccept(1.0f, 2));
+        assertEquals(2, buffer.add(1.0f, spanEvents("rejected", 2)));
+        assertFalse(buffer.wouldAccept(5.0f, 5));
+        assertEquals(5, buffer.add(5.0f, spanEvents("too big", 5)));
+        assertTrue(buffer.wouldAccept(1.0f, 1));
+
+        List<List<SpanEvent>> drained = buffer.drain();
+        assertEquals(1, drained.size());
+        assertEquals("kept", drained.get(0).get(0).getTraceId());
+    }
+
+    private static List<SpanEvent> spanEvents(String traceId, int count) {
+        List<SpanEvent> spanEvents = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            spanEvents.add(new SpanEventFactory("Unit Test")
+                    .setCategory(SpanCategory.generic)
+                    .setTraceId(traceId)
+                    .setGuid(traceId + i)
+                    .build());
+        }
+        return spanEvents;
+    }
+
+}
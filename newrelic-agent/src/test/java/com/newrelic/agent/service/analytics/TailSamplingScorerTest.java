@@ -0,0 +1,76 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.service.analytics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TailSamplingScorerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(2);
+
+    @Test
+    public void errorsOutscoreEverythingElse() {
+        TailSamplingScorer scorer = new TailSamplingScorer();
+        float slowWithCalls = scorer.score(1.0f, false, SLOW, 50);
+        float fastWithError = scorer.score(1.0f, true, FAST, 0);
+
+        assertTrue(fastWithError > slowWithCalls);
+    }
+
+    @Test
+    public void slowTransactionsOutscoreFastOnes() {
+        TailSamplingScorer scorer = new TailSamplingScorer();
+        for (int i = 0; i < 100; i++) {
+            scorer.score(1.0f, false, FAST, 0);
+        }
+
+        assertTrue(scorer.score(1.0f, false, SLOW, 0) > scorer.score(1.0f, false, FAST, 0));
+    }
+
+    @Test
+    public void crossProcessCallsAreCappedAtFullWeight() {
+        TailSamplingScorer scorer = new TailSamplingScorer();
+        float none = scorer.score(1.0f, false, FAST, 0);
+        float some = scorer.score(1.0f, false, FAST, TailSamplingScorer.CROSS_PROCESS_CALLS_FOR_FULL_WEIGHT / 2);
+        float many = scorer.score(1.0f, false, FAST, TailSamplingScorer.CROSS_PROCESS_CALLS_FOR_FULL_WEIGHT * 10);
+
+        assertTrue(some > none);
+        assertTrue(many > some);
+        assertTrue(many - none <= TailSamplingScorer.CROSS_PROCESS_WEIGHT + TailSamplingScorer.DURATION_WEIGHT);
+    }
+
+    @Test
+    public void recordDurationReturnsFractionOfShorterDurations() {
+        TailSamplingScorer scorer = new TailSamplingScorer();
+        assertEquals(0.5f, scorer.recordDuration(FAST), 0.0f);
+        for (int i = 0; i < 99; i++) {
+            scorer.recordDuration(FAST);
+        }
+
+        assertEquals(1.0f, scorer.recordDuration(SLOW), 0.0f);
+        assertEquals(0.0f, scorer.recordDuration(1), 0.0f);
+    }
+
+    @Test
+    public void bucketsIncreaseWithDuration() {
+        int previous = -1;
+        for (long nanos = 0; nanos < TimeUnit.HOURS.toNanos(1); nanos = nanos * 2 + 1) {
+            int bucket = TailSamplingScorer.bucket(nanos);
+            assertTrue(bucket > previous);
+            previous = bucket;
+        }
+        assertTrue(TailSamplingScorer.bucket(Long.MAX_VALUE) < 256);
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.service.analytics;
+
+import com.newrelic.agent.model.SpanEvent;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TransactionSpanEventReservoirTest {
+
+    @Test
+    public void evictsWholeLowestPriorityTransaction() {
+        TransactionSpanEventReservoir target = new TransactionSpanEventReservoir("app", "service", 5, 0, 10);
+        addTransaction(target, "low", 0.2f, 3);
+        addTransaction(target, "middle", 0.5f, 2);
+        assertTrue(target.isFull());
+        assertEquals(0.2f, target.getMinPriority(), 0.0f);
+
+        // One span of a higher priority transaction evicts all three spans of the lowest
+        assertTrue(target.add(span("high", 0.9f)));
+        assertEquals(3, target.size());
+        assertEquals(0.5f, target.getMinPriority(), 0.0f);
+        assertEquals(6, target.getNumberOfTries());
+
+        List<SpanEvent> spans = target.asList();
+        assertEquals("high", spans.get(0).getTransactionId());
+        assertEquals("middle", spans.get(1).getTransactionId());
+        assertEquals("middle", spans.get(2).getTransactionId());
+    }
+
+    @Test
+    public void dropsTransactionThatCannotBeKeptWhole() {
+        TransactionSpanEventReservoir target = new TransactionSpanEventReservoir("app", "service", 4, 0, 10);
+        addTransaction(target, "kept", 0.9f, 2);
+        addTransaction(target, "partial", 0.5f, 2);
+
+        // The third span of the lower priority transaction doesn't fit, so its first two are removed as well
+        assertFalse(target.add(span("partial", 0.5f)));
+        assertEquals(2, target.size());
+
+        // and later span events of that transaction are rejected even though there is room
+        assertFalse(target.add(span("partial", 0.5f)));
+        assertEquals(2, target.size());
+
+        for (SpanEvent spanEvent : target.asList()) {
+            assertEquals("kept", spanEvent.getTransactionId());
+        }
+    }
+
+    @Test
+    public void rejectsLowerPriorityTransactionWhenFull() {
+        TransactionSpanEventReservoir target = new TransactionSpanEventReservoir("app", "service", 2, 0, 10);
+        addTransaction(target, "first", 0.5f, 2);
+
+        assertFalse(target.add(span("second", 0.5f)));
+        assertFalse(target.add(span("third", 0.1f)));
+        assertEquals(2, target.size());
+        assertEquals(4, target.getNumberOfTries());
+    }
+
+    @Test
+    public void spanEventsWithoutTransactionIdAreTheirOwnGroup() {
+        TransactionSpanEventReservoir target = new TransactionSpanEventReservoir("app", "service", 2, 0, 10);
+        target.add(span(null, 0.1f));
+        target.add(span(null, 0.2f));
+        target.add(span(null, 0.3f));
+
+        List<SpanEvent> spans = target.asList();
+        assertEquals(2, spans.size());
+        assertEquals(0.3f, spans.get(0).getPriority(), 0.0f);
+        assertEquals(0.2f, spans.get(1).getPriority(), 0.0f);
+    }
+
+    @Test
+    public void pollReturnsHighestPriorityFirst() {
+        TransactionSpanEventReservoir target = new TransactionSpanEventReservoir("app", "service", 10, 0, 10);
+        addTransaction(target, "low", 0.2f, 1);
+        addTransaction(target, "high", 0.8f, 2);
+
+        assertEquals("high", target.peek().getTransactionId());
+        assertEquals("high", target.poll().getTransactionId());
+        assertEquals("high", target.poll().getTransactionId());
+        assertEquals("low", target.poll().getTransactionId());
+        assertNull(target.poll());
+        assertEquals(0, target.size());
+    }
+
+    @Test
+    public void retryAllKeepsTransactionsTogether() {
+        TransactionSpanEventReservoir source = new TransactionSpanEventReservoir("app", "service", 10, 0, 10);
+        addTransaction(source, "low", 0.2f, 2);
+        addTransaction(source, "high", 0.8f, 2);
+        TransactionSpanEventReservoir target = new TransactionSpanEventReservoir("app", "service", 3, 0, 10);
+
+        target.retryAll(source);
+
+        assertEquals(2, target.size());
+        for (SpanEvent spanEvent : target.asList()) {
+            assertEquals("high", spanEvent.getTransactionId());
+        }
+    }
+
+    @Test
+    public void zeroSizeReservoirKeepsNothing() {
+        TransactionSpanEventReservoir target = new TransactionSpanEventReservoir("app", "service", 0, 0, 10);
+
+        assertFalse(target.add(span("tx", 1.0f)));
+        assertEquals(0, target.size());
+        assertEquals(1, target.getNumberOfTries());
+    }
+
+    private static void addTransaction(TransactionSpanEventReservoir target, String transactionId, float priority, int spans) {
+        for (int i = 0; i < spans; i++) {
+            assertTrue(target.add(span(transactionId, priority)));
+        }
+    }
+
+    private static SpanEvent span(String transactionId, float priority) {
+        SpanEvent.Builder builder = SpanEvent.builder().priority(priority);
+        if (transactionId != null) {
+            builder.putIntrinsic("transactionId", transactionId);
+        }
+        return builder.build();
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.sql;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ConcurrentTopNCacheTest {
+
+    private static final int MAX_SIZE = 200;
+
+    @Test
+    public void testUpperBound() {
+        ConcurrentTopNCache<String, Value> cache = new ConcurrentTopNCache<>(MAX_SIZE);
+        for (int i = 0; i < MAX_SIZE * 5; i++) {
+            cache.putIfAbsent("select " + i, new Value("select " + i, i));
+        }
+        Assert.assertEquals(MAX_SIZE, cache.size());
+        Assert.assertEquals(MAX_SIZE, cache.asList().size());
+        Assert.assertTrue(cache.getEvictionCount() > 0);
+    }
+
+    @Test
+    public void testKeepSlowerValues() {
+        ConcurrentTopNCache<String, Value> cache = new ConcurrentTopNCache<>(MAX_SIZE);
+        cache.putIfAbsent("fastest", new Value("fastest", 1));
+        for (int i = 0; i < MAX_SIZE * 2; i++) {
+            cache.putIfAbsent("select " + i, new Value("select " + i, 10 + i));
+        }
+
+        List<Value> values = cache.asList();
+        Assert.assertEquals(MAX_SIZE, values.size());
+        for (Value value : values) {
+            Assert.assertNotEquals("fastest", value.getKey());
+            Assert.assertTrue(value.max.get() >= 10 + MAX_SIZE);
+        }
+    }
+
+    @Test
+    public void testPutIfAbsentReturnsExistingForAggregation() {
+        ConcurrentTopNCache<String, Value> cache = new ConcurrentTopNCache<>(MAX_SIZE);
+        Value first = new Value("select 1", 5);
+        Assert.assertNull(cache.putIfAbsent("select 1", first));
+
+        Value existing = cache.putIfAbsent("select 1", new Value("select 1", 50));
+        Assert.assertSame(first, existing);
+        existing.aggregate(50);
+
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(50, cache.get("select 1").max.get());
+        Assert.assertEquals(2, cache.get("select 1").count.get());
+    }
+
+    @Test
+    public void testAggregatedValueSurvivesEviction() {
+        ConcurrentTopNCache<String, Value> cache = new ConcurrentTopNCache<>(MAX_SIZE);
+        Value aggregated = new Value("aggregated", 1);
+        cache.putIfAbsent("aggregated", aggregated);
+        // in place aggregation makes this the slowest query without putting it again
+        aggregated.aggregate(Long.MAX_VALUE);
+
+        for (int i = 0; i < MAX_SIZE * 3; i++) {
+            cache.putIfAbsent("select " + i, new Value("select " + i, 10 + i));
+        }
+        Assert.assertSame(aggregated, cache.get("aggregated"));
+        Assert.assertTrue(cache.asList().contains(aggregated));
+    }
+
+    @Test
+    public void testClear() {
+        ConcurrentTopNCache<String, Value> cache = new ConcurrentTopNCache<>(MAX_SIZE);
+        for (int i = 0; i < MAX_SIZE; i++) {
+            cache.putReplace("select " + i, new Value("select " + i, i));
+        }
+        Assert.assertEquals(MAX_SIZE, cache.size());
+        cache.clear();
+        Assert.assertEquals(0, cache.size());
+        Assert.assertTrue(cache.asList().isEmpty());
+    }
+
+    @Test
+    public void testMultithreadedBehavior() throws Exception {
+        final ConcurrentTopNCache<String, Value> cache = new ConcurrentTopNCache<>(MAX_SIZE);
+        cache.putIfAbsent("fastest", new Value("fastest", 1));
+
+        List<Callable<Void>> callables = new ArrayList<>();
+        for (int t = 0; t < 5; t++) {
+            final int thread = t;
+            callables.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int i = 0; i < MAX_SIZE * 4; i++) {
+                        String key = "select " + (i % (MAX_SIZE * 2));
+                        Value existing = cache.putIfAbsent(key, new Value(key, 10 + i + thread));
+                        if (existing != null) {
+                            existing.aggregate(10 + i + thread);
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(5);
+        try {
+            for (Future<Void> future : executorService.invokeAll(callables)) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        Assert.assertEquals(MAX_SIZE, cache.size());
+        List<Value> values = cache.asList();
+        Assert.assertEquals(MAX_SIZE, values.size());
+        for (Value value : values) {
+            Assert.assertNotEquals("fastest", value.getKey());
+        }
+    }
+
+    private static class Value implements Comparable<Value>, CacheValue<String> {
+        private final String key;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        Value(String key, long duration) {
+            this.key = key;
+            aggregate(duration);
+        }
+
+        void aggregate(long duration) {
+            count.incrementAndGet();
+            while (true) {
+                long current = max.get();
+                if (duration <= current || max.compareAndSet(current, duration)) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public int compareTo(Value other) {
+            return Long.compare(max.get(), other.max.get());
+        }
+    }
+
+}
@@ -45,4 +45,28 @@ public class TransactionGuidFactoryTest {
             someGuids.add(guidString);
         }
     }
+
+    @Test
+    public void testToHex() {
+        Assert.assertEquals("0000000000000000", TransactionGuidFactory.toHex(0L));
+        Assert.assertEquals("00000000000000ff", TransactionGuidFactory.toHex(255L));
+        Assert.assertEquals("ffffffffffffffff", TransactionGuidFactory.toHex(-1L));
+        Assert.assertEquals("123456789abcdef0", TransactionGuidFactory.toHex(0x123456789abcdef0L));
+    }
+
+    @Test
+    public void testGenerateTraceId() {
+        String traceId = TransactionGuidFactory.generateTraceId();
+
+        Assert.assertEquals(32, traceId.length());
+        Assert.assertEquals(traceId, traceId.toLowerCase());
+        Assert.assertNotEquals("00000000000000000000000000000000", traceId);
+    }
+
+    @Test
+    public void testSpanIdIsNeverZero() {
+        for (int i = 0; i < 1000; ++i) {
+            Assert.assertNotEquals(0L, TransactionGuidFactory.generateSpanId());
+        }
+    }
 }
@@ -11,6 +11,7 @@ import com.google.common.base.Strings;
 import com.google.common.collect.Iterables;
 import com.newrelic.agent.*;
 import com.newrelic.agent.attributes.AttributeNames;
+import com.newrelic.agent.bridge.AgentBridge;
 import com.newrelic.agent.bridge.datastore.*;
 import com.newrelic.agent.config.AgentConfig;
 import com.newrelic.agent.config.AgentConfigFactory;
@@ -346,6 +347,23 @@ public class DefaultSqlTracerTest {
         assertClmAbsent(sqlTracer);
     }
 
+    @Test
+    public void noticeBatchResults() throws SQLException {
+        com.newrelic.agent.bridge.Agent savedAgent = AgentBridge.agent;
+        AgentBridge.agent = new AgentImpl(Agent.LOG);
+        try {
+            DefaultSqlTracer tracer = newTracer("insert into dude values (?)");
+            JdbcHelper.noticeBatchResults(new int[] { 2, Statement.SUCCESS_NO_INFO, Statement.EXECUTE_FAILED, 3 });
+            tracer.finish(Opcodes.ARETURN, null);
+
+            assertEquals(4, tracer.getCustomAttributes().get(JdbcHelper.BATCH_SIZE_ATTRIBUTE));
+            assertEquals(5L, tracer.getCustomAttributes().get(JdbcHelper.BATCH_ROW_COUNT_ATTRIBUTE));
+            assertEquals(getScopedMetric("dude", "insert"), tracer.getMetricName());
+        } finally {
+            AgentBridge.agent = savedAgent;
+        }
+    }
+
     @Test
     public void multipleStatements() throws SQLException {
         DefaultSqlTracer tracer = newTracer("select * from dude; select * from test");
@@ -126,4 +126,35 @@ public class W3CTraceParentHeaderTest extends BaseDistributedTraceTest {
         W3CTraceParent header = W3CTraceParentParser.parseHeader("03-12345678123456781234564781245678-12342BAD3441234-01");
         assertNull(header);
     }
+
+    @Test
+    public void testParseFutureVersionWithExtraFields() {
+        W3CTraceParent expected = new W3CTraceParent("cc", "12345678123456781234567812345678", "1234123412341234", 0x1f);
+        W3CTraceParent result = W3CTraceParentParser.parseHeader("cc-12345678123456781234567812345678-1234123412341234-1f-what-the-future-will-be-like");
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void testParseTrailingDelimiters() {
+        assertNull(W3CTraceParentParser.parseHeader("cc-12345678123456781234567812345678-1234123412341234---"));
+        assertNull(W3CTraceParentParser.parseHeader("cc-12345678123456781234567812345678-1234123412341234-01.what"));
+        assertNull(W3CTraceParentParser.parseHeader("00-12345678123456781234567812345678-1234123412341234-01-"));
+        assertNull(W3CTraceParentParser.parseHeader(""));
+    }
+
+    @Test
+    public void testParseAllZeroIds() {
+        assertNull(W3CTraceParentParser.parseHeader("00-00000000000000000000000000000000-1234123412341234-01"));
+        assertNull(W3CTraceParentParser.parseHeader("00-12345678123456781234567812345678-0000000000000000-01"));
+    }
+
+    @Test
+    public void testCreateTraceParentPayloadRoundTrips() {
+        SpanProxy spanProxy = Transaction.getTransaction(true).getSpanProxy();
+        String header = "00-12345678123456781234567812345678-1234123412341234-01";
+        spanProxy.setInitiatingW3CTraceParent(W3CTraceParentParser.parseHeader(header));
+
+        assertEquals(header, W3CTraceParentHeader.create(spanProxy, "ignored", "1234123412341234", true));
+        assertEquals("00-12345678123456781234567812345678-4321432143214321-00", W3CTraceParentHeader.create(spanProxy, "ignored", "4321432143214321", false));
+    }
 }
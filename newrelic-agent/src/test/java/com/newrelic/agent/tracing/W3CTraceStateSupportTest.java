@@ -237,4 +237,29 @@ public class W3CTraceStateSupportTest extends BaseDistributedTraceTest {
         List<String> result = W3CTraceStateSupport.truncateVendorStates(states);
         assertEquals(expected, result);
     }
+
+    @Test
+    public void testValidVendorStates() {
+        assertTrue(W3CTraceStateSupport.isValidVendorState("rojo=00f067aa0ba902b7"));
+        assertTrue(W3CTraceStateSupport.isValidVendorState("congo=t61rcWkgMzE"));
+        assertTrue(W3CTraceStateSupport.isValidVendorState("190@nr=0-0-709288-8599547-f85f42fd82a4cf1d-164d3b4b0d09cb05-1-0.789-1563574856827"));
+        assertTrue(W3CTraceStateSupport.isValidVendorState("0tenant@vendor_1*/-=value with spaces"));
+        assertTrue(W3CTraceStateSupport.isValidVendorState(Strings.repeat("a", 256) + "=" + Strings.repeat("b", 256)));
+    }
+
+    @Test
+    public void testInvalidVendorStates() {
+        assertFalse(W3CTraceStateSupport.isValidVendorState("rojo"));
+        assertFalse(W3CTraceStateSupport.isValidVendorState("rojo="));
+        assertFalse(W3CTraceStateSupport.isValidVendorState("=value"));
+        assertFalse(W3CTraceStateSupport.isValidVendorState("Rojo=value"));
+        assertFalse(W3CTraceStateSupport.isValidVendorState("0rojo=value"));
+        assertFalse(W3CTraceStateSupport.isValidVendorState("rojo=value "));
+        assertFalse(W3CTraceStateSupport.isValidVendorState("rojo=val=ue"));
+        assertFalse(W3CTraceStateSupport.isValidVendorState("a@b@c=value"));
+        assertFalse(W3CTraceStateSupport.isValidVendorState("tenant@0vendor=value"));
+        assertFalse(W3CTraceStateSupport.isValidVendorState("tenant@" + Strings.repeat("v", 15) + "=value"));
+        assertFalse(W3CTraceStateSupport.isValidVendorState(Strings.repeat("a", 257) + "=value"));
+        assertFalse(W3CTraceStateSupport.isValidVendorState("rojo=" + Strings.repeat("b", 257)));
+    }
 }
@@ -0,0 +1,90 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.util;
+
+import com.newrelic.agent.MockServiceManager;
+import com.newrelic.agent.stats.StatsService;
+import com.newrelic.agent.stats.StatsWork;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class AgentCollectionFactoryTest {
+
+    @Test
+    public void memorize_cachesLoadedValues() {
+        final AtomicInteger loads = new AtomicInteger();
+        Function<String, Integer> cached = new AgentCollectionFactory().memorize(key -> {
+            loads.incrementAndGet();
+            return key.length();
+        }, 10);
+
+        assertEquals(Integer.valueOf(5), cached.apply("hello"));
+        assertEquals(Integer.valueOf(5), cached.apply("hello"));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void memorize_doesNotCacheNull() {
+        final AtomicInteger loads = new AtomicInteger();
+        Function<String, Integer> cached = new AgentCollectionFactory().memorize(key -> {
+            loads.incrementAndGet();
+            return null;
+        }, 10);
+
+        assertNull(cached.apply("hello"));
+        assertNull(cached.apply("hello"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void accessTimeBasedEvictionMap_behavesAsMap() {
+        Map<String, String> map = new AgentCollectionFactory().createConcurrentAccessTimeBasedEvictionMap("test", 60);
+        map.put("url", "factory");
+
+        assertEquals("factory", map.get("url"));
+        assertEquals(1, map.size());
+        assertNull(map.get("other"));
+    }
+
+    @Test
+    public void accessTimeBasedEvictionMap_expiresEntriesAndRecordsEvictions() {
+        StatsService statsService = Mockito.mock(StatsService.class);
+        new MockServiceManager().setStatsService(statsService);
+        AtomicLong nanos = new AtomicLong();
+        Map<String, String> map = new AgentCollectionFactory().createConcurrentAccessTimeBasedEvictionMap("test", 60, nanos::get);
+        map.put("url", "factory");
+
+        // every access pushes the expiration back
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(45));
+        assertEquals("factory", map.get("url"));
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(45));
+        assertEquals("factory", map.get("url"));
+        verify(statsService, never()).doStatsWork(any(StatsWork.class), anyString());
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        assertNull(map.get("url"));
+        map.put("other", "factory");
+
+        assertEquals(1, map.size());
+        verify(statsService).doStatsWork(any(StatsWork.class), eq("Supportability/Java/Cache/test/Evictions"));
+    }
+}
@@ -1,15 +1,42 @@
 package com.newrelic.bootstrap;
 
+import com.newrelic.agent.Agent;
+import com.newrelic.agent.config.AgentConfig;
+import com.newrelic.agent.config.ConfigService;
+import com.newrelic.agent.config.ConfigServiceFactory;
+import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.service.ServiceTiming;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.lang.instrument.Instrumentation;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
 import java.util.zip.DeflaterOutputStream;
 
 public class BootstrapAgentTest {
+
+    private static final String[] EMBEDDED_JAR_NAMES = new String[] { BootstrapLoader.AGENT_BRIDGE_DATASTORE_JAR_NAME,
+            BootstrapLoader.AGENT_BRIDGE_JAR_NAME, BootstrapLoader.API_JAR_NAME, BootstrapLoader.WEAVER_API_JAR_NAME,
+            BootstrapLoader.NEWRELIC_SECURITY_API, BootstrapLoader.NEWRELIC_SECURITY_AGENT };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void decodeAndDecompressAgentArguments_withProperInput_returnsUncompressedString() throws IOException {
         // Compress and Base64 encode agent arg string
@@ -24,4 +51,44 @@ public class BootstrapAgentTest {
         String result = BootstrapAgent.decodeAndDecompressAgentArguments(Base64.getEncoder().encodeToString(arrayOutputStream.toByteArray()));
         Assert.assertEquals(fakeAgentArgs, result);
     }
+
+    @Test
+    public void continuePremain_passesBootstrapLoadTimeToAgent() throws Exception {
+        Instrumentation inst = Mockito.mock(Instrumentation.class);
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { createAgentJar().toURI().toURL() }, null)) {
+            BootstrapLoader.load(inst, false, new EmbeddedJarFilesImpl(EMBEDDED_JAR_NAMES, classLoader, null));
+        }
+        Mockito.verify(inst, Mockito.times(6)).appendToBootstrapClassLoaderSearch(Mockito.any(JarFile.class));
+        long loadTimeInNanos = BootstrapLoader.getLoadTimeInNanos();
+        Assert.assertTrue(loadTimeInNanos > 0);
+
+        // an empty license key stops the agent right after the config is read
+        AgentConfig agentConfig = Mockito.mock(AgentConfig.class);
+        Mockito.when(agentConfig.getLicenseKey()).thenReturn(null);
+        ConfigService configService = Mockito.mock(ConfigService.class);
+        Mockito.when(configService.getDefaultAgentConfig()).thenReturn(agentConfig);
+        try (MockedStatic<ConfigServiceFactory> csfMock = Mockito.mockStatic(ConfigServiceFactory.class);
+             MockedStatic<ServiceTiming> serviceTiming = Mockito.mockStatic(ServiceTiming.class)) {
+            csfMock.when(() -> ConfigServiceFactory.createConfigService(Mockito.any(), Mockito.anyBoolean())).thenReturn(configService);
+
+            BootstrapAgent.continuePremain(Agent.class, "", inst, System.currentTimeMillis());
+            serviceTiming.verify(() -> ServiceTiming.addStartupPhase(ServiceTiming.PHASE_BOOTSTRAP_CLASSPATH, loadTimeInNanos));
+        } finally {
+            ServiceFactory.setServiceManager(null); // reset
+        }
+    }
+
+    private File createAgentJar() throws IOException {
+        File agentJar = folder.newFile("agent.jar");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(agentJar))) {
+            for (String name : EMBEDDED_JAR_NAMES) {
+                ByteArrayOutputStream embeddedJar = new ByteArrayOutputStream();
+                new JarOutputStream(embeddedJar, new Manifest()).close();
+                out.putNextEntry(new JarEntry(name + ".jar"));
+                out.write(embeddedJar.toByteArray());
+                out.closeEntry();
+            }
+        }
+        return agentJar;
+    }
 }
@@ -1,14 +1,29 @@
 package com.newrelic.bootstrap;
 
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Ignore;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.Arrays;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
 
 public class EmbeddedJarFilesImplTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void noArgConstructor_initsWithInternalJarFileNames() {
         EmbeddedJarFiles embeddedJarFiles = new EmbeddedJarFilesImpl();
@@ -40,4 +55,135 @@ public class EmbeddedJarFilesImplTest {
         EmbeddedJarFiles embeddedJarFiles = new EmbeddedJarFilesImpl();
         Assert.assertNotNull(embeddedJarFiles.getJarFileInAgent("foo"));
     }
+
+    @Test
+    public void getJarFileInAgent_withJarCacheDirectory_reusesCachedJar() throws IOException {
+        File jarCacheDirectory = newJarCacheDirectory();
+        File otherVersionJar = new File(jarCacheDirectory, "nested-1234abcd-10.jar");
+        Assert.assertTrue(otherVersionJar.createNewFile());
+        File staleJar = new File(jarCacheDirectory, "nested-5678abcd-10.jar");
+        Assert.assertTrue(staleJar.createNewFile());
+        Assert.assertTrue(staleJar.setLastModified(System.currentTimeMillis() - EmbeddedJarFilesImpl.STALE_JAR_AGE_MILLIS - 60000));
+        File otherJar = new File(jarCacheDirectory, "nested-other-1234abcd-10.jar");
+        Assert.assertTrue(otherJar.createNewFile());
+        Assert.assertTrue(otherJar.setLastModified(System.currentTimeMillis() - EmbeddedJarFilesImpl.STALE_JAR_AGE_MILLIS - 60000));
+
+        byte[] nestedJar = "not really a jar, but the cache doesn't look inside".getBytes("UTF-8");
+        File agentJar = createAgentJar(nestedJar);
+
+        String[] names = { "nested" };
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { agentJar.toURI().toURL() }, null)) {
+            EmbeddedJarFiles first = new EmbeddedJarFilesImpl(names, classLoader, jarCacheDirectory);
+            File cachedJar = first.getJarFileInAgent("nested");
+            Assert.assertEquals(jarCacheDirectory, cachedJar.getParentFile());
+            Assert.assertArrayEquals(nestedJar, Files.readAllBytes(cachedJar.toPath()));
+            Assert.assertTrue(first.getJarFileTimings().get("nested").startsWith("added to the jar cache"));
+            // another version may still be starting from the cache during a rolling deploy
+            Assert.assertTrue(otherVersionJar.exists());
+            Assert.assertFalse(staleJar.exists());
+            Assert.assertTrue(otherJar.exists());
+
+            EmbeddedJarFiles second = new EmbeddedJarFilesImpl(names, classLoader, jarCacheDirectory);
+            Assert.assertEquals(cachedJar, second.getJarFileInAgent("nested"));
+            Assert.assertTrue(second.getJarFileTimings().get("nested").startsWith("found in the jar cache"));
+            // the other version's jar, the stale jar of another name, the cached jar and its verified marker
+            Assert.assertEquals(4, jarCacheDirectory.listFiles().length);
+        }
+    }
+
+    @Test
+    public void getJarFileInAgent_withUnverifiedCachedJar_verifiesItOnce() throws IOException {
+        File jarCacheDirectory = newJarCacheDirectory();
+        byte[] nestedJar = "not really a jar, but the cache doesn't look inside".getBytes("UTF-8");
+        File agentJar = createAgentJar(nestedJar);
+
+        String[] names = { "nested" };
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { agentJar.toURI().toURL() }, null)) {
+            File cachedJar = new EmbeddedJarFilesImpl(names, classLoader, jarCacheDirectory).getJarFileInAgent("nested");
+            File verifiedFile = new File(jarCacheDirectory, cachedJar.getName() + EmbeddedJarFilesImpl.VERIFIED_SUFFIX);
+            Assert.assertTrue(verifiedFile.delete());
+
+            EmbeddedJarFiles verifying = new EmbeddedJarFilesImpl(names, classLoader, jarCacheDirectory);
+            Assert.assertEquals(cachedJar, verifying.getJarFileInAgent("nested"));
+            Assert.assertTrue(verifying.getJarFileTimings().get("nested").startsWith("verified in the jar cache"));
+            Assert.assertTrue(verifiedFile.isFile());
+
+            EmbeddedJarFiles verified = new EmbeddedJarFilesImpl(names, classLoader, jarCacheDirectory);
+            Assert.assertEquals(cachedJar, verified.getJarFileInAgent("nested"));
+            Assert.assertTrue(verified.getJarFileTimings().get("nested").startsWith("found in the jar cache"));
+        }
+    }
+
+    @Test
+    public void getJarFileInAgent_withCorruptUnverifiedCachedJar_replacesIt() throws IOException {
+        File jarCacheDirectory = newJarCacheDirectory();
+        byte[] nestedJar = "not really a jar, but the cache doesn't look inside".getBytes("UTF-8");
+        File agentJar = createAgentJar(nestedJar);
+
+        String[] names = { "nested" };
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { agentJar.toURI().toURL() }, null)) {
+            File cachedJar = new EmbeddedJarFilesImpl(names, classLoader, jarCacheDirectory).getJarFileInAgent("nested");
+
+            // same length, different content, left by a JVM that stopped before recording the check
+            byte[] corrupt = nestedJar.clone();
+            corrupt[0] = (byte) ~corrupt[0];
+            Files.write(cachedJar.toPath(), corrupt);
+            Assert.assertTrue(new File(jarCacheDirectory, cachedJar.getName() + EmbeddedJarFilesImpl.VERIFIED_SUFFIX).delete());
+
+            EmbeddedJarFiles embeddedJarFiles = new EmbeddedJarFilesImpl(names, classLoader, jarCacheDirectory);
+            Assert.assertEquals(cachedJar, embeddedJarFiles.getJarFileInAgent("nested"));
+            Assert.assertTrue(embeddedJarFiles.getJarFileTimings().get("nested").startsWith("added to the jar cache"));
+            Assert.assertArrayEquals(nestedJar, Files.readAllBytes(cachedJar.toPath()));
+        }
+    }
+
+    @Test
+    public void getJarFileInAgent_withJarCacheDirectoryWritableByOthers_extractsToTempFile() throws IOException {
+        File jarCacheDirectory = newJarCacheDirectory();
+        Files.setPosixFilePermissions(jarCacheDirectory.toPath(), PosixFilePermissions.fromString("rwxrwxrwx"));
+        File agentJar = createAgentJar(new byte[] { 1, 2, 3 });
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { agentJar.toURI().toURL() }, null)) {
+            EmbeddedJarFiles embeddedJarFiles = new EmbeddedJarFilesImpl(new String[] { "nested" }, classLoader, jarCacheDirectory);
+            File jar = embeddedJarFiles.getJarFileInAgent("nested");
+            Assert.assertNotEquals(jarCacheDirectory, jar.getParentFile());
+            Assert.assertTrue(embeddedJarFiles.getJarFileTimings().get("nested").startsWith("extracted"));
+            Assert.assertEquals(0, jarCacheDirectory.listFiles().length);
+            jar.delete();
+        }
+    }
+
+    @Test
+    public void getJarFileInAgent_withoutJarCacheDirectory_extractsToTempFile() throws IOException {
+        File agentJar = createAgentJar(new byte[] { 1, 2, 3 });
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { agentJar.toURI().toURL() }, null)) {
+            EmbeddedJarFiles embeddedJarFiles = new EmbeddedJarFilesImpl(new String[] { "nested" }, classLoader, null);
+            File jar = embeddedJarFiles.getJarFileInAgent("nested");
+            Assert.assertNotEquals(agentJar.getParentFile(), jar.getParentFile());
+            Assert.assertArrayEquals(new byte[] { 1, 2, 3 }, Files.readAllBytes(jar.toPath()));
+            Assert.assertTrue(embeddedJarFiles.getJarFileTimings().get("nested").startsWith("extracted"));
+            jar.delete();
+        }
+    }
+
+    /**
+     * The cache refuses directories other users can write to, whatever the umask.
+     */
+    private File newJarCacheDirectory() throws IOException {
+        File jarCacheDirectory = folder.newFolder("cache");
+        Assume.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        Files.setPosixFilePermissions(jarCacheDirectory.toPath(), PosixFilePermissions.fromString("rwx------"));
+        return jarCacheDirectory;
+    }
+
+    private File createAgentJar(byte[] nestedJar) throws IOException {
+        File agentJar = folder.newFile("agent.jar");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(agentJar))) {
+            out.putNextEntry(new JarEntry("nested.jar"));
+            out.write(nestedJar);
+            out.closeEntry();
+        }
+        return agentJar;
+    }
 }
@@ -22,12 +22,34 @@ public class ClassCache implements ClassInformationFinder {
     private static final ClassInformation NO_CLASS_INFORMATION = new ClassInformation();
 
     private final ClassFinder classFinder;
+    /**
+     * The class loader whose entries in the {@link SharedClassInformationCache} this cache uses, or null if it doesn't.
+     */
+    private final ClassLoader sharedClassLoader;
     private final ConcurrentMap<String, Boolean> classExistsCache = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, byte[]> classBytesCache = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, ClassInformation> classInformationCache = new ConcurrentHashMap<>();
 
     public ClassCache(ClassFinder classFinder) {
+        this(classFinder, false);
+    }
+
+    /**
+     * @param shareClassInformation true to also find and keep class information in the
+     * {@link SharedClassInformationCache}, which is only done when the classes are found through a class loader or the
+     * bootstrap
+     */
+    public ClassCache(ClassFinder classFinder, boolean shareClassInformation) {
         this.classFinder = classFinder;
+        if (!shareClassInformation) {
+            this.sharedClassLoader = null;
+        } else if (classFinder instanceof ClassLoaderFinder) {
+            this.sharedClassLoader = ((ClassLoaderFinder) classFinder).getClassLoader();
+        } else if (classFinder instanceof BootstrapLoader) {
+            this.sharedClassLoader = BootstrapLoader.PLACEHOLDER;
+        } else {
+            this.sharedClassLoader = null;
+        }
     }
 
     /**
@@ -87,6 +109,15 @@ public class ClassCache implements ClassInformationFinder {
             return result == NO_CLASS_INFORMATION ? null : result;
         }
 
+        SharedClassInformationCache sharedCache = sharedClassLoader == null ? null : SharedClassInformationCache.get();
+        if (sharedCache != null) {
+            result = sharedCache.getIfPresent(sharedClassLoader, internalName);
+            if (result != null) {
+                classInformationCache.putIfAbsent(internalName, result);
+                return result;
+            }
+        }
+
         byte[] classBytes = getClassResource(internalName);
         if (classBytes == null) {
             classInformationCache.putIfAbsent(internalName, NO_CLASS_INFORMATION);
@@ -95,6 +126,9 @@ public class ClassCache implements ClassInformationFinder {
 
         result = ClassInformation.fromClassBytes(classBytes);
         classInformationCache.putIfAbsent(internalName, result);
+        if (sharedCache != null) {
+            sharedCache.put(sharedClassLoader, internalName, result);
+        }
         return result;
     }
 }
@@ -20,6 +20,10 @@ public class ClassLoaderFinder implements ClassFinder {
         this.classLoader = classLoader;
     }
 
+    public ClassLoader getClassLoader() {
+        return classLoader;
+    }
+
     @Override
     public URL findResource(String internalName) {
         return classLoader.getResource(WeaveUtils.getClassResourceName(internalName));
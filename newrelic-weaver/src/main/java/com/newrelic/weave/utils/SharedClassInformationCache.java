@@ -0,0 +1,126 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.weave.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ClassInformation} shared by the {@link ClassCache}s of every transformation in the JVM, so that the class
+ * hierarchies needed to match weave packages and compute frames are read from class loader resources once instead of
+ * once per transformation. This class is threadsafe.
+ *
+ * Entries are kept per class loader, which is weakly referenced, and each class loader keeps a bounded number of them.
+ * Bootstrap classes are kept once for all class loaders since parent delegation resolves them the same way everywhere.
+ * Classes that can't be found are not cached, they may still be defined later.
+ */
+public class SharedClassInformationCache {
+
+    public static final int DEFAULT_MAX_ENTRIES_PER_CLASS_LOADER = 4096;
+
+    private static volatile SharedClassInformationCache instance = new SharedClassInformationCache(
+            DEFAULT_MAX_ENTRIES_PER_CLASS_LOADER);
+
+    private final int maxEntriesPerClassLoader;
+    private final Cache<ClassLoader, Cache<String, ClassInformation>> classInformation = Caffeine.newBuilder()
+            .weakKeys().executor(Runnable::run).build();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxEntriesPerClassLoader the number of classes kept for each class loader, 0 to not cache anything
+     */
+    public SharedClassInformationCache(int maxEntriesPerClassLoader) {
+        this.maxEntriesPerClassLoader = maxEntriesPerClassLoader;
+    }
+
+    /**
+     * The instance used by {@link ClassCache}s created with {@link ClassCache#ClassCache(ClassFinder, boolean)}.
+     */
+    public static SharedClassInformationCache get() {
+        return instance;
+    }
+
+    /**
+     * Replace the JVM wide instance with one of a different size. This drops everything cached so far.
+     */
+    public static void configure(int maxEntriesPerClassLoader) {
+        if (instance.maxEntriesPerClassLoader != maxEntriesPerClassLoader) {
+            instance = new SharedClassInformationCache(maxEntriesPerClassLoader);
+        }
+    }
+
+    public boolean isEnabled() {
+        return maxEntriesPerClassLoader > 0;
+    }
+
+    /**
+     * @param classLoader the class loader, or {@link BootstrapLoader#PLACEHOLDER} for the bootstrap
+     * @return the cached information, or null if the class has to be read
+     */
+    public ClassInformation getIfPresent(ClassLoader classLoader, String internalName) {
+        if (!isEnabled()) {
+            return null;
+        }
+        ClassInformation result = null;
+        if (classLoader != BootstrapLoader.PLACEHOLDER) {
+            Cache<String, ClassInformation> classes = classInformation.getIfPresent(classLoader);
+            result = classes == null ? null : classes.getIfPresent(internalName);
+        }
+        if (result == null) {
+            Cache<String, ClassInformation> bootstrapClasses = classInformation.getIfPresent(BootstrapLoader.PLACEHOLDER);
+            result = bootstrapClasses == null ? null : bootstrapClasses.getIfPresent(internalName);
+        }
+        if (result == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return result;
+    }
+
+    /**
+     * Cache the information read for a class through a class loader. Bootstrap classes are kept for all class loaders.
+     *
+     * @param classLoader the class loader, or {@link BootstrapLoader#PLACEHOLDER} for the bootstrap
+     */
+    public void put(ClassLoader classLoader, String internalName, ClassInformation information) {
+        if (!isEnabled()) {
+            return;
+        }
+        if (classLoader != BootstrapLoader.PLACEHOLDER && isBootstrapClass(internalName)) {
+            classLoader = BootstrapLoader.PLACEHOLDER;
+        }
+        classInformation.get(classLoader, key -> Caffeine.newBuilder()
+                .maximumSize(maxEntriesPerClassLoader).executor(Runnable::run).<String, ClassInformation>build())
+                .put(internalName, information);
+    }
+
+    private static boolean isBootstrapClass(String internalName) {
+        // only the bootstrap may define classes in the java packages
+        return internalName.startsWith("java/") || BootstrapLoader.get().isBootstrapClass(internalName);
+    }
+
+    /**
+     * @return the number of lookups answered from the cache, each of which saved reading a class resource, since the
+     * last call
+     */
+    public long getAndResetHits() {
+        return hits.getAndSet(0);
+    }
+
+    /**
+     * @return the number of lookups that had to read a class resource since the last call
+     */
+    public long getAndResetMisses() {
+        return misses.getAndSet(0);
+    }
+
+}
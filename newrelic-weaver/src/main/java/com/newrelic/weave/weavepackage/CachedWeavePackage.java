@@ -54,13 +54,34 @@ public class CachedWeavePackage extends WeavePackage {
 
     public static WeavePackage createWeavePackage(URL jarLocation, JarInputStream jarStream, WeavePackageConfig config)
             throws Exception {
-        Attributes attributes = jarStream.getManifest().getMainAttributes();
+        CachedWeavePackage weavePackage = fromAttributes(jarLocation, jarStream.getManifest().getMainAttributes(), config);
+        return weavePackage == null ? WeavePackage.createWeavePackage(jarStream, config) : weavePackage;
+    }
+
+    /**
+     * Create a weave package from the manifest attributes of a jar without reading the jar, unless the attributes don't
+     * have the cached weave attributes.
+     *
+     * @param attributes the main attributes of the jar's manifest, e.g. from a {@link WeavePackageIndex}
+     */
+    public static WeavePackage createWeavePackage(URL jarLocation, Attributes attributes, WeavePackageConfig config)
+            throws Exception {
+        CachedWeavePackage weavePackage = fromAttributes(jarLocation, attributes, config);
+        if (weavePackage != null) {
+            return weavePackage;
+        }
+        try (JarInputStream jarStream = new JarInputStream(jarLocation.openStream())) {
+            return WeavePackage.createWeavePackage(jarStream, config);
+        }
+    }
+
+    private static CachedWeavePackage fromAttributes(URL jarLocation, Attributes attributes, WeavePackageConfig config) {
         String weaveMethods = attributes.getValue(WEAVE_METHODS_MANIFEST_ATTRIBUTE_NAME);
         String weaveClasses = attributes.getValue(WEAVE_CLASSES_MANIFEST_ATTRIBUTE_NAME);
         String classRequiredAnnotations = attributes.getValue(CLASS_REQUIRED_ANNOTATIONS_MANIFEST_ATTRIBUTE_NAME);
         String methodRequiredAnnotations = attributes.getValue(METHOD_REQUIRED_ANNOTATIONS_MANIFEST_ATTRIBUTE_NAME);
         if (weaveMethods == null || weaveClasses == null || classRequiredAnnotations == null || methodRequiredAnnotations == null) {
-            return WeavePackage.createWeavePackage(jarStream, config);
+            return null;
         } else {
             String referenceClasses = attributes.getValue(REFERENCE_CLASSES_MANIFEST_ATTRIBUTE_NAME);
             String illegalClasses = attributes.getValue(ILLEGAL_CLASSES_MANIFEST_ATTRIBUTE_NAME);
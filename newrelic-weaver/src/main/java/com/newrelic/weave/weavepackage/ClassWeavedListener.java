@@ -18,4 +18,11 @@ public interface ClassWeavedListener {
      * Called after a target class is weaved.
      */
     void classWeaved(PackageWeaveResult weaveResult, ClassLoader classloader, ClassCache cache);
+
+    /**
+     * Called when a registered weave package matches a target class, before the package is validated against the
+     * class loader. Whether the class is then weaved depends on the classes the class loader can see.
+     */
+    default void classMatched(String className, ClassLoader classloader) {
+    }
 }
@@ -0,0 +1,274 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.weave.weavepackage;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.newrelic.weave.utils.BootstrapLoader;
+import com.newrelic.weave.utils.ClassCache;
+import com.newrelic.weave.utils.ClassInformation;
+import com.newrelic.weave.violation.WeaveViolation;
+import com.newrelic.weave.violation.WeaveViolationType;
+import org.objectweb.asm.commons.Method;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers, across JVM restarts, the weave packages that failed to validate against a class loader, so that a later
+ * JVM can skip validating them, which for a {@link CachedWeavePackage} also skips reading its jar.
+ *
+ * A result is keyed by the weave package's name and version, the class loader's identity and the bytes of the classes
+ * the package requires or must not find, along with the bytes of their superclasses, as that class loader sees them.
+ * Changing a jar changes the key, so results are never reused for classes they weren't computed from. The file name
+ * carries a fingerprint of the agent version and configuration given by the caller. The files of other fingerprints are
+ * only deleted once nothing has opened them for {@link #STALE_FILE_AGE_MILLIS}, because other applications, or other
+ * versions of this one during a rolling deploy, can share the directory.
+ *
+ * Only failed results are stored. A successful result holds the prepared weave code and the utility classes appended
+ * to the class loader, which have to be created in every JVM.
+ */
+public class ValidationResultCache implements Closeable {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1 << 16;
+
+    static final String FILE_PREFIX = "newrelic-validation-cache-";
+    static final String FILE_SUFFIX = ".txt";
+
+    private static final String FORMAT_VERSION = "1";
+    private static final char SEPARATOR = '\t';
+
+    static final long STALE_FILE_AGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    private final File file;
+    private final int maxEntries;
+    private final Map<Long, Queue<WeaveViolation>> results = new ConcurrentHashMap<>();
+    private final Map<ClassLoader, String> classLoaderIdentities = Collections.synchronizedMap(new WeakHashMap<ClassLoader, String>());
+    private final Writer writer;
+
+    private ValidationResultCache(File file, int maxEntries) throws IOException {
+        this.file = file;
+        this.maxEntries = maxEntries;
+        boolean valid = file.isFile() && read(file);
+        if (!valid) {
+            results.clear();
+        }
+        this.writer = new OutputStreamWriter(new FileOutputStream(file, valid), StandardCharsets.UTF_8);
+        if (!valid) {
+            writer.write(FORMAT_VERSION + '\n');
+            writer.flush();
+        }
+    }
+
+    /**
+     * Open the cache file for a fingerprint, deleting the files of other fingerprints that haven't been opened recently.
+     *
+     * @param directory where the cache file is kept
+     * @param fingerprint identifies the agent version and everything else that decides how weave packages validate
+     * @param maxEntries the number of results the cache can hold
+     */
+    public static ValidationResultCache open(File directory, long fingerprint, int maxEntries) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create validation cache directory " + directory);
+        }
+        String fileName = FILE_PREFIX + Long.toHexString(fingerprint) + FILE_SUFFIX;
+        long now = System.currentTimeMillis();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File stale : files) {
+                String name = stale.getName();
+                if (name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX) && !name.equals(fileName)
+                        && now - stale.lastModified() > STALE_FILE_AGE_MILLIS) {
+                    stale.delete();
+                }
+            }
+        }
+        ValidationResultCache cache = new ValidationResultCache(new File(directory, fileName), maxEntries);
+        // a JVM that finds every result it needs doesn't write, so mark the file as in use here
+        cache.file.setLastModified(now);
+        return cache;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int size() {
+        return results.size();
+    }
+
+    /**
+     * @param classloader the class loader, or {@link BootstrapLoader#PLACEHOLDER} for the bootstrap
+     * @param cache the class cache of the class loader
+     * @return the key of the validation of the weave package against the class loader, never 0
+     */
+    public long key(WeavePackage weavePackage, ClassLoader classloader, ClassCache cache) throws IOException {
+        Hasher hasher = Hashing.murmur3_128().newHasher()
+                .putUnencodedChars(weavePackage.getName())
+                .putFloat(weavePackage.getVersion())
+                .putUnencodedChars(getClassLoaderIdentity(classloader));
+
+        Set<String> classNames = new TreeSet<>(weavePackage.getRequiredClasses());
+        if (weavePackage.getIllegalClasses() != null) {
+            classNames.addAll(weavePackage.getIllegalClasses());
+        }
+        Set<String> hashed = new HashSet<>();
+        for (String className : classNames) {
+            // the superclasses decide which methods and fields a weave class can match
+            while (className != null && hashed.add(className)) {
+                hasher.putUnencodedChars(className);
+                byte[] classBytes = cache.getClassResource(className);
+                if (classBytes == null) {
+                    hasher.putInt(-1);
+                    break;
+                }
+                hasher.putInt(classBytes.length).putBytes(classBytes);
+                ClassInformation classInformation = cache.getClassInformation(className);
+                className = classInformation == null ? null : classInformation.superName;
+            }
+        }
+        long key = hasher.hash().asLong();
+        return key == 0 ? 1 : key;
+    }
+
+    /**
+     * Class loader instances differ between JVMs, so a class loader is identified by its type and, for url class
+     * loaders, its urls.
+     */
+    private String getClassLoaderIdentity(ClassLoader classloader) {
+        if (classloader == null || classloader == BootstrapLoader.PLACEHOLDER) {
+            return "bootstrap";
+        }
+        String identity = classLoaderIdentities.get(classloader);
+        if (identity == null) {
+            identity = classloader.getClass().getName();
+            if (classloader instanceof URLClassLoader) {
+                URL[] urls = ((URLClassLoader) classloader).getURLs();
+                identity += Arrays.toString(urls);
+            }
+            classLoaderIdentities.put(classloader, identity);
+        }
+        return identity;
+    }
+
+    /**
+     * @return the failed result recorded for the key, or null if the package has to be validated
+     */
+    public PackageValidationResult getFailedResult(WeavePackage weavePackage, long key) {
+        Queue<WeaveViolation> violations = results.get(key);
+        return violations == null ? null : new PackageValidationResult(weavePackage, violations);
+    }
+
+    /**
+     * Record the result of validating a weave package. Successful results are not recorded, and once the cache is full
+     * nothing more is recorded.
+     */
+    public synchronized void record(long key, PackageValidationResult result) {
+        if (result.succeeded() || results.containsKey(key) || results.size() >= maxEntries) {
+            return;
+        }
+        Queue<WeaveViolation> violations = new ConcurrentLinkedQueue<>(result.getViolations());
+        try {
+            StringBuilder lines = new StringBuilder();
+            for (WeaveViolation violation : violations) {
+                String line = Long.toHexString(key) + SEPARATOR
+                        + violation.getType().name() + SEPARATOR
+                        + nullToEmpty(violation.getClazz()) + SEPARATOR
+                        + nullToEmpty(violation.getField()) + SEPARATOR
+                        + (violation.getMethod() == null ? "" : violation.getMethod().toString());
+                if (line.indexOf('\n') >= 0 || line.split(String.valueOf(SEPARATOR), -1).length != 5) {
+                    // the violation can't be read back, so the package will be validated again
+                    return;
+                }
+                lines.append(line).append('\n');
+            }
+            writer.write(lines.toString());
+            writer.flush();
+            results.put(key, violations);
+        } catch (IOException ignored) {
+            // the result is still valid for this JVM, the weave package manager keeps it
+        }
+    }
+
+    private boolean read(File file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            if (!FORMAT_VERSION.equals(reader.readLine())) {
+                return false;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(String.valueOf(SEPARATOR), -1);
+                if (parts.length != 5) {
+                    // a line cut short by a JVM that stopped while writing it
+                    continue;
+                }
+                try {
+                    long key = Long.parseUnsignedLong(parts[0], 16);
+                    WeaveViolation violation = toViolation(WeaveViolationType.valueOf(parts[1]), emptyToNull(parts[2]),
+                            emptyToNull(parts[3]), emptyToNull(parts[4]));
+                    Queue<WeaveViolation> violations = results.get(key);
+                    if (violations == null) {
+                        violations = new ConcurrentLinkedQueue<>();
+                        results.put(key, violations);
+                    }
+                    violations.add(violation);
+                } catch (IllegalArgumentException e) {
+                    // the line was written by a version of the weaver with other violation types
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static WeaveViolation toViolation(WeaveViolationType type, String clazz, String field, String method) {
+        if (method != null) {
+            int descriptorStart = method.indexOf('(');
+            if (descriptorStart < 0) {
+                throw new IllegalArgumentException("Invalid method " + method);
+            }
+            return new WeaveViolation(type, clazz, new Method(method.substring(0, descriptorStart), method.substring(descriptorStart)));
+        }
+        return field == null ? new WeaveViolation(type, clazz) : new WeaveViolation(type, clazz, field);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+}
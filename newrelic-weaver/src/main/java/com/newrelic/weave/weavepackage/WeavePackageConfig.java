@@ -281,7 +281,17 @@ public class WeavePackageConfig implements Comparable<WeavePackageConfig>{
             if (jarStream.getManifest() == null) {
                 throw new IOException("The instrumentation jar did not contain a manifest");
             }
-            Attributes mainAttributes = jarStream.getManifest().getMainAttributes();
+            return this.manifestAttributes(jarStream.getManifest().getMainAttributes());
+        }
+
+        /**
+         * Use the main attributes of a jar's manifest to set builder parameters.
+         *
+         * @param mainAttributes the manifest attributes, e.g. from a {@link WeavePackageIndex}
+         * @return Builder with updated state.
+         * @throws Exception If the attributes are incorrect.
+         */
+        public Builder manifestAttributes(Attributes mainAttributes) throws Exception {
             String name = mainAttributes.getValue("Implementation-Title");
             if (name == null) {
                 throw new Exception("The Implementation-Title of an instrumentation package is undefined");
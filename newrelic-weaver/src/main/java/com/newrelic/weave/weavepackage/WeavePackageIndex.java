@@ -0,0 +1,111 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.weave.weavepackage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+/**
+ * The manifest attributes of every instrumentation jar embedded in the agent, gathered into a single file when the
+ * agent is built. Each jar is a named section of the index holding the attributes needed to configure its
+ * {@link WeavePackage} and to create it as a {@link CachedWeavePackage}, so that the agent can register all of its
+ * weave packages without opening the jars. A jar is only read once its package might match a class.
+ */
+public class WeavePackageIndex {
+    /**
+     * The name of the index in the instrumentation directory of the agent jar.
+     */
+    public static final String INDEX_FILE_NAME = "weave-package-index.mf";
+
+    /**
+     * The manifest attributes kept for each jar, the ones read by {@link WeavePackageConfig.Builder} and
+     * {@link CachedWeavePackage}.
+     */
+    static final List<String> INDEXED_ATTRIBUTES = Collections.unmodifiableList(Arrays.asList(
+            "Implementation-Title",
+            "Implementation-Title-Alias",
+            "Implementation-Vendor-Id",
+            "Implementation-Version",
+            "Enabled",
+            "Priority",
+            "Weave-Violation-Filter",
+            CachedWeavePackage.WEAVE_CLASSES_MANIFEST_ATTRIBUTE_NAME,
+            CachedWeavePackage.WEAVE_METHODS_MANIFEST_ATTRIBUTE_NAME,
+            CachedWeavePackage.ILLEGAL_CLASSES_MANIFEST_ATTRIBUTE_NAME,
+            CachedWeavePackage.REFERENCE_CLASSES_MANIFEST_ATTRIBUTE_NAME,
+            CachedWeavePackage.CLASS_REQUIRED_ANNOTATIONS_MANIFEST_ATTRIBUTE_NAME,
+            CachedWeavePackage.METHOD_REQUIRED_ANNOTATIONS_MANIFEST_ATTRIBUTE_NAME));
+
+    private final Manifest manifest;
+
+    public WeavePackageIndex() {
+        this(new Manifest());
+        // The Manifest writer won't write anything without this.
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    }
+
+    private WeavePackageIndex(Manifest manifest) {
+        this.manifest = manifest;
+    }
+
+    /**
+     * Read an index written by {@link #write(OutputStream)}.
+     *
+     * @param inputStream stream to read the index from. Will not be closed by this method.
+     */
+    public static WeavePackageIndex read(InputStream inputStream) throws IOException {
+        return new WeavePackageIndex(new Manifest(inputStream));
+    }
+
+    /**
+     * Add an instrumentation jar to the index.
+     *
+     * @param jarFileName the file name of the jar in the instrumentation directory
+     * @param mainAttributes the main attributes of the jar's manifest
+     */
+    public void add(String jarFileName, Attributes mainAttributes) {
+        Attributes indexedAttributes = new Attributes();
+        for (String name : INDEXED_ATTRIBUTES) {
+            String value = mainAttributes.getValue(name);
+            if (value != null) {
+                indexedAttributes.putValue(name, value);
+            }
+        }
+        manifest.getEntries().put(jarFileName, indexedAttributes);
+    }
+
+    /**
+     * @param outputStream stream to write the index to. Will not be closed by this method.
+     */
+    public void write(OutputStream outputStream) throws IOException {
+        manifest.write(outputStream);
+    }
+
+    /**
+     * @return the file names of the indexed jars
+     */
+    public Set<String> getJarFileNames() {
+        return Collections.unmodifiableSet(manifest.getEntries().keySet());
+    }
+
+    /**
+     * @param jarFileName the file name of the jar in the instrumentation directory
+     * @return the indexed manifest attributes of the jar, or null if it isn't in the index
+     */
+    public Attributes getAttributes(String jarFileName) {
+        return manifest.getAttributes(jarFileName);
+    }
+
+}
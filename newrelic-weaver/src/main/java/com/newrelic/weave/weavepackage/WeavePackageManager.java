@@ -97,6 +97,11 @@ public class WeavePackageManager {
     Cache<ClassLoader, ConcurrentMap<WeavePackage, PackageValidationResult>> invalidPackages = Caffeine.newBuilder().weakKeys().initialCapacity(
             8).maximumSize(MAX_INVALID_PACKAGE_CACHE).executor(Runnable::run).build();
 
+    /**
+     * Failed validations remembered from earlier JVMs, or null if they aren't persisted.
+     */
+    private volatile ValidationResultCache validationResultCache;
+
     WeavePackageManager() {
         this(null);
     }
@@ -298,7 +303,7 @@ public class WeavePackageManager {
     public byte[] weave(ClassLoader classloader, String className, byte[] targetBytes,
                         Map<Method, Collection<String>> skipMethods) throws IOException {
         classloader = classLoaderSub(classloader);
-        ClassCache cache = new ClassCache(new ClassLoaderFinder(classloader));
+        ClassCache cache = new ClassCache(new ClassLoaderFinder(classloader), true);
         return weave(classloader, cache, className, targetBytes, skipMethods, null);
     }
 
@@ -334,6 +339,10 @@ public class WeavePackageManager {
 
         Set<PackageValidationResult> matchedPackageResults = this.match(classloader, cache, className, classAnnotations,
                 methodAnnotations, superNames, interfaceNames);
+        if (null != weaveListener && (!matchedPackageResults.isEmpty()
+                || hasMatcher(className, classAnnotations, methodAnnotations, superNames, interfaceNames, cache))) {
+            weaveListener.classMatched(className, classloader);
+        }
         if (matchedPackageResults.isEmpty()) {
             return null;
         }
@@ -357,6 +366,19 @@ public class WeavePackageManager {
         return null == finalResult ? null : finalResult.getCompositeBytes(cache);
     }
 
+    /**
+     * Returns true if any registered weave package matches the class, whether or not it is valid for a class loader.
+     */
+    private boolean hasMatcher(String className, Set<String> classAnnotations, Set<String> methodAnnotations,
+            String[] superNames, String[] interfaceNames, ClassCache cache) throws IOException {
+        for (WeavePackage weavePackage : weavePackages.values()) {
+            if (weavePackage.hasMatcher(className, superNames, interfaceNames, classAnnotations, methodAnnotations, cache)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Quickly checks to see if the class/super class/interfaces or any of the methods in the Class represented by the
      * "classByte" parameter match the Set of known classes/method signatures that constitute all of our weave classes.
@@ -502,13 +524,13 @@ public class WeavePackageManager {
             WeavePackage weavePackage) throws IOException {
         if (classloader != BootstrapLoader.PLACEHOLDER && weavePackage.weavesBootstrap()) {
             classloader = BootstrapLoader.PLACEHOLDER;
-            cache = new ClassCache(BootstrapLoader.get());
+            cache = new ClassCache(BootstrapLoader.get(), true);
         }
 
         try {
             // this is the first time we've validated this package against this classloader.
             if (!hasValidated(classloader, weavePackage)) {
-                PackageValidationResult verificationResult = weavePackage.validate(cache);
+                PackageValidationResult verificationResult = validate(classloader, cache, weavePackage);
                 currentValidationResult.set(verificationResult);
 
                 if (null != packageListener) {
@@ -555,6 +577,41 @@ public class WeavePackageManager {
         }
     }
 
+    /**
+     * Validate the weave package against the class loader, or reuse a failed result recorded by an earlier JVM.
+     */
+    private PackageValidationResult validate(ClassLoader classloader, ClassCache cache, WeavePackage weavePackage)
+            throws IOException {
+        ValidationResultCache persistedResults = validationResultCache;
+        // custom packages can be replaced while the JVM runs without changing their name or version
+        if (persistedResults == null || weavePackage.getConfig().isCustom()) {
+            return weavePackage.validate(cache);
+        }
+        // failing on a missing class is cheaper than computing the key
+        for (String requiredClass : weavePackage.getRequiredClasses()) {
+            if (!cache.hasClassResource(requiredClass)) {
+                return weavePackage.validate(cache);
+            }
+        }
+
+        long key = persistedResults.key(weavePackage, classloader, cache);
+        PackageValidationResult result = persistedResults.getFailedResult(weavePackage, key);
+        if (result == null) {
+            result = weavePackage.validate(cache);
+            persistedResults.record(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Remember failed validations across JVMs in the specified cache.
+     *
+     * @param validationResultCache the cache, or null to stop using one
+     */
+    public void setValidationResultCache(ValidationResultCache validationResultCache) {
+        this.validationResultCache = validationResultCache;
+    }
+
     /**
      * Determine whether the specified package has been validated by the specified class loader.
      */
@@ -0,0 +1,82 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.weave.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.junit.Test;
+
+import com.newrelic.weave.WeaveTestUtils;
+
+public class SharedClassInformationCacheTest {
+    private static final String CLASS_NAME = "com/newrelic/weave/utils/ClassCache";
+
+    @Test
+    public void testHitsAndMissesPerClassLoader() throws IOException {
+        SharedClassInformationCache cache = new SharedClassInformationCache(10);
+        ClassLoader first = new URLClassLoader(new URL[0], null);
+        ClassLoader second = new URLClassLoader(new URL[0], null);
+        ClassInformation information = getClassInformation(CLASS_NAME);
+
+        assertNull(cache.getIfPresent(first, CLASS_NAME));
+        cache.put(first, CLASS_NAME, information);
+        assertSame(information, cache.getIfPresent(first, CLASS_NAME));
+        assertNull(cache.getIfPresent(second, CLASS_NAME));
+
+        assertEquals(1, cache.getAndResetHits());
+        assertEquals(2, cache.getAndResetMisses());
+        assertEquals(0, cache.getAndResetHits());
+        assertEquals(0, cache.getAndResetMisses());
+    }
+
+    @Test
+    public void testBootstrapClassesAreShared() throws IOException {
+        SharedClassInformationCache cache = new SharedClassInformationCache(10);
+        ClassLoader first = new URLClassLoader(new URL[0], null);
+        ClassLoader second = new URLClassLoader(new URL[0], null);
+        ClassInformation information = getClassInformation("java/lang/String");
+
+        cache.put(first, "java/lang/String", information);
+        assertSame(information, cache.getIfPresent(second, "java/lang/String"));
+        assertSame(information, cache.getIfPresent(BootstrapLoader.PLACEHOLDER, "java/lang/String"));
+        assertEquals(2, cache.getAndResetHits());
+    }
+
+    @Test
+    public void testDisabled() throws IOException {
+        SharedClassInformationCache cache = new SharedClassInformationCache(0);
+        ClassLoader classLoader = new URLClassLoader(new URL[0], null);
+        assertFalse(cache.isEnabled());
+
+        cache.put(classLoader, CLASS_NAME, getClassInformation(CLASS_NAME));
+        assertNull(cache.getIfPresent(classLoader, CLASS_NAME));
+        assertEquals(0, cache.getAndResetMisses());
+    }
+
+    @Test
+    public void testClassCacheUsesSharedInformation() throws IOException {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        assertTrue(SharedClassInformationCache.get().isEnabled());
+
+        ClassInformation expected = new ClassCache(new ClassLoaderFinder(classLoader), true).getClassInformation(CLASS_NAME);
+        ClassInformation actual = new ClassCache(new ClassLoaderFinder(classLoader), true).getClassInformation(CLASS_NAME);
+        assertSame(expected, actual);
+    }
+
+    private static ClassInformation getClassInformation(String internalName) throws IOException {
+        return ClassInformation.fromClassBytes(WeaveTestUtils.getClassBytes(internalName.replace('/', '.')));
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.weave.weavepackage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.commons.Method;
+
+import com.google.common.collect.ImmutableSet;
+import com.newrelic.weave.utils.ClassCache;
+import com.newrelic.weave.utils.ClassLoaderFinder;
+import com.newrelic.weave.violation.WeaveViolation;
+import com.newrelic.weave.violation.WeaveViolationType;
+
+public class ValidationResultCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testFailedResultsArePersisted() throws Exception {
+        WeavePackage weavePackage = createWeavePackage();
+        ClassLoader classloader = Thread.currentThread().getContextClassLoader();
+        ClassCache cache = new ClassCache(new ClassLoaderFinder(classloader));
+
+        long key;
+        try (ValidationResultCache validationCache = ValidationResultCache.open(folder.getRoot(), 1, 10)) {
+            key = validationCache.key(weavePackage, classloader, cache);
+            assertNull(validationCache.getFailedResult(weavePackage, key));
+
+            Queue<WeaveViolation> violations = new ConcurrentLinkedQueue<>();
+            violations.add(new WeaveViolation(WeaveViolationType.MISSING_ORIGINAL_BYTECODE, "com/example/Missing"));
+            violations.add(new WeaveViolation(WeaveViolationType.FIELD_TYPE_MISMATCH, "com/example/Weave", "field"));
+            violations.add(new WeaveViolation(WeaveViolationType.METHOD_RETURNTYPE_MISMATCH, "com/example/Weave",
+                    new Method("method", "(Ljava/lang/String;)V")));
+            validationCache.record(key, new PackageValidationResult(weavePackage, violations));
+            assertEquals(1, validationCache.size());
+        }
+
+        try (ValidationResultCache validationCache = ValidationResultCache.open(folder.getRoot(), 1, 10)) {
+            assertEquals(key, validationCache.key(weavePackage, classloader, cache));
+            PackageValidationResult result = validationCache.getFailedResult(weavePackage, key);
+            assertFalse(result.succeeded());
+
+            List<WeaveViolation> violations = result.getViolations();
+            assertEquals(3, violations.size());
+            assertEquals(WeaveViolationType.MISSING_ORIGINAL_BYTECODE, violations.get(0).getType());
+            assertEquals("com/example/Missing", violations.get(0).getClazz());
+            assertEquals("field", violations.get(1).getField());
+            assertEquals(new Method("method", "(Ljava/lang/String;)V"), violations.get(2).getMethod());
+        }
+    }
+
+    @Test
+    public void testSuccessfulResultsAreNotPersisted() throws Exception {
+        WeavePackage weavePackage = createWeavePackage();
+        try (ValidationResultCache validationCache = ValidationResultCache.open(folder.getRoot(), 1, 10)) {
+            validationCache.record(1, new PackageValidationResult(weavePackage, new ConcurrentLinkedQueue<WeaveViolation>()));
+            assertNull(validationCache.getFailedResult(weavePackage, 1));
+            assertEquals(0, validationCache.size());
+        }
+    }
+
+    @Test
+    public void testKeyDependsOnClassLoader() throws Exception {
+        WeavePackage weavePackage = createWeavePackage();
+        ClassLoader classloader = Thread.currentThread().getContextClassLoader();
+        ClassLoader other = new URLClassLoader(new URL[0], null);
+        try (ValidationResultCache validationCache = ValidationResultCache.open(folder.getRoot(), 1, 10)) {
+            assertNotEquals(validationCache.key(weavePackage, classloader, new ClassCache(new ClassLoaderFinder(classloader))),
+                    validationCache.key(weavePackage, other, new ClassCache(new ClassLoaderFinder(other))));
+        }
+    }
+
+    @Test
+    public void testOtherFingerprintsAreKeptWhileRecent() throws Exception {
+        File other;
+        try (ValidationResultCache validationCache = ValidationResultCache.open(folder.getRoot(), 1, 10)) {
+            other = validationCache.getFile();
+        }
+        try (ValidationResultCache validationCache = ValidationResultCache.open(folder.getRoot(), 2, 10)) {
+            assertEquals(0, validationCache.size());
+            // another application, or another version during a rolling deploy, may still be using it
+            assertTrue(other.exists());
+        }
+    }
+
+    @Test
+    public void testFilesNotOpenedRecentlyAreDeleted() throws Exception {
+        File stale;
+        try (ValidationResultCache validationCache = ValidationResultCache.open(folder.getRoot(), 1, 10)) {
+            stale = validationCache.getFile();
+        }
+        assertTrue(stale.setLastModified(System.currentTimeMillis() - ValidationResultCache.STALE_FILE_AGE_MILLIS - 60000));
+        try (ValidationResultCache validationCache = ValidationResultCache.open(folder.getRoot(), 2, 10)) {
+            assertFalse(stale.exists());
+            assertEquals(Collections.singletonList(validationCache.getFile()), Arrays.asList(folder.getRoot().listFiles()));
+        }
+    }
+
+    private static WeavePackage createWeavePackage() throws Exception {
+        return new CachedWeavePackage(new URL("http://does.not.exist"),
+                WeavePackageConfig.builder().name("name").source("source").build(), ImmutableSet.of("somemethod"),
+                ImmutableSet.of("com/newrelic/weave/weavepackage/WeavePackage"), ImmutableSet.of("java/lang/String"),
+                Collections.<String>emptySet(), Collections.<String>emptySet(), Collections.<String>emptySet());
+    }
+}
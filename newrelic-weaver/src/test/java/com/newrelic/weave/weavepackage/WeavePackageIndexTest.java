@@ -0,0 +1,92 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.weave.weavepackage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.jar.Attributes;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+public class WeavePackageIndexTest {
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        WeavePackageIndex index = new WeavePackageIndex();
+        index.add("first.jar", createAttributes("com.newrelic.instrumentation.first", "com/example/First"));
+        index.add("second.jar", createAttributes("com.newrelic.instrumentation.second", "com/example/Second"));
+
+        WeavePackageIndex read = writeAndRead(index);
+        assertEquals(ImmutableSet.of("first.jar", "second.jar"), read.getJarFileNames());
+        assertEquals("com.newrelic.instrumentation.first", read.getAttributes("first.jar").getValue("Implementation-Title"));
+        assertEquals("com/example/Second",
+                read.getAttributes("second.jar").getValue(CachedWeavePackage.WEAVE_CLASSES_MANIFEST_ATTRIBUTE_NAME));
+        assertNull(read.getAttributes("third.jar"));
+    }
+
+    @Test
+    public void testOnlyIndexedAttributesAreKept() throws IOException {
+        Attributes attributes = createAttributes("com.newrelic.instrumentation.first", "com/example/First");
+        attributes.putValue("Built-By", "someone");
+
+        WeavePackageIndex index = new WeavePackageIndex();
+        index.add("first.jar", attributes);
+
+        Attributes read = writeAndRead(index).getAttributes("first.jar");
+        assertNull(read.getValue("Built-By"));
+        assertNull(read.getValue(Attributes.Name.MANIFEST_VERSION));
+        assertEquals(attributes.size() - 2, read.size());
+    }
+
+    @Test
+    public void testCreateWeavePackageFromIndex() throws Exception {
+        WeavePackageIndex index = new WeavePackageIndex();
+        index.add("first.jar", createAttributes("com.newrelic.instrumentation.first", "com/example/First"));
+        Attributes attributes = writeAndRead(index).getAttributes("first.jar");
+
+        WeavePackageConfig config = WeavePackageConfig.builder().manifestAttributes(attributes).source("source").build();
+        assertEquals("com.newrelic.instrumentation.first", config.getName());
+        assertEquals(2.0f, config.getVersion(), 0);
+
+        // the jar doesn't exist, it must not be read to create the package
+        WeavePackage weavePackage = CachedWeavePackage.createWeavePackage(new URL("http://does.not.exist"), attributes,
+                config);
+        assertTrue(weavePackage instanceof CachedWeavePackage);
+        assertEquals(ImmutableSet.of("com/example/First", "java/lang/String"), weavePackage.getRequiredClasses());
+        assertEquals(Collections.singleton("com/example/First.method()V"), weavePackage.getMethodSignatures());
+    }
+
+    private static Attributes createAttributes(String title, String weaveClass) {
+        Attributes attributes = new Attributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue("Implementation-Title", title);
+        attributes.putValue("Implementation-Version", "2.0");
+        attributes.putValue(CachedWeavePackage.WEAVE_CLASSES_MANIFEST_ATTRIBUTE_NAME, weaveClass);
+        attributes.putValue(CachedWeavePackage.WEAVE_METHODS_MANIFEST_ATTRIBUTE_NAME, '"' + weaveClass + ".method()V\"");
+        attributes.putValue(CachedWeavePackage.REFERENCE_CLASSES_MANIFEST_ATTRIBUTE_NAME, "java/lang/String");
+        attributes.putValue(CachedWeavePackage.ILLEGAL_CLASSES_MANIFEST_ATTRIBUTE_NAME, "");
+        attributes.putValue(CachedWeavePackage.CLASS_REQUIRED_ANNOTATIONS_MANIFEST_ATTRIBUTE_NAME, "");
+        attributes.putValue(CachedWeavePackage.METHOD_REQUIRED_ANNOTATIONS_MANIFEST_ATTRIBUTE_NAME, "");
+        return attributes;
+    }
+
+    private static WeavePackageIndex writeAndRead(WeavePackageIndex index) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.write(out);
+        return WeavePackageIndex.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+}
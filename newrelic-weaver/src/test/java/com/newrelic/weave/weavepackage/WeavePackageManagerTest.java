@@ -16,18 +16,25 @@ import com.newrelic.weave.utils.BootstrapLoader;
 import com.newrelic.weave.utils.ClassCache;
 import com.newrelic.weave.utils.ClassInformation;
 import com.newrelic.weave.utils.ClassLoaderFinder;
+import com.newrelic.weave.violation.WeaveViolation;
+import com.newrelic.weave.violation.WeaveViolationType;
 import org.junit.Assert;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 
 import java.io.IOException;
 import java.lang.instrument.Instrumentation;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -37,6 +44,10 @@ public class WeavePackageManagerTest {
 
     public static WeavePackage testPackage1;
     public static WeavePackage testPackage2;
+    private static List<byte[]> testPackageBytes;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
 
     @BeforeClass
     public static void init() throws IOException {
@@ -58,6 +69,7 @@ public class WeavePackageManagerTest {
                 "com.newrelic.weave.weavepackage.testclasses").build();
         testPackage1 = new WeavePackage(config1, weaveBytes);
         testPackage2 = new WeavePackage(config2, weaveBytes);
+        testPackageBytes = weaveBytes;
     }
 
     /**
@@ -324,6 +336,104 @@ public class WeavePackageManagerTest {
         Assert.assertNotNull(result);
     }
 
+    /**
+     * A class that a package matches is reported as matched even when the package isn't valid for its class loader,
+     * because another class loader of the same type, like one over a replaced jar, can make the package valid.
+     */
+    @Test
+    public void testMatchIsReportedBeforeValidation() throws IOException {
+        WeavePackageManager wpm = new WeavePackageManager();
+        wpm.register(testPackage1);
+        ClassLoader context = Thread.currentThread().getContextClassLoader();
+        String className = "com/newrelic/weave/weavepackage/testclasses/MyOriginalBase";
+        byte[] classBytes = WeaveTestUtils.getClassBytes("com.newrelic.weave.weavepackage.testclasses.MyOriginalBase");
+
+        ClassLoader invalidClassLoader = new HidingClassLoader(context,
+                "com/newrelic/weave/weavepackage/testclasses/MyOriginalExact.class");
+        ClassWeavedListener invalidListener = Mockito.mock(ClassWeavedListener.class);
+        byte[] result = wpm.weave(invalidClassLoader, new ClassCache(new ClassLoaderFinder(invalidClassLoader)),
+                className, classBytes, Collections.emptyMap(), invalidListener);
+        Assert.assertNull(result);
+        Mockito.verify(invalidListener).classMatched(className, invalidClassLoader);
+
+        ClassLoader validClassLoader = new HidingClassLoader(context, null);
+        ClassWeavedListener validListener = Mockito.mock(ClassWeavedListener.class);
+        result = wpm.weave(validClassLoader, new ClassCache(new ClassLoaderFinder(validClassLoader)),
+                className, classBytes, Collections.emptyMap(), validListener);
+        Assert.assertNotNull(result);
+        Mockito.verify(validListener).classMatched(className, validClassLoader);
+    }
+
+    @Test
+    public void testNoMatchIsNotReported() throws IOException {
+        WeavePackageManager wpm = new WeavePackageManager();
+        wpm.register(testPackage1);
+        ClassLoader cl = new ClassLoader(Thread.currentThread().getContextClassLoader()) {
+        };
+        ClassWeavedListener listener = Mockito.mock(ClassWeavedListener.class);
+        byte[] result = wpm.weave(cl, new ClassCache(new ClassLoaderFinder(cl)),
+                "com/newrelic/weave/weavepackage/WeavePackageManagerTest$NoMatchClass",
+                WeaveTestUtils.getClassBytes("com.newrelic.weave.weavepackage.WeavePackageManagerTest$NoMatchClass"),
+                Collections.emptyMap(), listener);
+        Assert.assertNull(result);
+        Mockito.verify(listener, Mockito.never()).classMatched(Mockito.anyString(), Mockito.any(ClassLoader.class));
+    }
+
+    @Test
+    public void testPersistedFailureSkipsValidation() throws IOException {
+        ClassLoader cl = new ClassLoader(Thread.currentThread().getContextClassLoader()) {
+        };
+        WeavePackage weavePackage = Mockito.spy(testPackage1);
+        try (ValidationResultCache validationCache = ValidationResultCache.open(folder.getRoot(), 1, 10)) {
+            recordFailure(validationCache, weavePackage, cl);
+
+            WeavePackageManager wpm = new WeavePackageManager();
+            wpm.setValidationResultCache(validationCache);
+            wpm.register(weavePackage);
+            byte[] result = wpm.weave(cl, new ClassCache(new ClassLoaderFinder(cl)),
+                    "com/newrelic/weave/weavepackage/testclasses/MyOriginalBase",
+                    WeaveTestUtils.getClassBytes("com.newrelic.weave.weavepackage.testclasses.MyOriginalBase"),
+                    Collections.emptyMap(), null);
+
+            Assert.assertNull(result);
+            Mockito.verify(weavePackage, Mockito.never()).validate(Mockito.any(ClassCache.class));
+            PackageValidationResult failure = wpm.invalidPackages.getIfPresent(cl).get(weavePackage);
+            Assert.assertEquals(WeaveViolationType.MISSING_ORIGINAL_BYTECODE, failure.getViolations().get(0).getType());
+        }
+    }
+
+    @Test
+    public void testCustomPackagesBypassValidationCache() throws IOException {
+        ClassLoader cl = new ClassLoader(Thread.currentThread().getContextClassLoader()) {
+        };
+        WeavePackageConfig config = WeavePackageConfig.builder().name("weave_unittest_custom").custom(true).source(
+                "com.newrelic.weave.weavepackage.testclasses").build();
+        WeavePackage weavePackage = Mockito.spy(new WeavePackage(config, testPackageBytes));
+        try (ValidationResultCache validationCache = ValidationResultCache.open(folder.getRoot(), 1, 10)) {
+            recordFailure(validationCache, weavePackage, cl);
+
+            WeavePackageManager wpm = new WeavePackageManager();
+            wpm.setValidationResultCache(validationCache);
+            wpm.register(weavePackage);
+            byte[] result = wpm.weave(cl, new ClassCache(new ClassLoaderFinder(cl)),
+                    "com/newrelic/weave/weavepackage/testclasses/MyOriginalBase",
+                    WeaveTestUtils.getClassBytes("com.newrelic.weave.weavepackage.testclasses.MyOriginalBase"),
+                    Collections.emptyMap(), null);
+
+            Assert.assertNotNull(result);
+            Mockito.verify(weavePackage).validate(Mockito.any(ClassCache.class));
+        }
+    }
+
+    private static void recordFailure(ValidationResultCache validationCache, WeavePackage weavePackage, ClassLoader cl)
+            throws IOException {
+        Queue<WeaveViolation> violations = new ConcurrentLinkedQueue<>();
+        violations.add(new WeaveViolation(WeaveViolationType.MISSING_ORIGINAL_BYTECODE, "com/example/Missing"));
+        long key = validationCache.key(weavePackage, cl, new ClassCache(new ClassLoaderFinder(cl)));
+        validationCache.record(key, new PackageValidationResult(weavePackage, violations));
+        Assert.assertEquals(1, validationCache.size());
+    }
+
     @Test
     public void testConcurrentWeavePackage() throws Exception {
         final ExecutorService executor1 = Executors.newFixedThreadPool(5);
@@ -458,6 +568,23 @@ public class WeavePackageManagerTest {
         return cache.asMap().size();
     }
 
+    /**
+     * A class loader that can't find one class, the way a class loader over an older jar can't.
+     */
+    private static class HidingClassLoader extends ClassLoader {
+        private final String hiddenResource;
+
+        HidingClassLoader(ClassLoader parent, String hiddenResource) {
+            super(parent);
+            this.hiddenResource = hiddenResource;
+        }
+
+        @Override
+        public URL getResource(String name) {
+            return name.equals(hiddenResource) ? null : super.getResource(name);
+        }
+    }
+
     private static class TestListener implements WeavePackageLifetimeListener, ClassWeavedListener {
         public int invokeCount = 0;
 